@@ -278,3 +278,119 @@ CREATE TABLE IF NOT EXISTS ml_models
 
 CREATE UNIQUE INDEX IF NOT EXISTS ux_ml_models_name_version
     ON ml_models(model_name, version);
+
+
+-- ============================================================================
+-- 7) Inkrementeller Sync der Account-Aktivitäten (ActivitySyncJob)
+-- ============================================================================
+
+-- Upsert-Schlüssel für Orders
+CREATE UNIQUE INDEX IF NOT EXISTS ux_orders_broker_order_id
+    ON orders(broker_order_id);
+
+-- Alpaca-Activity-ID, damit jeder Fill nur einmal gespeichert wird
+ALTER TABLE fills
+    ADD COLUMN IF NOT EXISTS activity_id TEXT;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_fills_activity_id
+    ON fills(activity_id);
+
+-- High-Water-Mark pro Sync-Job (letzte übernommene Aktivität)
+CREATE TABLE IF NOT EXISTS sync_state
+(
+    name            TEXT PRIMARY KEY,
+    last_id         TEXT,
+    last_ts         TIMESTAMPTZ,
+    updated_at      TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+
+-- ============================================================================
+-- 8) Trainingsjobs (TrainingJobManager) – ein Eintrag in ml_models pro Job
+-- ============================================================================
+
+ALTER TABLE ml_models
+    ADD COLUMN IF NOT EXISTS job_id TEXT,
+    ADD COLUMN IF NOT EXISTS status TEXT,          -- QUEUED / RUNNING / SUCCEEDED / FAILED
+    ADD COLUMN IF NOT EXISTS started_at TIMESTAMPTZ,
+    ADD COLUMN IF NOT EXISTS finished_at TIMESTAMPTZ;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_ml_models_job_id
+    ON ml_models(job_id);
+
+-- Letzte Jobs pro Modell für die Übersicht
+CREATE INDEX IF NOT EXISTS ix_ml_models_name_trained_at
+    ON ml_models(model_name, trained_at DESC);
+
+
+-- ============================================================================
+-- 9) Stammdaten pro Symbol (SymbolMetadataService) – Sektor/Name aus Alpha Vantage OVERVIEW
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS symbol_metadata
+(
+    symbol      TEXT PRIMARY KEY,
+    sector      TEXT,                              -- NULL = Alpha Vantage kennt keinen Sektor (z.B. ETF)
+    name        TEXT,
+    fetched_at  TIMESTAMPTZ NOT NULL DEFAULT NOW() -- für das Nachladen veralteter Einträge
+);
+
+
+-- ============================================================================
+-- 10) Verwaltete Konten (TenantAlpacaClients) und Batch-Analyse (PortfolioAnalysisBatchJob)
+-- ============================================================================
+
+-- Alpaca-Zugangsdaten pro Konto. Key und Secret nur verschlüsselt ablegen (AES-256-GCM, Schlüssel TENANT_SECRET_KEY
+-- aus Umgebung/Secret-Store); Werte erzeugt com.mybroker.service.TenantSecretCipher <tenant_id>
+CREATE TABLE IF NOT EXISTS tenant_accounts
+(
+    tenant_id       TEXT PRIMARY KEY,
+    api_key_enc     TEXT NOT NULL,        -- "v1:" + Base64(IV || Chiffretext || Tag)
+    api_secret_enc  TEXT NOT NULL,
+    base_url        TEXT NOT NULL,
+    data_url        TEXT,
+    active          BOOLEAN NOT NULL DEFAULT TRUE,
+    created_at      TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+-- Letzte Analyse pro Konto; bei einem Fehler bleibt die letzte erfolgreiche Analyse stehen
+CREATE TABLE IF NOT EXISTS portfolio_analysis_summaries
+(
+    tenant_id               TEXT PRIMARY KEY,
+    analysed_at             TIMESTAMPTZ,          -- NULL = noch keine erfolgreiche Analyse
+    position_count          INTEGER NOT NULL DEFAULT 0,
+    total_market_value      NUMERIC(20, 6),
+    tech_weight             NUMERIC(9, 2),
+    top_symbol              TEXT,
+    top_weight              NUMERIC(9, 2),
+    sector_weights          JSONB,                -- Sektor -> Anteil in %
+    risk_comment            TEXT,
+    volatility_comment      TEXT,
+    diversification_comment TEXT,
+    error                   TEXT,                 -- Fehler des letzten Laufs, NULL = erfolgreich
+    error_at                TIMESTAMPTZ
+);
+
+-- z.B. "Konten mit hoher Konzentration"
+CREATE INDEX IF NOT EXISTS ix_portfolio_analysis_summaries_top_weight
+    ON portfolio_analysis_summaries(top_weight DESC);
+
+
+-- ============================================================================
+-- 11) KI-Erklärungen (AiExplanationCache) – eine Zeile pro Fingerabdruck der Prompt-Eingaben
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS ai_explanations
+(
+    fingerprint       TEXT PRIMARY KEY,     -- SHA-256 über Modell, Prompt-Version und gerundete Kennzahlen
+    content           TEXT NOT NULL,
+    model             TEXT,
+    generated_at      TIMESTAMPTZ NOT NULL,
+    total_tokens      INTEGER,
+    completion_tokens INTEGER,
+    service_tier      TEXT
+);
+
+-- Aufräumen veralteter Einträge (älter als AI_CACHE_TTL_MS, stündlich durch AiExplanationCache.start())
+CREATE INDEX IF NOT EXISTS ix_ai_explanations_generated_at
+    ON ai_explanations(generated_at);
@@ -0,0 +1,209 @@
+package com.mybroker.ai;
+
+import com.mybroker.cache.SingleFlight;
+import com.mybroker.config.AppConfig;
+import com.mybroker.db.AiExplanationRepository;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.model.AiExplanation;
+import com.mybroker.model.PortfolioAnalysisResult;
+import com.mybroker.model.Position;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * KI-Erklärungen pro {@link ExplanationFingerprint}: LRU im Speicher, dahinter brokerml.ai_explanations
+ * (nur mit DB_URL), damit Treffer einen Neustart überleben.
+ * <p>
+ * Reihenfolge: Speicher, Datenbank, erst dann der KI-Aufruf. Gleichzeitige Anfragen mit demselben
+ * Fingerabdruck teilen sich einen Aufruf ({@link SingleFlight}); Wartende geben nach AI_CACHE_WAIT_MS auf.
+ * Einträge älter als AI_CACHE_TTL_MS werden neu erzeugt; mit {@link #start()} werden sie zusätzlich alle
+ * AI_CACHE_PURGE_INTERVAL_MS aus der Datenbank gelöscht. Fehler der Datenbank werden protokolliert und wie ein
+ * Fehltreffer behandelt.
+ * <p>
+ * Konfiguration: AI_CACHE_MAX (512), AI_CACHE_TTL_MS (7 Tage), AI_CACHE_VALUE_DIGITS (2 signifikante Stellen),
+ * AI_CACHE_PERCENT_STEP (1.0 Prozentpunkte), AI_CACHE_VOLATILITY_STEP (0.02), AI_CACHE_WAIT_MS (60000),
+ * AI_CACHE_PURGE_INTERVAL_MS (1 Stunde).
+ */
+public class AiExplanationCache {
+
+    private static final String METRIC_PREFIX = "cache.ai_explanation.";
+
+    private final int maxEntries;
+    private final Duration ttl;
+    private final int valueDigits;
+    private final double percentStep;
+    private final double volatilityStep;
+    // null = ohne Datenbank
+    private final AiExplanationRepository repository;
+
+    private final Map<String, AiExplanation> entries;
+    private final SingleFlight<String, AiExplanation> inFlight;
+    private ScheduledExecutorService purger;
+
+    private final LongAdder hits = Metrics.counter(METRIC_PREFIX + "hits");
+    private final LongAdder dbHits = Metrics.counter(METRIC_PREFIX + "db_hits");
+    private final LongAdder misses = Metrics.counter(METRIC_PREFIX + "misses");
+    private final LongAdder dbErrors = Metrics.counter(METRIC_PREFIX + "db_errors");
+    private final LongAdder purged = Metrics.counter(METRIC_PREFIX + "purged");
+
+    public AiExplanationCache(int maxEntries, Duration ttl, int valueDigits, double percentStep,
+                              double volatilityStep, Duration waitTimeout, AiExplanationRepository repository) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttl = ttl;
+        this.valueDigits = valueDigits;
+        this.percentStep = percentStep;
+        this.volatilityStep = volatilityStep;
+        this.repository = repository;
+        this.inFlight = new SingleFlight<>(waitTimeout);
+        this.entries = new LinkedHashMap<>(32, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AiExplanation> eldest) {
+                return size() > AiExplanationCache.this.maxEntries;
+            }
+        };
+        Metrics.gauge(METRIC_PREFIX + "size", this::size);
+    }
+
+    public static AiExplanationCache shared() {
+        return Holder.INSTANCE;
+    }
+
+    public String fingerprint(String context, PortfolioAnalysisResult analysis, List<Position> positions) {
+        return ExplanationFingerprint.of(context, analysis, positions, valueDigits, percentStep, volatilityStep);
+    }
+
+    /**
+     * Liefert die gespeicherte Erklärung zum Fingerabdruck oder erzeugt sie über den Loader.
+     * Der Loader muss eine Erklärung mit diesem Fingerabdruck und generatedAt liefern; Fehler wirft er als Exception
+     * (nichts wird gespeichert).
+     *
+     * @throws java.util.concurrent.TimeoutException wenn ein gleichzeitiger Aufruf nicht innerhalb von
+     *                                               AI_CACHE_WAIT_MS fertig wird
+     */
+    public AiExplanation get(String fingerprint, Callable<AiExplanation> loader) throws Exception {
+        synchronized (entries) {
+            AiExplanation cached = entries.get(fingerprint);
+            if (cached != null && isFresh(cached)) {
+                hits.increment();
+                return cached.asCached();
+            }
+        }
+
+        return inFlight.load(fingerprint, () -> loadOrGenerate(fingerprint, loader), AiExplanation::asCached);
+    }
+
+    /**
+     * Löscht alle AI_CACHE_PURGE_INTERVAL_MS die abgelaufenen Einträge aus brokerml.ai_explanations (nur mit Datenbank).
+     */
+    public synchronized void start() {
+        if (repository == null || purger != null) {
+            return;
+        }
+        long intervalMillis = AppConfig.getMillis("AI_CACHE_PURGE_INTERVAL_MS", Duration.ofHours(1).toMillis()).toMillis();
+        purger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ai-explanation-purge");
+            t.setDaemon(true);
+            return t;
+        });
+        purger.scheduleWithFixedDelay(this::purgeExpired, 0, Math.max(1_000, intervalMillis), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (purger != null) {
+            purger.shutdownNow();
+            purger = null;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private boolean isFresh(AiExplanation explanation) {
+        return explanation.getGeneratedAt() != null
+                && explanation.getGeneratedAt().plus(ttl).isAfter(Instant.now());
+    }
+
+    private AiExplanation loadOrGenerate(String fingerprint, Callable<AiExplanation> loader) throws Exception {
+        AiExplanation stored = loadStored(fingerprint);
+        if (stored != null) {
+            dbHits.increment();
+            remember(stored);
+            return stored;
+        }
+
+        misses.increment();
+        AiExplanation generated = loader.call();
+        remember(generated);
+        store(generated);
+        return generated;
+    }
+
+    private void purgeExpired() {
+        try {
+            int deleted = repository.deleteGeneratedBefore(Instant.now().minus(ttl));
+            purged.add(deleted);
+            if (deleted > 0) {
+                System.out.println("[AiExplanationCache] " + deleted + " abgelaufene Erklärungen gelöscht.");
+            }
+        } catch (SQLException e) {
+            dbErrors.increment();
+            System.err.println("[AiExplanationCache] Aufräumen fehlgeschlagen: " + e.getMessage());
+        }
+    }
+
+    private void remember(AiExplanation explanation) {
+        synchronized (entries) {
+            entries.put(explanation.getFingerprint(), explanation);
+        }
+    }
+
+    private AiExplanation loadStored(String fingerprint) {
+        if (repository == null) {
+            return null;
+        }
+        try {
+            AiExplanation stored = repository.find(fingerprint);
+            return stored != null && isFresh(stored) ? stored : null;
+        } catch (SQLException e) {
+            dbErrors.increment();
+            System.err.println("[AiExplanationCache] Lesen fehlgeschlagen: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(AiExplanation explanation) {
+        if (repository == null) {
+            return;
+        }
+        try {
+            repository.upsert(explanation);
+        } catch (SQLException e) {
+            dbErrors.increment();
+            System.err.println("[AiExplanationCache] Speichern fehlgeschlagen: " + e.getMessage());
+        }
+    }
+
+    private static final class Holder {
+        static final AiExplanationCache INSTANCE = new AiExplanationCache(
+                AppConfig.getInt("AI_CACHE_MAX", 512),
+                AppConfig.getMillis("AI_CACHE_TTL_MS", Duration.ofDays(7).toMillis()),
+                AppConfig.getInt("AI_CACHE_VALUE_DIGITS", 2),
+                AppConfig.getDouble("AI_CACHE_PERCENT_STEP", 1.0),
+                AppConfig.getDouble("AI_CACHE_VOLATILITY_STEP", 0.02),
+                AppConfig.getMillis("AI_CACHE_WAIT_MS", 60_000),
+                System.getenv("DB_URL") != null ? new AiExplanationRepository() : null);
+    }
+}
@@ -0,0 +1,118 @@
+package com.mybroker.ai;
+
+import com.mybroker.model.PortfolioAnalysisResult;
+import com.mybroker.model.Position;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Fingerabdruck der Eingaben einer KI-Erklärung ({@link PortfolioAnalysisResult} plus Positionen).
+ * <p>
+ * Beträge gehen mit wenigen signifikanten Stellen ein, Gewichte und P/L in Prozent auf eine Schrittweite
+ * gerundet, Volatilitäten ebenso; Positionen und Sektoren sortiert. Die Heuristik-Kommentare gehen ohne ihre
+ * Zahlen ein: Ihr Wortlaut gibt das Schwellen-Band wieder (z.B. Tech-Gewicht über 40 % „Hohe“, sonst „Moderate“),
+ * das sich aus den gerundeten Gewichten an den Grenzen nicht ablesen lässt – 39.7 % und 40.3 % landen im selben
+ * Bucket, aber nicht im selben Prompt. Portfolios, die sich nur durch Kursrauschen unterscheiden, bekommen so
+ * dieselbe Erklärung.
+ */
+public final class ExplanationFingerprint {
+
+    private static final Comparator<Position> BY_SYMBOL = Comparator
+            .comparing((Position p) -> p.getSymbol() == null ? "" : p.getSymbol());
+
+    private static final Pattern NUMBER = Pattern.compile("\\d+(?:[.,]\\d+)?");
+
+    private ExplanationFingerprint() {
+    }
+
+    /**
+     * @param context      fließt unverändert ein (Modell, Prompt-Version) – ein anderer Prompt ergibt andere Schlüssel
+     * @param valueDigits  signifikante Stellen für Beträge (z.B. 2: 123456 -&gt; 120000)
+     * @param percentStep  Rundungsschritt für Gewichte und P/L in Prozentpunkten (z.B. 1.0)
+     * @param volatilityStep Rundungsschritt für Volatilitäten (z.B. 0.02)
+     * @return SHA-256 (hex) über die kanonische Darstellung
+     */
+    public static String of(String context, PortfolioAnalysisResult analysis, List<Position> positions,
+                            int valueDigits, double percentStep, double volatilityStep) {
+        MathContext digits = new MathContext(Math.max(1, valueDigits));
+        BigDecimal total = analysis.getTotalMarketValue();
+
+        StringBuilder canonical = new StringBuilder(256);
+        canonical.append(context)
+                .append("|total=").append(significant(total, digits))
+                .append("|tech=").append(bucket(analysis.getTechWeight(), percentStep))
+                .append("|top=").append(analysis.getTopPositionSymbol())
+                .append(';').append(bucket(analysis.getTopPositionWeight(), percentStep))
+                .append("|c:").append(band(analysis.getRiskComment()))
+                .append(';').append(band(analysis.getVolatilityComment()))
+                .append(';').append(band(analysis.getDiversificationComment()));
+
+        Map<String, BigDecimal> sectors = analysis.getSectorWeights() != null
+                ? new TreeMap<>(analysis.getSectorWeights())
+                : new TreeMap<>();
+        for (Map.Entry<String, BigDecimal> e : sectors.entrySet()) {
+            canonical.append("|s:").append(e.getKey()).append('=').append(bucket(e.getValue(), percentStep));
+        }
+
+        List<Position> sorted = positions != null ? new ArrayList<>(positions) : new ArrayList<>();
+        sorted.sort(BY_SYMBOL);
+        for (Position p : sorted) {
+            BigDecimal mv = p.getMarketValue();
+            canonical.append("|p:").append(p.getSymbol())
+                    .append(';').append(p.getName())
+                    .append(';').append(p.getSector())
+                    .append(';').append(bucket(percent(mv, total), percentStep))
+                    .append(';').append(bucket(percent(p.getUnrealizedPnl(), mv), percentStep))
+                    .append(';').append(bucket(p.getVolatility(), volatilityStep));
+        }
+        return sha256(canonical.toString());
+    }
+
+    private static String significant(BigDecimal value, MathContext digits) {
+        return value == null ? "-" : value.round(digits).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Kommentar ohne Zahlen, z.B. "Hohe Tech-Gewichtung (#%). " – übrig bleibt das Schwellen-Band.
+     */
+    private static String band(String comment) {
+        return comment == null ? "-" : NUMBER.matcher(comment).replaceAll("#");
+    }
+
+    private static String bucket(BigDecimal value, double step) {
+        if (value == null) {
+            return "-";
+        }
+        return step > 0 ? Long.toString(Math.round(value.doubleValue() / step)) : value.stripTrailingZeros().toPlainString();
+    }
+
+    private static BigDecimal percent(BigDecimal part, BigDecimal whole) {
+        if (part == null || whole == null || whole.signum() == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(part.doubleValue() * 100.0 / whole.doubleValue());
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 nicht verfügbar", e);
+        }
+    }
+}
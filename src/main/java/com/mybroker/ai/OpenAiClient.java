@@ -1,12 +1,12 @@
 package com.mybroker.ai;
 
-import java.io.BufferedReader;
+import com.mybroker.http.UpstreamHttpClient;
+import com.mybroker.http.UpstreamResponse;
+
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 /**
  * Client für Aufrufe der OpenAI Chat Completions API.
@@ -21,6 +21,7 @@ public class OpenAiClient {
 
     private final String apiKey;
     private final String model;
+    private final UpstreamHttpClient http = UpstreamHttpClient.shared();
 
     public OpenAiClient() {
         // 1. Versuche System Properties (gesetzt durch EnvLoader)
@@ -48,6 +49,15 @@ public class OpenAiClient {
         }
 
         this.model = (m != null && !m.isEmpty()) ? m : "gpt-4.1-mini";
+
+        http.configureHost(API_URL, Duration.ofSeconds(15), Duration.ofSeconds(30));
+    }
+
+    /**
+     * Konfiguriertes Modell (OPENAI_MODEL, Default gpt-4.1-mini).
+     */
+    public String getModel() {
+        return model;
     }
 
     /**
@@ -61,43 +71,27 @@ public class OpenAiClient {
     public String chat(String systemPrompt, String userPrompt) throws IOException {
         String jsonBody = buildRequestBody(systemPrompt, userPrompt);
 
-        URL url = new URL(API_URL);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("POST");
-        conn.setConnectTimeout(15000);
-        conn.setReadTimeout(30000);
-        conn.setDoOutput(true);
-        conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-        conn.setRequestProperty("Authorization", "Bearer " + apiKey);
+        HttpRequest.Builder builder = http.newRequest(API_URL)
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .header("Authorization", "Bearer " + apiKey);
 
         // Falls du ein bestimmtes Projekt in OpenAI konfigurierst:
         // String projectId = System.getProperty("OPENAI_PROJECT_ID", System.getenv("OPENAI_PROJECT_ID"));
         // if (projectId != null && !projectId.isEmpty()) {
-        //     conn.setRequestProperty("OpenAI-Project", projectId);
+        //     builder.header("OpenAI-Project", projectId);
         // }
 
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(jsonBody.getBytes("UTF-8"));
-        }
+        HttpRequest request = builder
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
+                .build();
 
-        int status = conn.getResponseCode();
-        InputStream is = (status >= 200 && status < 300)
-                ? conn.getInputStream()
-                : conn.getErrorStream();
-
-        StringBuilder response = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(is, "UTF-8"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                response.append(line);
-            }
-        }
+        UpstreamResponse response = http.send(request);
 
-        if (status < 200 || status >= 300) {
-            throw new IOException("OpenAI API Fehler (" + status + "): " + response);
+        if (!response.isSuccessful()) {
+            throw new IOException("OpenAI API Fehler (" + response.statusCode() + "): " + response.body());
         }
 
-        return response.toString();
+        return response.body();
     }
 
     private String buildRequestBody(String systemPrompt, String userPrompt) {
@@ -0,0 +1,73 @@
+package com.mybroker.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Request-Coalescing pro Schlüssel: gleichzeitige Aufrufer mit demselben Schlüssel teilen sich einen Ladevorgang.
+ * <p>
+ * Wer zuerst kommt, lädt im eigenen Thread; alle weiteren warten auf dessen Ergebnis, höchstens aber
+ * {@code waitTimeout} (danach {@link TimeoutException}). Das gemeinsame Future wird in jedem Fall abgeschlossen –
+ * auch wenn der Loader einen {@link Error} wirft –, damit kein Wartender hängen bleibt.
+ */
+public final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Duration waitTimeout;
+
+    public SingleFlight(Duration waitTimeout) {
+        this.waitTimeout = waitTimeout;
+    }
+
+    public V load(K key, Callable<V> loader) throws Exception {
+        return load(key, loader, UnaryOperator.identity());
+    }
+
+    /**
+     * @param forWaiters wird auf das Ergebnis angewendet, das wartende Aufrufer erhalten
+     *                   (z.B. Kopie oder Markierung als Cache-Treffer)
+     */
+    public V load(K key, Callable<V> loader, UnaryOperator<V> forWaiters) throws Exception {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return forWaiters.apply(await(existing));
+        }
+
+        try {
+            V value = loader.call();
+            mine.complete(value);
+            return value;
+        } catch (Throwable e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public boolean isInFlight(K key) {
+        return inFlight.containsKey(key);
+    }
+
+    private V await(CompletableFuture<V> future) throws Exception {
+        try {
+            return future.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        } catch (TimeoutException e) {
+            throw new TimeoutException("Kein Ergebnis des laufenden Ladevorgangs nach " + waitTimeout.toMillis() + " ms");
+        }
+    }
+}
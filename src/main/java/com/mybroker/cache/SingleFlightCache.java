@@ -0,0 +1,185 @@
+package com.mybroker.cache;
+
+import com.mybroker.metrics.Metrics;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TTL-Cache mit Request-Coalescing und Stale-While-Revalidate.
+ * <ul>
+ *     <li>frisch (Alter &lt; TTL): Wert wird direkt geliefert</li>
+ *     <li>abgelaufen, aber innerhalb des Stale-Fensters: alter Wert wird sofort geliefert,
+ *     im Hintergrund wird genau einmal neu geladen</li>
+ *     <li>sonst (oder leer): Miss – N gleichzeitige Aufrufer teilen sich genau einen Upstream-Aufruf</li>
+ * </ul>
+ * Wartende Aufrufer warten höchstens {@code waitTimeout} (Default 30 s) auf den laufenden Ladevorgang.
+ * Zähler (hits, stale_hits, misses, loads, load_errors) liegen unter {@code cache.<name>.*} in {@link Metrics}.
+ */
+public class SingleFlightCache<K, V> {
+
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newFixedThreadPool(4, daemonThreads());
+    private static final Duration DEFAULT_WAIT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String name;
+    private final Duration ttl;
+    private final Duration staleWindow;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final SingleFlight<K, V> flight;
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits;
+    private final LongAdder staleHits;
+    private final LongAdder misses;
+    private final LongAdder loads;
+    private final LongAdder loadErrors;
+
+    /**
+     * @param name        Name für Logging und Metriken
+     * @param ttl         solange gilt ein Wert als frisch
+     * @param staleWindow solange darf ein abgelaufener Wert noch ausgeliefert werden (während neu geladen wird)
+     */
+    public SingleFlightCache(String name, Duration ttl, Duration staleWindow) {
+        this(name, ttl, staleWindow, DEFAULT_WAIT_TIMEOUT);
+    }
+
+    /**
+     * @param waitTimeout so lange wartet ein Aufrufer höchstens auf einen bereits laufenden Ladevorgang
+     */
+    public SingleFlightCache(String name, Duration ttl, Duration staleWindow, Duration waitTimeout) {
+        this.name = name;
+        this.ttl = ttl;
+        this.staleWindow = staleWindow;
+        this.flight = new SingleFlight<>(waitTimeout);
+
+        String prefix = "cache." + name + ".";
+        this.hits = Metrics.counter(prefix + "hits");
+        this.staleHits = Metrics.counter(prefix + "stale_hits");
+        this.misses = Metrics.counter(prefix + "misses");
+        this.loads = Metrics.counter(prefix + "loads");
+        this.loadErrors = Metrics.counter(prefix + "load_errors");
+        Metrics.gauge(prefix + "size", entries::size);
+    }
+
+    /**
+     * Liefert den Wert für den Schlüssel, lädt ihn bei Bedarf über den Loader.
+     */
+    public V get(K key, Callable<V> loader) throws IOException, InterruptedException {
+        Entry<V> entry = entries.get(key);
+        long now = System.nanoTime();
+
+        if (entry != null) {
+            long age = now - entry.loadedAtNanos;
+            if (age < ttl.toNanos()) {
+                hits.increment();
+                return entry.value;
+            }
+            if (age < ttl.plus(staleWindow).toNanos()) {
+                staleHits.increment();
+                refreshAsync(key, loader);
+                return entry.value;
+            }
+        }
+
+        misses.increment();
+        try {
+            return load(key, loader);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            throw e;
+        } catch (TimeoutException e) {
+            throw new IOException("Laden für Cache '" + name + "': " + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new IOException("Laden für Cache '" + name + "' fehlgeschlagen", e);
+        }
+    }
+
+    /**
+     * Entfernt den Eintrag, der nächste Zugriff lädt garantiert neu.
+     */
+    public void invalidate(K key) {
+        generation.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // ---------------------------------------------------------
+    // Intern
+    // ---------------------------------------------------------
+
+    /**
+     * Startet einen Ladevorgang oder hängt sich an einen laufenden an (Single-Flight).
+     * Der Aufrufer, der den Ladevorgang gewinnt, lädt im eigenen Thread.
+     */
+    private V load(K key, Callable<V> loader) throws Exception {
+        return flight.load(key, () -> {
+            // Wird während des Ladens invalidiert, darf das (evtl. veraltete) Ergebnis nicht gespeichert werden
+            long generationAtStart = generation.get();
+            loads.increment();
+            try {
+                V value = loader.call();
+                if (generation.get() == generationAtStart) {
+                    entries.put(key, new Entry<>(value, System.nanoTime()));
+                }
+                return value;
+            } catch (Throwable e) {
+                loadErrors.increment();
+                throw e;
+            }
+        });
+    }
+
+    private void refreshAsync(K key, Callable<V> loader) {
+        if (flight.isInFlight(key) || !refreshing.add(key)) {
+            return;
+        }
+        REFRESH_EXECUTOR.execute(() -> {
+            try {
+                load(key, loader);
+            } catch (Exception e) {
+                System.err.println("[SingleFlightCache] Hintergrund-Refresh für '" + name + "' fehlgeschlagen: " + e);
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, "cache-refresh-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAtNanos;
+
+        Entry(V value, long loadedAtNanos) {
+            this.value = value;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+}
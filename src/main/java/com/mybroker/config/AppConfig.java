@@ -0,0 +1,65 @@
+package com.mybroker.config;
+
+import java.time.Duration;
+
+/**
+ * Liest optionale Tuning-Parameter (TTLs, Pool-Größen, Limits).
+ * <p>
+ * Reihenfolge: Environment Variable, dann System Property (z.B. aus .env via {@link EnvLoader}),
+ * sonst der übergebene Default. Ungültige Werte werden geloggt und durch den Default ersetzt.
+ */
+public final class AppConfig {
+
+    private AppConfig() {
+    }
+
+    public static String getString(String key, String defaultValue) {
+        String value = System.getenv(key);
+        if (value == null || value.isBlank()) {
+            value = System.getProperty(key);
+        }
+        return (value == null || value.isBlank()) ? defaultValue : value.trim();
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("[AppConfig] Ungültiger Wert für " + key + ": '" + value + "' – verwende " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.err.println("[AppConfig] Ungültiger Wert für " + key + ": '" + value + "' – verwende " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Dauer in Millisekunden, z.B. ALPACA_CACHE_TTL_ACCOUNT_MS=5000.
+     */
+    public static Duration getMillis(String key, long defaultMillis) {
+        return Duration.ofMillis(getLong(key, defaultMillis));
+    }
+}
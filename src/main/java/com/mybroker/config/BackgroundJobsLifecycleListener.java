@@ -0,0 +1,63 @@
+package com.mybroker.config;
+
+import com.mybroker.ai.AiExplanationCache;
+import com.mybroker.marketdata.VolatilityService;
+import com.mybroker.ml.MlHealthMonitor;
+import com.mybroker.ml.TrainingJobManager;
+import com.mybroker.ml.TrendScoreCache;
+import com.mybroker.risk.PortfolioRiskService;
+import com.mybroker.risk.PortfolioScenarioService;
+import com.mybroker.service.SymbolMetadataService;
+import com.mybroker.sync.ActivitySyncJob;
+import com.mybroker.sync.PortfolioAnalysisBatchJob;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Startet beim Deployment die periodischen Hintergrund-Jobs (DB-Sync, ML-Health-Check, Vorladen der Trend-Scores,
+ * Nachladen der Symbol-Stammdaten, Batch-Analyse der verwalteten Konten, Aufräumen der KI-Erklärungen)
+ * und stoppt sie (samt laufendem Modelltraining) beim Undeploy.
+ */
+@WebListener
+public class BackgroundJobsLifecycleListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        if (ActivitySyncJob.isConfigured()) {
+            System.out.println("[BackgroundJobs] Starte Activity-Sync (fills/orders) ...");
+            ActivitySyncJob.shared().start();
+        } else {
+            System.out.println("[BackgroundJobs] Kein DB_URL oder ACTIVITY_SYNC_ENABLED=false – Activity-Sync bleibt aus.");
+        }
+
+        if (PortfolioAnalysisBatchJob.isConfigured()) {
+            System.out.println("[BackgroundJobs] Starte Batch-Analyse der verwalteten Konten ...");
+            PortfolioAnalysisBatchJob.shared().start();
+        }
+
+        MlHealthMonitor.shared().start();
+        SymbolMetadataService.shared().start();
+        AiExplanationCache.shared().start();
+
+        if (AppConfig.getBoolean("ML_TREND_WARM_ENABLED", true)) {
+            System.out.println("[BackgroundJobs] Starte Vorladen der Trend-Scores ...");
+            TrendScoreCache.shared().start();
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        ActivitySyncJob.shared().stop();
+        PortfolioAnalysisBatchJob.shared().stop();
+        TrendScoreCache.shared().stop();
+        MlHealthMonitor.shared().stop();
+        SymbolMetadataService.shared().stop();
+        AiExplanationCache.shared().stop();
+        VolatilityService.shared().stop();
+        PortfolioScenarioService.shared().stop();
+        PortfolioRiskService.shared().stop();
+        TrainingJobManager.shared().stop();
+    }
+}
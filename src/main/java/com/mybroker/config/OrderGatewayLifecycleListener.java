@@ -0,0 +1,25 @@
+package com.mybroker.config;
+
+import com.mybroker.order.OrderGateway;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Stoppt beim Undeploy die Submitter-Threads des {@link OrderGateway}.
+ * Das Gateway selbst startet lazy mit der ersten Order.
+ */
+@WebListener
+public class OrderGatewayLifecycleListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        // nichts zu tun
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        OrderGateway.shared().shutdown();
+    }
+}
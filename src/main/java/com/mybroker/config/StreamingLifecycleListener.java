@@ -0,0 +1,40 @@
+package com.mybroker.config;
+
+import com.mybroker.marketdata.MarketDataService;
+import com.mybroker.service.PortfolioAggregateStore;
+import com.mybroker.stream.TradeUpdatesStream;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Startet beim Deployment die langlebigen Streaming-Consumer und stoppt sie beim Undeploy.
+ * <p>
+ * Abschaltbar über ALPACA_STREAM_ENABLED=false – die Servlets fallen dann auf REST zurück.
+ * Kurse und Positionsmengen aus den Streams halten den {@link PortfolioAggregateStore} des Kontos aktuell.
+ */
+@WebListener
+public class StreamingLifecycleListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        if (AppConfig.getBoolean("ALPACA_STREAM_ENABLED", true)) {
+            PortfolioAggregateStore store = PortfolioAggregateStore.primary();
+            MarketDataService.shared().getBook().addTradeListener(q -> store.onPrice(q.getSymbol(), q.getPrice()));
+            TradeUpdatesStream.shared().getBook().addPositionListener(store::onQuantity);
+            System.out.println("[StreamingLifecycle] Starte Alpaca trade_updates Stream ...");
+            TradeUpdatesStream.shared().start();
+            System.out.println("[StreamingLifecycle] Starte Marktdaten-Stream ...");
+            MarketDataService.shared().start();
+        } else {
+            System.out.println("[StreamingLifecycle] ALPACA_STREAM_ENABLED=false – Streams bleiben aus.");
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        TradeUpdatesStream.shared().stop();
+        MarketDataService.shared().stop();
+    }
+}
@@ -0,0 +1,93 @@
+package com.mybroker.db;
+
+import com.mybroker.model.AiExplanation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Zugriff auf brokerml.ai_explanations (KI-Erklärungen pro Fingerabdruck der Prompt-Eingaben).
+ */
+public class AiExplanationRepository {
+
+    private static final String SELECT_ONE =
+            "SELECT fingerprint, content, model, generated_at, total_tokens, completion_tokens, service_tier "
+                    + "FROM brokerml.ai_explanations WHERE fingerprint = ?";
+
+    private static final String UPSERT =
+            "INSERT INTO brokerml.ai_explanations "
+                    + "(fingerprint, content, model, generated_at, total_tokens, completion_tokens, service_tier) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?) "
+                    + "ON CONFLICT (fingerprint) DO UPDATE SET content = EXCLUDED.content, model = EXCLUDED.model, "
+                    + "generated_at = EXCLUDED.generated_at, total_tokens = EXCLUDED.total_tokens, "
+                    + "completion_tokens = EXCLUDED.completion_tokens, service_tier = EXCLUDED.service_tier";
+
+    private static final String DELETE_BEFORE =
+            "DELETE FROM brokerml.ai_explanations WHERE generated_at < ?";
+
+    /**
+     * @return gespeicherte Erklärung (als Cache-Treffer markiert) oder null
+     */
+    public AiExplanation find(String fingerprint) throws SQLException {
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_ONE)) {
+            ps.setString(1, fingerprint);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                OffsetDateTime generatedAt = rs.getObject("generated_at", OffsetDateTime.class);
+                return new AiExplanation(
+                        rs.getString("fingerprint"),
+                        rs.getString("content"),
+                        rs.getString("model"),
+                        generatedAt != null ? generatedAt.toInstant() : null,
+                        (Integer) rs.getObject("total_tokens"),
+                        (Integer) rs.getObject("completion_tokens"),
+                        rs.getString("service_tier"),
+                        true);
+            }
+        }
+    }
+
+    public void upsert(AiExplanation explanation) throws SQLException {
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(UPSERT)) {
+            ps.setString(1, explanation.getFingerprint());
+            ps.setString(2, explanation.getText());
+            ps.setString(3, explanation.getModel());
+            ps.setObject(4, explanation.getGeneratedAt().atOffset(ZoneOffset.UTC));
+            setInteger(ps, 5, explanation.getTotalTokens());
+            setInteger(ps, 6, explanation.getCompletionTokens());
+            ps.setString(7, explanation.getServiceTier());
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Löscht alle Erklärungen, die vor {@code cutoff} erzeugt wurden.
+     *
+     * @return Anzahl gelöschter Zeilen
+     */
+    public int deleteGeneratedBefore(Instant cutoff) throws SQLException {
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(DELETE_BEFORE)) {
+            ps.setObject(1, cutoff.atOffset(ZoneOffset.UTC));
+            return ps.executeUpdate();
+        }
+    }
+
+    private static void setInteger(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) {
+            ps.setInt(index, value);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+}
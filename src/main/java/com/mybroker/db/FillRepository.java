@@ -0,0 +1,234 @@
+package com.mybroker.db;
+
+import com.mybroker.model.FillActivity;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Zugriff auf brokerml.fills, brokerml.orders und den Sync-Stand (brokerml.sync_state).
+ * <p>
+ * Schreiben erfolgt seitenweise in einer Transaktion: Orders per Upsert auf broker_order_id, Fills per
+ * Insert mit ON CONFLICT (activity_id) DO NOTHING, danach die High-Water-Mark. Bricht der Sync ab,
+ * bleibt der Stand konsistent und die nächste Runde setzt an der letzten gespeicherten Seite an.
+ */
+public class FillRepository {
+
+    private static final String UPSERT_ORDER =
+            "INSERT INTO brokerml.orders (broker_order_id, symbol, side, qty, status, filled_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?) "
+                    + "ON CONFLICT (broker_order_id) DO UPDATE SET "
+                    + "qty = EXCLUDED.qty, "
+                    + "status = EXCLUDED.status, "
+                    + "filled_at = COALESCE(EXCLUDED.filled_at, brokerml.orders.filled_at)";
+
+    private static final String INSERT_FILL =
+            "INSERT INTO brokerml.fills (activity_id, order_id, symbol, qty, price, side, executed_at) "
+                    + "VALUES (?, (SELECT id FROM brokerml.orders WHERE broker_order_id = ?), ?, ?, ?, ?, ?) "
+                    + "ON CONFLICT (activity_id) DO NOTHING";
+
+    private static final String UPDATE_AVG_FILL_PRICE =
+            "UPDATE brokerml.orders o SET average_fill_price = s.avg_price "
+                    + "FROM (SELECT f.order_id, SUM(f.qty * f.price) / NULLIF(SUM(f.qty), 0) AS avg_price "
+                    + "      FROM brokerml.fills f JOIN brokerml.orders o2 ON o2.id = f.order_id "
+                    + "      WHERE o2.broker_order_id = ANY (?) "
+                    + "      GROUP BY f.order_id) s "
+                    + "WHERE o.id = s.order_id";
+
+    private static final String UPSERT_SYNC_STATE =
+            "INSERT INTO brokerml.sync_state (name, last_id, last_ts, updated_at) VALUES (?, ?, ?, NOW()) "
+                    + "ON CONFLICT (name) DO UPDATE SET last_id = EXCLUDED.last_id, last_ts = EXCLUDED.last_ts, updated_at = NOW()";
+
+    private static final String SELECT_SYNC_STATE =
+            "SELECT last_id, last_ts FROM brokerml.sync_state WHERE name = ?";
+
+    // ORDER BY executed_at DESC LIMIT n -> Index-Scan über ix_fills_executed_at, kein Sort
+    private static final String SELECT_RECENT_FILLS =
+            "SELECT f.activity_id, o.broker_order_id, f.symbol, f.side, f.qty, f.price, f.executed_at, o.status "
+                    + "FROM brokerml.fills f LEFT JOIN brokerml.orders o ON o.id = f.order_id "
+                    + "ORDER BY f.executed_at DESC "
+                    + "LIMIT ?";
+
+    /**
+     * Letzter übernommener Stand eines Sync-Jobs.
+     */
+    public static final class HighWaterMark {
+        private final String lastId;
+        private final Instant lastTimestamp;
+
+        public HighWaterMark(String lastId, Instant lastTimestamp) {
+            this.lastId = lastId;
+            this.lastTimestamp = lastTimestamp;
+        }
+
+        public String getLastId() {
+            return lastId;
+        }
+
+        public Instant getLastTimestamp() {
+            return lastTimestamp;
+        }
+    }
+
+    /**
+     * @return High-Water-Mark oder null, wenn der Job noch nie gelaufen ist
+     */
+    public HighWaterMark loadHighWaterMark(String syncName) throws SQLException {
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_SYNC_STATE)) {
+            ps.setString(1, syncName);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                OffsetDateTime ts = rs.getObject("last_ts", OffsetDateTime.class);
+                return new HighWaterMark(rs.getString("last_id"), ts == null ? null : ts.toInstant());
+            }
+        }
+    }
+
+    /**
+     * Speichert eine Seite Aktivitäten (aufsteigend sortiert) und setzt die High-Water-Mark auf deren letzten Eintrag.
+     *
+     * @return Anzahl tatsächlich neu eingefügter Fills
+     */
+    public int storePage(String syncName, List<FillActivity> page) throws SQLException {
+        if (page.isEmpty()) {
+            return 0;
+        }
+
+        // Pro Order reicht der letzte Stand der Seite (cum_qty/leaves_qty/order_status sind kumulativ)
+        Map<String, FillActivity> latestPerOrder = new LinkedHashMap<>();
+        for (FillActivity fill : page) {
+            if (fill.getOrderId() != null) {
+                latestPerOrder.put(fill.getOrderId(), fill);
+            }
+        }
+
+        try (Connection conn = DbConnectionFactory.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(UPSERT_ORDER)) {
+                    for (FillActivity fill : latestPerOrder.values()) {
+                        ps.setString(1, fill.getOrderId());
+                        ps.setString(2, fill.getSymbol());
+                        ps.setString(3, normalizeSide(fill.getSide()));
+                        ps.setBigDecimal(4, orderQty(fill));
+                        ps.setString(5, fill.getOrderStatus());
+                        if ("filled".equals(fill.getOrderStatus())) {
+                            ps.setObject(6, toTimestamp(fill.getTransactionTime()));
+                        } else {
+                            ps.setNull(6, Types.TIMESTAMP_WITH_TIMEZONE);
+                        }
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+
+                int inserted = 0;
+                try (PreparedStatement ps = conn.prepareStatement(INSERT_FILL)) {
+                    for (FillActivity fill : page) {
+                        ps.setString(1, fill.getActivityId());
+                        ps.setString(2, fill.getOrderId());
+                        ps.setString(3, fill.getSymbol());
+                        ps.setBigDecimal(4, fill.getQty());
+                        ps.setBigDecimal(5, fill.getPrice());
+                        ps.setString(6, normalizeSide(fill.getSide()));
+                        ps.setObject(7, toTimestamp(fill.getTransactionTime()));
+                        ps.addBatch();
+                    }
+                    for (int count : ps.executeBatch()) {
+                        inserted += Math.max(count, 0);
+                    }
+                }
+
+                if (!latestPerOrder.isEmpty()) {
+                    try (PreparedStatement ps = conn.prepareStatement(UPDATE_AVG_FILL_PRICE)) {
+                        Array ids = conn.createArrayOf("text", latestPerOrder.keySet().toArray());
+                        ps.setArray(1, ids);
+                        ps.executeUpdate();
+                    }
+                }
+
+                FillActivity last = page.get(page.size() - 1);
+                try (PreparedStatement ps = conn.prepareStatement(UPSERT_SYNC_STATE)) {
+                    ps.setString(1, syncName);
+                    ps.setString(2, last.getActivityId());
+                    ps.setObject(3, toTimestamp(last.getTransactionTime()));
+                    ps.executeUpdate();
+                }
+
+                conn.commit();
+                return inserted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Letzte Ausführungen, neueste zuerst.
+     */
+    public List<FillActivity> findRecentFills(int limit) throws SQLException {
+        List<FillActivity> result = new ArrayList<>();
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_RECENT_FILLS)) {
+            ps.setInt(1, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    OffsetDateTime executedAt = rs.getObject("executed_at", OffsetDateTime.class);
+                    result.add(new FillActivity(
+                            rs.getString("activity_id"),
+                            rs.getString("broker_order_id"),
+                            rs.getString("symbol"),
+                            rs.getString("side"),
+                            rs.getBigDecimal("qty"),
+                            rs.getBigDecimal("price"),
+                            executedAt == null ? null : executedAt.toInstant(),
+                            rs.getString("status"),
+                            null,
+                            null));
+                }
+            }
+        }
+        return result;
+    }
+
+    // ---------------------------------------------------------
+    // Intern
+    // ---------------------------------------------------------
+
+    private static BigDecimal orderQty(FillActivity fill) {
+        if (fill.getCumQty() != null && fill.getLeavesQty() != null) {
+            return fill.getCumQty().add(fill.getLeavesQty());
+        }
+        return fill.getQty();
+    }
+
+    /**
+     * Die Tabellen erlauben nur 'buy'/'sell' – Leerverkäufe (sell_short) zählen als 'sell'.
+     */
+    private static String normalizeSide(String side) {
+        if (side == null) {
+            return null;
+        }
+        return side.toLowerCase().startsWith("sell") ? "sell" : "buy";
+    }
+
+    private static OffsetDateTime toTimestamp(Instant instant) {
+        return instant == null ? null : instant.atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,125 @@
+package com.mybroker.db;
+
+import com.mybroker.ml.TrainingJob;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Trainingsjobs in brokerml.ml_models: eine Zeile pro Job (model_name, version, status, metrics JSONB).
+ */
+public class MlModelRepository {
+
+    private static final String INSERT_JOB =
+            "INSERT INTO brokerml.ml_models (model_name, version, job_id, status, trained_at) "
+                    + "VALUES (?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_JOB =
+            "UPDATE brokerml.ml_models SET status = ?, started_at = ?, finished_at = ?, "
+                    + "metrics = CAST(? AS JSONB), notes = ? "
+                    + "WHERE job_id = ?";
+
+    private static final String SELECT_COLUMNS =
+            "SELECT job_id, model_name, version, status, notes, metrics::text AS metrics, "
+                    + "trained_at, started_at, finished_at FROM brokerml.ml_models ";
+
+    private static final String SELECT_BY_JOB = SELECT_COLUMNS + "WHERE job_id = ?";
+
+    private static final String SELECT_RECENT = SELECT_COLUMNS
+            + "WHERE model_name = ? AND job_id IS NOT NULL ORDER BY trained_at DESC LIMIT ?";
+
+    public void insert(TrainingJob job) throws SQLException {
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(INSERT_JOB)) {
+            ps.setString(1, job.getModelName());
+            ps.setString(2, job.getVersion());
+            ps.setString(3, job.getJobId());
+            ps.setString(4, job.getState().name());
+            ps.setObject(5, toTimestamp(job.getSubmittedAt()));
+            ps.executeUpdate();
+        }
+    }
+
+    public void update(TrainingJob job) throws SQLException {
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(UPDATE_JOB)) {
+            ps.setString(1, job.getState().name());
+            ps.setObject(2, toTimestamp(job.getStartedAt()));
+            ps.setObject(3, toTimestamp(job.getFinishedAt()));
+            if (job.getMetricsJson() != null) {
+                ps.setString(4, job.getMetricsJson());
+            } else {
+                ps.setNull(4, Types.VARCHAR);
+            }
+            ps.setString(5, job.getMessage());
+            ps.setString(6, job.getJobId());
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * @return Job oder null, wenn unbekannt
+     */
+    public TrainingJob findByJobId(String jobId) throws SQLException {
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_BY_JOB)) {
+            ps.setString(1, jobId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? map(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Letzte Jobs eines Modells, neueste zuerst.
+     */
+    public List<TrainingJob> findRecent(String modelName, int limit) throws SQLException {
+        List<TrainingJob> result = new ArrayList<>();
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_RECENT)) {
+            ps.setString(1, modelName);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(map(rs));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static TrainingJob map(ResultSet rs) throws SQLException {
+        TrainingJob.State state;
+        try {
+            state = TrainingJob.State.valueOf(rs.getString("status"));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            state = TrainingJob.State.FAILED;
+        }
+        return new TrainingJob(
+                rs.getString("job_id"),
+                rs.getString("model_name"),
+                rs.getString("version"),
+                state,
+                rs.getString("notes"),
+                rs.getString("metrics"),
+                toInstant(rs.getObject("trained_at", OffsetDateTime.class)),
+                toInstant(rs.getObject("started_at", OffsetDateTime.class)),
+                toInstant(rs.getObject("finished_at", OffsetDateTime.class)));
+    }
+
+    private static OffsetDateTime toTimestamp(Instant instant) {
+        return instant == null ? null : instant.atOffset(ZoneOffset.UTC);
+    }
+
+    private static Instant toInstant(OffsetDateTime value) {
+        return value == null ? null : value.toInstant();
+    }
+}
@@ -0,0 +1,175 @@
+package com.mybroker.db;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mybroker.model.PortfolioAnalysisResult;
+import com.mybroker.model.PortfolioAnalysisSummary;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Zugriff auf brokerml.portfolio_analysis_summaries – eine Zeile pro verwaltetem Konto mit der letzten
+ * erfolgreichen Analyse und ggf. dem Fehler des letzten Laufs.
+ * <p>
+ * Geschrieben wird blockweise per JDBC-Batch in einer Transaktion. Ein Fehler überschreibt nur error/error_at,
+ * die letzte erfolgreiche Analyse bleibt für die Anzeige stehen.
+ */
+public class PortfolioAnalysisSummaryRepository {
+
+    private static final String UPSERT_SUCCESS =
+            "INSERT INTO brokerml.portfolio_analysis_summaries (tenant_id, analysed_at, position_count, "
+                    + "total_market_value, tech_weight, top_symbol, top_weight, sector_weights, "
+                    + "risk_comment, volatility_comment, diversification_comment, error, error_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, CAST(? AS JSONB), ?, ?, ?, NULL, NULL) "
+                    + "ON CONFLICT (tenant_id) DO UPDATE SET "
+                    + "analysed_at = EXCLUDED.analysed_at, position_count = EXCLUDED.position_count, "
+                    + "total_market_value = EXCLUDED.total_market_value, tech_weight = EXCLUDED.tech_weight, "
+                    + "top_symbol = EXCLUDED.top_symbol, top_weight = EXCLUDED.top_weight, "
+                    + "sector_weights = EXCLUDED.sector_weights, risk_comment = EXCLUDED.risk_comment, "
+                    + "volatility_comment = EXCLUDED.volatility_comment, "
+                    + "diversification_comment = EXCLUDED.diversification_comment, error = NULL, error_at = NULL";
+
+    private static final String UPSERT_FAILURE =
+            "INSERT INTO brokerml.portfolio_analysis_summaries (tenant_id, error, error_at) VALUES (?, ?, ?) "
+                    + "ON CONFLICT (tenant_id) DO UPDATE SET error = EXCLUDED.error, error_at = EXCLUDED.error_at";
+
+    private static final String SELECT_ONE =
+            "SELECT tenant_id, analysed_at, position_count, total_market_value, tech_weight, top_symbol, top_weight, "
+                    + "sector_weights::text AS sector_weights, risk_comment, volatility_comment, "
+                    + "diversification_comment, error, error_at "
+                    + "FROM brokerml.portfolio_analysis_summaries WHERE tenant_id = ?";
+
+    /**
+     * Speichert alle Zusammenfassungen in einer Transaktion.
+     */
+    public void upsertAll(List<PortfolioAnalysisSummary> summaries) throws SQLException {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DbConnectionFactory.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement success = conn.prepareStatement(UPSERT_SUCCESS);
+                 PreparedStatement failure = conn.prepareStatement(UPSERT_FAILURE)) {
+                boolean anySuccess = false;
+                boolean anyFailure = false;
+                for (PortfolioAnalysisSummary s : summaries) {
+                    if (s.isSuccess()) {
+                        bindSuccess(success, s);
+                        success.addBatch();
+                        anySuccess = true;
+                    } else {
+                        failure.setString(1, s.getTenantId());
+                        failure.setString(2, s.getError());
+                        failure.setObject(3, s.getErrorAt().atOffset(ZoneOffset.UTC));
+                        failure.addBatch();
+                        anyFailure = true;
+                    }
+                }
+                if (anySuccess) {
+                    success.executeBatch();
+                }
+                if (anyFailure) {
+                    failure.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return gespeicherte Zusammenfassung oder null, wenn das Konto noch nie analysiert wurde
+     */
+    public PortfolioAnalysisSummary find(String tenantId) throws SQLException {
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_ONE)) {
+            ps.setString(1, tenantId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Instant analysedAt = instant(rs, "analysed_at");
+                PortfolioAnalysisResult analysis = null;
+                if (analysedAt != null) {
+                    analysis = new PortfolioAnalysisResult();
+                    analysis.setTotalMarketValue(rs.getBigDecimal("total_market_value"));
+                    analysis.setTechWeight(rs.getBigDecimal("tech_weight"));
+                    analysis.setTopPositionSymbol(rs.getString("top_symbol"));
+                    analysis.setTopPositionWeight(rs.getBigDecimal("top_weight"));
+                    analysis.setSectorWeights(sectorWeights(rs.getString("sector_weights")));
+                    analysis.setRiskComment(rs.getString("risk_comment"));
+                    analysis.setVolatilityComment(rs.getString("volatility_comment"));
+                    analysis.setDiversificationComment(rs.getString("diversification_comment"));
+                }
+                return new PortfolioAnalysisSummary(
+                        rs.getString("tenant_id"),
+                        analysedAt,
+                        rs.getInt("position_count"),
+                        analysis,
+                        rs.getString("error"),
+                        instant(rs, "error_at"));
+            }
+        }
+    }
+
+    private static void bindSuccess(PreparedStatement ps, PortfolioAnalysisSummary s) throws SQLException {
+        PortfolioAnalysisResult a = s.getAnalysis();
+        ps.setString(1, s.getTenantId());
+        ps.setObject(2, s.getAnalysedAt().atOffset(ZoneOffset.UTC));
+        ps.setInt(3, s.getPositionCount());
+        ps.setBigDecimal(4, a.getTotalMarketValue());
+        ps.setBigDecimal(5, a.getTechWeight());
+        ps.setString(6, a.getTopPositionSymbol());
+        ps.setBigDecimal(7, a.getTopPositionWeight());
+        if (a.getSectorWeights() != null) {
+            JsonObject weights = new JsonObject();
+            a.getSectorWeights().forEach(weights::addProperty);
+            ps.setString(8, weights.toString());
+        } else {
+            ps.setNull(8, Types.VARCHAR);
+        }
+        ps.setString(9, a.getRiskComment());
+        ps.setString(10, a.getVolatilityComment());
+        ps.setString(11, a.getDiversificationComment());
+    }
+
+    /**
+     * JSONB speichert keine Schlüsselreihenfolge – die Gewichte werden wieder absteigend sortiert.
+     */
+    private static Map<String, BigDecimal> sectorWeights(String json) {
+        if (json == null) {
+            return null;
+        }
+        List<Map.Entry<String, BigDecimal>> entries = new ArrayList<>();
+        for (Map.Entry<String, JsonElement> e : JsonParser.parseString(json).getAsJsonObject().entrySet()) {
+            entries.add(Map.entry(e.getKey(), e.getValue().getAsBigDecimal()));
+        }
+        entries.sort(Map.Entry.<String, BigDecimal>comparingByValue(Comparator.reverseOrder()));
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (Map.Entry<String, BigDecimal> e : entries) {
+            result.put(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
+    private static Instant instant(ResultSet rs, String column) throws SQLException {
+        OffsetDateTime value = rs.getObject(column, OffsetDateTime.class);
+        return value != null ? value.toInstant() : null;
+    }
+}
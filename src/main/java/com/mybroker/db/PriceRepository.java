@@ -0,0 +1,111 @@
+package com.mybroker.db;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lesezugriff auf brokerml.prices (Schlusskurse für Volatilität & Co.).
+ */
+public class PriceRepository {
+
+    // Ein Statement für alle Symbole: pro Symbol ein Index-Scan über ix_prices_symbol_ts (symbol, ts DESC),
+    // begrenzt auf die jüngsten n Kerzen nach dem jeweiligen Stand
+    private static final String SELECT_CLOSES_SINCE =
+            "SELECT s.symbol, p.ts, p.close "
+                    + "FROM unnest(?::text[], ?::bigint[]) AS s(symbol, since_ms) "
+                    + "CROSS JOIN LATERAL ("
+                    + "    SELECT ts, close FROM brokerml.prices "
+                    + "    WHERE symbol = s.symbol AND ts > to_timestamp(s.since_ms / 1000.0) "
+                    + "    ORDER BY ts DESC LIMIT ?"
+                    + ") p "
+                    + "ORDER BY s.symbol, p.ts";
+
+    /**
+     * Schlusskurse eines Symbols, aufsteigend nach Zeit.
+     */
+    public static final class CloseSeries {
+        private final long[] timestampsMillis;
+        private final double[] closes;
+
+        public CloseSeries(long[] timestampsMillis, double[] closes) {
+            this.timestampsMillis = timestampsMillis;
+            this.closes = closes;
+        }
+
+        public int size() {
+            return closes.length;
+        }
+
+        public long getTimestampMillis(int i) {
+            return timestampsMillis[i];
+        }
+
+        public double getClose(int i) {
+            return closes[i];
+        }
+    }
+
+    /**
+     * Lädt für jedes Symbol die jüngsten {@code limit} Schlusskurse nach {@code sinceMillis[i]} in einer Abfrage.
+     *
+     * @param symbols     Symbole
+     * @param sinceMillis pro Symbol: nur Kerzen danach (0 = alle)
+     * @return Symbol → Kurse aufsteigend; Symbole ohne neue Kerzen fehlen
+     */
+    public Map<String, CloseSeries> loadClosesSince(String[] symbols, long[] sinceMillis, int limit) throws SQLException {
+        Map<String, CloseSeries> result = new HashMap<>();
+        if (symbols.length == 0) {
+            return result;
+        }
+        Long[] since = new Long[sinceMillis.length];
+        for (int i = 0; i < sinceMillis.length; i++) {
+            since[i] = sinceMillis[i];
+        }
+
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_CLOSES_SINCE)) {
+            Array symbolArray = conn.createArrayOf("text", symbols);
+            Array sinceArray = conn.createArrayOf("bigint", since);
+            ps.setArray(1, symbolArray);
+            ps.setArray(2, sinceArray);
+            ps.setInt(3, limit);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                String current = null;
+                long[] ts = new long[Math.max(1, Math.min(limit, 64))];
+                double[] closes = new double[ts.length];
+                int n = 0;
+                while (rs.next()) {
+                    String symbol = rs.getString(1);
+                    if (!symbol.equals(current)) {
+                        if (current != null) {
+                            result.put(current, new CloseSeries(Arrays.copyOf(ts, n), Arrays.copyOf(closes, n)));
+                        }
+                        current = symbol;
+                        n = 0;
+                    }
+                    if (n == ts.length) {
+                        ts = Arrays.copyOf(ts, n * 2);
+                        closes = Arrays.copyOf(closes, n * 2);
+                    }
+                    ts[n] = rs.getTimestamp(2).getTime();
+                    closes[n] = rs.getDouble(3);
+                    n++;
+                }
+                if (current != null) {
+                    result.put(current, new CloseSeries(Arrays.copyOf(ts, n), Arrays.copyOf(closes, n)));
+                }
+            } finally {
+                symbolArray.free();
+                sinceArray.free();
+            }
+        }
+        return result;
+    }
+}
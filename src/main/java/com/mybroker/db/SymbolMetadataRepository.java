@@ -0,0 +1,57 @@
+package com.mybroker.db;
+
+import com.mybroker.model.SymbolMetadata;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Zugriff auf brokerml.symbol_metadata (Sektor/Name pro Symbol).
+ */
+public class SymbolMetadataRepository {
+
+    private static final String SELECT_ALL =
+            "SELECT symbol, sector, name, fetched_at FROM brokerml.symbol_metadata";
+
+    private static final String UPSERT =
+            "INSERT INTO brokerml.symbol_metadata (symbol, sector, name, fetched_at) VALUES (?, ?, ?, ?) "
+                    + "ON CONFLICT (symbol) DO UPDATE SET "
+                    + "sector = EXCLUDED.sector, name = EXCLUDED.name, fetched_at = EXCLUDED.fetched_at";
+
+    /**
+     * Alle gespeicherten Einträge – die Tabelle hat eine Zeile pro je gehaltenem Symbol, bleibt also klein.
+     */
+    public List<SymbolMetadata> loadAll() throws SQLException {
+        List<SymbolMetadata> result = new ArrayList<>();
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_ALL);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                OffsetDateTime fetchedAt = rs.getObject("fetched_at", OffsetDateTime.class);
+                result.add(new SymbolMetadata(
+                        rs.getString("symbol"),
+                        rs.getString("sector"),
+                        rs.getString("name"),
+                        fetchedAt != null ? fetchedAt.toInstant() : null));
+            }
+        }
+        return result;
+    }
+
+    public void upsert(SymbolMetadata metadata) throws SQLException {
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(UPSERT)) {
+            ps.setString(1, metadata.getSymbol());
+            ps.setString(2, metadata.getSector());
+            ps.setString(3, metadata.getName());
+            ps.setObject(4, metadata.getFetchedAt().atOffset(ZoneOffset.UTC));
+            ps.executeUpdate();
+        }
+    }
+}
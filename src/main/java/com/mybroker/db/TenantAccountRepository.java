@@ -0,0 +1,66 @@
+package com.mybroker.db;
+
+import com.mybroker.model.AlpacaCredentials;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Zugriff auf brokerml.tenant_accounts (Alpaca-Zugangsdaten der verwalteten Konten).
+ * <p>
+ * API-Key und Secret liegen verschlüsselt in der Tabelle und werden so geliefert, wie sie gespeichert sind;
+ * entschlüsselt wird erst in {@code TenantAlpacaClients}.
+ */
+public class TenantAccountRepository {
+
+    private static final String COLUMNS = "tenant_id, api_key_enc, api_secret_enc, base_url, data_url";
+
+    private static final String SELECT_ACTIVE =
+            "SELECT " + COLUMNS + " FROM brokerml.tenant_accounts WHERE active ORDER BY tenant_id";
+
+    private static final String SELECT_ONE =
+            "SELECT " + COLUMNS + " FROM brokerml.tenant_accounts WHERE tenant_id = ? AND active";
+
+    /**
+     * Alle aktiven Konten, nach tenant_id sortiert (Key/Secret verschlüsselt).
+     */
+    public List<AlpacaCredentials> loadActive() throws SQLException {
+        List<AlpacaCredentials> result = new ArrayList<>();
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_ACTIVE)) {
+            ps.setFetchSize(500);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.add(read(rs));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Zugangsdaten (Key/Secret verschlüsselt) oder null, wenn das Konto unbekannt oder deaktiviert ist
+     */
+    public AlpacaCredentials find(String tenantId) throws SQLException {
+        try (Connection conn = DbConnectionFactory.getConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_ONE)) {
+            ps.setString(1, tenantId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? read(rs) : null;
+            }
+        }
+    }
+
+    private static AlpacaCredentials read(ResultSet rs) throws SQLException {
+        return new AlpacaCredentials(
+                rs.getString("tenant_id"),
+                rs.getString("api_key_enc"),
+                rs.getString("api_secret_enc"),
+                rs.getString("base_url"),
+                rs.getString("data_url"));
+    }
+}
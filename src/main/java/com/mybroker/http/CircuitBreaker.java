@@ -0,0 +1,201 @@
+package com.mybroker.http;
+
+import com.mybroker.metrics.Metrics;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit Breaker für einen Upstream-Dienst.
+ * <ul>
+ *     <li>CLOSED: Aufrufe laufen durch; Ergebnisse landen in einem Fenster der letzten N Aufrufe.
+ *     Überschreitet die Fehlerquote den Schwellwert (bei einer Mindestanzahl Aufrufe), öffnet der Breaker.</li>
+ *     <li>OPEN: Aufrufe werden sofort abgewiesen ({@link #allowRequest()} = false). Nach Ablauf der
+ *     Sperrzeit geht es in HALF_OPEN über.</li>
+ *     <li>HALF_OPEN: genau ein Probe-Aufruf; Erfolg schließt, Fehler öffnet erneut.</li>
+ * </ul>
+ * Zusätzlich kann ein externer Health-Check den Zustand über {@link #onHealthProbe(boolean)} steuern:
+ * ein fehlgeschlagener Probe öffnet sofort, ein erfolgreicher schließt einen offenen Breaker vorzeitig.
+ * <p>
+ * Metriken unter {@code <name>.*}: state (0 = closed, 1 = half_open, 2 = open), rejected,
+ * transitions.open, transitions.half_open, transitions.closed.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    /**
+     * Wird geworfen, wenn der Breaker einen Aufruf abweist.
+     */
+    public static class OpenException extends IOException {
+        public OpenException(String name) {
+            super("Circuit '" + name + "' ist offen – Aufruf übersprungen");
+        }
+    }
+
+    private final String name;
+    private final boolean[] window;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int windowPos;
+    private int windowCount;
+    private int windowFailures;
+    private long openedAtNanos;
+    private boolean probeInFlight;
+
+    private final LongAdder rejected;
+    private final LongAdder toOpen;
+    private final LongAdder toHalfOpen;
+    private final LongAdder toClosed;
+
+    /**
+     * @param windowSize           Anzahl der letzten Aufrufe für die Fehlerquote
+     * @param minCalls             so viele Aufrufe müssen im Fenster liegen, bevor die Quote zählt
+     * @param failureRateThreshold Fehlerquote (0..1), ab der geöffnet wird
+     * @param openDuration         Sperrzeit, bevor ein Probe-Aufruf erlaubt wird
+     */
+    public CircuitBreaker(String name, int windowSize, int minCalls, double failureRateThreshold, Duration openDuration) {
+        this.name = name;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minCalls = Math.max(1, minCalls);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+
+        this.rejected = Metrics.counter(name + ".rejected");
+        this.toOpen = Metrics.counter(name + ".transitions.open");
+        this.toHalfOpen = Metrics.counter(name + ".transitions.half_open");
+        this.toClosed = Metrics.counter(name + ".transitions.closed");
+        Metrics.gauge(name + ".state", () -> getState().ordinal());
+    }
+
+    /**
+     * @return true, wenn der Aufruf durchgeführt werden darf; danach genau einmal
+     * {@link #onSuccess()} oder {@link #onFailure()} melden
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            transition(State.HALF_OPEN);
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (!probeInFlight) {
+                    probeInFlight = true;
+                    return true;
+                }
+                break;
+            default:
+                break;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Wie {@link #allowRequest()}, wirft aber {@link OpenException}.
+     */
+    public void acquirePermission() throws OpenException {
+        if (!allowRequest()) {
+            throw new OpenException(name);
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            transition(State.CLOSED);
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transition(State.OPEN);
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && windowCount >= minCalls
+                && windowFailures >= failureRateThreshold * windowCount) {
+            System.err.println("[CircuitBreaker] '" + name + "' öffnet: " + windowFailures + "/" + windowCount
+                    + " Aufrufe fehlgeschlagen");
+            transition(State.OPEN);
+        }
+    }
+
+    /**
+     * Ergebnis eines Health-Checks außerhalb des regulären Verkehrs.
+     */
+    public synchronized void onHealthProbe(boolean healthy) {
+        if (!healthy && state != State.OPEN) {
+            System.err.println("[CircuitBreaker] '" + name + "' öffnet: Health-Check fehlgeschlagen");
+            transition(State.OPEN);
+        } else if (!healthy) {
+            // Sperrzeit verlängern, solange der Dienst nicht gesund ist
+            openedAtNanos = System.nanoTime();
+        } else if (state != State.CLOSED) {
+            System.out.println("[CircuitBreaker] '" + name + "' schließt: Health-Check erfolgreich");
+            transition(State.CLOSED);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public boolean isOpen() {
+        return getState() == State.OPEN;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // ---------------------------------------------------------
+    // Intern (nur synchronized)
+    // ---------------------------------------------------------
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowPos]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowPos] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowPos = (windowPos + 1) % window.length;
+    }
+
+    private void transition(State next) {
+        if (state == next) {
+            return;
+        }
+        state = next;
+        probeInFlight = false;
+        switch (next) {
+            case OPEN:
+                openedAtNanos = System.nanoTime();
+                toOpen.increment();
+                break;
+            case HALF_OPEN:
+                toHalfOpen.increment();
+                break;
+            case CLOSED:
+                windowPos = 0;
+                windowCount = 0;
+                windowFailures = 0;
+                toClosed.increment();
+                break;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.mybroker.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Gemeinsamer HTTP-Transport für alle Upstream-Integrationen (Alpaca, ML-Service, Finnhub,
+ * Value-Service, OpenAI, Alpha Vantage).
+ * <p>
+ * Pro Host wird genau ein {@link HttpClient} gehalten – und damit ein eigener Connection-Pool mit
+ * Keep-Alive. HTTPS-Hosts werden mit HTTP/2 angesprochen (Fallback auf HTTP/1.1 per ALPN),
+ * Plain-HTTP-Hosts (z.B. der lokale ML-Service) bleiben bei HTTP/1.1. Timeouts sind pro Host
+ * konfigurierbar, Antworten werden gzip-komprimiert angefordert und transparent entpackt.
+ * <p>
+ * Die Instanz wird einmal pro Anwendung erzeugt ({@link #shared()}), damit nicht jeder Request
+ * einen neuen TCP/TLS-Handshake bezahlt.
+ */
+public final class UpstreamHttpClient {
+
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Map<String, HostSettings> hostSettings = new ConcurrentHashMap<>();
+    private final Map<String, HttpClient> clients = new ConcurrentHashMap<>();
+
+    private UpstreamHttpClient() {
+    }
+
+    public static UpstreamHttpClient shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Hinterlegt Timeouts für einen Host. Wird von den Clients im Konstruktor aufgerufen;
+     * spätere Aufrufe überschreiben frühere Werte (ein bereits erzeugter Pool behält seinen Connect-Timeout).
+     *
+     * @param baseUrl        beliebige URL des Hosts, z.B. "https://api.openai.com/v1"
+     * @param connectTimeout Timeout für den Verbindungsaufbau
+     * @param requestTimeout Timeout für den gesamten Request (bis die Antwort-Header da sind)
+     */
+    public void configureHost(String baseUrl, Duration connectTimeout, Duration requestTimeout) {
+        hostSettings.put(hostKey(URI.create(baseUrl)), new HostSettings(connectTimeout, requestTimeout));
+    }
+
+    /**
+     * Erzeugt einen Request-Builder mit dem Host-Timeout und gzip-Accept-Encoding.
+     * Aufrufer können Header, Methode und (falls nötig) einen abweichenden Timeout ergänzen.
+     */
+    public HttpRequest.Builder newRequest(String url) {
+        URI uri = URI.create(url);
+        return HttpRequest.newBuilder(uri)
+                .timeout(settingsFor(hostKey(uri)).requestTimeout)
+                .header("Accept-Encoding", "gzip");
+    }
+
+    /**
+     * Führt den Request aus und liefert Status, Header und (entpackten) Body als String.
+     * Der Body wird unabhängig vom Status gelesen, damit Fehlermeldungen des Upstreams erhalten bleiben.
+     */
+    public UpstreamResponse send(HttpRequest request) throws IOException {
+        HttpResponse<byte[]> response = execute(request, HttpResponse.BodyHandlers.ofByteArray());
+        byte[] body = isGzip(response.headers()) ? gunzip(response.body()) : response.body();
+        return new UpstreamResponse(response.statusCode(), response.headers(), body);
+    }
+
+    /**
+     * Führt den Request aus und liefert den (entpackten) Body als Stream, z.B. für Streaming-Parser.
+     * Der Aufrufer muss den Stream schließen, damit die Verbindung in den Pool zurückgeht.
+     * <p>
+     * gzip wird erst beim ersten Lesen entpackt, also auf dem Thread des Aufrufers – der Mapper darf laut
+     * {@link HttpResponse.BodySubscribers#mapping} nicht blockieren. Ein leerer Body (z.B. Fehlerstatus) bleibt leer.
+     */
+    public HttpResponse<InputStream> sendForStream(HttpRequest request) throws IOException {
+        return execute(request, info -> isGzip(info.headers())
+                ? HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofInputStream(), LazyGzipInputStream::new)
+                : HttpResponse.BodySubscribers.ofInputStream());
+    }
+
+    /**
+     * Öffnet eine WebSocket-Verbindung (z.B. Alpaca-Streams) über den Client des jeweiligen Hosts.
+     */
+    public CompletableFuture<WebSocket> openWebSocket(String url, WebSocket.Listener listener) {
+        URI uri = URI.create(url);
+        String hostKey = hostKey(uri);
+        return clients.computeIfAbsent(hostKey, this::createClient)
+                .newWebSocketBuilder()
+                .connectTimeout(settingsFor(hostKey).connectTimeout)
+                .buildAsync(uri, listener);
+    }
+
+    // ---------------------------------------------------------
+    // Intern
+    // ---------------------------------------------------------
+
+    private <T> HttpResponse<T> execute(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        HttpClient client = clients.computeIfAbsent(hostKey(request.uri()), this::createClient);
+        try {
+            return client.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upstream-Request unterbrochen: " + request.uri());
+        }
+    }
+
+    private HttpClient createClient(String hostKey) {
+        HostSettings settings = settingsFor(hostKey);
+        return HttpClient.newBuilder()
+                .version(hostKey.startsWith("https:") ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(settings.connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    private HostSettings settingsFor(String hostKey) {
+        return hostSettings.getOrDefault(hostKey, HostSettings.DEFAULT);
+    }
+
+    private static String hostKey(URI uri) {
+        String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase();
+        int port = uri.getPort();
+        if (port < 0) {
+            port = ("https".equals(scheme) || "wss".equals(scheme)) ? 443 : 80;
+        }
+        return scheme + "://" + String.valueOf(uri.getHost()).toLowerCase() + ":" + port;
+    }
+
+    private static boolean isGzip(HttpHeaders headers) {
+        return headers.firstValue("Content-Encoding")
+                .map(v -> v.trim().equalsIgnoreCase("gzip"))
+                .orElse(false);
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        if (compressed.length == 0) {
+            return compressed;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Öffnet den {@link GZIPInputStream} (der beim Erzeugen den Header liest) erst beim ersten Zugriff.
+     */
+    private static final class LazyGzipInputStream extends InputStream {
+        private final InputStream raw;
+        private InputStream delegate;
+
+        LazyGzipInputStream(InputStream raw) {
+            this.raw = raw;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return delegate().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return delegate().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return delegate != null ? delegate.available() : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delegate != null) {
+                delegate.close();
+            } else {
+                raw.close();
+            }
+        }
+
+        private InputStream delegate() throws IOException {
+            if (delegate == null) {
+                PushbackInputStream in = new PushbackInputStream(raw, 1);
+                int first = in.read();
+                if (first < 0) {
+                    delegate = in; // leerer Body trotz Content-Encoding: gzip
+                } else {
+                    in.unread(first);
+                    delegate = new GZIPInputStream(in);
+                }
+            }
+            return delegate;
+        }
+    }
+
+    private static final class HostSettings {
+        static final HostSettings DEFAULT = new HostSettings(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT);
+
+        final Duration connectTimeout;
+        final Duration requestTimeout;
+
+        HostSettings(Duration connectTimeout, Duration requestTimeout) {
+            this.connectTimeout = connectTimeout;
+            this.requestTimeout = requestTimeout;
+        }
+    }
+
+    private static final class Holder {
+        static final UpstreamHttpClient INSTANCE = new UpstreamHttpClient();
+    }
+}
@@ -0,0 +1,40 @@
+package com.mybroker.http;
+
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Antwort eines Upstream-Aufrufs über {@link UpstreamHttpClient}: Status, Header und bereits entpackter Body.
+ */
+public final class UpstreamResponse {
+
+    private final int statusCode;
+    private final HttpHeaders headers;
+    private final byte[] body;
+
+    UpstreamResponse(int statusCode, HttpHeaders headers, byte[] body) {
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    public boolean isSuccessful() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    public String body() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    public byte[] bodyBytes() {
+        return body;
+    }
+}
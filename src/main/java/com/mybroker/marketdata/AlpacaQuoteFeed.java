@@ -0,0 +1,161 @@
+package com.mybroker.marketdata;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.stream.ReconnectingWebSocket;
+
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Alpaca Market Data Stream (v2, z.B. wss://stream.data.alpaca.markets/v2/iex) als {@link QuoteFeed}.
+ * <p>
+ * Abonniert Trades und Quotes für die angefragten Symbole und schreibt sie ins {@link QuoteBook}.
+ * Nach einem Reconnect werden alle bekannten Symbole automatisch neu abonniert.
+ */
+public class AlpacaQuoteFeed extends ReconnectingWebSocket implements QuoteFeed {
+
+    private final String apiKey;
+    private final String apiSecret;
+    private final Set<String> symbols = ConcurrentHashMap.newKeySet();
+
+    private volatile QuoteBook book;
+    private volatile boolean authenticated;
+
+    public AlpacaQuoteFeed(String streamUrl, String apiKey, String apiSecret) {
+        super("market_data", streamUrl);
+        this.apiKey = apiKey;
+        this.apiSecret = apiSecret;
+    }
+
+    @Override
+    public void start(QuoteBook book) {
+        this.book = book;
+        start();
+    }
+
+    @Override
+    public void subscribe(Collection<String> newSymbols) {
+        List<String> added = new ArrayList<>();
+        for (String s : newSymbols) {
+            if (symbols.add(s)) {
+                added.add(s);
+            }
+        }
+        if (!added.isEmpty() && authenticated) {
+            send(subscriptionMessage("subscribe", added));
+        }
+    }
+
+    @Override
+    public void unsubscribe(Collection<String> oldSymbols) {
+        List<String> removed = new ArrayList<>();
+        for (String s : oldSymbols) {
+            if (symbols.remove(s)) {
+                removed.add(s);
+            }
+        }
+        if (!removed.isEmpty() && authenticated) {
+            send(subscriptionMessage("unsubscribe", removed));
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return authenticated;
+    }
+
+    // ---------------------------------------------------------
+    // Protokoll
+    // ---------------------------------------------------------
+
+    @Override
+    protected void onOpen(WebSocket ws) {
+        JsonObject auth = new JsonObject();
+        auth.addProperty("action", "auth");
+        auth.addProperty("key", apiKey);
+        auth.addProperty("secret", apiSecret);
+        send(auth.toString());
+    }
+
+    @Override
+    protected void onMessage(WebSocket ws, String message) {
+        JsonElement root = JsonParser.parseString(message);
+        JsonArray items = root.isJsonArray() ? root.getAsJsonArray() : new JsonArray();
+        if (root.isJsonObject()) {
+            items.add(root);
+        }
+
+        for (JsonElement el : items) {
+            if (!el.isJsonObject()) {
+                continue;
+            }
+            JsonObject m = el.getAsJsonObject();
+            String type = getString(m, "T");
+            if (type == null) {
+                continue;
+            }
+            switch (type) {
+                case "t":
+                    book.onTrade(getString(m, "S"), getDouble(m, "p"), getString(m, "t"));
+                    Metrics.counter("stream.market_data.trades").increment();
+                    break;
+                case "q":
+                    book.onBidAsk(getString(m, "S"), getDouble(m, "bp"), getDouble(m, "ap"), getString(m, "t"));
+                    Metrics.counter("stream.market_data.quotes").increment();
+                    break;
+                case "success":
+                    if ("authenticated".equals(getString(m, "msg"))) {
+                        authenticated = true;
+                        markHealthy();
+                        if (!symbols.isEmpty()) {
+                            scheduler.execute(() -> send(subscriptionMessage("subscribe", new ArrayList<>(symbols))));
+                        }
+                    }
+                    break;
+                case "error":
+                    reconnect("Fehler vom Datenstream: " + m);
+                    break;
+                default:
+                    // subscription-Bestätigungen, Bars etc. werden ignoriert
+                    break;
+            }
+        }
+    }
+
+    @Override
+    protected void onDisconnected() {
+        authenticated = false;
+    }
+
+    private static String subscriptionMessage(String action, Collection<String> symbols) {
+        JsonArray arr = new JsonArray();
+        symbols.forEach(arr::add);
+        JsonObject msg = new JsonObject();
+        msg.addProperty("action", action);
+        msg.add("trades", arr);
+        msg.add("quotes", arr.deepCopy());
+        return msg.toString();
+    }
+
+    private static String getString(JsonObject obj, String field) {
+        JsonElement el = obj.get(field);
+        return el != null && el.isJsonPrimitive() ? el.getAsString() : null;
+    }
+
+    private static double getDouble(JsonObject obj, String field) {
+        JsonElement el = obj.get(field);
+        try {
+            return el != null && el.isJsonPrimitive() ? el.getAsDouble() : 0.0;
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+}
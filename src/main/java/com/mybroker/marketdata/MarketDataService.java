@@ -0,0 +1,183 @@
+package com.mybroker.marketdata;
+
+import com.mybroker.config.AppConfig;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.model.MarketSnapshot;
+import com.mybroker.service.AlpacaService;
+import com.mybroker.service.CachedAlpacaService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Verwaltet die Marktdaten-Abos und hält die {@link QuoteBook}-Tabelle mit den letzten Kursen.
+ * <p>
+ * Abos werden pro "Owner" gepflegt (z.B. "index" für die Index-Kacheln, "positions" für gehaltene Titel).
+ * Ein Symbol bleibt abonniert, solange mindestens ein Owner es braucht. Leser holen den letzten Kurs
+ * über {@link #getQuote(String)} ohne Netzwerkaufruf.
+ * <p>
+ * Konfiguration: MARKET_DATA_FEED = alpaca (Default) | replay | off,
+ * ALPACA_DATA_STREAM_URL (Default wss://stream.data.alpaca.markets/v2/iex).
+ */
+public class MarketDataService {
+
+    public static final String OWNER_INDEX = "index";
+    public static final String OWNER_POSITIONS = "positions";
+
+    /**
+     * ETFs für die Index-Kacheln im Dashboard (NASDAQ, Dow Jones).
+     */
+    public static final List<String> INDEX_SYMBOLS = List.of("QQQ", "DIA");
+
+    private final QuoteBook book = new QuoteBook();
+    private final QuoteFeed feed;
+    private final AlpacaService rest;
+    private final Map<String, Set<String>> subscriptionsByOwner = new HashMap<>();
+
+    private volatile boolean started;
+
+    public MarketDataService(QuoteFeed feed, AlpacaService rest) {
+        this.feed = feed;
+        this.rest = rest;
+        Metrics.gauge("marketdata.symbols", book::size);
+    }
+
+    public static MarketDataService shared() {
+        return Holder.INSTANCE;
+    }
+
+    public synchronized void start() {
+        if (started || feed == null) {
+            return;
+        }
+        started = true;
+        feed.start(book);
+        updateSubscriptions(OWNER_INDEX, INDEX_SYMBOLS);
+    }
+
+    public synchronized void stop() {
+        if (feed != null) {
+            feed.stop();
+        }
+        started = false;
+    }
+
+    /**
+     * Ersetzt die Symbole eines Owners und passt die Abos beim Feed an (nur die Differenz).
+     */
+    public synchronized void updateSubscriptions(String owner, Collection<String> symbols) {
+        if (feed == null) {
+            return;
+        }
+        Set<String> before = allSymbols();
+        Set<String> next = new HashSet<>();
+        for (String s : symbols) {
+            if (s != null && !s.isBlank()) {
+                next.add(s.trim().toUpperCase());
+            }
+        }
+        subscriptionsByOwner.put(owner, next);
+        Set<String> after = allSymbols();
+
+        Set<String> added = new HashSet<>(after);
+        added.removeAll(before);
+        Set<String> removed = new HashSet<>(before);
+        removed.removeAll(after);
+
+        if (!added.isEmpty()) {
+            feed.subscribe(added);
+        }
+        if (!removed.isEmpty()) {
+            feed.unsubscribe(removed);
+            removed.forEach(book::remove);
+        }
+    }
+
+    /**
+     * Letzter Kurs aus dem Stream oder null (nicht abonniert, noch kein Tick, Feed getrennt).
+     */
+    public Quote getQuote(String symbol) {
+        if (feed == null || !feed.isConnected()) {
+            return null;
+        }
+        return book.get(symbol);
+    }
+
+    /**
+     * Letzte Kurse für mehrere Symbole: was im Stream liegt, kommt aus dem {@link QuoteBook},
+     * der Rest mit einem einzigen Multi-Symbol-Snapshot-Aufruf bei Alpaca.
+     * Symbole ohne Kurs fehlen im Ergebnis; ein fehlgeschlagener REST-Aufruf wird nur geloggt.
+     */
+    public Map<String, Quote> getLatestQuotes(Collection<String> symbols) {
+        Map<String, Quote> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String symbol : symbols) {
+            Quote quote = getQuote(symbol);
+            if (quote != null && quote.getPrice() > 0.0) {
+                result.put(symbol, quote);
+            } else {
+                missing.add(symbol);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            Map<String, MarketSnapshot> snapshots = rest.getSnapshots(missing);
+            for (String symbol : missing) {
+                MarketSnapshot s = snapshots.get(symbol.trim().toUpperCase());
+                if (s != null && s.getLastPrice() > 0.0) {
+                    result.put(symbol, new Quote(symbol, s.getLastPrice(), s.getBidPrice(), s.getAskPrice(),
+                            s.getLastTradeTime(), now));
+                }
+            }
+            Metrics.counter("marketdata.snapshot_fallbacks").increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("[MarketDataService] Snapshots für " + missing + " nicht verfügbar: " + e.getMessage());
+        }
+        return result;
+    }
+
+    public QuoteBook getBook() {
+        return book;
+    }
+
+    private Set<String> allSymbols() {
+        Set<String> all = new HashSet<>();
+        subscriptionsByOwner.values().forEach(all::addAll);
+        return all;
+    }
+
+    private static QuoteFeed createFeed() {
+        String type = AppConfig.getString("MARKET_DATA_FEED", "alpaca").toLowerCase();
+        switch (type) {
+            case "replay":
+                return new ReplayQuoteFeed();
+            case "off":
+                return null;
+            default:
+                String key = System.getenv("ALPACA_API_KEY");
+                String secret = System.getenv("ALPACA_API_SECRET");
+                if (key == null || secret == null) {
+                    System.out.println("[MarketDataService] Keine Alpaca-Credentials – kein Marktdaten-Stream.");
+                    return null;
+                }
+                String url = AppConfig.getString("ALPACA_DATA_STREAM_URL", "wss://stream.data.alpaca.markets/v2/iex");
+                return new AlpacaQuoteFeed(url, key, secret);
+        }
+    }
+
+    private static final class Holder {
+        static final MarketDataService INSTANCE = new MarketDataService(createFeed(), CachedAlpacaService.shared());
+    }
+}
@@ -0,0 +1,62 @@
+package com.mybroker.marketdata;
+
+/**
+ * Letzter bekannter Kurs eines Symbols (Trade und – falls vorhanden – Bid/Ask).
+ * Unveränderlich, damit Leser ohne Locks auf einen konsistenten Stand zugreifen.
+ */
+public final class Quote {
+
+    private final String symbol;
+    private final double price;
+    private final double bid;
+    private final double ask;
+    private final String timestamp;
+    private final long receivedAtMillis;
+
+    public Quote(String symbol, double price, double bid, double ask, String timestamp, long receivedAtMillis) {
+        this.symbol = symbol;
+        this.price = price;
+        this.bid = bid;
+        this.ask = ask;
+        this.timestamp = timestamp;
+        this.receivedAtMillis = receivedAtMillis;
+    }
+
+    /**
+     * Neuer Stand mit geändertem Trade-Preis; Bid/Ask bleiben erhalten.
+     */
+    public Quote withTrade(double price, String timestamp, long receivedAtMillis) {
+        return new Quote(symbol, price, bid, ask, timestamp, receivedAtMillis);
+    }
+
+    /**
+     * Neuer Stand mit geändertem Bid/Ask; der letzte Trade-Preis bleibt erhalten.
+     */
+    public Quote withBidAsk(double bid, double ask, String timestamp, long receivedAtMillis) {
+        return new Quote(symbol, price, bid, ask, timestamp, receivedAtMillis);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public double getBid() {
+        return bid;
+    }
+
+    public double getAsk() {
+        return ask;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public long getReceivedAtMillis() {
+        return receivedAtMillis;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mybroker.marketdata;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Lock-freie Tabelle "Symbol -&gt; letzter Kurs".
+ * <p>
+ * Geschrieben wird vom Feed-Thread, gelesen von beliebig vielen Servlet-Threads.
+ * Jeder Eintrag ist ein unveränderliches {@link Quote}; Updates ersetzen ihn atomar.
+ * Trade-Listener laufen synchron auf dem schreibenden Thread und müssen entsprechend kurz sein.
+ */
+public class QuoteBook {
+
+    private final Map<String, Quote> quotes = new ConcurrentHashMap<>();
+    private final List<Consumer<Quote>> tradeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Wird nach jedem neuen Trade-Kurs (Stream oder {@link #put}) mit dem neuen Stand aufgerufen.
+     */
+    public void addTradeListener(Consumer<Quote> listener) {
+        tradeListeners.add(listener);
+    }
+
+    public void onTrade(String symbol, double price, String timestamp) {
+        long now = System.currentTimeMillis();
+        Quote updated = quotes.compute(symbol, (s, current) -> current == null
+                ? new Quote(s, price, 0.0, 0.0, timestamp, now)
+                : current.withTrade(price, timestamp, now));
+        fireTrade(updated);
+    }
+
+    public void onBidAsk(String symbol, double bid, double ask, String timestamp) {
+        long now = System.currentTimeMillis();
+        quotes.compute(symbol, (s, current) -> current == null
+                ? new Quote(s, 0.0, bid, ask, timestamp, now)
+                : current.withBidAsk(bid, ask, timestamp, now));
+    }
+
+    public void put(Quote quote) {
+        quotes.put(quote.getSymbol(), quote);
+        if (quote.getPrice() > 0.0) {
+            fireTrade(quote);
+        }
+    }
+
+    /**
+     * Letzter Kurs oder null, wenn für das Symbol (noch) nichts empfangen wurde.
+     */
+    public Quote get(String symbol) {
+        return symbol == null ? null : quotes.get(symbol);
+    }
+
+    public void remove(String symbol) {
+        quotes.remove(symbol);
+    }
+
+    public int size() {
+        return quotes.size();
+    }
+
+    private void fireTrade(Quote quote) {
+        for (Consumer<Quote> listener : tradeListeners) {
+            try {
+                listener.accept(quote);
+            } catch (RuntimeException e) {
+                System.err.println("[QuoteBook] Trade-Listener fehlgeschlagen für " + quote.getSymbol() + ": " + e);
+            }
+        }
+    }
+}
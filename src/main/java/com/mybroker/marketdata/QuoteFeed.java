@@ -0,0 +1,25 @@
+package com.mybroker.marketdata;
+
+import java.util.Collection;
+
+/**
+ * Quelle für Streaming-Kurse. Implementierungen schreiben in das übergebene {@link QuoteBook}.
+ * <p>
+ * {@link AlpacaQuoteFeed} für den Live-Betrieb, {@link ReplayQuoteFeed} als Stand-in für Tests
+ * und lokale Entwicklung ohne Marktdaten-Zugang.
+ */
+public interface QuoteFeed {
+
+    void start(QuoteBook book);
+
+    void subscribe(Collection<String> symbols);
+
+    void unsubscribe(Collection<String> symbols);
+
+    void stop();
+
+    /**
+     * true, solange der Feed verbunden ist und Daten liefert.
+     */
+    boolean isConnected();
+}
@@ -0,0 +1,62 @@
+package com.mybroker.marketdata;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in-Feed ohne Netzwerk: spielt vorgegebene Kurse ein, aber nur für abonnierte Symbole.
+ * <p>
+ * Gedacht für Tests und lokale Entwicklung (MARKET_DATA_FEED=replay). Kurse kommen über
+ * {@link #emit(Quote)} bzw. {@link #replay(List)} – z.B. aus einer aufgezeichneten Session.
+ */
+public class ReplayQuoteFeed implements QuoteFeed {
+
+    private final Set<String> symbols = ConcurrentHashMap.newKeySet();
+
+    private volatile QuoteBook book;
+
+    @Override
+    public void start(QuoteBook book) {
+        this.book = book;
+    }
+
+    @Override
+    public void subscribe(Collection<String> newSymbols) {
+        symbols.addAll(newSymbols);
+    }
+
+    @Override
+    public void unsubscribe(Collection<String> oldSymbols) {
+        symbols.removeAll(oldSymbols);
+    }
+
+    @Override
+    public void stop() {
+        book = null;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return book != null;
+    }
+
+    /**
+     * Spielt einen einzelnen Kurs ein. Nicht abonnierte Symbole werden – wie beim echten Feed – verworfen.
+     */
+    public void emit(Quote quote) {
+        QuoteBook target = book;
+        if (target != null && symbols.contains(quote.getSymbol())) {
+            target.put(quote);
+        }
+    }
+
+    public void replay(List<Quote> quotes) {
+        quotes.forEach(this::emit);
+    }
+
+    public Set<String> getSubscribedSymbols() {
+        return Set.copyOf(symbols);
+    }
+}
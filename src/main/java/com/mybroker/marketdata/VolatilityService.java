@@ -0,0 +1,280 @@
+package com.mybroker.marketdata;
+
+import com.mybroker.config.AppConfig;
+import com.mybroker.db.PriceRepository;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.model.Position;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Annualisierte realisierte Volatilität pro Symbol aus brokerml.prices.
+ * <p>
+ * Pro Symbol liegt ein {@link VolatilityState} im Speicher. Beim ersten Zugriff werden die letzten
+ * VOLATILITY_WINDOW+1 Schlusskurse geladen, danach nur noch Kerzen nach dem letzten bekannten Zeitstempel –
+ * für alle fälligen Symbole in einer Abfrage ({@link PriceRepository#loadClosesSince}) auf einem eigenen Thread.
+ * Seitenaufrufe lesen nur den Speicher: veraltete Stände werden sofort geliefert und im Hintergrund
+ * nachgezogen, nur auf noch unbekannte Symbole wird höchstens VOLATILITY_WAIT_MS gewartet. Symbole, die
+ * länger als VOLATILITY_IDLE_EVICT_MS nicht mehr abgefragt wurden (nicht mehr gehalten), fallen beim nächsten
+ * Nachladen aus dem Speicher.
+ * <p>
+ * Konfiguration: VOLATILITY_WINDOW (60 Renditen), VOLATILITY_PERIODS_PER_YEAR (252, Tageskerzen),
+ * VOLATILITY_MODEL (rolling | ewma), VOLATILITY_EWMA_LAMBDA (0.94), VOLATILITY_MIN_RETURNS (10),
+ * VOLATILITY_REFRESH_MS (900000), VOLATILITY_WAIT_MS (500), VOLATILITY_IDLE_EVICT_MS (86400000). Ohne DB_URL bleibt die Volatilität leer.
+ * Metriken unter {@code volatility.*}.
+ */
+public class VolatilityService {
+
+    private static final String METRIC_PREFIX = "volatility.";
+
+    private final PriceRepository repository;
+    private final int window;
+    private final double periodsPerYear;
+    private final boolean ewma;
+    private final double lambda;
+    private final int minReturns;
+    private final Duration refreshInterval;
+    private final Duration waitForMissing;
+    private final Duration idleEviction;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "volatility-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder refreshes = Metrics.counter(METRIC_PREFIX + "refreshes");
+    private final LongAdder barsLoaded = Metrics.counter(METRIC_PREFIX + "bars_loaded");
+    private final LongAdder refreshErrors = Metrics.counter(METRIC_PREFIX + "refresh_errors");
+    private final LongAdder waitTimeouts = Metrics.counter(METRIC_PREFIX + "wait_timeouts");
+    private final LongAdder evictions = Metrics.counter(METRIC_PREFIX + "evictions");
+
+    private static final class Entry {
+        final VolatilityState state;
+        volatile long refreshedAtMillis;
+        // letzte Abfrage durch eine Seite oder einen Batch-Lauf
+        volatile long accessedAtMillis;
+
+        Entry(VolatilityState state) {
+            this.state = state;
+        }
+    }
+
+    /**
+     * @param repository null = ohne Kursdaten (keine Volatilität)
+     */
+    public VolatilityService(PriceRepository repository, int window, double periodsPerYear, boolean ewma,
+                             double lambda, int minReturns, Duration refreshInterval, Duration waitForMissing,
+                             Duration idleEviction) {
+        this.repository = repository;
+        this.window = Math.max(2, window);
+        this.periodsPerYear = periodsPerYear;
+        this.ewma = ewma;
+        this.lambda = lambda;
+        this.minReturns = Math.max(2, minReturns);
+        this.refreshInterval = refreshInterval;
+        this.waitForMissing = waitForMissing;
+        this.idleEviction = idleEviction;
+        Metrics.gauge(METRIC_PREFIX + "symbols", entries::size);
+    }
+
+    public static VolatilityService shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Setzt Position.volatility (annualisiert, 4 Nachkommastellen); ohne ausreichende Kurshistorie null.
+     */
+    public void apply(List<Position> positions) {
+        List<String> symbols = new ArrayList<>(positions.size());
+        for (Position p : positions) {
+            if (p.getSymbol() != null && !p.getSymbol().isBlank()) {
+                symbols.add(p.getSymbol());
+            }
+        }
+        Map<String, Double> volatilities = getVolatilities(symbols);
+        for (Position p : positions) {
+            Double vol = volatilities.get(p.getSymbol());
+            p.setVolatility(vol != null ? BigDecimal.valueOf(vol).setScale(4, RoundingMode.HALF_UP) : null);
+        }
+    }
+
+    /**
+     * @return Symbol → annualisierte Volatilität (z.B. 0.25 = 25 %); Symbole ohne ausreichende Historie fehlen
+     */
+    public Map<String, Double> getVolatilities(Collection<String> symbols) {
+        Map<String, Double> result = new HashMap<>();
+        if (repository == null || symbols.isEmpty()) {
+            return result;
+        }
+
+        long now = System.currentTimeMillis();
+        Set<String> due = new LinkedHashSet<>();
+        List<String> missing = new ArrayList<>();
+        for (String symbol : symbols) {
+            Entry entry = entries.get(symbol);
+            if (entry == null) {
+                missing.add(symbol);
+                due.add(symbol);
+                continue;
+            }
+            entry.accessedAtMillis = now;
+            if (now - entry.refreshedAtMillis >= refreshInterval.toMillis()) {
+                due.add(symbol);
+            }
+        }
+
+        if (!due.isEmpty()) {
+            CompletableFuture<Void> refresh = scheduleRefresh(due);
+            if (!missing.isEmpty()) {
+                awaitQuietly(refresh);
+            }
+        }
+
+        for (String symbol : symbols) {
+            Entry entry = entries.get(symbol);
+            if (entry == null || entry.state.getReturnCount() < minReturns) {
+                continue;
+            }
+            double vol = ewma ? entry.state.ewmaVolatility(periodsPerYear) : entry.state.rollingVolatility(periodsPerYear);
+            if (!Double.isNaN(vol)) {
+                result.put(symbol, vol);
+            }
+        }
+        return result;
+    }
+
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // ---------------------------------------------------------
+    // Nachladen
+    // ---------------------------------------------------------
+
+    /**
+     * Plant ein Nachladen für alle Symbole, die nicht schon geladen werden, und liefert ein Future,
+     * das fertig ist, sobald alle angefragten Symbole (auch die bereits laufenden) geladen sind.
+     */
+    private CompletableFuture<Void> scheduleRefresh(Set<String> symbols) {
+        List<CompletableFuture<Void>> waits = new ArrayList<>();
+        List<String> mine = new ArrayList<>();
+        CompletableFuture<Void> batch = new CompletableFuture<>();
+        for (String symbol : symbols) {
+            CompletableFuture<Void> existing = inFlight.putIfAbsent(symbol, batch);
+            if (existing != null) {
+                waits.add(existing);
+            } else {
+                mine.add(symbol);
+            }
+        }
+        if (!mine.isEmpty()) {
+            waits.add(batch);
+            try {
+                executor.execute(() -> refresh(mine, batch));
+            } catch (RuntimeException rejected) {
+                mine.forEach(s -> inFlight.remove(s, batch));
+                batch.complete(null);
+            }
+        }
+        return CompletableFuture.allOf(waits.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void refresh(List<String> symbols, CompletableFuture<Void> batch) {
+        try {
+            String[] names = symbols.toArray(new String[0]);
+            long[] since = new long[names.length];
+            for (int i = 0; i < names.length; i++) {
+                Entry entry = entries.get(names[i]);
+                long last = entry != null ? entry.state.getLastTimestampMillis() : Long.MIN_VALUE;
+                since[i] = last == Long.MIN_VALUE ? 0L : last;
+            }
+
+            // window+1 Kurse ergeben window Renditen; kommen so viele neue, wird der Stand neu aufgebaut
+            int limit = window + 1;
+            Map<String, PriceRepository.CloseSeries> loaded = repository.loadClosesSince(names, since, limit);
+            long now = System.currentTimeMillis();
+            for (String symbol : names) {
+                PriceRepository.CloseSeries series = loaded.get(symbol);
+                Entry entry = entries.get(symbol);
+                if (entry == null || (series != null && series.size() >= limit)) {
+                    Entry fresh = new Entry(new VolatilityState(window, lambda));
+                    fresh.refreshedAtMillis = entry != null ? entry.refreshedAtMillis : 0L;
+                    entry = fresh;
+                }
+                if (series != null) {
+                    for (int i = 0; i < series.size(); i++) {
+                        entry.state.onBar(series.getTimestampMillis(i), series.getClose(i));
+                    }
+                    barsLoaded.add(series.size());
+                }
+                entry.refreshedAtMillis = now;
+                entry.accessedAtMillis = now;
+                entries.put(symbol, entry);
+            }
+            refreshes.increment();
+            evictIdle(now);
+        } catch (Exception e) {
+            refreshErrors.increment();
+            System.err.println("[VolatilityService] Laden der Kurse fehlgeschlagen: " + e.getMessage());
+        } finally {
+            symbols.forEach(s -> inFlight.remove(s, batch));
+            batch.complete(null);
+        }
+    }
+
+    /**
+     * Entfernt Symbole, die länger als VOLATILITY_IDLE_EVICT_MS nicht abgefragt wurden. Läuft auf dem
+     * Refresh-Thread, damit kein gleichzeitiger refresh() einen gerade entfernten Eintrag wieder einsetzt.
+     */
+    private void evictIdle(long now) {
+        long idleMillis = idleEviction.toMillis();
+        int before = entries.size();
+        entries.values().removeIf(e -> now - e.accessedAtMillis > idleMillis);
+        evictions.add(before - entries.size());
+    }
+
+    private void awaitQuietly(CompletableFuture<Void> future) {
+        try {
+            future.get(waitForMissing.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Seite wird ohne diese Werte gerendert, der nächste Aufruf hat sie
+            waitTimeouts.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ignored) {
+            // Fehler wurden im Refresh-Thread gezählt und geloggt
+        }
+    }
+
+    private static final class Holder {
+        static final VolatilityService INSTANCE = new VolatilityService(
+                System.getenv("DB_URL") != null ? new PriceRepository() : null,
+                AppConfig.getInt("VOLATILITY_WINDOW", 60),
+                AppConfig.getDouble("VOLATILITY_PERIODS_PER_YEAR", 252.0),
+                "ewma".equalsIgnoreCase(AppConfig.getString("VOLATILITY_MODEL", "rolling")),
+                AppConfig.getDouble("VOLATILITY_EWMA_LAMBDA", 0.94),
+                AppConfig.getInt("VOLATILITY_MIN_RETURNS", 10),
+                AppConfig.getMillis("VOLATILITY_REFRESH_MS", 900_000),
+                AppConfig.getMillis("VOLATILITY_WAIT_MS", 500),
+                AppConfig.getMillis("VOLATILITY_IDLE_EVICT_MS", 86_400_000));
+    }
+}
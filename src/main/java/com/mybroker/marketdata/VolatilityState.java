@@ -0,0 +1,112 @@
+package com.mybroker.marketdata;
+
+/**
+ * Laufender Volatilitätsstand eines Symbols aus seinen Schlusskursen.
+ * <ul>
+ *     <li>rollierend: Stichprobenvarianz der letzten n Log-Renditen, per Welford mit Hinzufügen und Entfernen
+ *     im Ringpuffer (O(1) pro Kerze); alle n Entfernungen wird aus dem Puffer neu gerechnet, damit sich
+ *     Rundungsfehler nicht aufsummieren</li>
+ *     <li>EWMA (RiskMetrics, Mittelwert 0): σ²<sub>t</sub> = λ·σ²<sub>t-1</sub> + (1-λ)·r²<sub>t</sub></li>
+ * </ul>
+ * Neue Kerzen werden nur übernommen, wenn sie jünger als die letzte sind. Zugriffe sind synchronisiert
+ * (Schreiber ist der Refresh-Thread, Leser die Seitenaufrufe).
+ */
+final class VolatilityState {
+
+    private final double[] returns;
+    private final double lambda;
+
+    private int count;
+    private int head;
+    private double mean;
+    private double m2;
+    private int removalsSinceRecompute;
+
+    private double ewmaVariance = Double.NaN;
+
+    private long lastTimestampMillis = Long.MIN_VALUE;
+    private double lastClose = Double.NaN;
+
+    VolatilityState(int window, double lambda) {
+        this.returns = new double[Math.max(2, window)];
+        this.lambda = lambda;
+    }
+
+    synchronized long getLastTimestampMillis() {
+        return lastTimestampMillis;
+    }
+
+    synchronized int getReturnCount() {
+        return count;
+    }
+
+    synchronized void onBar(long timestampMillis, double close) {
+        if (timestampMillis <= lastTimestampMillis || !(close > 0.0)) {
+            return;
+        }
+        if (lastClose > 0.0) {
+            addReturn(Math.log(close / lastClose));
+        }
+        lastTimestampMillis = timestampMillis;
+        lastClose = close;
+    }
+
+    /**
+     * Annualisierte rollierende Volatilität, NaN bei weniger als zwei Renditen.
+     */
+    synchronized double rollingVolatility(double periodsPerYear) {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        return Math.sqrt(Math.max(0.0, m2 / (count - 1)) * periodsPerYear);
+    }
+
+    /**
+     * Annualisierte EWMA-Volatilität, NaN ohne Rendite.
+     */
+    synchronized double ewmaVolatility(double periodsPerYear) {
+        return Double.isNaN(ewmaVariance) ? Double.NaN : Math.sqrt(ewmaVariance * periodsPerYear);
+    }
+
+    private void addReturn(double r) {
+        ewmaVariance = Double.isNaN(ewmaVariance) ? r * r : lambda * ewmaVariance + (1.0 - lambda) * r * r;
+
+        if (count == returns.length) {
+            // älteste Rendite verlässt das Fenster
+            double old = returns[head];
+            double newMean = (count * mean - old) / (count - 1);
+            m2 -= (old - mean) * (old - newMean);
+            mean = newMean;
+            count--;
+            returns[head] = r;
+            head = (head + 1) % returns.length;
+            removalsSinceRecompute++;
+        } else {
+            returns[(head + count) % returns.length] = r;
+        }
+
+        count++;
+        double delta = r - mean;
+        mean += delta / count;
+        m2 += delta * (r - mean);
+
+        if (removalsSinceRecompute >= returns.length) {
+            recompute();
+        }
+    }
+
+    private void recompute() {
+        double sum = 0.0;
+        for (int i = 0; i < count; i++) {
+            sum += returns[(head + i) % returns.length];
+        }
+        mean = sum / count;
+        double squares = 0.0;
+        for (int i = 0; i < count; i++) {
+            double d = returns[(head + i) % returns.length] - mean;
+            squares += d * d;
+        }
+        m2 = squares;
+        removalsSinceRecompute = 0;
+    }
+}
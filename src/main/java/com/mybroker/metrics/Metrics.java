@@ -0,0 +1,52 @@
+package com.mybroker.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Minimale, prozessweite Metrik-Registry (Zähler und Gauges).
+ * <p>
+ * Zähler sind {@link LongAdder} und damit auch unter hoher Parallelität billig.
+ * Gauges werden erst beim Auslesen berechnet. Ausgegeben wird alles über {@code /metrics}.
+ */
+public final class Metrics {
+
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Supplier<? extends Number>> GAUGES = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Liefert den Zähler mit diesem Namen (wird bei Bedarf angelegt).
+     */
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Registriert (oder ersetzt) eine Gauge, deren Wert beim Auslesen berechnet wird.
+     */
+    public static void gauge(String name, Supplier<? extends Number> supplier) {
+        GAUGES.put(name, supplier);
+    }
+
+    /**
+     * Momentaufnahme aller Zähler und Gauges, alphabetisch sortiert.
+     */
+    public static Map<String, Number> snapshot() {
+        Map<String, Number> result = new TreeMap<>();
+        COUNTERS.forEach((name, adder) -> result.put(name, adder.sum()));
+        GAUGES.forEach((name, supplier) -> {
+            try {
+                result.put(name, supplier.get());
+            } catch (RuntimeException e) {
+                result.put(name, Double.NaN);
+            }
+        });
+        return result;
+    }
+}
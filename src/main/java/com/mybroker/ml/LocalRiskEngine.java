@@ -0,0 +1,111 @@
+package com.mybroker.ml;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Risiko-Score ohne ML-Service, direkt in der JVM aus dem {@link PortfolioRequestDto}.
+ * <p>
+ * Kennzahlen auf Basis der Positionsgewichte w<sub>i</sub> = |Marktwert<sub>i</sub>| / Summe |Marktwerte|:
+ * <ul>
+ *     <li>concentration: Herfindahl-Index Σ w<sub>i</sub>² (1/n = gleichverteilt, 1 = eine Position)</li>
+ *     <li>largestWeight: größtes w<sub>i</sub></li>
+ *     <li>sectorConcentration: Herfindahl-Index über die Sektorgewichte; Positionen ohne Sektor zählen
+ *     jeweils als eigener Sektor, damit fehlende Daten nicht als Klumpenrisiko erscheinen</li>
+ * </ul>
+ * riskScore (0–100) = (50·HHI + 30·largestWeight + 20·Sektor-HHI) × investierter Anteil (Cash senkt das Risiko).
+ * riskLevel: LOW &lt; 35 ≤ MEDIUM &lt; 65 ≤ HIGH.
+ * <p>
+ * Eine Schleife über die Positionen plus eine über die Sektoren, keine externen Aufrufe – geeignet als
+ * Fallback bei offenem Circuit und als Schattenrechnung neben dem ML-Modell.
+ */
+public final class LocalRiskEngine {
+
+    public static final String SOURCE = "local";
+
+    private static final double LOW_THRESHOLD = 35.0;
+    private static final double HIGH_THRESHOLD = 65.0;
+
+    private LocalRiskEngine() {
+    }
+
+    public static RiskScoreResponseDto score(PortfolioRequestDto portfolio) {
+        double cash = Math.max(0.0, portfolio.getCash());
+        List<PositionDto> positions = portfolio.getPositions();
+
+        double gross = 0.0;
+        double net = 0.0;
+        int count = 0;
+        if (positions != null) {
+            for (PositionDto p : positions) {
+                double mv = p.getMarketValue();
+                if (mv != 0.0) {
+                    gross += Math.abs(mv);
+                    net += mv;
+                    count++;
+                }
+            }
+        }
+
+        RiskScoreResponseDto dto = new RiskScoreResponseDto();
+        dto.setSource(SOURCE);
+        dto.setTotalValue(cash + net);
+        dto.setNumPositions(count);
+
+        if (gross <= 0.0) {
+            dto.setRiskScore(0);
+            dto.setRiskLevel("LOW");
+            dto.setExplanation("Keine investierten Positionen – nur Cash.");
+            return dto;
+        }
+
+        double hhi = 0.0;
+        double largest = 0.0;
+        String largestSymbol = null;
+        Map<String, Double> sectorWeights = new HashMap<>();
+        for (PositionDto p : positions) {
+            double mv = p.getMarketValue();
+            if (mv == 0.0) {
+                continue;
+            }
+            double w = Math.abs(mv) / gross;
+            hhi += w * w;
+            if (w > largest) {
+                largest = w;
+                largestSymbol = p.getSymbol();
+            }
+            String sector = p.getSector() == null || p.getSector().isBlank() || "unknown".equalsIgnoreCase(p.getSector())
+                    ? "?" + p.getSymbol()
+                    : p.getSector();
+            sectorWeights.merge(sector, w, Double::sum);
+        }
+
+        double sectorHhi = 0.0;
+        for (double w : sectorWeights.values()) {
+            sectorHhi += w * w;
+        }
+
+        double investedShare = gross / (gross + cash);
+        double raw = (50.0 * hhi + 30.0 * largest + 20.0 * sectorHhi) * investedShare;
+        int score = (int) Math.round(Math.min(100.0, Math.max(0.0, raw)));
+
+        dto.setConcentration(hhi);
+        dto.setLargestWeight(largest);
+        dto.setSectorConcentration(sectorHhi);
+        dto.setRiskScore(score);
+        dto.setRiskLevel(levelFor(score));
+        dto.setExplanation(String.format(Locale.GERMANY,
+                "Lokale Schätzung: HHI %.2f, größte Position %s mit %.0f %%, Sektor-HHI %.2f, investiert %.0f %%.",
+                hhi, largestSymbol, largest * 100.0, sectorHhi, investedShare * 100.0));
+        return dto;
+    }
+
+    public static String levelFor(int score) {
+        if (score < LOW_THRESHOLD) {
+            return "LOW";
+        }
+        return score < HIGH_THRESHOLD ? "MEDIUM" : "HIGH";
+    }
+}
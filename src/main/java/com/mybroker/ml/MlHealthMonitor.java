@@ -0,0 +1,82 @@
+package com.mybroker.ml;
+
+import com.mybroker.config.AppConfig;
+import com.mybroker.http.CircuitBreaker;
+import com.mybroker.metrics.Metrics;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prüft den ML-Service periodisch über /health und meldet das Ergebnis an den Circuit Breaker
+ * des {@link MlServiceClient}. Ist der Dienst down, öffnet der Breaker, bevor ein Seitenaufruf in
+ * einen Timeout läuft; sobald /health wieder antwortet, schließt er ohne Wartezeit.
+ * <p>
+ * Konfiguration: ML_HEALTH_PROBE_MS (10000). Metriken: ml.health.up (1/0), ml.health.probes,
+ * ml.health.failures.
+ */
+public class MlHealthMonitor {
+
+    private final MlServiceClient client;
+    private final CircuitBreaker breaker;
+    private final Duration interval;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean up = true;
+
+    public MlHealthMonitor(MlServiceClient client, CircuitBreaker breaker, Duration interval) {
+        this.client = client;
+        this.breaker = breaker;
+        this.interval = interval;
+        Metrics.gauge("ml.health.up", () -> up ? 1 : 0);
+    }
+
+    public static MlHealthMonitor shared() {
+        return Holder.INSTANCE;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ml-health-probe");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::probe, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public boolean isUp() {
+        return up;
+    }
+
+    private void probe() {
+        boolean healthy = client.isServiceHealthy();
+        Metrics.counter("ml.health.probes").increment();
+        if (!healthy) {
+            Metrics.counter("ml.health.failures").increment();
+        }
+        if (healthy != up) {
+            System.out.println("[MlHealthMonitor] ML-Service ist " + (healthy ? "wieder erreichbar" : "nicht erreichbar"));
+        }
+        up = healthy;
+        breaker.onHealthProbe(healthy);
+    }
+
+    private static final class Holder {
+        static final MlHealthMonitor INSTANCE = new MlHealthMonitor(
+                new MlServiceClient(),
+                MlServiceClient.breaker(),
+                AppConfig.getMillis("ML_HEALTH_PROBE_MS", 10_000));
+    }
+}
@@ -1,25 +1,102 @@
 package com.mybroker.ml;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import com.mybroker.config.AppConfig;
+import com.mybroker.http.CircuitBreaker;
+import com.mybroker.http.UpstreamHttpClient;
+import com.mybroker.http.UpstreamResponse;
+import com.mybroker.metrics.Metrics;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MlServiceClient {
 
+    private static final int TREND_BATCH_SIZE = AppConfig.getInt("ML_TREND_BATCH_SIZE", 50);
+
+    // Fan-out-Fallback ohne Batch-Endpoint: höchstens so viele /trend-Aufrufe gleichzeitig, dahinter eine
+    // begrenzte Warteschlange (ML_TREND_QUEUE) – ist sie voll, werden die übrigen Symbole sofort als Fehler markiert
+    private static final ThreadPoolExecutor TREND_EXECUTOR = new ThreadPoolExecutor(
+            AppConfig.getInt("ML_TREND_PARALLELISM", 4), AppConfig.getInt("ML_TREND_PARALLELISM", 4),
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, AppConfig.getInt("ML_TREND_QUEUE", 256))),
+            new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "ml-trend-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    // Ein ML-Service, also ein Breaker für alle Instanzen; gespeist aus den Aufrufen und dem MlHealthMonitor
+    private static final CircuitBreaker BREAKER = new CircuitBreaker("ml.breaker",
+            AppConfig.getInt("ML_BREAKER_WINDOW", 20),
+            AppConfig.getInt("ML_BREAKER_MIN_CALLS", 5),
+            AppConfig.getDouble("ML_BREAKER_FAILURE_RATE", 0.5),
+            AppConfig.getMillis("ML_BREAKER_OPEN_MS", 30_000));
+
+    private static final boolean LOCAL_FALLBACK = AppConfig.getBoolean("ML_RISK_LOCAL_FALLBACK", true);
+    private static final boolean SHADOW_ENABLED = AppConfig.getBoolean("ML_RISK_SHADOW_ENABLED", true);
+    private static final int SHADOW_LOG_THRESHOLD = AppConfig.getInt("ML_RISK_SHADOW_LOG_THRESHOLD", 20);
+
+    private static volatile int lastShadowDivergence = -1;
+
+    static {
+        Metrics.gauge("ml.risk.shadow.last_divergence", () -> lastShadowDivergence);
+    }
+
+    // Basis-URL -> Zeitpunkt (ms), bis zu dem /trend/batch als nicht vorhanden gilt; danach wird erneut probiert,
+    // damit ein nachträglich ausgerollter Batch-Endpoint ohne Neustart genutzt wird. Gilt für alle Instanzen.
+    private static final Map<String, Long> BATCH_UNSUPPORTED_UNTIL = new ConcurrentHashMap<>();
+
     private final String baseUrl;
+    private final Duration trendBudget;
+    private final Duration batchReprobe;
+    private final UpstreamHttpClient http = UpstreamHttpClient.shared();
 
     public MlServiceClient() {
-        String env = System.getenv("ML_SERVICE_BASE_URL");
-        if (env == null || env.isBlank()) {
-            env = "http://localhost:8000";
+        this(System.getenv("ML_SERVICE_BASE_URL"),
+                AppConfig.getMillis("ML_TREND_BUDGET_MS", 8_000),
+                AppConfig.getMillis("ML_TREND_BATCH_REPROBE_MS", 600_000));
+    }
+
+    /**
+     * @param trendBudget  Gesamtbudget der parallelen Einzelabfragen in {@link #getTrendScores(List)}
+     * @param batchReprobe wie lange ein fehlender /trend/batch gemerkt wird, bevor er erneut probiert wird
+     */
+    MlServiceClient(String baseUrl, Duration trendBudget, Duration batchReprobe) {
+        if (baseUrl == null || baseUrl.isBlank()) {
+            baseUrl = "http://localhost:8000";
         }
-        this.baseUrl = env.replaceAll("/$", "");
+        this.baseUrl = baseUrl.replaceAll("/$", "");
+        this.trendBudget = trendBudget;
+        this.batchReprobe = batchReprobe;
+        http.configureHost(this.baseUrl, Duration.ofSeconds(6), Duration.ofSeconds(6));
     }
 
     // ---------------------------------------------------------
@@ -27,48 +104,62 @@ public class MlServiceClient {
     // ---------------------------------------------------------
 
     private JsonObject doPost(String endpoint, JsonObject body) throws Exception {
-        URL url = new URL(baseUrl + endpoint);
-        HttpURLConnection con = (HttpURLConnection) url.openConnection();
-
-        con.setConnectTimeout(6000);
-        con.setReadTimeout(6000);
-        con.setRequestMethod("POST");
-        con.setRequestProperty("Content-Type", "application/json");
-        con.setDoOutput(true);
-
-        if (body != null) {
-            try (OutputStream os = con.getOutputStream()) {
-                os.write(body.toString().getBytes());
-            }
-        }
-
-        return readJson(con);
+        return doPost(endpoint, body, null);
     }
 
-    private JsonObject readJson(HttpURLConnection con) throws Exception {
-        int code = con.getResponseCode();
+    /**
+     * @param timeout null = Standard-Timeout des Hosts
+     */
+    private JsonObject doPost(String endpoint, JsonObject body, Duration timeout) throws Exception {
+        HttpRequest.Builder builder = http.newRequest(baseUrl + endpoint);
+        if (timeout != null) {
+            builder.timeout(timeout);
+        }
+        HttpRequest request = builder
+                .header("Content-Type", "application/json")
+                .POST(body != null
+                        ? HttpRequest.BodyPublishers.ofString(body.toString())
+                        : HttpRequest.BodyPublishers.noBody())
+                .build();
+
+        return readJson(send(request));
+    }
 
-        BufferedReader br = new BufferedReader(
-                new InputStreamReader(
-                        code < 400 ? con.getInputStream() : con.getErrorStream()
-                )
-        );
+    /**
+     * Alle Aufrufe an den ML-Service laufen hierüber: bei offenem Circuit sofort
+     * {@link CircuitBreaker.OpenException}, sonst zählen Netzwerkfehler und HTTP 5xx als Fehlschlag.
+     */
+    private UpstreamResponse send(HttpRequest request) throws IOException {
+        BREAKER.acquirePermission();
+        UpstreamResponse response;
+        try {
+            response = http.send(request);
+        } catch (IOException | RuntimeException e) {
+            BREAKER.onFailure();
+            throw e;
+        }
+        if (response.statusCode() >= 500) {
+            BREAKER.onFailure();
+        } else {
+            BREAKER.onSuccess();
+        }
+        return response;
+    }
 
-        StringBuilder sb = new StringBuilder();
-        String line;
+    public static CircuitBreaker breaker() {
+        return BREAKER;
+    }
 
-        while ((line = br.readLine()) != null) {
-            sb.append(line);
-        }
-        br.close();
+    private JsonObject readJson(UpstreamResponse response) {
+        String body = response.body().trim();
 
-        if (sb.length() == 0) {
+        if (body.isEmpty()) {
             JsonObject empty = new JsonObject();
             empty.addProperty("status", "empty-response");
             return empty;
         }
 
-        return JsonParser.parseString(sb.toString()).getAsJsonObject();
+        return JsonParser.parseString(body).getAsJsonObject();
     }
 
     // ---------------------------------------------------------
@@ -76,7 +167,17 @@ public class MlServiceClient {
     // ---------------------------------------------------------
 
     public JsonObject trainRiskModel() throws Exception {
-        return doPost("/train-risk-model", null);
+        return trainRiskModel(null);
+    }
+
+    /**
+     * Training mit eigenem Timeout – läuft im {@link TrainingJobManager} und darf länger dauern als normale Aufrufe.
+     */
+    public JsonObject trainRiskModel(Duration timeout) throws Exception {
+        JsonObject result = doPost("/train-risk-model", null, timeout);
+        // Neues Modell – memoisierte Scores des alten Modells verwerfen
+        RiskScoreCache.shared().invalidateAll();
+        return result;
     }
 
     public JsonObject calculateRiskRaw(JsonObject body) throws Exception {
@@ -84,19 +185,69 @@ public class MlServiceClient {
     }
 
     public JsonObject getTrendRaw(String symbol) throws Exception {
-        URL url = new URL(baseUrl + "/trend?symbol=" + symbol);
-        HttpURLConnection con = (HttpURLConnection) url.openConnection();
-        con.setRequestMethod("GET");
-        con.setConnectTimeout(5000);
-        con.setReadTimeout(5000);
-        return readJson(con);
+        HttpRequest request = http.newRequest(baseUrl + "/trend?symbol=" + URLEncoder.encode(symbol, StandardCharsets.UTF_8))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+        return readJson(send(request));
     }
 
     // ---------------------------------------------------------
     // High-Level Wrapper: Risiko
     // ---------------------------------------------------------
 
+    /**
+     * Risiko-Score für das Portfolio. Bei unverändertem Fingerabdruck (siehe {@link RiskScoreCache})
+     * kommt der Score aus dem Speicher, ohne Aufruf des ML-Service.
+     */
     public RiskScoreResponseDto getRiskScore(PortfolioRequestDto p) throws Exception {
+        try {
+            return RiskScoreCache.shared().get(p, () -> computeRiskScore(p));
+        } catch (CircuitBreaker.OpenException e) {
+            return degradedRisk(p);
+        }
+    }
+
+    /**
+     * Sofortige Antwort bei offenem Circuit statt Warten auf Timeouts: lokale Schätzung
+     * ({@link LocalRiskEngine}) oder, falls abgeschaltet (ML_RISK_LOCAL_FALLBACK=false), UNKNOWN.
+     */
+    public RiskScoreResponseDto degradedRisk(PortfolioRequestDto p) {
+        if (LOCAL_FALLBACK) {
+            Metrics.counter("ml.risk.local_fallbacks").increment();
+            RiskScoreResponseDto local = LocalRiskEngine.score(p);
+            local.setExplanation("ML-Service nicht verfügbar. " + local.getExplanation());
+            return local;
+        }
+        RiskScoreResponseDto dto = new RiskScoreResponseDto();
+        dto.setRiskScore(0);
+        dto.setRiskLevel("UNKNOWN");
+        dto.setExplanation("ML-Service derzeit nicht verfügbar – Risiko-Score vorübergehend ausgesetzt.");
+        dto.setNumPositions(p.getPositions() != null ? p.getPositions().size() : 0);
+        return dto;
+    }
+
+    /**
+     * Schattenrechnung: vergleicht den ML-Score mit der lokalen Schätzung und führt die Abweichung als Metrik
+     * (ml.risk.shadow.*). Große Abweichungen (ab ML_RISK_SHADOW_LOG_THRESHOLD Punkten) werden geloggt.
+     */
+    private void shadowCompare(PortfolioRequestDto p, RiskScoreResponseDto remote) {
+        RiskScoreResponseDto local = LocalRiskEngine.score(p);
+        int divergence = Math.abs(remote.getRiskScore() - local.getRiskScore());
+
+        lastShadowDivergence = divergence;
+        Metrics.counter("ml.risk.shadow.comparisons").increment();
+        Metrics.counter("ml.risk.shadow.divergence_total").add(divergence);
+        if (!local.getRiskLevel().equalsIgnoreCase(remote.getRiskLevel())) {
+            Metrics.counter("ml.risk.shadow.level_mismatches").increment();
+        }
+        if (divergence >= SHADOW_LOG_THRESHOLD) {
+            System.out.println("[MlServiceClient] Risiko-Schattenrechnung weicht ab: ML " + remote.getRiskScore()
+                    + " (" + remote.getRiskLevel() + "), lokal " + local.getRiskScore() + " (" + local.getRiskLevel() + ")");
+        }
+    }
+
+    private RiskScoreResponseDto computeRiskScore(PortfolioRequestDto p) throws Exception {
 
         JsonObject body = new JsonObject();
 
@@ -182,6 +333,10 @@ public class MlServiceClient {
                 ? obj.get("concentration").getAsDouble()
                 : 0.0);
 
+        if (SHADOW_ENABLED) {
+            shadowCompare(p, dto);
+        }
+
         return dto;
     }
 
@@ -190,8 +345,191 @@ public class MlServiceClient {
     // ---------------------------------------------------------
 
     public TrendScoreResponseDto getTrendScore(String symbol) throws Exception {
-        JsonObject obj = getTrendRaw(symbol);
+        return toTrendDto(symbol, getTrendRaw(symbol));
+    }
+
+    /**
+     * Trend-Scores für beliebig viele Symbole.
+     * <p>
+     * Bietet der ML-Service {@code POST /trend/batch} an, wird in Chunks zu {@code ML_TREND_BATCH_SIZE}
+     * abgefragt. Sonst (404/405) werden die Einzelaufrufe parallel abgesetzt, begrenzt auf
+     * {@code ML_TREND_PARALLELISM} gleichzeitige Requests und insgesamt auf {@code ML_TREND_BUDGET_MS};
+     * was bis dahin nicht fertig ist, wird abgebrochen. Ein fehlender Batch-Endpoint wird nach
+     * {@code ML_TREND_BATCH_REPROBE_MS} erneut probiert.
+     * <p>
+     * Das Ergebnis enthält jedes Symbol genau einmal, in der Reihenfolge der Anfrage. Fehlgeschlagene
+     * Symbole sind als NEUTRAL mit {@link TrendScoreResponseDto#getError()} markiert – ein Fehler
+     * kostet nur sein Symbol, nicht die ganze Liste.
+     */
+    public List<TrendScoreResponseDto> getTrendScores(List<String> symbols) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(symbols));
+        distinct.removeIf(Objects::isNull);
+        if (distinct.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        if (BREAKER.isOpen()) {
+            List<TrendScoreResponseDto> degraded = new ArrayList<>(distinct.size());
+            for (String symbol : distinct) {
+                degraded.add(failedTrend(symbol, "ML-Service derzeit nicht verfügbar (Circuit offen)"));
+            }
+            return degraded;
+        }
+
+        Map<String, TrendScoreResponseDto> bySymbol = new HashMap<>();
+        List<String> missing = distinct;
+
+        if (isBatchPossiblySupported()) {
+            missing = new ArrayList<>();
+            for (int from = 0; from < distinct.size(); from += TREND_BATCH_SIZE) {
+                List<String> chunk = distinct.subList(from, Math.min(from + TREND_BATCH_SIZE, distinct.size()));
+                try {
+                    Map<String, TrendScoreResponseDto> result = fetchTrendBatch(chunk);
+                    if (result == null) {
+                        // Kein Batch-Endpoint – alles Weitere einzeln
+                        missing.addAll(distinct.subList(from, distinct.size()));
+                        break;
+                    }
+                    bySymbol.putAll(result);
+                    for (String symbol : chunk) {
+                        if (!result.containsKey(symbol)) {
+                            bySymbol.put(symbol, failedTrend(symbol, "Keine Antwort für das Symbol im Batch"));
+                        }
+                    }
+                } catch (Exception e) {
+                    System.err.println("[MlServiceClient] Trend-Batch fehlgeschlagen (" + chunk.size()
+                            + " Symbole): " + e.getMessage());
+                    for (String symbol : chunk) {
+                        bySymbol.put(symbol, failedTrend(symbol, e.getMessage()));
+                    }
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            bySymbol.putAll(fetchTrendsParallel(missing));
+        }
+
+        List<TrendScoreResponseDto> result = new ArrayList<>(distinct.size());
+        for (String symbol : distinct) {
+            TrendScoreResponseDto dto = bySymbol.get(symbol);
+            result.add(dto != null ? dto : failedTrend(symbol, "Kein Ergebnis"));
+        }
+        return result;
+    }
+
+    /**
+     * @return Symbol -&gt; Score, oder null, wenn der Service keinen Batch-Endpoint hat
+     */
+    private Map<String, TrendScoreResponseDto> fetchTrendBatch(List<String> symbols) throws Exception {
+        JsonObject body = new JsonObject();
+        JsonArray arr = new JsonArray();
+        symbols.forEach(arr::add);
+        body.add("symbols", arr);
+
+        HttpRequest request = http.newRequest(baseUrl + "/trend/batch")
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        UpstreamResponse response = send(request);
+
+        if (response.statusCode() == 404 || response.statusCode() == 405) {
+            if (BATCH_UNSUPPORTED_UNTIL.put(baseUrl, System.currentTimeMillis() + batchReprobe.toMillis()) == null) {
+                System.out.println("[MlServiceClient] Kein /trend/batch verfügbar – Trend-Scores werden parallel einzeln abgefragt.");
+            }
+            return null;
+        }
+        if (!response.isSuccessful()) {
+            throw new IOException("ML /trend/batch HTTP " + response.statusCode());
+        }
+        if (BATCH_UNSUPPORTED_UNTIL.remove(baseUrl) != null) {
+            System.out.println("[MlServiceClient] /trend/batch wieder verfügbar.");
+        }
+        Metrics.counter("ml.trend.batch_requests").increment();
+
+        // Erwartet: {"results": [...]} oder direkt ein Array; Einträge wie /trend plus "symbol" bzw. "error"
+        JsonElement root = JsonParser.parseString(response.body());
+        JsonArray results = root.isJsonArray() ? root.getAsJsonArray()
+                : root.isJsonObject() && root.getAsJsonObject().has("results")
+                && root.getAsJsonObject().get("results").isJsonArray()
+                ? root.getAsJsonObject().getAsJsonArray("results")
+                : new JsonArray();
+
+        Map<String, TrendScoreResponseDto> bySymbol = new HashMap<>();
+        for (JsonElement el : results) {
+            if (!el.isJsonObject()) {
+                continue;
+            }
+            JsonObject obj = el.getAsJsonObject();
+            if (!obj.has("symbol") || obj.get("symbol").isJsonNull()) {
+                continue;
+            }
+            String symbol = obj.get("symbol").getAsString();
+            if (obj.has("error") && !obj.get("error").isJsonNull()) {
+                bySymbol.put(symbol, failedTrend(symbol, obj.get("error").getAsString()));
+            } else {
+                bySymbol.put(symbol, toTrendDto(symbol, obj));
+            }
+        }
+        return bySymbol;
+    }
+
+    private boolean isBatchPossiblySupported() {
+        Long until = BATCH_UNSUPPORTED_UNTIL.get(baseUrl);
+        return until == null || System.currentTimeMillis() >= until;
+    }
 
+    /**
+     * Einzelabfragen mit gemeinsamem Zeitbudget: nach {@code trendBudget} wird nicht mehr gewartet, fertige
+     * Symbole bleiben erhalten, der Rest wird abgebrochen und als Fehler markiert.
+     */
+    private Map<String, TrendScoreResponseDto> fetchTrendsParallel(List<String> symbols) {
+        Map<String, CompletableFuture<TrendScoreResponseDto>> futures = new HashMap<>();
+        for (String symbol : symbols) {
+            try {
+                futures.put(symbol, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return getTrendScore(symbol);
+                    } catch (Exception e) {
+                        System.err.println("[MlServiceClient] Trend für " + symbol + " fehlgeschlagen: " + e.getMessage());
+                        return failedTrend(symbol, e.getMessage());
+                    }
+                }, TREND_EXECUTOR));
+            } catch (RejectedExecutionException e) {
+                futures.put(symbol, CompletableFuture.completedFuture(
+                        failedTrend(symbol, "Trend-Warteschlange voll")));
+                Metrics.counter("ml.trend.rejected").increment();
+            }
+        }
+        Metrics.counter("ml.trend.single_requests").add(symbols.size());
+
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                .orTimeout(trendBudget.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(ex -> null)
+                .join();
+
+        Map<String, TrendScoreResponseDto> bySymbol = new HashMap<>();
+        int timedOut = 0;
+        for (Map.Entry<String, CompletableFuture<TrendScoreResponseDto>> e : futures.entrySet()) {
+            TrendScoreResponseDto dto = e.getValue().getNow(null);
+            if (dto == null) {
+                // noch in der Warteschlange: läuft nach cancel gar nicht erst an
+                e.getValue().cancel(false);
+                dto = failedTrend(e.getKey(), "Zeitbudget von " + trendBudget.toMillis() + " ms überschritten");
+                timedOut++;
+            }
+            bySymbol.put(e.getKey(), dto);
+        }
+        if (timedOut > 0) {
+            Metrics.counter("ml.trend.timed_out").add(timedOut);
+            System.err.println("[MlServiceClient] " + timedOut + " von " + symbols.size()
+                    + " Trend-Abfragen nicht im Zeitbudget fertig");
+        }
+        return bySymbol;
+    }
+
+    private TrendScoreResponseDto toTrendDto(String symbol, JsonObject obj) {
         TrendScoreResponseDto dto = new TrendScoreResponseDto();
         dto.setSymbol(symbol);
 
@@ -219,6 +557,34 @@ public class MlServiceClient {
             dto.setExplanation("");
         }
 
+        dto.setComputedAt(readInstant(obj, "computed_at"));
+        if (dto.getComputedAt() == null) {
+            dto.setComputedAt(Instant.now());
+        }
+
+        return dto;
+    }
+
+    private static Instant readInstant(JsonObject obj, String field) {
+        if (!obj.has(field) || obj.get(field).isJsonNull()) {
+            return null;
+        }
+        try {
+            return Instant.parse(obj.get(field).getAsString());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private TrendScoreResponseDto failedTrend(String symbol, String error) {
+        Metrics.counter("ml.trend.errors").increment();
+        TrendScoreResponseDto dto = new TrendScoreResponseDto();
+        dto.setSymbol(symbol);
+        dto.setTrend("NEUTRAL");
+        dto.setScore(0.0);
+        dto.setExplanation("Trend für " + symbol + " konnte nicht geladen werden (ML-Service Fehler).");
+        dto.setError(error != null ? error : "unbekannter Fehler");
+        dto.setComputedAt(Instant.now());
         return dto;
     }
 
@@ -226,14 +592,16 @@ public class MlServiceClient {
     // Healthcheck
     // ---------------------------------------------------------
 
+    /**
+     * Direkter /health-Aufruf am Circuit Breaker vorbei (wird vom {@link MlHealthMonitor} genutzt).
+     */
     public boolean isServiceHealthy() {
         try {
-            URL url = new URL(baseUrl + "/health");
-            HttpURLConnection con = (HttpURLConnection) url.openConnection();
-            con.setRequestMethod("GET");
-            con.setConnectTimeout(3000);
-            con.setReadTimeout(3000);
-            return con.getResponseCode() == 200;
+            HttpRequest request = http.newRequest(baseUrl + "/health")
+                    .timeout(Duration.ofSeconds(3))
+                    .GET()
+                    .build();
+            return http.send(request).statusCode() == 200;
         } catch (Exception e) {
             return false;
         }
@@ -0,0 +1,63 @@
+package com.mybroker.ml;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Kanonischer, reihenfolgeunabhängiger Fingerabdruck eines {@link PortfolioRequestDto}.
+ * <p>
+ * Positionen werden nach Symbol sortiert, Mengen und Werte auf eine Schrittweite gerundet. Portfolios,
+ * die sich nur durch Kursrauschen unterhalb der Toleranz unterscheiden, ergeben denselben Fingerabdruck.
+ */
+public final class PortfolioFingerprint {
+
+    private static final Comparator<PositionDto> BY_SYMBOL = Comparator
+            .comparing((PositionDto p) -> p.getSymbol() == null ? "" : p.getSymbol())
+            .thenComparingDouble(PositionDto::getQuantity);
+
+    private PortfolioFingerprint() {
+    }
+
+    /**
+     * @param quantityStep Rundungsschritt für Stückzahlen (z.B. 0.0001)
+     * @param valueStep    Rundungsschritt für Cash und Marktwerte in USD (z.B. 10.0)
+     * @return SHA-256 (hex) über die kanonische Darstellung
+     */
+    public static String of(PortfolioRequestDto portfolio, double quantityStep, double valueStep) {
+        StringBuilder canonical = new StringBuilder(64);
+        canonical.append("cash=").append(round(portfolio.getCash(), valueStep));
+
+        List<PositionDto> positions = portfolio.getPositions() != null
+                ? new ArrayList<>(portfolio.getPositions())
+                : new ArrayList<>();
+        positions.sort(BY_SYMBOL);
+        for (PositionDto p : positions) {
+            canonical.append('|').append(p.getSymbol())
+                    .append(';').append(round(p.getQuantity(), quantityStep))
+                    .append(';').append(round(p.getMarketValue(), valueStep))
+                    .append(';').append(p.getSector() == null ? "" : p.getSector());
+        }
+        return sha256(canonical.toString());
+    }
+
+    private static long round(double value, double step) {
+        return step > 0 ? Math.round(value / step) : Double.doubleToLongBits(value);
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 nicht verfügbar", e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.mybroker.ml;
+
+import com.mybroker.cache.SingleFlight;
+import com.mybroker.config.AppConfig;
+import com.mybroker.metrics.Metrics;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Memoisierte Risiko-Scores, Schlüssel ist der {@link PortfolioFingerprint}.
+ * <p>
+ * Unverändertes (oder nur innerhalb der Toleranz verändertes) Portfolio = gleicher Score, ohne Aufruf des
+ * ML-Service. Gleichzeitige Anfragen mit demselben Fingerabdruck teilen sich einen Aufruf ({@link SingleFlight});
+ * Wartende geben nach ML_RISK_CACHE_WAIT_MS auf. Der Cache ist per LRU begrenzt; nach einem neu trainierten Modell
+ * ({@link #invalidateAll()}) sind alle Einträge ungültig.
+ * <p>
+ * Konfiguration: ML_RISK_CACHE_MAX (256), ML_RISK_QTY_STEP (0.0001), ML_RISK_VALUE_STEP (10.0 USD),
+ * ML_RISK_CACHE_WAIT_MS (15000).
+ */
+public class RiskScoreCache {
+
+    private static final String METRIC_PREFIX = "cache.ml_risk.";
+
+    private final int maxEntries;
+    private final double quantityStep;
+    private final double valueStep;
+
+    private final Map<String, RiskScoreResponseDto> entries;
+    private final SingleFlight<String, RiskScoreResponseDto> inFlight;
+    // Modell-Generation: Ergebnisse aus Aufrufen vor einem Neutraining werden nicht gespeichert
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = Metrics.counter(METRIC_PREFIX + "hits");
+    private final LongAdder misses = Metrics.counter(METRIC_PREFIX + "misses");
+    private final LongAdder invalidations = Metrics.counter(METRIC_PREFIX + "invalidations");
+
+    public RiskScoreCache(int maxEntries, double quantityStep, double valueStep, Duration waitTimeout) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.inFlight = new SingleFlight<>(waitTimeout);
+        this.quantityStep = quantityStep;
+        this.valueStep = valueStep;
+        this.entries = new LinkedHashMap<>(32, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RiskScoreResponseDto> eldest) {
+                return size() > RiskScoreCache.this.maxEntries;
+            }
+        };
+        Metrics.gauge(METRIC_PREFIX + "size", this::size);
+    }
+
+    public static RiskScoreCache shared() {
+        return Holder.INSTANCE;
+    }
+
+    public String fingerprint(PortfolioRequestDto portfolio) {
+        return PortfolioFingerprint.of(portfolio, quantityStep, valueStep);
+    }
+
+    /**
+     * Liefert den gespeicherten Score zum Fingerabdruck oder berechnet ihn über den Loader.
+     * Ergebnisse mit riskLevel UNKNOWN (Validierungsfehler o.ä.) werden nicht gespeichert.
+     */
+    public RiskScoreResponseDto get(PortfolioRequestDto portfolio, Callable<RiskScoreResponseDto> loader) throws Exception {
+        String key = fingerprint(portfolio);
+
+        synchronized (entries) {
+            RiskScoreResponseDto cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return copy(cached);
+            }
+        }
+        misses.increment();
+
+        return inFlight.load(key, () -> {
+            long generationAtStart = generation.get();
+            RiskScoreResponseDto value = loader.call();
+            if (value != null && !"UNKNOWN".equalsIgnoreCase(value.getRiskLevel())) {
+                synchronized (entries) {
+                    if (generation.get() == generationAtStart) {
+                        entries.put(key, copy(value));
+                    }
+                }
+            }
+            return value;
+        }, RiskScoreCache::copy);
+    }
+
+    /**
+     * Verwirft alle Scores, z.B. nachdem das Risiko-Modell neu trainiert wurde.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+        invalidations.increment();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static RiskScoreResponseDto copy(RiskScoreResponseDto source) {
+        if (source == null) {
+            return null;
+        }
+        RiskScoreResponseDto dto = new RiskScoreResponseDto();
+        dto.setRiskScore(source.getRiskScore());
+        dto.setRiskLevel(source.getRiskLevel());
+        dto.setExplanation(source.getExplanation());
+        dto.setTotalValue(source.getTotalValue());
+        dto.setNumPositions(source.getNumPositions());
+        dto.setConcentration(source.getConcentration());
+        dto.setLargestWeight(source.getLargestWeight());
+        dto.setSectorConcentration(source.getSectorConcentration());
+        dto.setSource(source.getSource());
+        return dto;
+    }
+
+    private static final class Holder {
+        static final RiskScoreCache INSTANCE = new RiskScoreCache(
+                AppConfig.getInt("ML_RISK_CACHE_MAX", 256),
+                AppConfig.getDouble("ML_RISK_QTY_STEP", 0.0001),
+                AppConfig.getDouble("ML_RISK_VALUE_STEP", 10.0),
+                AppConfig.getMillis("ML_RISK_CACHE_WAIT_MS", 15_000));
+    }
+}
@@ -9,6 +9,11 @@ public class RiskScoreResponseDto {
     private double totalValue;
     private int numPositions;
     private double concentration;
+    // Anteil der größten Einzelposition und HHI über die Sektoren (nur lokale Berechnung, sonst 0)
+    private double largestWeight;
+    private double sectorConcentration;
+    // "ml" = ML-Service, "local" = LocalRiskEngine
+    private String source = "ml";
 
     public RiskScoreResponseDto() {
     }
@@ -60,4 +65,28 @@ public class RiskScoreResponseDto {
     public void setConcentration(double concentration) {
         this.concentration = concentration;
     }
+
+    public double getLargestWeight() {
+        return largestWeight;
+    }
+
+    public void setLargestWeight(double largestWeight) {
+        this.largestWeight = largestWeight;
+    }
+
+    public double getSectorConcentration() {
+        return sectorConcentration;
+    }
+
+    public void setSectorConcentration(double sectorConcentration) {
+        this.sectorConcentration = sectorConcentration;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
 }
@@ -0,0 +1,116 @@
+package com.mybroker.ml;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Stand eines asynchronen Trainingslaufs (siehe {@link TrainingJobManager}).
+ * <p>
+ * Unveränderlich – jeder Zustandswechsel erzeugt eine neue Instanz, Leser (Polling) sehen immer
+ * einen konsistenten Stand.
+ */
+public final class TrainingJob {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED;
+
+        public boolean isTerminal() {
+            return this == SUCCEEDED || this == FAILED;
+        }
+    }
+
+    private final String jobId;
+    private final String modelName;
+    private final String version;
+    private final State state;
+    private final String message;
+    private final String metricsJson;
+    private final Instant submittedAt;
+    private final Instant startedAt;
+    private final Instant finishedAt;
+
+    public TrainingJob(String jobId, String modelName, String version, State state, String message,
+                       String metricsJson, Instant submittedAt, Instant startedAt, Instant finishedAt) {
+        this.jobId = jobId;
+        this.modelName = modelName;
+        this.version = version;
+        this.state = state;
+        this.message = message;
+        this.metricsJson = metricsJson;
+        this.submittedAt = submittedAt;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+    }
+
+    static TrainingJob queued(String jobId, String modelName, String version) {
+        return new TrainingJob(jobId, modelName, version, State.QUEUED, null, null, Instant.now(), null, null);
+    }
+
+    TrainingJob running() {
+        return new TrainingJob(jobId, modelName, version, State.RUNNING, null, null, submittedAt, Instant.now(), null);
+    }
+
+    TrainingJob succeeded(String message, String metricsJson) {
+        return new TrainingJob(jobId, modelName, version, State.SUCCEEDED, message, metricsJson,
+                submittedAt, startedAt, Instant.now());
+    }
+
+    TrainingJob failed(String message) {
+        return new TrainingJob(jobId, modelName, version, State.FAILED, message, metricsJson,
+                submittedAt, startedAt, Instant.now());
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isTerminal() {
+        return state.isTerminal();
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getMetricsJson() {
+        return metricsJson;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Laufzeit in Sekunden (bis jetzt, solange der Job läuft).
+     */
+    public long getElapsedSeconds() {
+        if (startedAt == null) {
+            return 0;
+        }
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        return Duration.between(startedAt, end).getSeconds();
+    }
+}
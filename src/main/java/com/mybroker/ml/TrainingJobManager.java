@@ -0,0 +1,234 @@
+package com.mybroker.ml;
+
+import com.google.gson.JsonObject;
+import com.mybroker.config.AppConfig;
+import com.mybroker.db.MlModelRepository;
+import com.mybroker.metrics.Metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Startet Modelltrainings asynchron, statt den Request-Thread bis zum Ende des Trainings zu blockieren.
+ * <p>
+ * {@link #submit(String)} liefert sofort einen {@link TrainingJob} mit Job-ID; die Oberfläche fragt den Stand
+ * per {@link #getJob(String)} ab. Läuft für ein Modell bereits ein Job, wird dieser zurückgegeben statt
+ * einen zweiten zu starten. Trainings laufen nacheinander auf einem eigenen Thread mit langem Read-Timeout.
+ * <p>
+ * Mit DB_URL wird jeder Job samt Ergebnis in brokerml.ml_models festgehalten (Status, Zeiten, Metriken als JSONB);
+ * ohne DB nur im Speicher.
+ * <p>
+ * Konfiguration: ML_TRAIN_TIMEOUT_MS (1800000), ML_TRAIN_RETENTION_MS (86400000, Aufbewahrung im Speicher).
+ */
+public class TrainingJobManager {
+
+    public static final String RISK_MODEL = "portfolio_risk";
+
+    private static final DateTimeFormatter VERSION_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    private final MlServiceClient client;
+    private final MlModelRepository repository;
+    private final Duration trainTimeout;
+    private final Duration retention;
+
+    private final Map<String, TrainingJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, String> activeJobByModel = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ml-training");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param repository null = ohne Persistenz
+     */
+    public TrainingJobManager(MlServiceClient client, MlModelRepository repository, Duration trainTimeout, Duration retention) {
+        this.client = client;
+        this.repository = repository;
+        this.trainTimeout = trainTimeout;
+        this.retention = retention;
+        Metrics.gauge("ml.training.active", activeJobByModel::size);
+    }
+
+    public static TrainingJobManager shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Startet ein Training für das Modell oder liefert den bereits laufenden Job dafür.
+     */
+    public synchronized TrainingJob submit(String modelName) {
+        String activeId = activeJobByModel.get(modelName);
+        if (activeId != null) {
+            TrainingJob active = jobs.get(activeId);
+            if (active != null && !active.isTerminal()) {
+                Metrics.counter("ml.training.deduplicated").increment();
+                return active;
+            }
+        }
+        evictOldJobs();
+
+        String jobId = UUID.randomUUID().toString();
+        TrainingJob job = TrainingJob.queued(jobId, modelName, VERSION_FORMAT.format(Instant.now()) + "-" + jobId.substring(0, 8));
+        jobs.put(jobId, job);
+        activeJobByModel.put(modelName, jobId);
+        persist(job, true);
+
+        Metrics.counter("ml.training.submitted").increment();
+        executor.execute(() -> run(jobId));
+        return job;
+    }
+
+    /**
+     * @return Job aus dem Speicher oder (ältere Jobs) aus der Datenbank, null wenn unbekannt
+     */
+    public TrainingJob getJob(String jobId) {
+        if (jobId == null || jobId.isBlank()) {
+            return null;
+        }
+        TrainingJob job = jobs.get(jobId);
+        if (job != null || repository == null) {
+            return job;
+        }
+        try {
+            return repository.findByJobId(jobId);
+        } catch (Exception e) {
+            System.err.println("[TrainingJobManager] Job " + jobId + " nicht lesbar: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Letzte Jobs des Modells, neueste zuerst.
+     */
+    public List<TrainingJob> getRecentJobs(String modelName, int limit) {
+        if (repository != null) {
+            try {
+                return repository.findRecent(modelName, limit);
+            } catch (Exception e) {
+                System.err.println("[TrainingJobManager] Jobliste nicht lesbar: " + e.getMessage());
+            }
+        }
+        return jobs.values().stream()
+                .filter(j -> modelName.equals(j.getModelName()))
+                .sorted(Comparator.comparing(TrainingJob::getSubmittedAt).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Bricht laufende Trainings ab (Undeploy); offene Jobs werden als FAILED festgehalten.
+     */
+    public void stop() {
+        executor.shutdownNow();
+        for (String jobId : activeJobByModel.values()) {
+            TrainingJob job = jobs.get(jobId);
+            if (job != null && !job.isTerminal()) {
+                update(job.failed("Abgebrochen: Anwendung wurde beendet"));
+            }
+        }
+        activeJobByModel.clear();
+    }
+
+    // ---------------------------------------------------------
+    // Intern
+    // ---------------------------------------------------------
+
+    private void run(String jobId) {
+        TrainingJob job = jobs.get(jobId);
+        if (job == null) {
+            return;
+        }
+        job = update(job.running());
+        long start = System.currentTimeMillis();
+        try {
+            JsonObject result = train(job.getModelName());
+            String status = result.has("status") && !result.get("status").isJsonNull()
+                    ? result.get("status").getAsString()
+                    : "ok";
+            String message = result.has("message") && !result.get("message").isJsonNull()
+                    ? result.get("message").getAsString()
+                    : null;
+
+            if ("ok".equalsIgnoreCase(status)) {
+                update(job.succeeded(message, result.toString()));
+                Metrics.counter("ml.training.succeeded").increment();
+            } else {
+                // auch ein leerer Body ("empty-response") belegt kein trainiertes Modell
+                String reason = "empty-response".equalsIgnoreCase(status)
+                        ? "ML-Service hat eine leere Antwort geliefert"
+                        : "ML-Service meldet Status '" + status + "'";
+                update(job.failed(message != null ? message : reason));
+                Metrics.counter("ml.training.failed").increment();
+            }
+        } catch (Exception e) {
+            update(job.failed(e.getClass().getSimpleName() + ": " + e.getMessage()));
+            Metrics.counter("ml.training.failed").increment();
+            System.err.println("[TrainingJobManager] Training " + jobId + " fehlgeschlagen: " + e.getMessage());
+        } finally {
+            activeJobByModel.remove(job.getModelName(), jobId);
+            System.out.println("[TrainingJobManager] Training " + jobId + " beendet: " + jobs.get(jobId).getState()
+                    + " (" + (System.currentTimeMillis() - start) + " ms)");
+        }
+    }
+
+    private JsonObject train(String modelName) throws Exception {
+        if (RISK_MODEL.equals(modelName)) {
+            return client.trainRiskModel(trainTimeout);
+        }
+        throw new IllegalArgumentException("Unbekanntes Modell: " + modelName);
+    }
+
+    private TrainingJob update(TrainingJob job) {
+        jobs.put(job.getJobId(), job);
+        persist(job, false);
+        return job;
+    }
+
+    private void persist(TrainingJob job, boolean insert) {
+        if (repository == null) {
+            return;
+        }
+        try {
+            if (insert) {
+                repository.insert(job);
+            } else {
+                repository.update(job);
+            }
+        } catch (Exception e) {
+            // Das Training selbst hängt nicht an der DB – Stand bleibt im Speicher abrufbar
+            System.err.println("[TrainingJobManager] Job " + job.getJobId() + " nicht gespeichert: " + e.getMessage());
+        }
+    }
+
+    private void evictOldJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        List<String> expired = new ArrayList<>();
+        for (TrainingJob job : jobs.values()) {
+            if (job.isTerminal() && job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff)) {
+                expired.add(job.getJobId());
+            }
+        }
+        expired.forEach(jobs::remove);
+    }
+
+    private static final class Holder {
+        static final TrainingJobManager INSTANCE = new TrainingJobManager(
+                new MlServiceClient(),
+                System.getenv("DB_URL") != null ? new MlModelRepository() : null,
+                AppConfig.getMillis("ML_TRAIN_TIMEOUT_MS", 1_800_000),
+                AppConfig.getMillis("ML_TRAIN_RETENTION_MS", 86_400_000));
+    }
+}
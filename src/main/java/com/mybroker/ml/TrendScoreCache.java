@@ -0,0 +1,313 @@
+package com.mybroker.ml;
+
+import com.mybroker.config.AppConfig;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.model.BrokerPosition;
+import com.mybroker.service.AlpacaRateLimiter;
+import com.mybroker.service.AlpacaService;
+import com.mybroker.stream.TradeUpdatesStream;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache für ML-Trend-Scores pro Symbol.
+ * <p>
+ * Ein Trend ändert sich höchstens einmal pro Bar. Einträge laufen deshalb nicht nach fester TTL ab,
+ * sondern an der nächsten Bar-Grenze (Vielfache von {@code ML_TREND_BAR_MS} seit Epoch):
+ * <ul>
+ *     <li>vor der Grenze: Treffer</li>
+ *     <li>danach, innerhalb des Stale-Fensters: alter Wert wird sofort geliefert, alle solchen Symbole
+ *     werden gemeinsam im Hintergrund neu geladen (ein Batch, pro Symbol nur einmal gleichzeitig)</li>
+ *     <li>sonst: fehlende Symbole werden in einem Aufruf synchron geladen</li>
+ * </ul>
+ * Der Speicher ist per LRU auf {@code ML_TREND_CACHE_MAX} Symbole begrenzt. Fehlgeschlagene Symbole
+ * werden nicht gecacht. Mit {@link #start()} wird zusätzlich kurz nach jeder Bar-Grenze für alle
+ * gehaltenen Titel vorgeladen, sodass Seitenaufrufe in der Regel nur Treffer sehen.
+ * <p>
+ * Konfiguration: ML_TREND_BAR_MS (900000), ML_TREND_STALE_MS (eine Bar), ML_TREND_CACHE_MAX (500),
+ * ML_TREND_WARM_ENABLED (true), ML_TREND_WARM_DELAY_MS (5000, Abstand zur Bar-Grenze).
+ */
+public class TrendScoreCache {
+
+    private static final String METRIC_PREFIX = "cache.ml_trend.";
+
+    // Eigener Thread: der Refresh wartet selbst auf den Fan-out-Pool des MlServiceClient
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ml-trend-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final MlServiceClient client;
+    private final Callable<Collection<String>> heldSymbols;
+    private final long barMillis;
+    private final long staleMillis;
+    private final int maxEntries;
+    private final long warmDelayMillis;
+
+    private final Map<String, Entry> entries;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = Metrics.counter(METRIC_PREFIX + "hits");
+    private final LongAdder staleHits = Metrics.counter(METRIC_PREFIX + "stale_hits");
+    private final LongAdder misses = Metrics.counter(METRIC_PREFIX + "misses");
+    private final LongAdder evictions = Metrics.counter(METRIC_PREFIX + "evictions");
+    private final LongAdder warmRuns = Metrics.counter(METRIC_PREFIX + "warm_runs");
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param heldSymbols liefert die aktuell gehaltenen Titel für das Vorladen
+     */
+    public TrendScoreCache(MlServiceClient client, Callable<Collection<String>> heldSymbols,
+                           Duration bar, Duration staleWindow, int maxEntries, Duration warmDelay) {
+        this.client = client;
+        this.heldSymbols = heldSymbols;
+        this.barMillis = Math.max(1, bar.toMillis());
+        this.staleMillis = staleWindow.toMillis();
+        this.maxEntries = Math.max(1, maxEntries);
+        this.warmDelayMillis = warmDelay.toMillis();
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > TrendScoreCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Metrics.gauge(METRIC_PREFIX + "size", this::size);
+    }
+
+    public static TrendScoreCache shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Trend-Scores für die Symbole, in der Reihenfolge der Anfrage. Jede Antwort ist eine Kopie
+     * mit gesetztem {@link TrendScoreResponseDto#getCacheAgeMillis()}.
+     */
+    public List<TrendScoreResponseDto> getTrendScores(List<String> symbols) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(symbols));
+        distinct.removeIf(Objects::isNull);
+
+        long now = System.currentTimeMillis();
+        Map<String, TrendScoreResponseDto> result = new LinkedHashMap<>();
+        List<String> toLoad = new ArrayList<>();
+        List<String> toRefresh = new ArrayList<>();
+
+        synchronized (entries) {
+            for (String symbol : distinct) {
+                Entry entry = entries.get(symbol);
+                if (entry != null && now < entry.expiresAtMillis) {
+                    hits.increment();
+                    result.put(symbol, entry.copy(now));
+                } else if (entry != null && now < entry.expiresAtMillis + staleMillis) {
+                    staleHits.increment();
+                    result.put(symbol, entry.copy(now));
+                    toRefresh.add(symbol);
+                } else {
+                    misses.increment();
+                    result.put(symbol, null);
+                    toLoad.add(symbol);
+                }
+            }
+        }
+
+        if (!toRefresh.isEmpty()) {
+            refreshAsync(toRefresh);
+        }
+        if (!toLoad.isEmpty()) {
+            for (TrendScoreResponseDto dto : load(toLoad)) {
+                result.put(dto.getSymbol(), dto);
+            }
+        }
+
+        List<TrendScoreResponseDto> ordered = new ArrayList<>(result.size());
+        for (TrendScoreResponseDto dto : result.values()) {
+            if (dto != null) {
+                ordered.add(dto);
+            }
+        }
+        return ordered;
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Vorladen
+    // ---------------------------------------------------------
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ml-trend-warmer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.execute(this::warm);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void warm() {
+        try {
+            List<String> symbols = new ArrayList<>(heldSymbols.call());
+            if (!symbols.isEmpty()) {
+                long start = System.currentTimeMillis();
+                List<TrendScoreResponseDto> loaded = load(symbols);
+                warmRuns.increment();
+                long failed = loaded.stream().filter(TrendScoreResponseDto::isFailed).count();
+                System.out.println("[TrendScoreCache] " + (loaded.size() - failed) + "/" + symbols.size()
+                        + " Trend-Scores vorgeladen (" + (System.currentTimeMillis() - start) + " ms)");
+            }
+        } catch (Exception e) {
+            System.err.println("[TrendScoreCache] Vorladen fehlgeschlagen: " + e.getMessage());
+        } finally {
+            scheduleNextWarm();
+        }
+    }
+
+    private synchronized void scheduleNextWarm() {
+        if (scheduler == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long delay = nextBarBoundary(now) + warmDelayMillis - now;
+        scheduler.schedule(this::warm, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // ---------------------------------------------------------
+    // Intern
+    // ---------------------------------------------------------
+
+    private List<TrendScoreResponseDto> load(List<String> symbols) {
+        List<TrendScoreResponseDto> loaded = client.getTrendScores(symbols);
+        long now = System.currentTimeMillis();
+        long expiresAt = nextBarBoundary(now);
+
+        List<TrendScoreResponseDto> result = new ArrayList<>(loaded.size());
+        synchronized (entries) {
+            for (TrendScoreResponseDto dto : loaded) {
+                if (!dto.isFailed()) {
+                    entries.put(dto.getSymbol(), new Entry(dto, now, expiresAt));
+                }
+                TrendScoreResponseDto copy = new TrendScoreResponseDto(dto);
+                copy.setCacheAgeMillis(0);
+                result.add(copy);
+            }
+        }
+        return result;
+    }
+
+    private void refreshAsync(List<String> symbols) {
+        List<String> mine = new ArrayList<>();
+        for (String symbol : symbols) {
+            if (refreshing.add(symbol)) {
+                mine.add(symbol);
+            }
+        }
+        if (mine.isEmpty()) {
+            return;
+        }
+        try {
+            REFRESH_EXECUTOR.execute(() -> {
+                try {
+                    load(mine);
+                } catch (Exception e) {
+                    System.err.println("[TrendScoreCache] Hintergrund-Refresh fehlgeschlagen: " + e.getMessage());
+                } finally {
+                    refreshing.removeAll(mine);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.removeAll(mine);
+            throw e;
+        }
+    }
+
+    private long nextBarBoundary(long nowMillis) {
+        return (nowMillis / barMillis + 1) * barMillis;
+    }
+
+    private static Collection<String> currentHoldings(AlpacaService alpaca) throws Exception {
+        TradeUpdatesStream tradeUpdates = TradeUpdatesStream.shared();
+        if (tradeUpdates.isLive()) {
+            return tradeUpdates.getBook().getPositions().keySet();
+        }
+        List<String> symbols = new ArrayList<>();
+        for (BrokerPosition position : alpaca.getBrokerPositions()) {
+            if (position.getSymbol() != null) {
+                symbols.add(position.getSymbol());
+            }
+        }
+        return symbols;
+    }
+
+    private static final class Entry {
+        final TrendScoreResponseDto value;
+        final long loadedAtMillis;
+        final long expiresAtMillis;
+
+        Entry(TrendScoreResponseDto value, long loadedAtMillis, long expiresAtMillis) {
+            this.value = new TrendScoreResponseDto(value);
+            this.loadedAtMillis = loadedAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        TrendScoreResponseDto copy(long nowMillis) {
+            TrendScoreResponseDto copy = new TrendScoreResponseDto(value);
+            copy.setCacheAgeMillis(nowMillis - loadedAtMillis);
+            return copy;
+        }
+    }
+
+    private static final class Holder {
+        static final TrendScoreCache INSTANCE;
+
+        static {
+            Duration bar = AppConfig.getMillis("ML_TREND_BAR_MS", 900_000);
+            AlpacaService alpaca = new AlpacaService(AlpacaRateLimiter.Priority.BACKGROUND);
+            INSTANCE = new TrendScoreCache(
+                    new MlServiceClient(),
+                    () -> currentHoldings(alpaca),
+                    bar,
+                    AppConfig.getMillis("ML_TREND_STALE_MS", bar.toMillis()),
+                    AppConfig.getInt("ML_TREND_CACHE_MAX", 500),
+                    AppConfig.getMillis("ML_TREND_WARM_DELAY_MS", 5_000));
+        }
+    }
+}
@@ -1,15 +1,35 @@
 package com.mybroker.ml;
 
+import java.time.Instant;
+
 public class TrendScoreResponseDto {
 
     private String symbol;
     private double score;
     private String trend;
     private String explanation;
+    // Gesetzt, wenn für dieses Symbol kein Score ermittelt werden konnte (Teilergebnis eines Batch-Aufrufs)
+    private String error;
+    // Zeitpunkt der Berechnung (laut ML-Service, sonst Empfangszeit) und Alter der ausgelieferten Kopie
+    private Instant computedAt;
+    private long cacheAgeMillis;
 
     public TrendScoreResponseDto() {
     }
 
+    /**
+     * Kopie, damit Cache-Einträge nicht über die ausgelieferten Objekte verändert werden.
+     */
+    public TrendScoreResponseDto(TrendScoreResponseDto other) {
+        this.symbol = other.symbol;
+        this.score = other.score;
+        this.trend = other.trend;
+        this.explanation = other.explanation;
+        this.error = other.error;
+        this.computedAt = other.computedAt;
+        this.cacheAgeMillis = other.cacheAgeMillis;
+    }
+
     public String getSymbol() {
         return symbol;
     }
@@ -41,4 +61,36 @@ public class TrendScoreResponseDto {
     public void setExplanation(String explanation) {
         this.explanation = explanation;
     }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    public Instant getComputedAt() {
+        return computedAt;
+    }
+
+    public void setComputedAt(Instant computedAt) {
+        this.computedAt = computedAt;
+    }
+
+    public long getCacheAgeMillis() {
+        return cacheAgeMillis;
+    }
+
+    public void setCacheAgeMillis(long cacheAgeMillis) {
+        this.cacheAgeMillis = cacheAgeMillis;
+    }
+
+    public long getCacheAgeSeconds() {
+        return cacheAgeMillis / 1000;
+    }
 }
@@ -0,0 +1,82 @@
+package com.mybroker.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Kontostand aus /v2/account. Beträge als BigDecimal, nicht gelieferte Werte sind null.
+ */
+public class AccountSnapshot {
+
+    private final String id;
+    private final String accountNumber;
+    private final String status;
+    private final String currency;
+    private final BigDecimal cash;
+    private final BigDecimal portfolioValue;
+    private final BigDecimal equity;
+    private final BigDecimal lastEquity;
+    private final BigDecimal buyingPower;
+    private final String createdAt;
+
+    public AccountSnapshot(String id,
+                           String accountNumber,
+                           String status,
+                           String currency,
+                           BigDecimal cash,
+                           BigDecimal portfolioValue,
+                           BigDecimal equity,
+                           BigDecimal lastEquity,
+                           BigDecimal buyingPower,
+                           String createdAt) {
+        this.id = id;
+        this.accountNumber = accountNumber;
+        this.status = status;
+        this.currency = currency;
+        this.cash = cash;
+        this.portfolioValue = portfolioValue;
+        this.equity = equity;
+        this.lastEquity = lastEquity;
+        this.buyingPower = buyingPower;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public BigDecimal getCash() {
+        return cash;
+    }
+
+    public BigDecimal getPortfolioValue() {
+        return portfolioValue;
+    }
+
+    public BigDecimal getEquity() {
+        return equity;
+    }
+
+    public BigDecimal getLastEquity() {
+        return lastEquity;
+    }
+
+    public BigDecimal getBuyingPower() {
+        return buyingPower;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,80 @@
+package com.mybroker.model;
+
+import java.time.Instant;
+
+/**
+ * KI-Erklärung eines Portfolios samt Herkunft: Modell, Erstellungszeitpunkt und Token-Verbrauch des Aufrufs,
+ * der sie erzeugt hat. Unveränderlich, damit Cache-Einträge gefahrlos geteilt werden können.
+ */
+public class AiExplanation {
+
+    private final String fingerprint;
+    private final String text;
+    private final String model;
+    private final Instant generatedAt;
+    private final Integer totalTokens;
+    private final Integer completionTokens;
+    private final String serviceTier;
+    private final boolean cached;
+
+    public AiExplanation(String fingerprint, String text, String model, Instant generatedAt,
+                         Integer totalTokens, Integer completionTokens, String serviceTier, boolean cached) {
+        this.fingerprint = fingerprint;
+        this.text = text;
+        this.model = model;
+        this.generatedAt = generatedAt;
+        this.totalTokens = totalTokens;
+        this.completionTokens = completionTokens;
+        this.serviceTier = serviceTier;
+        this.cached = cached;
+    }
+
+    /**
+     * Fehlermeldung statt Erklärung – wird nicht gecacht.
+     */
+    public static AiExplanation failure(String message) {
+        return new AiExplanation(null, message, null, null, null, null, null, false);
+    }
+
+    /**
+     * Dieselbe Erklärung, als Cache-Treffer markiert.
+     */
+    public AiExplanation asCached() {
+        return cached ? this : new AiExplanation(fingerprint, text, model, generatedAt,
+                totalTokens, completionTokens, serviceTier, true);
+    }
+
+    /** Schlüssel im Cache (Fingerabdruck der Prompt-Eingaben), null bei Fehlern. */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public Instant getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public Integer getTotalTokens() {
+        return totalTokens;
+    }
+
+    public Integer getCompletionTokens() {
+        return completionTokens;
+    }
+
+    public String getServiceTier() {
+        return serviceTier;
+    }
+
+    /** true = aus dem Cache (Speicher oder Datenbank), ohne neuen KI-Aufruf. */
+    public boolean isCached() {
+        return cached;
+    }
+}
@@ -0,0 +1,94 @@
+package com.mybroker.model;
+
+import java.util.Objects;
+
+/**
+ * Zugangsdaten eines Alpaca-Kontos: API-Key/Secret plus Trading- und Market-Data-URL.
+ * <p>
+ * Das eigene Konto kommt aus den Umgebungsvariablen ({@link #fromEnvironment()}), verwaltete Konten aus
+ * brokerml.tenant_accounts. Das Secret erscheint nicht in {@link #toString()}.
+ */
+public final class AlpacaCredentials {
+
+    private final String tenantId;
+    private final String apiKey;
+    private final String apiSecret;
+    private final String baseUrl;
+    private final String dataUrl;
+
+    public AlpacaCredentials(String tenantId, String apiKey, String apiSecret, String baseUrl, String dataUrl) {
+        this.tenantId = tenantId;
+        this.apiKey = apiKey;
+        this.apiSecret = apiSecret;
+        this.baseUrl = baseUrl;
+        this.dataUrl = dataUrl;
+    }
+
+    /**
+     * ALPACA_API_KEY, ALPACA_API_SECRET, ALPACA_BASE_URL, ALPACA_DATA_URL (einzelne Werte dürfen fehlen).
+     */
+    public static AlpacaCredentials fromEnvironment() {
+        return new AlpacaCredentials(null,
+                System.getenv("ALPACA_API_KEY"),
+                System.getenv("ALPACA_API_SECRET"),
+                System.getenv("ALPACA_BASE_URL"),
+                System.getenv("ALPACA_DATA_URL"));
+    }
+
+    /** null = das über die Umgebung konfigurierte Konto. */
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public String getApiSecret() {
+        return apiSecret;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public String getDataUrl() {
+        return dataUrl;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AlpacaCredentials)) {
+            return false;
+        }
+        AlpacaCredentials other = (AlpacaCredentials) o;
+        return Objects.equals(tenantId, other.tenantId)
+                && Objects.equals(apiKey, other.apiKey)
+                && Objects.equals(apiSecret, other.apiSecret)
+                && Objects.equals(baseUrl, other.baseUrl)
+                && Objects.equals(dataUrl, other.dataUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tenantId, apiKey, baseUrl, dataUrl);
+    }
+
+    /**
+     * Schlüssel nur maskiert (letzte 4 Zeichen) – die Darstellung landet in Logs.
+     */
+    @Override
+    public String toString() {
+        return "AlpacaCredentials{tenant=" + tenantId + ", key=" + mask(apiKey) + ", baseUrl=" + baseUrl + "}";
+    }
+
+    private static String mask(String value) {
+        if (value == null) {
+            return null;
+        }
+        return value.length() <= 4 ? "****" : "****" + value.substring(value.length() - 4);
+    }
+}
@@ -0,0 +1,98 @@
+package com.mybroker.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Order aus /v2/orders. Beträge als BigDecimal, nicht gelieferte Werte sind null
+ * (z.B. qty bei Notional-Orders, filledAvgPrice vor der ersten Ausführung).
+ */
+public class BrokerOrder {
+
+    private final String id;
+    private final String clientOrderId;
+    private final String symbol;
+    private final String side;
+    private final String type;
+    private final String timeInForce;
+    private final BigDecimal qty;
+    private final BigDecimal filledQty;
+    private final BigDecimal filledAvgPrice;
+    private final String status;
+    private final String createdAt;
+    private final Instant updatedAt;
+
+    public BrokerOrder(String id,
+                       String clientOrderId,
+                       String symbol,
+                       String side,
+                       String type,
+                       String timeInForce,
+                       BigDecimal qty,
+                       BigDecimal filledQty,
+                       BigDecimal filledAvgPrice,
+                       String status,
+                       String createdAt,
+                       Instant updatedAt) {
+        this.id = id;
+        this.clientOrderId = clientOrderId;
+        this.symbol = symbol;
+        this.side = side;
+        this.type = type;
+        this.timeInForce = timeInForce;
+        this.qty = qty;
+        this.filledQty = filledQty;
+        this.filledAvgPrice = filledAvgPrice;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getClientOrderId() {
+        return clientOrderId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getSide() {
+        return side;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getTimeInForce() {
+        return timeInForce;
+    }
+
+    public BigDecimal getQty() {
+        return qty;
+    }
+
+    public BigDecimal getFilledQty() {
+        return filledQty;
+    }
+
+    public BigDecimal getFilledAvgPrice() {
+        return filledAvgPrice;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
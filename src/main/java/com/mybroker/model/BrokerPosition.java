@@ -0,0 +1,75 @@
+package com.mybroker.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Offene Position aus /v2/positions. Beträge als BigDecimal, nicht gelieferte Werte sind null.
+ */
+public class BrokerPosition {
+
+    private final String symbol;
+    private final String side;
+    private final BigDecimal qty;
+    private final BigDecimal avgEntryPrice;
+    private final BigDecimal currentPrice;
+    private final BigDecimal marketValue;
+    private final BigDecimal costBasis;
+    private final BigDecimal unrealizedPl;
+    private final BigDecimal unrealizedPlpc;
+
+    public BrokerPosition(String symbol,
+                          String side,
+                          BigDecimal qty,
+                          BigDecimal avgEntryPrice,
+                          BigDecimal currentPrice,
+                          BigDecimal marketValue,
+                          BigDecimal costBasis,
+                          BigDecimal unrealizedPl,
+                          BigDecimal unrealizedPlpc) {
+        this.symbol = symbol;
+        this.side = side;
+        this.qty = qty;
+        this.avgEntryPrice = avgEntryPrice;
+        this.currentPrice = currentPrice;
+        this.marketValue = marketValue;
+        this.costBasis = costBasis;
+        this.unrealizedPl = unrealizedPl;
+        this.unrealizedPlpc = unrealizedPlpc;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getSide() {
+        return side;
+    }
+
+    public BigDecimal getQty() {
+        return qty;
+    }
+
+    public BigDecimal getAvgEntryPrice() {
+        return avgEntryPrice;
+    }
+
+    public BigDecimal getCurrentPrice() {
+        return currentPrice;
+    }
+
+    public BigDecimal getMarketValue() {
+        return marketValue;
+    }
+
+    public BigDecimal getCostBasis() {
+        return costBasis;
+    }
+
+    public BigDecimal getUnrealizedPl() {
+        return unrealizedPl;
+    }
+
+    public BigDecimal getUnrealizedPlpc() {
+        return unrealizedPlpc;
+    }
+}
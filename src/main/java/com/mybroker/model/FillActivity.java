@@ -0,0 +1,83 @@
+package com.mybroker.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Eine Ausführung (Account-Activity vom Typ FILL) – aus Alpaca geladen oder aus brokerml.fills gelesen.
+ */
+public class FillActivity {
+
+    private final String activityId;
+    private final String orderId;
+    private final String symbol;
+    private final String side;
+    private final BigDecimal qty;
+    private final BigDecimal price;
+    private final Instant transactionTime;
+    private final String orderStatus;
+    private final BigDecimal cumQty;
+    private final BigDecimal leavesQty;
+
+    public FillActivity(String activityId,
+                        String orderId,
+                        String symbol,
+                        String side,
+                        BigDecimal qty,
+                        BigDecimal price,
+                        Instant transactionTime,
+                        String orderStatus,
+                        BigDecimal cumQty,
+                        BigDecimal leavesQty) {
+        this.activityId = activityId;
+        this.orderId = orderId;
+        this.symbol = symbol;
+        this.side = side;
+        this.qty = qty;
+        this.price = price;
+        this.transactionTime = transactionTime;
+        this.orderStatus = orderStatus;
+        this.cumQty = cumQty;
+        this.leavesQty = leavesQty;
+    }
+
+    public String getActivityId() {
+        return activityId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getSide() {
+        return side;
+    }
+
+    public BigDecimal getQty() {
+        return qty;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public Instant getTransactionTime() {
+        return transactionTime;
+    }
+
+    public String getOrderStatus() {
+        return orderStatus;
+    }
+
+    public BigDecimal getCumQty() {
+        return cumQty;
+    }
+
+    public BigDecimal getLeavesQty() {
+        return leavesQty;
+    }
+}
@@ -0,0 +1,71 @@
+package com.mybroker.model;
+
+/**
+ * Marktdaten-Snapshot eines Symbols aus Alpacas Multi-Symbol-Endpoint (/v2/stocks/snapshots):
+ * letzter Trade, letztes Bid/Ask sowie Schlusskurse des laufenden und des vorherigen Handelstags.
+ * Nicht gelieferte Werte sind 0.0 bzw. null.
+ */
+public class MarketSnapshot {
+
+    private final String symbol;
+    private final double lastPrice;
+    private final String lastTradeTime;
+    private final double bidPrice;
+    private final double askPrice;
+    private final double dailyClose;
+    private final double previousClose;
+
+    public MarketSnapshot(String symbol,
+                          double lastPrice,
+                          String lastTradeTime,
+                          double bidPrice,
+                          double askPrice,
+                          double dailyClose,
+                          double previousClose) {
+        this.symbol = symbol;
+        this.lastPrice = lastPrice;
+        this.lastTradeTime = lastTradeTime;
+        this.bidPrice = bidPrice;
+        this.askPrice = askPrice;
+        this.dailyClose = dailyClose;
+        this.previousClose = previousClose;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getLastPrice() {
+        return lastPrice;
+    }
+
+    public String getLastTradeTime() {
+        return lastTradeTime;
+    }
+
+    public double getBidPrice() {
+        return bidPrice;
+    }
+
+    public double getAskPrice() {
+        return askPrice;
+    }
+
+    public double getDailyClose() {
+        return dailyClose;
+    }
+
+    public double getPreviousClose() {
+        return previousClose;
+    }
+
+    /**
+     * Tagesveränderung in Prozent gegenüber dem Vortagesschluss, 0.0 wenn nicht berechenbar.
+     */
+    public double getChangePercent() {
+        if (previousClose <= 0.0 || lastPrice <= 0.0) {
+            return 0.0;
+        }
+        return (lastPrice - previousClose) / previousClose * 100.0;
+    }
+}
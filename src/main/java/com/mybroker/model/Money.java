@@ -0,0 +1,213 @@
+package com.mybroker.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Geldbetrag als Festkommazahl in Millionstel (micros) in einem long.
+ * <p>
+ * Unveränderlich; Addition und Subtraktion sind exakt. Beträge jenseits von ca. ±9,2 Billionen passen nicht in
+ * micros und werden stattdessen als BigDecimal gehalten ({@link #fitsMicros()}) – langsamer, aber ohne Überlauf.
+ * {@link #getMicros()} gibt es nur für Beträge im long-Bereich. Zusätzlich merkt sich der Betrag die Anzahl Nachkommastellen seiner Quelle
+ * (0–6), damit {@link #toBigDecimal()} und {@link #toString()} dieselbe Darstellung liefern wie der ursprüngliche
+ * BigDecimal ("1234.5" bleibt "1234.5"). Addition übernimmt dabei die größere Skala, wie {@link BigDecimal#add}.
+ * <p>
+ * Werte mit mehr als 6 Nachkommastellen werden beim Umwandeln HALF_UP auf micros gerundet.
+ * {@link #equals(Object)} vergleicht nur den Wert, nicht die Skala.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 6;
+
+    private static final long[] POW10 = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L};
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+    // bis zu diesem Betrag (ca. 922 Mio.) passt part · 10000 in percent() noch in einen long
+    private static final long PERCENT_LONG_LIMIT = Long.MAX_VALUE / 10_000L;
+
+    public static final Money ZERO = new Money(0L, 0);
+
+    private final long micros;
+    private final int scale;
+    // nur gesetzt, wenn der Betrag nicht in micros passt (dann sind micros/scale ungenutzt)
+    private final BigDecimal exact;
+
+    private Money(long micros, int scale) {
+        this.micros = micros;
+        this.scale = scale;
+        this.exact = null;
+    }
+
+    private Money(BigDecimal exact) {
+        this.micros = 0L;
+        this.scale = exact.scale();
+        this.exact = exact;
+    }
+
+    /**
+     * @return Betrag oder null, wenn {@code value} null ist
+     */
+    public static Money of(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        BigDecimal v = value;
+        if (v.scale() < 0) {
+            v = v.setScale(0);
+        } else if (v.scale() > SCALE) {
+            v = v.setScale(SCALE, RoundingMode.HALF_UP);
+        }
+        if (v.unscaledValue().bitLength() > 63) {
+            return new Money(v);
+        }
+        return ofUnscaled(v.unscaledValue().longValue(), v.scale());
+    }
+
+    /**
+     * Betrag = unscaled · 10<sup>-scale</sup>, z.B. (12345, 2) = 123.45.
+     */
+    public static Money ofUnscaled(long unscaled, int scale) {
+        if (scale < 0 || scale > SCALE) {
+            throw new ArithmeticException("Skala außerhalb 0.." + SCALE + ": " + scale);
+        }
+        long factor = POW10[SCALE - scale];
+        long max = Long.MAX_VALUE / factor;
+        if (unscaled > max || unscaled < -max) {
+            return new Money(BigDecimal.valueOf(unscaled, scale));
+        }
+        return new Money(unscaled * factor, scale);
+    }
+
+    public static Money ofMicros(long micros) {
+        return new Money(micros, SCALE);
+    }
+
+    /**
+     * @throws ArithmeticException wenn der Betrag nicht in micros passt ({@link #fitsMicros()})
+     */
+    public long getMicros() {
+        if (exact != null) {
+            throw new ArithmeticException("Betrag außerhalb des micros-Bereichs: " + exact);
+        }
+        return micros;
+    }
+
+    /**
+     * @return false, wenn der Betrag nur als BigDecimal gehalten wird
+     */
+    public boolean fitsMicros() {
+        return exact == null;
+    }
+
+    /**
+     * Nachkommastellen der Darstellung (0–6).
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    public int signum() {
+        return exact != null ? exact.signum() : Long.signum(micros);
+    }
+
+    public Money plus(Money other) {
+        if (exact == null && other.exact == null) {
+            long sum = micros + other.micros;
+            // Überlauf genau dann, wenn beide Summanden ein anderes Vorzeichen als die Summe haben
+            if (((micros ^ sum) & (other.micros ^ sum)) >= 0) {
+                return new Money(sum, Math.max(scale, other.scale));
+            }
+        }
+        return of(toBigDecimal().add(other.toBigDecimal()));
+    }
+
+    public Money minus(Money other) {
+        if (exact == null && other.exact == null) {
+            long difference = micros - other.micros;
+            if (((micros ^ other.micros) & (micros ^ difference)) >= 0) {
+                return new Money(difference, Math.max(scale, other.scale));
+            }
+        }
+        return of(toBigDecimal().subtract(other.toBigDecimal()));
+    }
+
+    /**
+     * Anteil in Prozent mit 2 Nachkommastellen, HALF_UP – dasselbe Ergebnis wie
+     * {@code this·100 / total} mit {@link BigDecimal#divide(BigDecimal, int, RoundingMode)}.
+     */
+    public BigDecimal percentOf(Money total) {
+        if (exact != null || total.exact != null) {
+            if (total.signum() == 0) {
+                throw new ArithmeticException("Division durch 0");
+            }
+            return toBigDecimal().multiply(HUNDRED).divide(total.toBigDecimal(), 2, RoundingMode.HALF_UP);
+        }
+        return percent(micros, total.micros);
+    }
+
+    /**
+     * Wie {@link #percentOf(Money)}, direkt auf micros (für Summen in Schleifen ohne Money-Objekte).
+     */
+    public static BigDecimal percent(long partMicros, long totalMicros) {
+        if (totalMicros == 0L) {
+            throw new ArithmeticException("Division durch 0");
+        }
+        if (partMicros > PERCENT_LONG_LIMIT || partMicros < -PERCENT_LONG_LIMIT) {
+            // vorab geprüft statt per ArithmeticException: große Summen sind bei großen Portfolios der Normalfall,
+            // und eine Exception pro Sektor kostete mehr als die ganze übrige Analyse
+            return BigDecimal.valueOf(partMicros, SCALE)
+                    .multiply(HUNDRED)
+                    .divide(BigDecimal.valueOf(totalMicros, SCALE), 2, RoundingMode.HALF_UP);
+        }
+        // Prozent mit 2 Nachkommastellen = part · 10000 / total, gerundet
+        long numerator = partMicros * 10_000L;
+        long quotient = numerator / totalMicros;
+        long remainder = Math.abs(numerator % totalMicros);
+        long divisor = Math.abs(totalMicros);
+        if (remainder != 0 && remainder >= divisor - remainder) {
+            quotient += (numerator < 0) == (totalMicros < 0) ? 1 : -1;
+        }
+        return BigDecimal.valueOf(quotient, 2);
+    }
+
+    public BigDecimal toBigDecimal() {
+        if (exact != null) {
+            return exact;
+        }
+        return BigDecimal.valueOf(micros / POW10[SCALE - scale], scale);
+    }
+
+    public double toDouble() {
+        return exact != null ? exact.doubleValue() : micros / 1_000_000.0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        if (exact == null && other.exact == null) {
+            return Long.compare(micros, other.micros);
+        }
+        return toBigDecimal().compareTo(other.toBigDecimal());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        Money other = (Money) o;
+        // ein Betrag liegt immer dann als BigDecimal vor, wenn er nicht in micros passt – gemischt also nie gleich
+        if (exact == null || other.exact == null) {
+            return exact == other.exact && micros == other.micros;
+        }
+        return exact.compareTo(other.exact) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return exact != null ? exact.stripTrailingZeros().hashCode() : Long.hashCode(micros);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toString();
+    }
+}
@@ -17,6 +17,9 @@ public class PortfolioAnalysisResult {
 
     private String aiExplanation;          // Volltext von der KI
 
+    private PortfolioRiskReport riskReport; // VaR/CVaR aus der Kurshistorie
+    private PortfolioScenarioReport scenarioReport; // Monte-Carlo- und Stress-Szenarien
+
     public BigDecimal getTotalMarketValue() {
         return totalMarketValue;
     }
@@ -88,4 +91,20 @@ public class PortfolioAnalysisResult {
     public void setAiExplanation(String aiExplanation) {
         this.aiExplanation = aiExplanation;
     }
+
+    public PortfolioRiskReport getRiskReport() {
+        return riskReport;
+    }
+
+    public void setRiskReport(PortfolioRiskReport riskReport) {
+        this.riskReport = riskReport;
+    }
+
+    public PortfolioScenarioReport getScenarioReport() {
+        return scenarioReport;
+    }
+
+    public void setScenarioReport(PortfolioScenarioReport scenarioReport) {
+        this.scenarioReport = scenarioReport;
+    }
 }
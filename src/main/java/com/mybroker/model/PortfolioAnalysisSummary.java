@@ -0,0 +1,67 @@
+package com.mybroker.model;
+
+import java.time.Instant;
+
+/**
+ * Zusammenfassung einer Portfolio-Analyse pro verwaltetem Konto, wie sie der Batch-Lauf in
+ * brokerml.portfolio_analysis_summaries ablegt.
+ */
+public class PortfolioAnalysisSummary {
+
+    private final String tenantId;
+    private final Instant analysedAt;
+    private final int positionCount;
+    private final PortfolioAnalysisResult analysis;
+    private final String error;
+    private final Instant errorAt;
+
+    public PortfolioAnalysisSummary(String tenantId, Instant analysedAt, int positionCount,
+                                    PortfolioAnalysisResult analysis, String error, Instant errorAt) {
+        this.tenantId = tenantId;
+        this.analysedAt = analysedAt;
+        this.positionCount = positionCount;
+        this.analysis = analysis;
+        this.error = error;
+        this.errorAt = errorAt;
+    }
+
+    public static PortfolioAnalysisSummary success(String tenantId, Instant analysedAt, int positionCount,
+                                                   PortfolioAnalysisResult analysis) {
+        return new PortfolioAnalysisSummary(tenantId, analysedAt, positionCount, analysis, null, null);
+    }
+
+    public static PortfolioAnalysisSummary failure(String tenantId, Instant errorAt, String error) {
+        return new PortfolioAnalysisSummary(tenantId, null, 0, null, error, errorAt);
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    /** Zeitpunkt der letzten erfolgreichen Analyse, null = noch keine. */
+    public Instant getAnalysedAt() {
+        return analysedAt;
+    }
+
+    public int getPositionCount() {
+        return positionCount;
+    }
+
+    /** Ohne KI-Text, Risiko- und Szenario-Berichte; null = noch keine erfolgreiche Analyse. */
+    public PortfolioAnalysisResult getAnalysis() {
+        return analysis;
+    }
+
+    /** Fehler des letzten Laufs, null = der letzte Lauf war erfolgreich. */
+    public String getError() {
+        return error;
+    }
+
+    public Instant getErrorAt() {
+        return errorAt;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
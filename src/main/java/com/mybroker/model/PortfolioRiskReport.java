@@ -0,0 +1,176 @@
+package com.mybroker.model;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Marktrisiko des Portfolios aus der Kurshistorie: parametrischer VaR/CVaR (Normalverteilung, Mittelwert 0) und
+ * Risikobeitrag je Position. Beträge in der Währung der Marktwerte, Anteile als Bruch (0.05 = 5 %).
+ * <p>
+ * {@link #isAvailable()} = false, solange die Kovarianz noch berechnet wird oder die Historie nicht reicht;
+ * {@link #getMessage()} sagt dann warum.
+ */
+public class PortfolioRiskReport {
+
+    /**
+     * Beitrag einer Position (alle Lots eines Symbols zusammen).
+     */
+    public static class RiskContribution {
+        private final String symbol;
+        private final double weight;
+        private final double marginalVar;
+        private final double componentVar;
+        private final double varShare;
+
+        public RiskContribution(String symbol, double weight, double marginalVar, double componentVar, double varShare) {
+            this.symbol = symbol;
+            this.weight = weight;
+            this.marginalVar = marginalVar;
+            this.componentVar = componentVar;
+            this.varShare = varShare;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        /** Anteil am Portfoliowert. */
+        public double getWeight() {
+            return weight;
+        }
+
+        /** Änderung des VaR pro zusätzlicher Währungseinheit in dieser Position. */
+        public double getMarginalVar() {
+            return marginalVar;
+        }
+
+        /** Beitrag zum VaR; die Summe über alle Positionen ergibt den VaR. */
+        public double getComponentVar() {
+            return componentVar;
+        }
+
+        /** componentVar / VaR. */
+        public double getVarShare() {
+            return varShare;
+        }
+    }
+
+    private final boolean available;
+    private final String message;
+    private final Instant asOf;
+    private final int window;
+    private final int observations;
+    private final double confidence;
+    private final int horizonDays;
+    private final double shrinkage;
+    private final double annualizedVolatility;
+    private final double valueAtRisk;
+    private final double conditionalValueAtRisk;
+    private final double valueAtRiskPercent;
+    private final List<RiskContribution> contributions;
+    private final List<String> uncoveredSymbols;
+
+    public PortfolioRiskReport(Instant asOf, int window, int observations, double confidence, int horizonDays,
+                               double shrinkage, double annualizedVolatility, double valueAtRisk,
+                               double conditionalValueAtRisk, double valueAtRiskPercent,
+                               List<RiskContribution> contributions, List<String> uncoveredSymbols) {
+        this.available = true;
+        this.message = null;
+        this.asOf = asOf;
+        this.window = window;
+        this.observations = observations;
+        this.confidence = confidence;
+        this.horizonDays = horizonDays;
+        this.shrinkage = shrinkage;
+        this.annualizedVolatility = annualizedVolatility;
+        this.valueAtRisk = valueAtRisk;
+        this.conditionalValueAtRisk = conditionalValueAtRisk;
+        this.valueAtRiskPercent = valueAtRiskPercent;
+        this.contributions = Collections.unmodifiableList(contributions);
+        this.uncoveredSymbols = Collections.unmodifiableList(uncoveredSymbols);
+    }
+
+    private PortfolioRiskReport(String message) {
+        this.available = false;
+        this.message = message;
+        this.asOf = null;
+        this.window = 0;
+        this.observations = 0;
+        this.confidence = 0.0;
+        this.horizonDays = 0;
+        this.shrinkage = 0.0;
+        this.annualizedVolatility = 0.0;
+        this.valueAtRisk = 0.0;
+        this.conditionalValueAtRisk = 0.0;
+        this.valueAtRiskPercent = 0.0;
+        this.contributions = Collections.emptyList();
+        this.uncoveredSymbols = Collections.emptyList();
+    }
+
+    public static PortfolioRiskReport unavailable(String message) {
+        return new PortfolioRiskReport(message);
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /** Zeitpunkt der jüngsten Kerze in der Kovarianz. */
+    public Instant getAsOf() {
+        return asOf;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /** Anzahl Renditen, aus denen die Kovarianz geschätzt wurde. */
+    public int getObservations() {
+        return observations;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public int getHorizonDays() {
+        return horizonDays;
+    }
+
+    /** Ledoit-Wolf-Gewicht δ des Schrumpfungsziels (0 = Stichprobenkovarianz). */
+    public double getShrinkage() {
+        return shrinkage;
+    }
+
+    public double getAnnualizedVolatility() {
+        return annualizedVolatility;
+    }
+
+    public double getValueAtRisk() {
+        return valueAtRisk;
+    }
+
+    public double getConditionalValueAtRisk() {
+        return conditionalValueAtRisk;
+    }
+
+    /** VaR / Portfoliowert. */
+    public double getValueAtRiskPercent() {
+        return valueAtRiskPercent;
+    }
+
+    /** Absteigend nach componentVar. */
+    public List<RiskContribution> getContributions() {
+        return contributions;
+    }
+
+    /** Gehaltene Symbole ohne ausreichende Kurshistorie (nicht im VaR enthalten). */
+    public List<String> getUncoveredSymbols() {
+        return uncoveredSymbols;
+    }
+}
@@ -0,0 +1,223 @@
+package com.mybroker.model;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ergebnis der Szenario-Simulation: Verlustverteilungen aus historischem Bootstrap und korrelierten
+ * Normalverteilungs-Ziehungen sowie deterministische Stress-Szenarien (Sektor-Schocks, schlechteste
+ * historische Zeiträume). Verluste positiv, in der Währung der Marktwerte, über {@link #getHorizonDays()} Handelstage.
+ */
+public class PortfolioScenarioReport {
+
+    /**
+     * Verlustverteilung einer Simulationsmethode.
+     */
+    public static class LossDistribution {
+        private final String method;
+        private final int paths;
+        private final double meanLoss;
+        private final double loss95;
+        private final double loss99;
+        private final double loss999;
+        private final double expectedShortfall99;
+        private final double maxLoss;
+        private final int[] histogram;
+
+        public LossDistribution(String method, int paths, double meanLoss, double loss95, double loss99,
+                                double loss999, double expectedShortfall99, double maxLoss, int[] histogram) {
+            this.method = method;
+            this.paths = paths;
+            this.meanLoss = meanLoss;
+            this.loss95 = loss95;
+            this.loss99 = loss99;
+            this.loss999 = loss999;
+            this.expectedShortfall99 = expectedShortfall99;
+            this.maxLoss = maxLoss;
+            this.histogram = histogram;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public int getPaths() {
+            return paths;
+        }
+
+        public double getMeanLoss() {
+            return meanLoss;
+        }
+
+        /** 95-%-Perzentil des Verlusts. */
+        public double getLoss95() {
+            return loss95;
+        }
+
+        public double getLoss99() {
+            return loss99;
+        }
+
+        public double getLoss999() {
+            return loss999;
+        }
+
+        /** Mittlerer Verlust ab dem 99-%-Perzentil. */
+        public double getExpectedShortfall99() {
+            return expectedShortfall99;
+        }
+
+        public double getMaxLoss() {
+            return maxLoss;
+        }
+
+        /** Anzahl Pfade pro Klasse, Klassen siehe {@link PortfolioScenarioReport#getHistogramBinStarts()}. */
+        public int[] getHistogram() {
+            return histogram;
+        }
+    }
+
+    /**
+     * Einzelnes Stress-Szenario.
+     */
+    public static class StressScenario {
+        private final String name;
+        private final String type;
+        private final double loss;
+        private final double lossPercent;
+
+        public StressScenario(String name, String type, double loss, double lossPercent) {
+            this.name = name;
+            this.type = type;
+            this.loss = loss;
+            this.lossPercent = lossPercent;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** SECTOR_SHOCK oder HISTORICAL_PERIOD. */
+        public String getType() {
+            return type;
+        }
+
+        public double getLoss() {
+            return loss;
+        }
+
+        /** Verlust / Portfoliowert. */
+        public double getLossPercent() {
+            return lossPercent;
+        }
+    }
+
+    private final boolean available;
+    private final String message;
+    private final Instant asOf;
+    private final int horizonDays;
+    private final int pathsRequested;
+    private final long elapsedMillis;
+    private final boolean budgetExhausted;
+    private final LossDistribution historical;
+    private final LossDistribution normal;
+    private final double[] histogramBinStarts;
+    private final List<StressScenario> worstScenarios;
+    private final List<String> uncoveredSymbols;
+
+    public PortfolioScenarioReport(Instant asOf, int horizonDays, int pathsRequested, long elapsedMillis,
+                                   boolean budgetExhausted, LossDistribution historical, LossDistribution normal,
+                                   double[] histogramBinStarts, List<StressScenario> worstScenarios,
+                                   List<String> uncoveredSymbols) {
+        this.available = true;
+        this.message = null;
+        this.asOf = asOf;
+        this.horizonDays = horizonDays;
+        this.pathsRequested = pathsRequested;
+        this.elapsedMillis = elapsedMillis;
+        this.budgetExhausted = budgetExhausted;
+        this.historical = historical;
+        this.normal = normal;
+        this.histogramBinStarts = histogramBinStarts;
+        this.worstScenarios = Collections.unmodifiableList(worstScenarios);
+        this.uncoveredSymbols = Collections.unmodifiableList(uncoveredSymbols);
+    }
+
+    private PortfolioScenarioReport(String message) {
+        this.available = false;
+        this.message = message;
+        this.asOf = null;
+        this.horizonDays = 0;
+        this.pathsRequested = 0;
+        this.elapsedMillis = 0L;
+        this.budgetExhausted = false;
+        this.historical = null;
+        this.normal = null;
+        this.histogramBinStarts = new double[0];
+        this.worstScenarios = Collections.emptyList();
+        this.uncoveredSymbols = Collections.emptyList();
+    }
+
+    public static PortfolioScenarioReport unavailable(String message) {
+        return new PortfolioScenarioReport(message);
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /** Zeitpunkt der jüngsten Kerze in der verwendeten Historie. */
+    public Instant getAsOf() {
+        return asOf;
+    }
+
+    public int getHorizonDays() {
+        return horizonDays;
+    }
+
+    public int getPathsRequested() {
+        return pathsRequested;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /** true, wenn das Zeitbudget vor allen angefragten Pfaden abgelaufen ist. */
+    public boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    public LossDistribution getHistorical() {
+        return historical;
+    }
+
+    public LossDistribution getNormal() {
+        return normal;
+    }
+
+    /** Historisch und normal, für die Tabelle; leer ohne Simulation. */
+    public List<LossDistribution> getDistributions() {
+        return available ? List.of(historical, normal) : Collections.emptyList();
+    }
+
+    /** Untergrenzen der Histogrammklassen (gleich breit, für beide Methoden gleich). */
+    public double[] getHistogramBinStarts() {
+        return histogramBinStarts;
+    }
+
+    /** Absteigend nach Verlust. */
+    public List<StressScenario> getWorstScenarios() {
+        return worstScenarios;
+    }
+
+    /** Gehaltene Symbole ohne ausreichende Kurshistorie; in den Simulationen wertstabil, im Sektor-Schock voll geschockt. */
+    public List<String> getUncoveredSymbols() {
+        return uncoveredSymbols;
+    }
+}
@@ -2,14 +2,18 @@ package com.mybroker.model;
 
 import java.math.BigDecimal;
 
+/**
+ * Position für die Portfolio-Analyse. Menge und Beträge liegen als Festkommazahlen ({@link Qty}, {@link Money}) vor;
+ * die BigDecimal-Getter/-Setter bleiben für JSPs und bestehende Aufrufer erhalten und liefern dieselbe Darstellung.
+ */
 public class Position {
 
     private String symbol;
     private String name;
     private String sector;
-    private BigDecimal quantity;
-    private BigDecimal marketValue;   // aktueller Marktwert in Konto-Währung
-    private BigDecimal unrealizedPnl; // offener Gewinn/Verlust
+    private Qty quantity;
+    private Money marketValue;   // aktueller Marktwert in Konto-Währung
+    private Money unrealizedPnl; // offener Gewinn/Verlust
     private BigDecimal volatility;    // z.B. historische Volatilität (0.25 = 25%)
 
     public Position() {
@@ -25,9 +29,9 @@ public class Position {
         this.symbol = symbol;
         this.name = name;
         this.sector = sector;
-        this.quantity = quantity;
-        this.marketValue = marketValue;
-        this.unrealizedPnl = unrealizedPnl;
+        this.quantity = Qty.of(quantity);
+        this.marketValue = Money.of(marketValue);
+        this.unrealizedPnl = Money.of(unrealizedPnl);
         this.volatility = volatility;
     }
 
@@ -56,26 +60,50 @@ public class Position {
     }
 
     public BigDecimal getQuantity() {
-        return quantity;
+        return quantity != null ? quantity.toBigDecimal() : null;
     }
 
     public void setQuantity(BigDecimal quantity) {
+        this.quantity = Qty.of(quantity);
+    }
+
+    public Qty getQty() {
+        return quantity;
+    }
+
+    public void setQty(Qty quantity) {
         this.quantity = quantity;
     }
 
     public BigDecimal getMarketValue() {
-        return marketValue;
+        return marketValue != null ? marketValue.toBigDecimal() : null;
     }
 
     public void setMarketValue(BigDecimal marketValue) {
+        this.marketValue = Money.of(marketValue);
+    }
+
+    public Money getMarketValueMoney() {
+        return marketValue;
+    }
+
+    public void setMarketValueMoney(Money marketValue) {
         this.marketValue = marketValue;
     }
 
     public BigDecimal getUnrealizedPnl() {
-        return unrealizedPnl;
+        return unrealizedPnl != null ? unrealizedPnl.toBigDecimal() : null;
     }
 
     public void setUnrealizedPnl(BigDecimal unrealizedPnl) {
+        this.unrealizedPnl = Money.of(unrealizedPnl);
+    }
+
+    public Money getUnrealizedPnlMoney() {
+        return unrealizedPnl;
+    }
+
+    public void setUnrealizedPnlMoney(Money unrealizedPnl) {
         this.unrealizedPnl = unrealizedPnl;
     }
 
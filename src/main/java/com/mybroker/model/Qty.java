@@ -0,0 +1,99 @@
+package com.mybroker.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Stückzahl als Festkommazahl in Milliardstel (nanos) in einem long – Alpaca liefert Bruchteile von Aktien mit
+ * bis zu 9 Nachkommastellen, micros würden sie abschneiden.
+ * <p>
+ * Wie {@link Money} unveränderlich, überlaufgeprüft und mit der Skala der Quelle für eine unveränderte Darstellung.
+ */
+public final class Qty implements Comparable<Qty> {
+
+    public static final int SCALE = 9;
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+
+    public static final Qty ZERO = new Qty(0L, 0);
+
+    private final long nanos;
+    private final int scale;
+
+    private Qty(long nanos, int scale) {
+        this.nanos = nanos;
+        this.scale = scale;
+    }
+
+    /**
+     * @return Menge oder null, wenn {@code value} null ist
+     */
+    public static Qty of(BigDecimal value) {
+        if (value == null) {
+            return null;
+        }
+        BigDecimal v = value;
+        if (v.scale() < 0) {
+            v = v.setScale(0);
+        } else if (v.scale() > SCALE) {
+            v = v.setScale(SCALE, RoundingMode.HALF_UP);
+        }
+        long unscaled = v.unscaledValue().longValueExact();
+        return new Qty(Math.multiplyExact(unscaled, POW10[SCALE - v.scale()]), v.scale());
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public int signum() {
+        return Long.signum(nanos);
+    }
+
+    /**
+     * Marktwert = Menge · Preis. Exakt auf longs, solange das Produkt höchstens 6 Nachkommastellen hat
+     * (gleiches Ergebnis wie {@code toBigDecimal().multiply(price)}); sonst HALF_UP auf micros gerundet.
+     */
+    public Money times(BigDecimal price) {
+        BigDecimal p = price.scale() < 0 ? price.setScale(0) : price;
+        int productScale = scale + p.scale();
+        if (productScale <= Money.SCALE && p.unscaledValue().bitLength() < 64) {
+            try {
+                long unscaledQty = nanos / POW10[SCALE - scale];
+                return Money.ofUnscaled(Math.multiplyExact(unscaledQty, p.unscaledValue().longValue()), productScale);
+            } catch (ArithmeticException overflow) {
+                // weiter mit BigDecimal
+            }
+        }
+        return Money.of(toBigDecimal().multiply(p));
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(nanos / POW10[SCALE - scale], scale);
+    }
+
+    public double toDouble() {
+        return nanos / 1_000_000_000.0;
+    }
+
+    @Override
+    public int compareTo(Qty other) {
+        return Long.compare(nanos, other.nanos);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Qty && ((Qty) o).nanos == nanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toString();
+    }
+}
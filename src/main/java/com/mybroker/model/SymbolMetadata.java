@@ -0,0 +1,45 @@
+package com.mybroker.model;
+
+import java.time.Instant;
+
+/**
+ * Stammdaten eines Symbols (Sektor, Firmenname) samt Abrufzeitpunkt.
+ * Unveränderlich, damit Seitenaufrufe ohne Locks aus dem gemeinsamen Speicher lesen können.
+ */
+public final class SymbolMetadata {
+
+    private final String symbol;
+    private final String sector;
+    private final String name;
+    private final Instant fetchedAt;
+
+    /**
+     * @param sector null, wenn die Quelle keinen Sektor kennt (z.B. ETFs)
+     */
+    public SymbolMetadata(String symbol, String sector, String name, Instant fetchedAt) {
+        this.symbol = symbol;
+        this.sector = sector;
+        this.name = name;
+        this.fetchedAt = fetchedAt;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getSector() {
+        return sector;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Instant getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public boolean isExpired(Instant cutoff) {
+        return fetchedAt == null || fetchedAt.isBefore(cutoff);
+    }
+}
@@ -0,0 +1,315 @@
+package com.mybroker.order;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.mybroker.config.AppConfig;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.service.AlpacaService;
+import com.mybroker.service.CachedAlpacaService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Asynchrone, idempotente Order-Einreichung.
+ * <p>
+ * {@link #submit} legt nur ein {@link OrderTicket} an, stellt es in eine begrenzte Queue und kehrt sofort
+ * mit der Tracking-ID zurück – der Servlet-Thread wartet nicht auf den Broker. Eigene Submitter-Threads
+ * senden die Orders an Alpaca.
+ * <p>
+ * Jede Order trägt eine client_order_id (aus dem Idempotenz-Schlüssel des Formulars bzw. generiert).
+ * Ein Doppelklick mit demselben Schlüssel liefert das bestehende Ticket. Bei technischen Fehlern wird mit
+ * Backoff wiederholt; vor jedem weiteren Versuch wird über die client_order_id geprüft, ob Alpaca die Order
+ * schon angenommen hat, sodass nie doppelt eingereicht wird.
+ * <p>
+ * Konfiguration: ORDER_QUEUE_CAPACITY (256), ORDER_SUBMITTER_THREADS (2), ORDER_MAX_ATTEMPTS (4),
+ * ORDER_RETRY_BACKOFF_MS (500, verdoppelt sich pro Versuch), ORDER_TICKET_RETENTION_MS (3600000).
+ */
+public class OrderGateway {
+
+    private static final String CLIENT_ORDER_ID_PREFIX = "mb-";
+    private static final int MAX_CLIENT_ORDER_ID_LENGTH = 128;
+
+    private final AlpacaService alpaca;
+    private final BlockingQueue<String> queue;
+    private final Map<String, OrderTicket> tickets = new ConcurrentHashMap<>();
+    private final Map<String, String> trackingIdByClientOrderId = new ConcurrentHashMap<>();
+    private final List<Thread> submitters = new ArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final Duration retention;
+
+    private volatile boolean running = true;
+
+    public OrderGateway(AlpacaService alpaca, int queueCapacity, int submitterThreads,
+                        int maxAttempts, long retryBackoffMillis, Duration retention) {
+        this.alpaca = alpaca;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.retention = retention;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::evictOldTickets, 5, 5, TimeUnit.MINUTES);
+
+        for (int i = 1; i <= Math.max(1, submitterThreads); i++) {
+            Thread t = new Thread(this::drain, "order-submitter-" + i);
+            t.setDaemon(true);
+            t.start();
+            submitters.add(t);
+        }
+
+        Metrics.gauge("orders.gateway.queue_depth", queue::size);
+        Metrics.gauge("orders.gateway.tickets", tickets::size);
+    }
+
+    public static OrderGateway shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Nimmt eine Market-Order (DAY) zur Einreichung an.
+     *
+     * @param idempotencyKey Schlüssel aus dem Formular; gleicher Schlüssel = gleiche Order. Darf null sein.
+     * @return neues oder – bei wiederholtem Schlüssel – bestehendes Ticket
+     * @throws IllegalArgumentException bei ungültigen Eingaben
+     * @throws IllegalStateException    wenn die Queue voll ist oder das Gateway gestoppt wurde
+     */
+    public OrderTicket submit(String symbol, int qty, String side, String idempotencyKey) {
+        if (symbol == null || symbol.isBlank()) {
+            throw new IllegalArgumentException("Symbol fehlt.");
+        }
+        if (qty <= 0) {
+            throw new IllegalArgumentException("Menge muss größer als 0 sein.");
+        }
+        if (!"buy".equals(side) && !"sell".equals(side)) {
+            throw new IllegalArgumentException("Side muss 'buy' oder 'sell' sein.");
+        }
+        if (!running) {
+            throw new IllegalStateException("Order-Gateway ist gestoppt.");
+        }
+
+        String clientOrderId = toClientOrderId(idempotencyKey);
+        String trackingId = UUID.randomUUID().toString();
+
+        // Ticket zuerst ablegen, dann den Schlüssel reservieren – ein paralleler Doppelklick findet so immer ein Ticket
+        OrderTicket ticket = OrderTicket.queued(trackingId, clientOrderId, symbol.trim().toUpperCase(), qty, side);
+        tickets.put(trackingId, ticket);
+
+        String existing = trackingIdByClientOrderId.putIfAbsent(clientOrderId, trackingId);
+        if (existing != null) {
+            tickets.remove(trackingId);
+            OrderTicket known = tickets.get(existing);
+            if (known != null) {
+                Metrics.counter("orders.gateway.deduplicated").increment();
+                return known;
+            }
+            // Ticket wurde inzwischen aufgeräumt oder nie eingereiht – Schlüssel neu vergeben
+            if (!trackingIdByClientOrderId.replace(clientOrderId, existing, trackingId)) {
+                throw new IllegalStateException("Order wird bereits verarbeitet – bitte Status prüfen.");
+            }
+            tickets.put(trackingId, ticket);
+        }
+
+        if (!queue.offer(trackingId)) {
+            tickets.remove(trackingId);
+            trackingIdByClientOrderId.remove(clientOrderId, trackingId);
+            Metrics.counter("orders.gateway.queue_full").increment();
+            throw new IllegalStateException("Zu viele Orders in der Warteschlange – bitte gleich erneut versuchen.");
+        }
+        Metrics.counter("orders.gateway.submitted").increment();
+        return ticket;
+    }
+
+    /**
+     * Aktueller Stand oder null, wenn die Tracking-ID unbekannt (oder schon aufgeräumt) ist.
+     */
+    public OrderTicket getTicket(String trackingId) {
+        return trackingId == null ? null : tickets.get(trackingId);
+    }
+
+    public void shutdown() {
+        running = false;
+        submitters.forEach(Thread::interrupt);
+        scheduler.shutdownNow();
+    }
+
+    // ---------------------------------------------------------
+    // Submitter
+    // ---------------------------------------------------------
+
+    private void drain() {
+        while (running) {
+            String trackingId;
+            try {
+                trackingId = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                process(trackingId);
+            } catch (InterruptedException e) {
+                update(trackingId, t -> t.failed("Einreichung abgebrochen (Shutdown)"));
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("[OrderGateway] Unerwarteter Fehler für " + trackingId + ": " + e);
+                update(trackingId, t -> t.failed("Unerwarteter Fehler: " + e.getMessage()));
+            }
+        }
+    }
+
+    private void process(String trackingId) throws InterruptedException {
+        OrderTicket ticket = update(trackingId, OrderTicket::submitting);
+        if (ticket == null) {
+            return;
+        }
+
+        try {
+            // Wiederholung: erst nachsehen, ob der vorige Versuch bei Alpaca doch angekommen ist
+            if (ticket.getAttempts() > 1) {
+                String existing = alpaca.getOrderByClientOrderId(ticket.getClientOrderId());
+                if (existing != null) {
+                    accept(trackingId, parseObject(existing), existing);
+                    return;
+                }
+            }
+
+            String json = alpaca.createOrder(ticket.getSymbol(), ticket.getQty(), ticket.getSide(), ticket.getClientOrderId());
+            JsonObject response = parseObject(json);
+
+            if (response.has("id")) {
+                accept(trackingId, response, json);
+            } else if (response.has("message") && !isServerError(response)) {
+                String message = response.get("message").getAsString();
+                // Doppelte client_order_id: die Order ist bereits angenommen worden
+                if (message.contains("client_order_id")) {
+                    String existing = alpaca.getOrderByClientOrderId(ticket.getClientOrderId());
+                    if (existing != null) {
+                        accept(trackingId, parseObject(existing), existing);
+                        return;
+                    }
+                }
+                Metrics.counter("orders.gateway.rejected").increment();
+                update(trackingId, t -> t.rejected(message, json));
+            } else {
+                retryOrFail(trackingId, "Unerwartete Antwort von Alpaca");
+            }
+        } catch (IOException | JsonParseException e) {
+            retryOrFail(trackingId, e.getMessage());
+        } catch (IllegalStateException e) {
+            // fehlende Konfiguration – Wiederholen hilft nicht
+            Metrics.counter("orders.gateway.failed").increment();
+            update(trackingId, t -> t.failed(e.getMessage()));
+        }
+    }
+
+    private void accept(String trackingId, JsonObject order, String json) {
+        String brokerOrderId = order.has("id") ? order.get("id").getAsString() : null;
+        String status = order.has("status") ? order.get("status").getAsString() : null;
+        Metrics.counter("orders.gateway.accepted").increment();
+        update(trackingId, t -> t.accepted(brokerOrderId, status, json));
+    }
+
+    private void retryOrFail(String trackingId, String reason) {
+        OrderTicket ticket = tickets.get(trackingId);
+        if (ticket == null) {
+            return;
+        }
+        if (ticket.getAttempts() >= maxAttempts || !running) {
+            Metrics.counter("orders.gateway.failed").increment();
+            update(trackingId, t -> t.failed("Nach " + t.getAttempts() + " Versuchen gescheitert: " + reason));
+            return;
+        }
+
+        Metrics.counter("orders.gateway.retries").increment();
+        update(trackingId, t -> t.retrying(reason));
+        long delay = retryBackoffMillis << Math.min(ticket.getAttempts() - 1, 10);
+        scheduler.schedule(() -> {
+            if (!queue.offer(trackingId)) {
+                Metrics.counter("orders.gateway.failed").increment();
+                update(trackingId, t -> t.failed("Warteschlange voll – Wiederholung nicht möglich: " + reason));
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // ---------------------------------------------------------
+    // Intern
+    // ---------------------------------------------------------
+
+    private OrderTicket update(String trackingId, UnaryOperator<OrderTicket> change) {
+        return tickets.computeIfPresent(trackingId, (id, t) -> change.apply(t));
+    }
+
+    /**
+     * Entfernt abgeschlossene Tickets nach Ablauf der Aufbewahrung und gibt ihre client_order_id frei
+     * (läuft alle 5 Minuten im Scheduler).
+     */
+    void evictOldTickets() {
+        Instant cutoff = Instant.now().minus(retention);
+        tickets.values().removeIf(t -> {
+            boolean evict = t.isTerminal() && t.getUpdatedAt().isBefore(cutoff);
+            if (evict) {
+                trackingIdByClientOrderId.remove(t.getClientOrderId(), t.getTrackingId());
+            }
+            return evict;
+        });
+    }
+
+    /**
+     * Alpaca-Fehlercodes beginnen mit dem HTTP-Status (z.B. 40310000, 50010000). 5xx ist wiederholbar.
+     */
+    private static boolean isServerError(JsonObject response) {
+        try {
+            return response.has("code") && response.get("code").getAsLong() >= 50_000_000L;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static String toClientOrderId(String idempotencyKey) {
+        String key = idempotencyKey == null ? "" : idempotencyKey.replaceAll("[^A-Za-z0-9_-]", "");
+        if (key.isEmpty()) {
+            key = UUID.randomUUID().toString();
+        }
+        String id = CLIENT_ORDER_ID_PREFIX + key;
+        return id.length() > MAX_CLIENT_ORDER_ID_LENGTH ? id.substring(0, MAX_CLIENT_ORDER_ID_LENGTH) : id;
+    }
+
+    private static JsonObject parseObject(String json) {
+        JsonElement root = JsonParser.parseString(json == null ? "" : json);
+        if (!root.isJsonObject()) {
+            throw new JsonParseException("Antwort ist kein JSON-Objekt");
+        }
+        return root.getAsJsonObject();
+    }
+
+    private static final class Holder {
+        static final OrderGateway INSTANCE = new OrderGateway(
+                CachedAlpacaService.shared(),
+                AppConfig.getInt("ORDER_QUEUE_CAPACITY", 256),
+                AppConfig.getInt("ORDER_SUBMITTER_THREADS", 2),
+                AppConfig.getInt("ORDER_MAX_ATTEMPTS", 4),
+                AppConfig.getLong("ORDER_RETRY_BACKOFF_MS", 500),
+                AppConfig.getMillis("ORDER_TICKET_RETENTION_MS", 3_600_000));
+    }
+}
@@ -0,0 +1,149 @@
+package com.mybroker.order;
+
+import java.time.Instant;
+
+/**
+ * Verarbeitungsstand einer über das {@link OrderGateway} eingereichten Order.
+ * <p>
+ * Unveränderlich – jeder Zustandswechsel erzeugt eine neue Instanz, die atomar in der Status-Map
+ * ersetzt wird. Leser (Status-Seite, Polling) sehen damit immer einen konsistenten Stand.
+ */
+public final class OrderTicket {
+
+    public enum State {
+        /** wartet in der Queue (auch zwischen zwei Versuchen) */
+        QUEUED,
+        /** wird gerade an Alpaca gesendet */
+        SUBMITTING,
+        /** von Alpaca angenommen, brokerOrderId ist gesetzt */
+        ACCEPTED,
+        /** von Alpaca fachlich abgelehnt (z.B. fehlende Buying Power) – wird nicht wiederholt */
+        REJECTED,
+        /** technisch gescheitert, alle Versuche aufgebraucht */
+        FAILED;
+
+        public boolean isTerminal() {
+            return this == ACCEPTED || this == REJECTED || this == FAILED;
+        }
+    }
+
+    private final String trackingId;
+    private final String clientOrderId;
+    private final String symbol;
+    private final int qty;
+    private final String side;
+    private final State state;
+    private final int attempts;
+    private final String brokerOrderId;
+    private final String brokerStatus;
+    private final String message;
+    private final String rawJson;
+    private final Instant createdAt;
+    private final Instant updatedAt;
+
+    private OrderTicket(String trackingId, String clientOrderId, String symbol, int qty, String side,
+                        State state, int attempts, String brokerOrderId, String brokerStatus,
+                        String message, String rawJson, Instant createdAt, Instant updatedAt) {
+        this.trackingId = trackingId;
+        this.clientOrderId = clientOrderId;
+        this.symbol = symbol;
+        this.qty = qty;
+        this.side = side;
+        this.state = state;
+        this.attempts = attempts;
+        this.brokerOrderId = brokerOrderId;
+        this.brokerStatus = brokerStatus;
+        this.message = message;
+        this.rawJson = rawJson;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    static OrderTicket queued(String trackingId, String clientOrderId, String symbol, int qty, String side) {
+        Instant now = Instant.now();
+        return new OrderTicket(trackingId, clientOrderId, symbol, qty, side,
+                State.QUEUED, 0, null, null, null, null, now, now);
+    }
+
+    OrderTicket submitting() {
+        return with(State.SUBMITTING, attempts + 1, brokerOrderId, brokerStatus, message, rawJson);
+    }
+
+    OrderTicket retrying(String reason) {
+        return with(State.QUEUED, attempts, brokerOrderId, brokerStatus, reason, rawJson);
+    }
+
+    OrderTicket accepted(String brokerOrderId, String brokerStatus, String rawJson) {
+        return with(State.ACCEPTED, attempts, brokerOrderId, brokerStatus, null, rawJson);
+    }
+
+    OrderTicket rejected(String reason, String rawJson) {
+        return with(State.REJECTED, attempts, brokerOrderId, brokerStatus, reason, rawJson);
+    }
+
+    OrderTicket failed(String reason) {
+        return with(State.FAILED, attempts, brokerOrderId, brokerStatus, reason, rawJson);
+    }
+
+    private OrderTicket with(State state, int attempts, String brokerOrderId, String brokerStatus,
+                             String message, String rawJson) {
+        return new OrderTicket(trackingId, clientOrderId, symbol, qty, side, state, attempts,
+                brokerOrderId, brokerStatus, message, rawJson, createdAt, Instant.now());
+    }
+
+    public String getTrackingId() {
+        return trackingId;
+    }
+
+    public String getClientOrderId() {
+        return clientOrderId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int getQty() {
+        return qty;
+    }
+
+    public String getSide() {
+        return side;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isTerminal() {
+        return state.isTerminal();
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public String getBrokerOrderId() {
+        return brokerOrderId;
+    }
+
+    public String getBrokerStatus() {
+        return brokerStatus;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public String getRawJson() {
+        return rawJson;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,159 @@
+package com.mybroker.risk;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unveränderlicher Stand einer geschrumpften Kovarianzmatrix (tägliche Log-Renditen), wie ihn
+ * {@link CovarianceModel#snapshot()} liefert, samt den Renditen des Fensters in zeitlicher Reihenfolge.
+ */
+final class CovarianceMatrix {
+
+    private final String[] symbols;
+    private final Map<String, Integer> index;
+    // Zeilen-major n×n, symmetrisch
+    private final double[] values;
+    private final int observations;
+    private final double shrinkage;
+    private final long asOfMillis;
+    // returns[i][t], t = 0 älteste Rendite; returnTimestamps[t] = Zeitstempel der Kerze am Ende
+    private final double[][] returns;
+    private final long[] returnTimestamps;
+
+    // untere Dreiecksmatrix L mit L·Lᵀ = Σ, spaltenweise gepackt, erst bei Bedarf berechnet
+    private volatile double[] cholesky;
+
+    CovarianceMatrix(String[] symbols, double[] values, int observations, double shrinkage, long asOfMillis,
+                     double[][] returns, long[] returnTimestamps) {
+        this.symbols = symbols;
+        this.values = values;
+        this.observations = observations;
+        this.shrinkage = shrinkage;
+        this.asOfMillis = asOfMillis;
+        this.returns = returns;
+        this.returnTimestamps = returnTimestamps;
+        this.index = new HashMap<>(symbols.length * 2);
+        for (int i = 0; i < symbols.length; i++) {
+            index.put(symbols[i], i);
+        }
+    }
+
+    int size() {
+        return symbols.length;
+    }
+
+    String getSymbol(int i) {
+        return symbols[i];
+    }
+
+    /**
+     * @return Zeile des Symbols oder -1
+     */
+    int indexOf(String symbol) {
+        Integer i = index.get(symbol);
+        return i != null ? i : -1;
+    }
+
+    double get(int i, int j) {
+        return values[i * symbols.length + j];
+    }
+
+    /**
+     * Σ·w in O(n²).
+     */
+    double[] multiply(double[] weights) {
+        int n = symbols.length;
+        double[] result = new double[n];
+        for (int i = 0; i < n; i++) {
+            double s = 0.0;
+            int row = i * n;
+            for (int j = 0; j < n; j++) {
+                s += values[row + j] * weights[j];
+            }
+            result[i] = s;
+        }
+        return result;
+    }
+
+    /**
+     * Cholesky-Faktor L, einmal pro Snapshot in O(n³/3). Spaltenweise gepackt: Spalte j (Zeilen j..n-1) beginnt
+     * bei {@link #choleskyColumnOffset(int, int)} – so läuft L·z als Folge von zusammenhängenden axpy-Schleifen,
+     * die der JIT vektorisiert.
+     * Ist Σ nur positiv semidefinit (keine Schrumpfung und weniger Renditen als Symbole), bleiben Spalten mit
+     * Pivot ≈ 0 leer – die Ziehungen haben dann in diesen Richtungen keine Streuung, wie Σ selbst.
+     */
+    double[] cholesky() {
+        double[] l = cholesky;
+        if (l == null) {
+            l = decompose();
+            cholesky = l;
+        }
+        return l;
+    }
+
+    static int choleskyColumnOffset(int n, int column) {
+        return column * n - column * (column - 1) / 2;
+    }
+
+    /**
+     * @return Renditen von Symbol i, älteste zuerst (nicht verändern)
+     */
+    double[] getReturns(int i) {
+        return returns[i];
+    }
+
+    long getReturnTimestampMillis(int t) {
+        return returnTimestamps[t];
+    }
+
+    int getObservations() {
+        return observations;
+    }
+
+    double getShrinkage() {
+        return shrinkage;
+    }
+
+    long getAsOfMillis() {
+        return asOfMillis;
+    }
+
+    private double[] decompose() {
+        int n = symbols.length;
+        double[] l = new double[n * n];
+        double scale = 0.0;
+        for (int i = 0; i < n; i++) {
+            scale = Math.max(scale, values[i * n + i]);
+        }
+        double tolerance = scale * 1e-12;
+        for (int j = 0; j < n; j++) {
+            int rowJ = j * n;
+            double d = values[rowJ + j];
+            for (int k = 0; k < j; k++) {
+                d -= l[rowJ + k] * l[rowJ + k];
+            }
+            if (d <= tolerance) {
+                continue;
+            }
+            double ljj = Math.sqrt(d);
+            l[rowJ + j] = ljj;
+            for (int i = j + 1; i < n; i++) {
+                int rowI = i * n;
+                double s = values[rowI + j];
+                for (int k = 0; k < j; k++) {
+                    s -= l[rowI + k] * l[rowJ + k];
+                }
+                l[rowI + j] = s / ljj;
+            }
+        }
+
+        double[] packed = new double[n * (n + 1) / 2];
+        for (int j = 0; j < n; j++) {
+            int offset = choleskyColumnOffset(n, j);
+            for (int i = j; i < n; i++) {
+                packed[offset + i - j] = l[i * n + j];
+            }
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,279 @@
+package com.mybroker.risk;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rollierende Kovarianz der täglichen Log-Renditen einer festen Symbolmenge über die letzten {@code window}
+ * gemeinsamen Kerzen.
+ * <p>
+ * Gespeichert werden die Renditen pro Symbol im Ringpuffer sowie für jedes Paar i ≤ j die Summen
+ * Σ x<sub>i</sub>x<sub>j</sub> und Σ (x<sub>i</sub>x<sub>j</sub>)² (Mittelwert 0, wie bei täglichen Renditen
+ * üblich). Daraus entsteht in {@link #snapshot} die Ledoit-Wolf-Schätzung mit Schrumpfung auf μ·I.
+ * <ul>
+ *     <li>Aufbau: O(n²·T), per Fork/Join über Zeilenblöcke gleicher Paarzahl verteilt</li>
+ *     <li>neue Kerze: O(n²) – neue Rendite addieren, älteste abziehen; nach {@code window} Schritten wird neu
+ *     aufgebaut, damit sich Rundungsfehler nicht aufsummieren</li>
+ * </ul>
+ * Nicht threadsicher: wird nur vom Refresh-Thread verändert, Leser bekommen unveränderliche Snapshots.
+ */
+final class CovarianceModel {
+
+    // unterhalb dieser Anzahl Multiplikationen lohnt sich das Aufteilen nicht
+    private static final long SEQUENTIAL_THRESHOLD = 1L << 16;
+
+    private final String[] symbols;
+    private final int n;
+    private final ForkJoinPool pool;
+
+    // returns[i][slot], Ringpuffer über das Fenster; returnTimestamps[slot] = Zeitstempel der Kerze am Ende
+    private final double[][] returns;
+    private final long[] returnTimestamps;
+    private int head;
+    private int count;
+
+    // Paarsummen, Zeilen-major n×n, nur das obere Dreieck (j ≥ i) ist belegt
+    private final double[] sumProducts;
+    private final double[] sumSquaredProducts;
+    private int updatesSinceRebuild;
+
+    private final double[] lastCloses;
+    private long lastTimestampMillis;
+
+    private CovarianceModel(String[] symbols, int window, ForkJoinPool pool) {
+        this.symbols = symbols;
+        this.n = symbols.length;
+        this.pool = pool;
+        this.returns = new double[n][Math.max(2, window)];
+        this.returnTimestamps = new long[Math.max(2, window)];
+        this.sumProducts = new double[n * n];
+        this.sumSquaredProducts = new double[n * n];
+        this.lastCloses = new double[n];
+    }
+
+    /**
+     * @param symbols    Symbole (Reihenfolge = Zeilen der Matrix)
+     * @param timestamps gemeinsame Zeitstempel aufsteigend
+     * @param closes     closes[i][k] = Schlusskurs von Symbol i zu timestamps[k], alle &gt; 0
+     * @param window     Anzahl Renditen im Fenster; von längeren Reihen zählen nur die letzten window+1 Kurse
+     */
+    static CovarianceModel build(String[] symbols, long[] timestamps, double[][] closes, int window, ForkJoinPool pool) {
+        CovarianceModel model = new CovarianceModel(symbols, window, pool);
+        int m = timestamps.length;
+        int first = Math.max(0, m - model.capacity() - 1);
+        for (int i = 0; i < model.n; i++) {
+            double[] row = model.returns[i];
+            double[] c = closes[i];
+            for (int k = first + 1; k < m; k++) {
+                row[k - first - 1] = Math.log(c[k] / c[k - 1]);
+            }
+            model.lastCloses[i] = c[m - 1];
+        }
+        for (int k = first + 1; k < m; k++) {
+            model.returnTimestamps[k - first - 1] = timestamps[k];
+        }
+        model.count = Math.max(0, m - first - 1);
+        model.lastTimestampMillis = m > 0 ? timestamps[m - 1] : Long.MIN_VALUE;
+        model.rebuild();
+        return model;
+    }
+
+    String[] getSymbols() {
+        return symbols;
+    }
+
+    int getObservations() {
+        return count;
+    }
+
+    long getLastTimestampMillis() {
+        return lastTimestampMillis;
+    }
+
+    /**
+     * Übernimmt eine neue gemeinsame Kerze (ältere oder gleich alte werden ignoriert).
+     *
+     * @param closes Schlusskurs pro Symbol in der Reihenfolge von {@link #getSymbols()}, alle &gt; 0
+     * @return true, wenn sich das Fenster geändert hat
+     */
+    boolean append(long timestampMillis, double[] closes) {
+        if (timestampMillis <= lastTimestampMillis) {
+            return false;
+        }
+        double[] fresh = new double[n];
+        for (int i = 0; i < n; i++) {
+            fresh[i] = Math.log(closes[i] / lastCloses[i]);
+            lastCloses[i] = closes[i];
+        }
+        lastTimestampMillis = timestampMillis;
+
+        int slot;
+        double[] leaving = null;
+        if (count == capacity()) {
+            slot = head;
+            leaving = new double[n];
+            for (int i = 0; i < n; i++) {
+                leaving[i] = returns[i][slot];
+            }
+            head = (head + 1) % capacity();
+        } else {
+            slot = (head + count) % capacity();
+            count++;
+        }
+        for (int i = 0; i < n; i++) {
+            returns[i][slot] = fresh[i];
+        }
+        returnTimestamps[slot] = timestampMillis;
+
+        if (++updatesSinceRebuild >= capacity()) {
+            rebuild();
+        } else {
+            double[] old = leaving;
+            pool.invoke(new PairTask(0, n, i -> updateRow(i, fresh, old)));
+        }
+        return true;
+    }
+
+    /**
+     * Ledoit-Wolf-Schätzer (2004) mit Ziel μ·I, μ = Spur(S)/n:
+     * <pre>
+     *   S  = Σ x xᵀ / T
+     *   d² = ‖S − μI‖²
+     *   b² = min(d², Σ ‖x<sub>t</sub>x<sub>t</sub>ᵀ − S‖² / T²)
+     *   Σ* = (1 − δ)·S + δ·μI,  δ = b² / d²
+     * </pre>
+     * Alle Größen lassen sich aus den Paarsummen ablesen; dazu kommt eine Kopie der Renditen in zeitlicher
+     * Reihenfolge (für Szenarien), zusammen O(n² + n·T).
+     */
+    CovarianceMatrix snapshot() {
+        int t = count;
+        double[][] history = new double[n][t];
+        long[] historyTimestamps = new long[t];
+        int cap = capacity();
+        for (int k = 0; k < t; k++) {
+            int slot = (head + k) % cap;
+            historyTimestamps[k] = returnTimestamps[slot];
+            for (int i = 0; i < n; i++) {
+                history[i][k] = returns[i][slot];
+            }
+        }
+
+        double[] cov = new double[n * n];
+        if (t == 0 || n == 0) {
+            return new CovarianceMatrix(symbols, cov, 0, 1.0, lastTimestampMillis, history, historyTimestamps);
+        }
+        double trace = 0.0;
+        for (int i = 0; i < n; i++) {
+            trace += sumProducts[i * n + i] / t;
+        }
+        double mu = trace / n;
+
+        double d2 = 0.0;
+        double b2 = 0.0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                int k = i * n + j;
+                double s = sumProducts[k] / t;
+                double target = i == j ? mu : 0.0;
+                double pairs = i == j ? 1.0 : 2.0;
+                d2 += pairs * (s - target) * (s - target);
+                // Σ_t (x_i x_j − s)² = Σ (x_i x_j)² − T·s²
+                b2 += pairs * Math.max(0.0, sumSquaredProducts[k] - t * s * s) / ((double) t * t);
+            }
+        }
+        double shrinkage = d2 > 0.0 ? Math.min(b2, d2) / d2 : 1.0;
+
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                double s = sumProducts[i * n + j] / t;
+                double v = (1.0 - shrinkage) * s + (i == j ? shrinkage * mu : 0.0);
+                cov[i * n + j] = v;
+                cov[j * n + i] = v;
+            }
+        }
+        return new CovarianceMatrix(symbols, cov, t, shrinkage, lastTimestampMillis, history, historyTimestamps);
+    }
+
+    private int capacity() {
+        return returnTimestamps.length;
+    }
+
+    private void rebuild() {
+        updatesSinceRebuild = 0;
+        if (n > 0) {
+            pool.invoke(new PairTask(0, n, this::computeRow));
+        }
+    }
+
+    private void computeRow(int i) {
+        double[] xi = returns[i];
+        int t = count;
+        for (int j = i; j < n; j++) {
+            double[] xj = returns[j];
+            double s = 0.0;
+            double s2 = 0.0;
+            for (int k = 0; k < t; k++) {
+                double p = xi[k] * xj[k];
+                s += p;
+                s2 += p * p;
+            }
+            sumProducts[i * n + j] = s;
+            sumSquaredProducts[i * n + j] = s2;
+        }
+    }
+
+    private void updateRow(int i, double[] fresh, double[] leaving) {
+        for (int j = i; j < n; j++) {
+            double p = fresh[i] * fresh[j];
+            double q = leaving != null ? leaving[i] * leaving[j] : 0.0;
+            sumProducts[i * n + j] += p - q;
+            sumSquaredProducts[i * n + j] += p * p - q * q;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Fork/Join über Symbolpaare
+    // ---------------------------------------------------------
+
+    private interface RowOp {
+        void apply(int row);
+    }
+
+    /**
+     * Bearbeitet die Zeilen [from, to) des oberen Dreiecks. Zeile i hat n−i Paare; geteilt wird so,
+     * dass beide Hälften etwa gleich viele Paare bekommen.
+     */
+    private final class PairTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final RowOp op;
+
+        PairTask(int from, int to, RowOp op) {
+            this.from = from;
+            this.to = to;
+            this.op = op;
+        }
+
+        @Override
+        protected void compute() {
+            long pairs = pairsBefore(to) - pairsBefore(from);
+            if (to - from <= 1 || pairs * Math.max(1, count) <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    op.apply(i);
+                }
+                return;
+            }
+            long half = pairsBefore(from) + pairs / 2;
+            int mid = from + 1;
+            while (mid < to - 1 && pairsBefore(mid + 1) <= half) {
+                mid++;
+            }
+            invokeAll(new PairTask(from, mid, op), new PairTask(mid, to, op));
+        }
+
+        // Paare in den Zeilen [0, row)
+        private long pairsBefore(int row) {
+            return (long) row * n - (long) row * (row - 1) / 2;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.mybroker.risk;
+
+import com.mybroker.model.Money;
+import com.mybroker.model.Position;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Marktwert pro Symbol (mehrere Lots desselben Symbols zusammen), Symbole alphabetisch – die gemeinsame
+ * Eingabe von VaR und Szenarien.
+ */
+final class PortfolioExposure {
+
+    // nur Symbole mit Marktwert ≠ 0
+    final String[] symbols;
+    final double[] values;
+    // erster nicht leerer Sektor des Symbols, sonst null
+    final String[] sectors;
+    final double total;
+
+    private PortfolioExposure(String[] symbols, double[] values, String[] sectors, double total) {
+        this.symbols = symbols;
+        this.values = values;
+        this.sectors = sectors;
+        this.total = total;
+    }
+
+    /**
+     * Summiert exakt mit {@link Money} (auch jenseits des long-Bereichs); VaR und Szenarien rechnen danach in double.
+     */
+    static PortfolioExposure of(List<Position> positions) {
+        Map<String, Money> bySymbol = new TreeMap<>();
+        Map<String, String> sectorBySymbol = new TreeMap<>();
+        Money total = Money.ZERO;
+        for (Position p : positions) {
+            Money mv = p.getMarketValueMoney();
+            String symbol = p.getSymbol();
+            if (mv == null || symbol == null || symbol.isBlank()) {
+                continue;
+            }
+            total = total.plus(mv);
+            bySymbol.merge(symbol, mv, Money::plus);
+            if (p.getSector() != null && !p.getSector().isBlank()) {
+                sectorBySymbol.putIfAbsent(symbol, p.getSector());
+            }
+        }
+        bySymbol.values().removeIf(v -> v.signum() == 0);
+
+        String[] symbols = new String[bySymbol.size()];
+        double[] values = new double[symbols.length];
+        String[] sectors = new String[symbols.length];
+        int i = 0;
+        for (Map.Entry<String, Money> e : bySymbol.entrySet()) {
+            symbols[i] = e.getKey();
+            values[i] = e.getValue().toDouble();
+            sectors[i] = sectorBySymbol.get(e.getKey());
+            i++;
+        }
+        return new PortfolioExposure(symbols, values, sectors, total.toDouble());
+    }
+
+    boolean isEmpty() {
+        return symbols.length == 0 || total <= 0.0;
+    }
+
+    double totalValue() {
+        return total;
+    }
+}
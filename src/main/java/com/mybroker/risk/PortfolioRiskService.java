@@ -0,0 +1,482 @@
+package com.mybroker.risk;
+
+import com.mybroker.config.AppConfig;
+import com.mybroker.db.PriceRepository;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.model.PortfolioRiskReport;
+import com.mybroker.model.Position;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Portfolio-VaR aus der Kurshistorie in brokerml.prices.
+ * <p>
+ * Pro Symbolmenge und Fenster liegt ein {@link CovarianceModel} im Speicher (LRU, RISK_CACHE_MAX Mengen). Der
+ * Aufbau lädt alle Symbole mit einer Abfrage ({@link PriceRepository#loadClosesSince}), gleicht die Reihen auf
+ * gemeinsame Handelstage (UTC) ab und rechnet die Paarsummen per Fork/Join (RISK_PARALLELISM Threads). Danach
+ * werden nur neue Tage geladen und in O(n²) pro Tag nachgetragen; kommen mehr als ein Fenster neue Tage, wird
+ * neu aufgebaut. Fehlten beim Aufbau Symbole (zu kurze Historie, z.B. Neuemission), wird pro Refresh nur deren
+ * Historie geprüft – neu aufgebaut wird erst, wenn eines davon genug Kurse hat.
+ * <p>
+ * Seitenaufrufe rechnen nur noch w'Σw gegen den letzten Snapshot (O(n²), Gewichte aus den aktuellen
+ * Marktwerten). Wie beim {@link com.mybroker.marketdata.VolatilityService} wird höchstens RISK_WAIT_MS auf
+ * eine noch unbekannte Symbolmenge gewartet; veraltete Stände werden sofort geliefert und im Hintergrund
+ * nachgezogen.
+ * <p>
+ * Konfiguration: RISK_WINDOW (250 Renditen), RISK_MIN_OBSERVATIONS (30), RISK_CONFIDENCE (0.99),
+ * RISK_HORIZON_DAYS (1), RISK_PERIODS_PER_YEAR (252), RISK_REFRESH_MS (900000), RISK_WAIT_MS (300),
+ * RISK_CACHE_MAX (16), RISK_PARALLELISM (Anzahl CPUs). Ohne DB_URL gibt es keine Risikokennzahlen.
+ * Metriken unter {@code risk.*}.
+ */
+public class PortfolioRiskService {
+
+    private static final String METRIC_PREFIX = "risk.";
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private final PriceRepository repository;
+    private final int window;
+    private final int minObservations;
+    private final double confidence;
+    private final int horizonDays;
+    private final double periodsPerYear;
+    private final Duration refreshInterval;
+    private final Duration waitForMissing;
+
+    private final Map<String, Entry> entries;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "risk-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ForkJoinPool pool;
+
+    private final LongAdder builds = Metrics.counter(METRIC_PREFIX + "builds");
+    private final LongAdder incrementalUpdates = Metrics.counter(METRIC_PREFIX + "incremental_updates");
+    private final LongAdder coverageProbes = Metrics.counter(METRIC_PREFIX + "coverage_probes");
+    private final LongAdder refreshErrors = Metrics.counter(METRIC_PREFIX + "refresh_errors");
+    private final LongAdder waitTimeouts = Metrics.counter(METRIC_PREFIX + "wait_timeouts");
+    private final LongAdder reports = Metrics.counter(METRIC_PREFIX + "reports");
+
+    /**
+     * Stand einer Symbolmenge; matrix wird vom Refresh-Thread ersetzt.
+     */
+    static final class Entry {
+        // null, wenn die gemeinsame Historie nicht reicht (dann steht der Grund in message)
+        final CovarianceModel model;
+        final List<String> uncovered;
+        final String message;
+        volatile CovarianceMatrix matrix;
+        volatile long refreshedAtMillis;
+
+        Entry(CovarianceModel model, List<String> uncovered, String message) {
+            this.model = model;
+            this.uncovered = uncovered;
+            this.message = message;
+            if (model != null) {
+                publish(model.snapshot());
+            }
+        }
+
+        /**
+         * Neuer Stand samt Cholesky-Faktor für die Szenarien, damit Seitenaufrufe ihn nicht berechnen müssen.
+         */
+        void publish(CovarianceMatrix snapshot) {
+            snapshot.cholesky();
+            matrix = snapshot;
+        }
+    }
+
+    /**
+     * @param repository null = ohne Kursdaten (keine Risikokennzahlen)
+     */
+    public PortfolioRiskService(PriceRepository repository, int window, int minObservations, double confidence,
+                                int horizonDays, double periodsPerYear, Duration refreshInterval,
+                                Duration waitForMissing, int cacheMax, int parallelism) {
+        this.repository = repository;
+        this.window = Math.max(2, window);
+        this.minObservations = Math.max(2, Math.min(minObservations, this.window));
+        this.confidence = confidence > 0.5 && confidence < 1.0 ? confidence : 0.99;
+        this.horizonDays = Math.max(1, horizonDays);
+        this.periodsPerYear = periodsPerYear;
+        this.refreshInterval = refreshInterval;
+        this.waitForMissing = waitForMissing;
+        int max = Math.max(1, cacheMax);
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > max;
+            }
+        });
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("risk-covariance-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+        Metrics.gauge(METRIC_PREFIX + "cached_sets", entries::size);
+    }
+
+    public static PortfolioRiskService shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * VaR/CVaR und Risikobeiträge für die Positionen (Gewichte = Marktwert / Summe der Marktwerte).
+     * Blockiert höchstens RISK_WAIT_MS; ist die Kovarianz bis dahin nicht fertig, kommt ein Bericht mit
+     * {@code available = false}.
+     */
+    public PortfolioRiskReport evaluate(List<Position> positions) {
+        if (repository == null) {
+            return PortfolioRiskReport.unavailable("Keine Kursdatenbank konfiguriert.");
+        }
+        PortfolioExposure exposure = PortfolioExposure.of(positions);
+        if (exposure.isEmpty()) {
+            return PortfolioRiskReport.unavailable("Keine Positionen mit Marktwert.");
+        }
+
+        Entry entry = lookup(exposure);
+        if (entry == null) {
+            return PortfolioRiskReport.unavailable("Risikokennzahlen werden berechnet …");
+        }
+        CovarianceMatrix matrix = entry.matrix;
+        if (matrix == null) {
+            return PortfolioRiskReport.unavailable(entry.message);
+        }
+        reports.increment();
+        return report(matrix, exposure, entry.uncovered);
+    }
+
+    boolean isConfigured() {
+        return repository != null;
+    }
+
+    /**
+     * Kovarianz-Stand für die Symbole des Portfolios; wartet höchstens RISK_WAIT_MS auf eine unbekannte
+     * Symbolmenge und stößt bei veralteten Ständen ein Nachladen an.
+     *
+     * @return null ohne Kursdatenbank oder wenn der erste Aufbau noch läuft
+     */
+    Entry lookup(PortfolioExposure exposure) {
+        if (repository == null || exposure.isEmpty()) {
+            return null;
+        }
+        String[] symbols = exposure.symbols;
+        String key = window + "|" + String.join(",", symbols);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            awaitQuietly(scheduleRefresh(key, symbols));
+            entry = entries.get(key);
+        } else if (System.currentTimeMillis() - entry.refreshedAtMillis >= refreshInterval.toMillis()) {
+            scheduleRefresh(key, symbols);
+        }
+        return entry;
+    }
+
+    public void stop() {
+        executor.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    // ---------------------------------------------------------
+    // Kennzahlen
+    // ---------------------------------------------------------
+
+    /**
+     * σ<sub>p</sub> = √(w'Σw) pro Tag; VaR = z<sub>α</sub>·σ<sub>p</sub>·√h·V,
+     * CVaR = φ(z<sub>α</sub>)/(1−α)·σ<sub>p</sub>·√h·V. Beitrag einer Position = w<sub>i</sub>·V · ∂VaR/∂(w<sub>i</sub>V)
+     * mit ∂VaR/∂(w<sub>i</sub>V) = z<sub>α</sub>·√h·(Σw)<sub>i</sub>/σ<sub>p</sub>; die Beiträge summieren sich
+     * zum VaR (Euler).
+     */
+    private PortfolioRiskReport report(CovarianceMatrix matrix, PortfolioExposure exposure,
+                                       List<String> uncoveredAtBuild) {
+        int n = matrix.size();
+        double value = exposure.totalValue();
+        double[] weights = new double[n];
+        TreeSet<String> uncovered = new TreeSet<>(uncoveredAtBuild);
+        for (int k = 0; k < exposure.symbols.length; k++) {
+            int i = matrix.indexOf(exposure.symbols[k]);
+            if (i < 0) {
+                uncovered.add(exposure.symbols[k]);
+            } else {
+                weights[i] = exposure.values[k] / exposure.total;
+            }
+        }
+
+        double[] sigmaW = matrix.multiply(weights);
+        double variance = 0.0;
+        for (int i = 0; i < n; i++) {
+            variance += weights[i] * sigmaW[i];
+        }
+        double sigma = Math.sqrt(Math.max(0.0, variance));
+
+        double z = NormalDistribution.quantile(confidence);
+        double sqrtHorizon = Math.sqrt(horizonDays);
+        double var = z * sigma * sqrtHorizon * value;
+        double cvar = NormalDistribution.density(z) / (1.0 - confidence) * sigma * sqrtHorizon * value;
+
+        List<PortfolioRiskReport.RiskContribution> contributions = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (weights[i] == 0.0) {
+                continue;
+            }
+            double marginal = sigma > 0.0 ? z * sqrtHorizon * sigmaW[i] / sigma : 0.0;
+            double component = weights[i] * value * marginal;
+            contributions.add(new PortfolioRiskReport.RiskContribution(
+                    matrix.getSymbol(i), weights[i], marginal, component, var > 0.0 ? component / var : 0.0));
+        }
+        contributions.sort((a, b) -> Double.compare(b.getComponentVar(), a.getComponentVar()));
+
+        return new PortfolioRiskReport(
+                Instant.ofEpochMilli(matrix.getAsOfMillis()),
+                window,
+                matrix.getObservations(),
+                confidence,
+                horizonDays,
+                matrix.getShrinkage(),
+                sigma * Math.sqrt(periodsPerYear),
+                var,
+                cvar,
+                var / value,
+                contributions,
+                new ArrayList<>(uncovered));
+    }
+
+    // ---------------------------------------------------------
+    // Nachladen
+    // ---------------------------------------------------------
+
+    private CompletableFuture<Void> scheduleRefresh(String key, String[] symbols) {
+        CompletableFuture<Void> mine = new CompletableFuture<>();
+        CompletableFuture<Void> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> refresh(key, symbols, mine));
+        } catch (RuntimeException rejected) {
+            inFlight.remove(key, mine);
+            mine.complete(null);
+        }
+        return mine;
+    }
+
+    private void refresh(String key, String[] symbols, CompletableFuture<Void> done) {
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null || entry.model == null || gainedHistory(entry) || !appendNewDays(entry)) {
+                entry = build(symbols);
+                entries.put(key, entry);
+                builds.increment();
+            }
+            entry.refreshedAtMillis = System.currentTimeMillis();
+        } catch (Exception e) {
+            refreshErrors.increment();
+            System.err.println("[PortfolioRiskService] Kovarianz für " + symbols.length
+                    + " Symbole fehlgeschlagen: " + e.getMessage());
+        } finally {
+            inFlight.remove(key, done);
+            done.complete(null);
+        }
+    }
+
+    /**
+     * Lädt ca. zwei Fenster Historie (Lücken einzelner Symbole fallen beim Abgleich weg) und baut das Modell
+     * über die gemeinsamen Handelstage der Symbole mit mindestens RISK_MIN_OBSERVATIONS+1 Kursen.
+     */
+    private Entry build(String[] symbols) throws Exception {
+        int limit = 2 * window + 1;
+        Map<String, PriceRepository.CloseSeries> loaded = repository.loadClosesSince(symbols, new long[symbols.length], limit);
+
+        List<String> covered = new ArrayList<>();
+        List<String> uncovered = new ArrayList<>();
+        List<Map<Long, Double>> byDay = new ArrayList<>();
+        for (String symbol : symbols) {
+            Map<Long, Double> days = closesByDay(loaded.get(symbol), Long.MIN_VALUE);
+            if (days.size() > minObservations) {
+                covered.add(symbol);
+                byDay.add(days);
+            } else {
+                uncovered.add(symbol);
+            }
+        }
+
+        long[] common = commonDays(byDay);
+        String[] names = covered.toArray(new String[0]);
+        if (names.length == 0 || common.length <= minObservations) {
+            return new Entry(null, uncovered, names.length == 0
+                    ? "Zu wenig Kurshistorie für die gehaltenen Titel."
+                    : "Zu wenig gemeinsame Handelstage (" + Math.max(0, common.length - 1) + " Renditen, mindestens "
+                    + minObservations + " nötig).");
+        }
+
+        double[][] closes = new double[names.length][common.length];
+        for (int i = 0; i < names.length; i++) {
+            Map<Long, Double> days = byDay.get(i);
+            for (int k = 0; k < common.length; k++) {
+                closes[i][k] = days.get(common[k]);
+            }
+        }
+        long[] timestamps = new long[common.length];
+        for (int k = 0; k < common.length; k++) {
+            timestamps[k] = common[k] * DAY_MILLIS;
+        }
+        return new Entry(CovarianceModel.build(names, timestamps, closes, window, pool), uncovered, null);
+    }
+
+    /**
+     * Prüft nur die beim Aufbau fehlenden Symbole (eine Abfrage über k Symbole statt Neuaufbau über alle n).
+     *
+     * @return true, wenn mindestens eines jetzt genug Historie für das Modell hat
+     */
+    private boolean gainedHistory(Entry entry) throws Exception {
+        if (entry.uncovered.isEmpty()) {
+            return false;
+        }
+        coverageProbes.increment();
+        String[] probe = entry.uncovered.toArray(new String[0]);
+        Map<String, PriceRepository.CloseSeries> loaded = repository.loadClosesSince(probe, new long[probe.length], 2 * window + 1);
+        for (String symbol : probe) {
+            if (closesByDay(loaded.get(symbol), Long.MIN_VALUE).size() > minObservations) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Trägt gemeinsame Tage nach dem Stand des Modells nach.
+     *
+     * @return false, wenn ein Neuaufbau nötig ist (mindestens ein Fenster neue Kerzen)
+     */
+    private boolean appendNewDays(Entry entry) throws Exception {
+        CovarianceModel model = entry.model;
+        String[] names = model.getSymbols();
+        long since = model.getLastTimestampMillis();
+        long[] sinceMillis = new long[names.length];
+        Arrays.fill(sinceMillis, since);
+
+        int limit = window + 1;
+        Map<String, PriceRepository.CloseSeries> loaded = repository.loadClosesSince(names, sinceMillis, limit);
+        List<Map<Long, Double>> byDay = new ArrayList<>(names.length);
+        for (String symbol : names) {
+            PriceRepository.CloseSeries series = loaded.get(symbol);
+            if (series != null && series.size() >= limit) {
+                return false;
+            }
+            byDay.add(closesByDay(series, since / DAY_MILLIS));
+        }
+
+        long[] common = commonDays(byDay);
+        if (common.length >= window) {
+            return false;
+        }
+        boolean changed = false;
+        double[] closes = new double[names.length];
+        for (long day : common) {
+            for (int i = 0; i < names.length; i++) {
+                closes[i] = byDay.get(i).get(day);
+            }
+            if (model.append(day * DAY_MILLIS, closes)) {
+                incrementalUpdates.increment();
+                changed = true;
+            }
+        }
+        if (changed) {
+            entry.publish(model.snapshot());
+        }
+        return true;
+    }
+
+    /**
+     * Letzter positiver Schlusskurs pro UTC-Tag nach {@code afterDay}.
+     */
+    private static Map<Long, Double> closesByDay(PriceRepository.CloseSeries series, long afterDay) {
+        Map<Long, Double> days = new HashMap<>();
+        if (series == null) {
+            return days;
+        }
+        for (int k = 0; k < series.size(); k++) {
+            long day = Math.floorDiv(series.getTimestampMillis(k), DAY_MILLIS);
+            double close = series.getClose(k);
+            if (day > afterDay && close > 0.0) {
+                days.put(day, close);
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Tage, an denen alle Reihen einen Kurs haben, aufsteigend.
+     */
+    private static long[] commonDays(List<Map<Long, Double>> byDay) {
+        if (byDay.isEmpty()) {
+            return new long[0];
+        }
+        Map<Long, Double> smallest = byDay.get(0);
+        for (Map<Long, Double> days : byDay) {
+            if (days.size() < smallest.size()) {
+                smallest = days;
+            }
+        }
+        long[] result = new long[smallest.size()];
+        int n = 0;
+        outer:
+        for (Long day : smallest.keySet()) {
+            for (Map<Long, Double> days : byDay) {
+                if (!days.containsKey(day)) {
+                    continue outer;
+                }
+            }
+            result[n++] = day;
+        }
+        result = Arrays.copyOf(result, n);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void awaitQuietly(CompletableFuture<Void> future) {
+        try {
+            future.get(waitForMissing.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Seite zeigt "wird berechnet", der nächste Aufruf hat die Werte
+            waitTimeouts.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ignored) {
+            // Fehler wurden im Refresh-Thread gezählt und geloggt
+        }
+    }
+
+    private static final class Holder {
+        static final PortfolioRiskService INSTANCE = new PortfolioRiskService(
+                System.getenv("DB_URL") != null ? new PriceRepository() : null,
+                AppConfig.getInt("RISK_WINDOW", 250),
+                AppConfig.getInt("RISK_MIN_OBSERVATIONS", 30),
+                AppConfig.getDouble("RISK_CONFIDENCE", 0.99),
+                AppConfig.getInt("RISK_HORIZON_DAYS", 1),
+                AppConfig.getDouble("RISK_PERIODS_PER_YEAR", 252.0),
+                AppConfig.getMillis("RISK_REFRESH_MS", 900_000),
+                AppConfig.getMillis("RISK_WAIT_MS", 300),
+                AppConfig.getInt("RISK_CACHE_MAX", 16),
+                AppConfig.getInt("RISK_PARALLELISM", Runtime.getRuntime().availableProcessors()));
+    }
+}
@@ -0,0 +1,457 @@
+package com.mybroker.risk;
+
+import com.mybroker.config.AppConfig;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.model.PortfolioScenarioReport;
+import com.mybroker.model.Position;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Szenario-Simulation über die aktuellen Positionen, auf derselben Kurshistorie wie der
+ * {@link PortfolioRiskService} (gleicher Cache, keine eigene DB-Abfrage).
+ * <ul>
+ *     <li>historischer Bootstrap: pro Pfad SCENARIO_HORIZON_DAYS zufällige Tage (mit Zurücklegen) aus dem
+ *     Renditefenster, Renditen pro Symbol aufsummiert – Korrelationen und dicke Ränder bleiben erhalten</li>
+ *     <li>Normalverteilung: x = √h·L·z mit L·Lᵀ = Σ (Ledoit-Wolf-Kovarianz), z standardnormal; L spaltenweise
+ *     gepackt, damit L·z als vektorisierbare axpy-Schleifen läuft</li>
+ *     <li>Sektor-Schocks: der Sektor (Position.sector) fällt um SCENARIO_SECTOR_SHOCK, alle anderen Titel
+ *     bewegen sich mit ihrem Beta zum Sektor (bedingter Erwartungswert unter Σ)</li>
+ *     <li>schlechteste historische Zeiträume von SCENARIO_HORIZON_DAYS Tagen im Fenster</li>
+ * </ul>
+ * Alle Pfade werden voll bewertet (Σ w<sub>i</sub>·e<sup>x<sub>i</sub></sup>). Die Pfade laufen in Blöcken auf
+ * einem eigenen Fork/Join-Pool, jeder Block mit einem abgespaltenen {@link SplittableRandom}, und schreiben ihre
+ * Verluste in vorab angelegte double-Arrays. Nach SCENARIO_BUDGET_MS hören alle Blöcke auf; ausgewertet werden
+ * die bis dahin fertigen Pfade ({@code budgetExhausted} im Bericht).
+ * <p>
+ * Symbole ohne Kurshistorie bleiben in den Simulationen wertstabil und werden im Sektor-Schock voll geschockt.
+ * <p>
+ * Konfiguration: SCENARIO_PATHS (20000 pro Methode), SCENARIO_HORIZON_DAYS (10), SCENARIO_BUDGET_MS (250),
+ * SCENARIO_SECTOR_SHOCK (0.20), SCENARIO_WORST_MAX (8), SCENARIO_PARALLELISM (Anzahl CPUs).
+ * Metriken unter {@code scenario.*}.
+ */
+public class PortfolioScenarioService {
+
+    private static final String METRIC_PREFIX = "scenario.";
+    private static final int HISTOGRAM_BINS = 30;
+    private static final int HISTORICAL_WORST = 3;
+    // Deadline-Prüfung alle n Pfade
+    private static final int CHECK_INTERVAL = 64;
+    private static final int MIN_CHUNK = 256;
+
+    private final PortfolioRiskService riskService;
+    private final int paths;
+    private final int horizonDays;
+    private final Duration budget;
+    private final double sectorShock;
+    private final int worstMax;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    private final LongAdder runs = Metrics.counter(METRIC_PREFIX + "runs");
+    private final LongAdder pathsSimulated = Metrics.counter(METRIC_PREFIX + "paths");
+    private final LongAdder budgetExhausted = Metrics.counter(METRIC_PREFIX + "budget_exhausted");
+
+    public PortfolioScenarioService(PortfolioRiskService riskService, int paths, int horizonDays, Duration budget,
+                                    double sectorShock, int worstMax, int parallelism) {
+        this.riskService = riskService;
+        this.paths = Math.max(100, paths);
+        this.horizonDays = Math.max(1, horizonDays);
+        this.budget = budget;
+        this.sectorShock = Math.max(0.0, Math.min(0.99, sectorShock));
+        this.worstMax = Math.max(1, worstMax);
+        this.parallelism = Math.max(1, parallelism);
+        this.pool = new ForkJoinPool(this.parallelism, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("scenario-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    public static PortfolioScenarioService shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Simuliert die Verlustverteilung der Positionen. Wartet wie {@link PortfolioRiskService#evaluate} höchstens
+     * RISK_WAIT_MS auf die Kurshistorie; die Simulation selbst ist auf SCENARIO_BUDGET_MS begrenzt.
+     */
+    public PortfolioScenarioReport run(List<Position> positions) {
+        if (!riskService.isConfigured()) {
+            return PortfolioScenarioReport.unavailable("Keine Kursdatenbank konfiguriert.");
+        }
+        PortfolioExposure exposure = PortfolioExposure.of(positions);
+        if (exposure.isEmpty()) {
+            return PortfolioScenarioReport.unavailable("Keine Positionen mit Marktwert.");
+        }
+        PortfolioRiskService.Entry entry = riskService.lookup(exposure);
+        if (entry == null) {
+            return PortfolioScenarioReport.unavailable("Szenarien werden vorbereitet …");
+        }
+        CovarianceMatrix matrix = entry.matrix;
+        if (matrix == null) {
+            return PortfolioScenarioReport.unavailable(entry.message);
+        }
+
+        long start = System.nanoTime();
+        int n = matrix.size();
+        double value = exposure.totalValue();
+        double[] weights = new double[n];
+        TreeSet<String> uncovered = new TreeSet<>(entry.uncovered);
+        for (int k = 0; k < exposure.symbols.length; k++) {
+            int i = matrix.indexOf(exposure.symbols[k]);
+            if (i < 0) {
+                uncovered.add(exposure.symbols[k]);
+            } else {
+                weights[i] = exposure.values[k] / exposure.total;
+            }
+        }
+        double covered = 0.0;
+        for (double w : weights) {
+            covered += w;
+        }
+
+        // Simulation
+        double[][] history = new double[n][];
+        for (int i = 0; i < n; i++) {
+            history[i] = matrix.getReturns(i);
+        }
+        double[] cholesky = matrix.cholesky();
+        double[] historical = new double[paths];
+        double[] normal = new double[paths];
+        long deadline = start + budget.toNanos();
+
+        int chunkSize = Math.max(MIN_CHUNK, paths / (parallelism * 8));
+        SplittableRandom root = new SplittableRandom();
+        List<SimulationChunk> chunks = new ArrayList<>();
+        for (int from = 0; from < paths; from += chunkSize) {
+            chunks.add(new SimulationChunk(from, Math.min(paths, from + chunkSize), root.split(), deadline,
+                    history, cholesky, weights, covered, value, historical, normal));
+        }
+        chunks.forEach(pool::execute);
+        int completed = 0;
+        for (SimulationChunk chunk : chunks) {
+            chunk.join();
+            System.arraycopy(historical, chunk.from, historical, completed, chunk.completed);
+            System.arraycopy(normal, chunk.from, normal, completed, chunk.completed);
+            completed += chunk.completed;
+        }
+        if (completed == 0) {
+            budgetExhausted.increment();
+            return PortfolioScenarioReport.unavailable("Zeitbudget für die Simulation zu knapp.");
+        }
+        boolean exhausted = completed < paths;
+        if (exhausted) {
+            budgetExhausted.increment();
+        }
+        pathsSimulated.add(completed);
+
+        double[] historicalLosses = Arrays.copyOf(historical, completed);
+        double[] normalLosses = Arrays.copyOf(normal, completed);
+        Arrays.sort(historicalLosses);
+        Arrays.sort(normalLosses);
+        double lo = Math.min(historicalLosses[0], normalLosses[0]);
+        double hi = Math.max(historicalLosses[completed - 1], normalLosses[completed - 1]);
+        double binWidth = hi > lo ? (hi - lo) / HISTOGRAM_BINS : 1.0;
+        double[] binStarts = new double[HISTOGRAM_BINS];
+        for (int b = 0; b < HISTOGRAM_BINS; b++) {
+            binStarts[b] = lo + b * binWidth;
+        }
+
+        // Stress-Szenarien
+        List<PortfolioScenarioReport.StressScenario> worst = new ArrayList<>();
+        worst.addAll(sectorShocks(matrix, exposure, weights, covered, value));
+        worst.addAll(worstHistoricalPeriods(matrix, weights, covered, value));
+        worst.sort((a, b) -> Double.compare(b.getLoss(), a.getLoss()));
+        if (worst.size() > worstMax) {
+            worst = new ArrayList<>(worst.subList(0, worstMax));
+        }
+
+        runs.increment();
+        return new PortfolioScenarioReport(
+                Instant.ofEpochMilli(matrix.getAsOfMillis()),
+                horizonDays,
+                paths,
+                (System.nanoTime() - start) / 1_000_000L,
+                exhausted,
+                distribution("Historischer Bootstrap", historicalLosses, lo, binWidth),
+                distribution("Normalverteilung (korreliert)", normalLosses, lo, binWidth),
+                binStarts,
+                worst,
+                new ArrayList<>(uncovered));
+    }
+
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    // ---------------------------------------------------------
+    // Simulation
+    // ---------------------------------------------------------
+
+    /**
+     * Pfade [from, to); schreibt die Verluste an dieselben Indizes und merkt sich, wie viele fertig wurden.
+     */
+    private final class SimulationChunk extends RecursiveAction {
+        final int from;
+        final int to;
+        private final SplittableRandom random;
+        private final long deadline;
+        private final double[][] history;
+        private final double[] cholesky;
+        private final double[] weights;
+        private final double covered;
+        private final double value;
+        private final double[] historical;
+        private final double[] normal;
+        int completed;
+
+        SimulationChunk(int from, int to, SplittableRandom random, long deadline, double[][] history,
+                        double[] cholesky, double[] weights, double covered, double value,
+                        double[] historical, double[] normal) {
+            this.from = from;
+            this.to = to;
+            this.random = random;
+            this.deadline = deadline;
+            this.history = history;
+            this.cholesky = cholesky;
+            this.weights = weights;
+            this.covered = covered;
+            this.value = value;
+            this.historical = historical;
+            this.normal = normal;
+        }
+
+        @Override
+        protected void compute() {
+            int n = weights.length;
+            int observations = n > 0 ? history[0].length : 0;
+            double sqrtHorizon = Math.sqrt(horizonDays);
+            int[] days = new int[horizonDays];
+            double[] x = new double[n];
+
+            for (int p = from; p < to; p++) {
+                if ((p - from) % CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                    break;
+                }
+
+                // historischer Bootstrap
+                double ratio = 0.0;
+                if (observations > 0) {
+                    for (int k = 0; k < horizonDays; k++) {
+                        days[k] = random.nextInt(observations);
+                    }
+                    for (int i = 0; i < n; i++) {
+                        double[] row = history[i];
+                        double s = 0.0;
+                        for (int k = 0; k < horizonDays; k++) {
+                            s += row[days[k]];
+                        }
+                        ratio += weights[i] * Math.exp(s);
+                    }
+                } else {
+                    ratio = covered;
+                }
+                historical[p] = value * (covered - ratio);
+
+                // korrelierte Normalverteilung: x = Σ_j L[·, j]·z_j, spaltenweise über die gepackte Matrix
+                Arrays.fill(x, 0.0);
+                for (int j = 0; j < n; j++) {
+                    double zj = sqrtHorizon * random.nextGaussian();
+                    int base = CovarianceMatrix.choleskyColumnOffset(n, j) - j;
+                    for (int i = j; i < n; i++) {
+                        x[i] += cholesky[base + i] * zj;
+                    }
+                }
+                ratio = 0.0;
+                for (int i = 0; i < n; i++) {
+                    ratio += weights[i] * Math.exp(x[i]);
+                }
+                normal[p] = value * (covered - ratio);
+                completed++;
+            }
+        }
+    }
+
+    private static PortfolioScenarioReport.LossDistribution distribution(String method, double[] sortedLosses,
+                                                                         double lo, double binWidth) {
+        int count = sortedLosses.length;
+        double sum = 0.0;
+        int[] histogram = new int[HISTOGRAM_BINS];
+        for (double loss : sortedLosses) {
+            sum += loss;
+            int bin = (int) ((loss - lo) / binWidth);
+            histogram[Math.max(0, Math.min(HISTOGRAM_BINS - 1, bin))]++;
+        }
+        int tail = percentileIndex(count, 0.99);
+        double tailSum = 0.0;
+        for (int i = tail; i < count; i++) {
+            tailSum += sortedLosses[i];
+        }
+        return new PortfolioScenarioReport.LossDistribution(
+                method,
+                count,
+                sum / count,
+                sortedLosses[percentileIndex(count, 0.95)],
+                sortedLosses[tail],
+                sortedLosses[percentileIndex(count, 0.999)],
+                tailSum / (count - tail),
+                sortedLosses[count - 1],
+                histogram);
+    }
+
+    private static int percentileIndex(int count, double q) {
+        return Math.max(0, Math.min(count - 1, (int) Math.ceil(q * count) - 1));
+    }
+
+    // ---------------------------------------------------------
+    // Stress-Szenarien
+    // ---------------------------------------------------------
+
+    /**
+     * Pro Sektor: Sektorrendite r<sub>s</sub> = Σ<sub>j∈s</sub> u<sub>j</sub>x<sub>j</sub> (u = Gewichte im Sektor,
+     * normiert) fällt auf ln(1 − Schock); jedes Symbol bewegt sich um β<sub>i</sub>·ln(1 − Schock) mit
+     * β<sub>i</sub> = (Σu)<sub>i</sub> / u'Σu. Titel ohne Historie im Sektor fallen um den vollen Schock.
+     */
+    private List<PortfolioScenarioReport.StressScenario> sectorShocks(CovarianceMatrix matrix,
+                                                                      PortfolioExposure exposure, double[] weights,
+                                                                      double covered, double value) {
+        int n = matrix.size();
+        Map<String, double[]> sectorWeights = new LinkedHashMap<>();
+        Map<String, Double> uncoveredValue = new LinkedHashMap<>();
+        for (int k = 0; k < exposure.symbols.length; k++) {
+            String sector = exposure.sectors[k];
+            if (sector == null) {
+                continue;
+            }
+            int i = matrix.indexOf(exposure.symbols[k]);
+            if (i < 0) {
+                uncoveredValue.merge(sector, exposure.values[k], Double::sum);
+            } else {
+                sectorWeights.computeIfAbsent(sector, s -> new double[n])[i] = weights[i];
+            }
+            uncoveredValue.putIfAbsent(sector, 0.0);
+        }
+
+        double logShock = Math.log(1.0 - sectorShock);
+        List<PortfolioScenarioReport.StressScenario> result = new ArrayList<>();
+        for (Map.Entry<String, Double> e : uncoveredValue.entrySet()) {
+            String sector = e.getKey();
+            double loss = e.getValue() * sectorShock;
+            double[] u = sectorWeights.get(sector);
+            double sectorTotal = 0.0;
+            if (u != null) {
+                for (double w : u) {
+                    sectorTotal += w;
+                }
+            }
+            if (u != null && sectorTotal != 0.0) {
+                for (int i = 0; i < n; i++) {
+                    u[i] /= sectorTotal;
+                }
+                double[] sigmaU = matrix.multiply(u);
+                double variance = 0.0;
+                for (int i = 0; i < n; i++) {
+                    variance += u[i] * sigmaU[i];
+                }
+                double ratio = 0.0;
+                for (int i = 0; i < n; i++) {
+                    double move;
+                    if (variance > 0.0) {
+                        move = sigmaU[i] / variance * logShock;
+                    } else {
+                        move = u[i] != 0.0 ? logShock : 0.0;
+                    }
+                    ratio += weights[i] * Math.exp(move);
+                }
+                loss += value * (covered - ratio);
+            }
+            result.add(new PortfolioScenarioReport.StressScenario(
+                    "Sektor-Schock " + sector + " −" + Math.round(sectorShock * 100) + " %",
+                    "SECTOR_SHOCK", loss, loss / value));
+        }
+        return result;
+    }
+
+    /**
+     * Die schlechtesten, sich nicht überlappenden Zeiträume von SCENARIO_HORIZON_DAYS aufeinanderfolgenden
+     * Renditen im Fenster, mit den heutigen Gewichten bewertet.
+     */
+    private List<PortfolioScenarioReport.StressScenario> worstHistoricalPeriods(CovarianceMatrix matrix,
+                                                                                double[] weights, double covered,
+                                                                                double value) {
+        int n = matrix.size();
+        int observations = matrix.getObservations();
+        int length = Math.min(horizonDays, observations);
+        List<PortfolioScenarioReport.StressScenario> result = new ArrayList<>();
+        if (n == 0 || length == 0) {
+            return result;
+        }
+
+        int windows = observations - length + 1;
+        double[] losses = new double[windows];
+        for (int i = 0; i < n; i++) {
+            double[] row = matrix.getReturns(i);
+            double s = 0.0;
+            for (int t = 0; t < length; t++) {
+                s += row[t];
+            }
+            for (int start = 0; start < windows; start++) {
+                if (start > 0) {
+                    s += row[start + length - 1] - row[start - 1];
+                }
+                losses[start] -= weights[i] * Math.exp(s);
+            }
+        }
+
+        boolean[] taken = new boolean[observations];
+        for (int pick = 0; pick < HISTORICAL_WORST; pick++) {
+            int best = -1;
+            for (int start = 0; start < windows; start++) {
+                if (!taken[start] && !taken[start + length - 1] && (best < 0 || losses[start] > losses[best])) {
+                    best = start;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            Arrays.fill(taken, best, best + length, true);
+            double loss = value * (covered + losses[best]);
+            LocalDate from = day(matrix.getReturnTimestampMillis(best));
+            LocalDate to = day(matrix.getReturnTimestampMillis(best + length - 1));
+            String name = from.equals(to) ? "Historisch " + to : "Historisch " + from + " – " + to;
+            result.add(new PortfolioScenarioReport.StressScenario(name, "HISTORICAL_PERIOD", loss, loss / value));
+        }
+        return result;
+    }
+
+    private static LocalDate day(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+
+    private static final class Holder {
+        static final PortfolioScenarioService INSTANCE = new PortfolioScenarioService(
+                PortfolioRiskService.shared(),
+                AppConfig.getInt("SCENARIO_PATHS", 20_000),
+                AppConfig.getInt("SCENARIO_HORIZON_DAYS", 10),
+                AppConfig.getMillis("SCENARIO_BUDGET_MS", 250),
+                AppConfig.getDouble("SCENARIO_SECTOR_SHOCK", 0.20),
+                AppConfig.getInt("SCENARIO_WORST_MAX", 8),
+                AppConfig.getInt("SCENARIO_PARALLELISM", Runtime.getRuntime().availableProcessors()));
+    }
+}
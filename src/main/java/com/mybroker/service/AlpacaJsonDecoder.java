@@ -0,0 +1,254 @@
+package com.mybroker.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.mybroker.model.AccountSnapshot;
+import com.mybroker.model.BrokerOrder;
+import com.mybroker.model.BrokerPosition;
+import com.mybroker.model.FillActivity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dekodiert Alpaca-Antworten direkt aus dem Response-Stream in typisierte Objekte (Jackson Streaming-API).
+ * <p>
+ * Es entsteht weder ein String des Bodys noch ein JSON-Baum: Felder werden beim Lesen zugeordnet,
+ * unbekannte Felder und verschachtelte Objekte übersprungen. Zahlen liefert Alpaca als Strings –
+ * sie werden direkt aus dem Zeichenpuffer des Parsers in {@link BigDecimal} umgewandelt.
+ */
+final class AlpacaJsonDecoder {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private AlpacaJsonDecoder() {
+    }
+
+    static AccountSnapshot readAccount(InputStream in) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            expect(p, JsonToken.START_OBJECT);
+            return account(p);
+        }
+    }
+
+    static List<BrokerPosition> readPositions(InputStream in) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            expect(p, JsonToken.START_ARRAY);
+            List<BrokerPosition> result = new ArrayList<>();
+            while (nextElement(p)) {
+                result.add(position(p));
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+
+    static List<BrokerOrder> readOrders(InputStream in) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            expect(p, JsonToken.START_ARRAY);
+            List<BrokerOrder> result = new ArrayList<>();
+            while (nextElement(p)) {
+                result.add(order(p));
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+
+    static List<FillActivity> readFillActivities(InputStream in) throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            expect(p, JsonToken.START_ARRAY);
+            List<FillActivity> result = new ArrayList<>();
+            while (nextElement(p)) {
+                result.add(fillActivity(p));
+            }
+            return Collections.unmodifiableList(result);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Objekte (Parser steht jeweils auf START_OBJECT)
+    // ---------------------------------------------------------
+
+    private static AccountSnapshot account(JsonParser p) throws IOException {
+        String id = null, accountNumber = null, status = null, currency = null, createdAt = null;
+        BigDecimal cash = null, portfolioValue = null, equity = null, lastEquity = null, buyingPower = null;
+
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            p.nextToken();
+            switch (field) {
+                case "id": id = text(p); break;
+                case "account_number": accountNumber = text(p); break;
+                case "status": status = text(p); break;
+                case "currency": currency = text(p); break;
+                case "cash": cash = decimal(p); break;
+                case "portfolio_value": portfolioValue = decimal(p); break;
+                case "equity": equity = decimal(p); break;
+                case "last_equity": lastEquity = decimal(p); break;
+                case "buying_power": buyingPower = decimal(p); break;
+                case "created_at": createdAt = text(p); break;
+                default: p.skipChildren();
+            }
+        }
+        return new AccountSnapshot(id, accountNumber, status, currency, cash, portfolioValue,
+                equity, lastEquity, buyingPower, createdAt);
+    }
+
+    private static BrokerPosition position(JsonParser p) throws IOException {
+        String symbol = null, side = null;
+        BigDecimal qty = null, avgEntryPrice = null, currentPrice = null, marketValue = null,
+                costBasis = null, unrealizedPl = null, unrealizedPlpc = null;
+
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            p.nextToken();
+            switch (field) {
+                case "symbol": symbol = text(p); break;
+                case "side": side = text(p); break;
+                case "qty": qty = decimal(p); break;
+                case "avg_entry_price": avgEntryPrice = decimal(p); break;
+                case "current_price": currentPrice = decimal(p); break;
+                case "market_value": marketValue = decimal(p); break;
+                case "cost_basis": costBasis = decimal(p); break;
+                case "unrealized_pl": unrealizedPl = decimal(p); break;
+                case "unrealized_plpc": unrealizedPlpc = decimal(p); break;
+                default: p.skipChildren();
+            }
+        }
+        return new BrokerPosition(symbol, side, qty, avgEntryPrice, currentPrice, marketValue,
+                costBasis, unrealizedPl, unrealizedPlpc);
+    }
+
+    private static BrokerOrder order(JsonParser p) throws IOException {
+        String id = null, clientOrderId = null, symbol = null, side = null, type = null,
+                timeInForce = null, status = null, createdAt = null;
+        BigDecimal qty = null, filledQty = null, filledAvgPrice = null;
+        Instant updatedAt = null;
+
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            p.nextToken();
+            switch (field) {
+                case "id": id = text(p); break;
+                case "client_order_id": clientOrderId = text(p); break;
+                case "symbol": symbol = text(p); break;
+                case "side": side = text(p); break;
+                case "type": type = text(p); break;
+                case "time_in_force": timeInForce = text(p); break;
+                case "qty": qty = decimal(p); break;
+                case "filled_qty": filledQty = decimal(p); break;
+                case "filled_avg_price": filledAvgPrice = decimal(p); break;
+                case "status": status = text(p); break;
+                case "created_at": createdAt = text(p); break;
+                case "updated_at": updatedAt = instant(p); break;
+                default: p.skipChildren(); // z.B. legs
+            }
+        }
+        return new BrokerOrder(id, clientOrderId, symbol, side, type, timeInForce, qty, filledQty,
+                filledAvgPrice, status, createdAt, updatedAt);
+    }
+
+    private static FillActivity fillActivity(JsonParser p) throws IOException {
+        String id = null, orderId = null, symbol = null, side = null, orderStatus = null;
+        BigDecimal qty = null, price = null, cumQty = null, leavesQty = null;
+        Instant transactionTime = null;
+
+        String field;
+        while ((field = p.nextFieldName()) != null) {
+            p.nextToken();
+            switch (field) {
+                case "id": id = text(p); break;
+                case "order_id": orderId = text(p); break;
+                case "symbol": symbol = text(p); break;
+                case "side": side = text(p); break;
+                case "qty": qty = decimal(p); break;
+                case "price": price = decimal(p); break;
+                case "cum_qty": cumQty = decimal(p); break;
+                case "leaves_qty": leavesQty = decimal(p); break;
+                case "order_status": orderStatus = text(p); break;
+                case "transaction_time": transactionTime = instant(p); break;
+                default: p.skipChildren();
+            }
+        }
+        return new FillActivity(id, orderId, symbol, side, qty, price, transactionTime,
+                orderStatus, cumQty, leavesQty);
+    }
+
+    // ---------------------------------------------------------
+    // Werte (Parser steht auf dem Wert-Token)
+    // ---------------------------------------------------------
+
+    private static String text(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.VALUE_NULL || t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return null;
+        }
+        return p.getText();
+    }
+
+    private static BigDecimal decimal(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.VALUE_NUMBER_INT || t == JsonToken.VALUE_NUMBER_FLOAT) {
+            return p.getDecimalValue();
+        }
+        if (t == JsonToken.VALUE_STRING) {
+            int len = p.getTextLength();
+            if (len == 0) {
+                return null;
+            }
+            try {
+                return new BigDecimal(p.getTextCharacters(), p.getTextOffset(), len);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        p.skipChildren();
+        return null;
+    }
+
+    private static Instant instant(JsonParser p) throws IOException {
+        String value = text(p);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Struktur
+    // ---------------------------------------------------------
+
+    private static void expect(JsonParser p, JsonToken expected) throws IOException {
+        JsonToken t = p.nextToken();
+        if (t != expected) {
+            throw new IOException("Unerwartetes JSON von Alpaca: " + expected + " erwartet, " + t + " gelesen");
+        }
+    }
+
+    /**
+     * Springt zum nächsten Array-Element. Nicht-Objekte werden übersprungen.
+     *
+     * @return true, wenn der Parser auf dem START_OBJECT des nächsten Elements steht
+     */
+    private static boolean nextElement(JsonParser p) throws IOException {
+        JsonToken t;
+        while ((t = p.nextToken()) != null && t != JsonToken.END_ARRAY) {
+            if (t == JsonToken.START_OBJECT) {
+                return true;
+            }
+            p.skipChildren();
+        }
+        return false;
+    }
+}
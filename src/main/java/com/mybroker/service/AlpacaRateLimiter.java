@@ -0,0 +1,306 @@
+package com.mybroker.service;
+
+import com.mybroker.config.AppConfig;
+import com.mybroker.http.UpstreamResponse;
+import com.mybroker.metrics.Metrics;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Zentraler Scheduler für alle REST-Aufrufe gegen Alpaca (ein Budget pro API-Key, also pro Prozess).
+ * <ul>
+ *     <li>Token-Bucket mit Kapazität = Limit pro Minute, gleichmäßig nachgefüllt</li>
+ *     <li>Prioritäten: Wartende werden nach {@link Priority} bedient, Orders vor Dashboard-Lesezugriffen;
+ *     für Orders bleibt zusätzlich eine kleine Reserve im Bucket</li>
+ *     <li>Anpassung an die Header X-RateLimit-Limit/-Remaining/-Reset; bei HTTP 429 wird bis zum Reset pausiert</li>
+ *     <li>Statt sofort zu scheitern, wird bis zu einer Deadline pro Priorität gewartet</li>
+ * </ul>
+ * Konfiguration:
+ * <pre>
+ * ALPACA_RATE_LIMIT_PER_MIN          (Default 200)
+ * ALPACA_RATE_ORDER_RESERVE          (Default 2 Tokens, nur für Orders)
+ * ALPACA_RATE_DEADLINE_ORDER_MS      (Default 10000)
+ * ALPACA_RATE_DEADLINE_INTERACTIVE_MS (Default 5000)
+ * ALPACA_RATE_DEADLINE_BACKGROUND_MS (Default 30000)
+ * </pre>
+ * Metriken unter {@code alpaca.ratelimit.*}: queue_depth, tokens, limit_per_min, acquired, throttled,
+ * wait_ms_total, deadline_exceeded, http_429. Limiter verwalteter Konten ({@link #forTenant()}) zählen gemeinsam
+ * unter {@code alpaca.tenant_ratelimit.*}, ohne Gauges.
+ */
+public class AlpacaRateLimiter {
+
+    /**
+     * Reihenfolge = Vorrang in der Warteschlange.
+     */
+    public enum Priority {
+        /** Order-Einreichung */
+        ORDER,
+        /** Lesezugriffe für Seitenaufrufe (Dashboard, Positionen, Analyse) */
+        INTERACTIVE,
+        /** Abgleich, Sync-Jobs und sonstige Hintergrundarbeit */
+        BACKGROUND
+    }
+
+    private static final long DEFAULT_PAUSE_MS = 1_000;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.comparing((Waiter w) -> w.priority).thenComparingLong(w -> w.sequence));
+
+    private final int orderReserve;
+    private final long[] deadlineNanos = new long[Priority.values().length];
+
+    private int limitPerMinute;
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+    private long sequence;
+
+    private final LongAdder acquired;
+    private final LongAdder throttled;
+    private final LongAdder waitMillis;
+    private final LongAdder deadlineExceeded;
+    private final LongAdder tooManyRequests;
+
+    public AlpacaRateLimiter(int limitPerMinute, int orderReserve,
+                             Duration orderDeadline, Duration interactiveDeadline, Duration backgroundDeadline) {
+        this("alpaca.ratelimit", true, limitPerMinute, orderReserve, orderDeadline, interactiveDeadline, backgroundDeadline);
+    }
+
+    /**
+     * @param metricPrefix Präfix der Zähler (mehrere Limiter mit demselben Präfix zählen zusammen)
+     * @param gauges       Gauges registrieren – nur für Einzelinstanzen sinnvoll
+     */
+    public AlpacaRateLimiter(String metricPrefix, boolean gauges, int limitPerMinute, int orderReserve,
+                             Duration orderDeadline, Duration interactiveDeadline, Duration backgroundDeadline) {
+        this.acquired = Metrics.counter(metricPrefix + ".acquired");
+        this.throttled = Metrics.counter(metricPrefix + ".throttled");
+        this.waitMillis = Metrics.counter(metricPrefix + ".wait_ms_total");
+        this.deadlineExceeded = Metrics.counter(metricPrefix + ".deadline_exceeded");
+        this.tooManyRequests = Metrics.counter(metricPrefix + ".http_429");
+        this.limitPerMinute = Math.max(1, limitPerMinute);
+        this.orderReserve = Math.max(0, orderReserve);
+        this.tokens = this.limitPerMinute;
+        this.lastRefillNanos = System.nanoTime();
+        this.deadlineNanos[Priority.ORDER.ordinal()] = orderDeadline.toNanos();
+        this.deadlineNanos[Priority.INTERACTIVE.ordinal()] = interactiveDeadline.toNanos();
+        this.deadlineNanos[Priority.BACKGROUND.ordinal()] = backgroundDeadline.toNanos();
+
+        if (gauges) {
+            Metrics.gauge(metricPrefix + ".queue_depth", this::queueDepth);
+            Metrics.gauge(metricPrefix + ".tokens", this::availableTokens);
+            Metrics.gauge(metricPrefix + ".limit_per_min", () -> limitPerMinute());
+        }
+    }
+
+    public static AlpacaRateLimiter shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Eigener Limiter für den API-Key eines verwalteten Kontos, gleiche Konfiguration wie {@link #shared()}.
+     */
+    public static AlpacaRateLimiter forTenant() {
+        return new AlpacaRateLimiter("alpaca.tenant_ratelimit", false,
+                AppConfig.getInt("ALPACA_RATE_LIMIT_PER_MIN", 200),
+                AppConfig.getInt("ALPACA_RATE_ORDER_RESERVE", 2),
+                AppConfig.getMillis("ALPACA_RATE_DEADLINE_ORDER_MS", 10_000),
+                AppConfig.getMillis("ALPACA_RATE_DEADLINE_INTERACTIVE_MS", 5_000),
+                AppConfig.getMillis("ALPACA_RATE_DEADLINE_BACKGROUND_MS", 30_000));
+    }
+
+    /**
+     * Wartet auf ein Token. Blockiert höchstens bis zur Deadline der Priorität.
+     *
+     * @throws IOException wenn die Deadline abläuft, bevor ein Token frei wird
+     */
+    public void acquire(Priority priority) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + deadlineNanos[priority.ordinal()];
+        boolean waited = false;
+
+        lock.lock();
+        try {
+            Waiter self = new Waiter(priority, sequence++);
+            queue.add(self);
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+
+                    boolean first = queue.peek() == self;
+                    if (first && now >= pausedUntilNanos && tokens >= required(priority)) {
+                        tokens -= 1.0;
+                        acquired.increment();
+                        if (waited) {
+                            throttled.increment();
+                            waitMillis.add(TimeUnit.NANOSECONDS.toMillis(now - start));
+                        }
+                        return;
+                    }
+
+                    long remaining = deadline - now;
+                    if (remaining <= 0) {
+                        deadlineExceeded.increment();
+                        throw new IOException("Alpaca-Rate-Limit: kein Request-Budget innerhalb von "
+                                + TimeUnit.NANOSECONDS.toMillis(deadlineNanos[priority.ordinal()]) + " ms (" + priority + ")");
+                    }
+
+                    long sleep = first ? nanosUntilReady(now, priority) : remaining;
+                    waited = true;
+                    changed.awaitNanos(Math.max(1, Math.min(sleep, remaining)));
+                }
+            } finally {
+                queue.remove(self);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wertet die Rate-Limit-Header einer Antwort aus: passt das Limit an, gleicht den Bucket mit dem
+     * serverseitigen Rest ab und pausiert bei HTTP 429 (oder Rest 0) bis zum Reset.
+     */
+    public void onResponse(UpstreamResponse response) {
+        onResponse(response.statusCode(), response.headers());
+    }
+
+    /**
+     * Wie {@link #onResponse(UpstreamResponse)}, für gestreamte Antworten (Body noch nicht gelesen).
+     */
+    public void onResponse(int statusCode, HttpHeaders headers) {
+        long limit = headerLong(headers, "X-RateLimit-Limit");
+        long remaining = headerLong(headers, "X-RateLimit-Remaining");
+        long resetEpochSeconds = headerLong(headers, "X-RateLimit-Reset");
+        long retryAfterSeconds = headerLong(headers, "Retry-After");
+        boolean rejected = statusCode == 429;
+
+        if (rejected) {
+            tooManyRequests.increment();
+        }
+
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            refill(now);
+
+            if (limit > 0 && limit != limitPerMinute) {
+                System.out.println("[AlpacaRateLimiter] Limit laut Alpaca: " + limit + "/min (bisher " + limitPerMinute + ")");
+                limitPerMinute = (int) limit;
+                tokens = Math.min(tokens, limitPerMinute);
+            }
+            if (remaining >= 0) {
+                // Der Server zählt auch Requests anderer Prozesse mit demselben Key
+                tokens = Math.min(tokens, remaining);
+            }
+
+            if (rejected || remaining == 0) {
+                long pauseMillis;
+                if (retryAfterSeconds > 0) {
+                    pauseMillis = retryAfterSeconds * 1000;
+                } else if (resetEpochSeconds > 0) {
+                    pauseMillis = resetEpochSeconds * 1000 - System.currentTimeMillis();
+                } else {
+                    pauseMillis = DEFAULT_PAUSE_MS;
+                }
+                pauseMillis = Math.max(pauseMillis, rejected ? DEFAULT_PAUSE_MS : 0);
+                pausedUntilNanos = Math.max(pausedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(pauseMillis));
+                tokens = 0.0;
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double availableTokens() {
+        lock.lock();
+        try {
+            refill(System.nanoTime());
+            return tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limitPerMinute() {
+        lock.lock();
+        try {
+            return limitPerMinute;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Intern (nur unter Lock)
+    // ---------------------------------------------------------
+
+    private void refill(long now) {
+        double perNano = limitPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        tokens = Math.min(limitPerMinute, tokens + (now - lastRefillNanos) * perNano);
+        lastRefillNanos = now;
+    }
+
+    private double required(Priority priority) {
+        return priority == Priority.ORDER ? 1.0 : 1.0 + orderReserve;
+    }
+
+    private long nanosUntilReady(long now, Priority priority) {
+        if (now < pausedUntilNanos) {
+            return pausedUntilNanos - now;
+        }
+        double missing = required(priority) - tokens;
+        double perNano = limitPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        return (long) Math.ceil(missing / perNano);
+    }
+
+    private static long headerLong(HttpHeaders headers, String name) {
+        return headers.firstValue(name).map(v -> {
+            try {
+                return Long.parseLong(v.trim());
+            } catch (NumberFormatException e) {
+                return -1L;
+            }
+        }).orElse(-1L);
+    }
+
+    private static final class Waiter {
+        final Priority priority;
+        final long sequence;
+
+        Waiter(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class Holder {
+        static final AlpacaRateLimiter INSTANCE = new AlpacaRateLimiter(
+                AppConfig.getInt("ALPACA_RATE_LIMIT_PER_MIN", 200),
+                AppConfig.getInt("ALPACA_RATE_ORDER_RESERVE", 2),
+                AppConfig.getMillis("ALPACA_RATE_DEADLINE_ORDER_MS", 10_000),
+                AppConfig.getMillis("ALPACA_RATE_DEADLINE_INTERACTIVE_MS", 5_000),
+                AppConfig.getMillis("ALPACA_RATE_DEADLINE_BACKGROUND_MS", 30_000));
+    }
+}
@@ -1,62 +1,139 @@
 package com.mybroker.service;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mybroker.config.AppConfig;
+import com.mybroker.http.UpstreamHttpClient;
+import com.mybroker.http.UpstreamResponse;
+import com.mybroker.model.AccountSnapshot;
+import com.mybroker.model.AlpacaCredentials;
+import com.mybroker.model.BrokerOrder;
+import com.mybroker.model.BrokerPosition;
+import com.mybroker.model.FillActivity;
+import com.mybroker.model.MarketSnapshot;
+
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
+import java.io.InputStream;
+import java.net.URLEncoder;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * REST-Zugriff auf Alpaca (Trading- und Market-Data-API).
+ * <p>
+ * Jeder Aufruf läuft durch den {@link AlpacaRateLimiter} des API-Keys (für das eigene Konto der prozessweite).
+ * Orders haben Vorrang, Lesezugriffe laufen mit der Priorität, mit der die Instanz erzeugt wurde.
+ * Ohne Zugangsdaten im Konstruktor gilt das Konto aus den Umgebungsvariablen; Instanzen für verwaltete Konten
+ * liefert {@link TenantAlpacaClients}.
+ */
 public class AlpacaService {
 
-    private final String apiKey = System.getenv("ALPACA_API_KEY");
-    private final String apiSecret = System.getenv("ALPACA_API_SECRET");
-    private final String baseUrl = System.getenv("ALPACA_BASE_URL");
-    private final String dataUrl = System.getenv("ALPACA_DATA_URL");
+    // 429 trotz Limiter (z.B. weitere Prozesse mit demselben Key): nach der Pause erneut einreihen
+    private static final int MAX_RATE_LIMIT_RETRIES = 2;
 
+    private static final String DEFAULT_TRADING_URL = "https://paper-api.alpaca.markets";
 
-    private final HttpClient client = HttpClient.newHttpClient();
+    // Alpaca erlaubt mehrere hundert Symbole pro Snapshot-Request, kleinere Chunks laufen aber parallel schneller
+    private static final int SNAPSHOT_CHUNK_SIZE = AppConfig.getInt("ALPACA_SNAPSHOT_CHUNK_SIZE", 50);
+    // Gesamtbudget für alle Chunks einer Abfrage; was bis dahin fehlt, fehlt im Ergebnis
+    private static final long SNAPSHOT_TIMEOUT_MS = AppConfig.getLong("ALPACA_SNAPSHOT_TIMEOUT_MS", 3_000);
 
-    public String getAccount() throws IOException, InterruptedException {
-        if (apiKey == null || apiSecret == null || baseUrl == null) {
-            throw new IllegalStateException(
-                    "Umgebungsvariablen ALPACA_API_KEY, ALPACA_API_SECRET und ALPACA_BASE_URL müssen gesetzt sein.");
+    private static final ExecutorService SNAPSHOT_EXECUTOR = Executors.newFixedThreadPool(4, new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "alpaca-snapshots-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
         }
+    });
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/v2/account"))
-                .header("APCA-API-KEY-ID", apiKey)
-                .header("APCA-API-SECRET-KEY", apiSecret)
-                .GET()
-                .build();
+    private final String apiKey;
+    private final String apiSecret;
+    private final String baseUrl;
+    private final String dataUrl;
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        return response.body();
+    // Gemeinsamer Transport: alle AlpacaService-Instanzen teilen sich den Connection-Pool pro Host
+    private final UpstreamHttpClient http = UpstreamHttpClient.shared();
+    private final AlpacaRateLimiter limiter;
+    private final AlpacaRateLimiter.Priority readPriority;
+
+    public AlpacaService() {
+        this(AlpacaRateLimiter.Priority.INTERACTIVE);
     }
 
-    public String getPositions() throws IOException, InterruptedException {
-        if (apiKey == null || apiSecret == null || baseUrl == null) {
-            throw new IllegalStateException(
-                    "Umgebungsvariablen ALPACA_API_KEY, ALPACA_API_SECRET und ALPACA_BASE_URL müssen gesetzt sein.");
+    /**
+     * @param readPriority Priorität der Lesezugriffe dieser Instanz (z.B. BACKGROUND für Abgleich-Jobs)
+     */
+    public AlpacaService(AlpacaRateLimiter.Priority readPriority) {
+        this(AlpacaCredentials.fromEnvironment(), readPriority, AlpacaRateLimiter.shared());
+    }
+
+    /**
+     * @param credentials  Konto, gegen das alle Aufrufe laufen
+     * @param readPriority Priorität der Lesezugriffe dieser Instanz
+     * @param limiter      Budget des API-Keys; Instanzen mit demselben Key müssen denselben Limiter teilen
+     */
+    public AlpacaService(AlpacaCredentials credentials, AlpacaRateLimiter.Priority readPriority,
+                         AlpacaRateLimiter limiter) {
+        this.apiKey = credentials.getApiKey();
+        this.apiSecret = credentials.getApiSecret();
+        this.baseUrl = credentials.getBaseUrl();
+        this.dataUrl = credentials.getDataUrl();
+        this.limiter = limiter;
+        this.readPriority = readPriority;
+        if (baseUrl != null) {
+            http.configureHost(baseUrl, Duration.ofSeconds(5), Duration.ofSeconds(10));
         }
+        if (dataUrl != null) {
+            http.configureHost(dataUrl, Duration.ofSeconds(5), Duration.ofSeconds(10));
+        }
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/v2/positions"))
-                .header("APCA-API-KEY-ID", apiKey)
-                .header("APCA-API-SECRET-KEY", apiSecret)
-                .GET()
-                .build();
+    public String getAccount() throws IOException, InterruptedException {
+        requireTradingConfig();
+        return get(baseUrl + "/v2/account");
+    }
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        return response.body();
+    public String getPositions() throws IOException, InterruptedException {
+        requireTradingConfig();
+        return get(baseUrl + "/v2/positions");
     }
 
     public String createOrder(String symbol, int qty, String side)
             throws IOException, InterruptedException {
+        return createOrder(symbol, qty, side, null);
+    }
 
-        if (apiKey == null || apiSecret == null || baseUrl == null) {
-            throw new IllegalStateException(
-                    "Umgebungsvariablen ALPACA_API_KEY, ALPACA_API_SECRET und ALPACA_BASE_URL müssen gesetzt sein.");
-        }
+    /**
+     * Wie {@link #createOrder(String, int, String)}, aber mit eigener client_order_id.
+     * Alpaca lehnt eine zweite Order mit derselben ID ab – damit sind Wiederholungen idempotent.
+     */
+    public String createOrder(String symbol, int qty, String side, String clientOrderId)
+            throws IOException, InterruptedException {
+
+        requireTradingConfig();
 
         // Wir machen eine einfache Market-Order, DAY
         com.google.gson.JsonObject body = new com.google.gson.JsonObject();
@@ -65,43 +142,47 @@ public class AlpacaService {
         body.addProperty("side", side);          // "buy" oder "sell"
         body.addProperty("type", "market");
         body.addProperty("time_in_force", "day");
+        if (clientOrderId != null) {
+            body.addProperty("client_order_id", clientOrderId);
+        }
 
         String jsonBody = body.toString();
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/v2/orders"))
-                .header("APCA-API-KEY-ID", apiKey)
-                .header("APCA-API-SECRET-KEY", apiSecret)
+        HttpRequest request = authorized(http.newRequest(baseUrl + "/v2/orders"))
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
                 .build();
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        return response.body();
+        return send(request, AlpacaRateLimiter.Priority.ORDER).body();
     }
 
-    public String getOpenOrders() throws IOException, InterruptedException {
-        if (apiKey == null || apiSecret == null || baseUrl == null) {
-            throw new IllegalStateException(
-                    "Umgebungsvariablen ALPACA_API_KEY, ALPACA_API_SECRET und ALPACA_BASE_URL müssen gesetzt sein.");
-        }
+    /**
+     * Sucht eine Order über ihre client_order_id.
+     *
+     * @return JSON der Order oder null, wenn Alpaca keine Order mit dieser ID kennt
+     */
+    public String getOrderByClientOrderId(String clientOrderId) throws IOException, InterruptedException {
+        requireTradingConfig();
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/v2/orders?status=open&direction=desc"))
-                .header("APCA-API-KEY-ID", apiKey)
-                .header("APCA-API-SECRET-KEY", apiSecret)
-                .GET()
-                .build();
-
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        String url = baseUrl + "/v2/orders:by_client_order_id?client_order_id="
+                + URLEncoder.encode(clientOrderId, StandardCharsets.UTF_8);
+        UpstreamResponse response = send(authorized(http.newRequest(url)).GET().build(), AlpacaRateLimiter.Priority.ORDER);
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (!response.isSuccessful()) {
+            throw new IOException("Alpaca order lookup error: HTTP " + response.statusCode());
+        }
         return response.body();
     }
 
+    public String getOpenOrders() throws IOException, InterruptedException {
+        requireTradingConfig();
+        return get(baseUrl + "/v2/orders?status=open&direction=desc");
+    }
+
     public String getLastFills(int limit) throws IOException, InterruptedException {
-        if (apiKey == null || apiSecret == null || baseUrl == null) {
-            throw new IllegalStateException(
-                    "Umgebungsvariablen ALPACA_API_KEY, ALPACA_API_SECRET und ALPACA_BASE_URL müssen gesetzt sein.");
-        }
+        requireTradingConfig();
 
         // Account-Aktivitäten vom Typ FILL
         String url = baseUrl + "/v2/account/activities"
@@ -109,15 +190,56 @@ public class AlpacaService {
                 + "&page_size=" + limit
                 + "&direction=desc";
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("APCA-API-KEY-ID", apiKey)
-                .header("APCA-API-SECRET-KEY", apiSecret)
-                .GET()
-                .build();
+        return get(url);
+    }
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        return response.body();
+    // ---------------------------------------------------------
+    // Typisierte Abfragen (Streaming-Dekodierung, kein String/JSON-Baum)
+    // ---------------------------------------------------------
+
+    public AccountSnapshot getAccountSnapshot() throws IOException, InterruptedException {
+        requireTradingConfig();
+        return getDecoded(baseUrl + "/v2/account", "account", AlpacaJsonDecoder::readAccount);
+    }
+
+    public List<BrokerPosition> getBrokerPositions() throws IOException, InterruptedException {
+        requireTradingConfig();
+        return getDecoded(baseUrl + "/v2/positions", "positions", AlpacaJsonDecoder::readPositions);
+    }
+
+    public List<BrokerOrder> getBrokerOpenOrders() throws IOException, InterruptedException {
+        requireTradingConfig();
+        return getDecoded(baseUrl + "/v2/orders?status=open&direction=desc", "orders", AlpacaJsonDecoder::readOrders);
+    }
+
+    /**
+     * Letzte FILL-Aktivitäten, neueste zuerst.
+     */
+    public List<FillActivity> getRecentFillActivities(int limit) throws IOException, InterruptedException {
+        requireTradingConfig();
+        String url = baseUrl + "/v2/account/activities/FILL?direction=desc&page_size=" + limit;
+        return getDecoded(url, "activities", AlpacaJsonDecoder::readFillActivities);
+    }
+
+    /**
+     * Eine Seite FILL-Aktivitäten in aufsteigender Reihenfolge – für den inkrementellen Sync.
+     *
+     * @param after     nur Aktivitäten nach diesem Zeitpunkt (null = ohne Untergrenze)
+     * @param pageToken ID der letzten Aktivität der vorigen Seite (null = erste Seite)
+     */
+    public List<FillActivity> getFillActivityPage(Instant after, String pageToken, int pageSize)
+            throws IOException, InterruptedException {
+        requireTradingConfig();
+
+        StringBuilder url = new StringBuilder(baseUrl)
+                .append("/v2/account/activities/FILL?direction=asc&page_size=").append(pageSize);
+        if (after != null) {
+            url.append("&after=").append(URLEncoder.encode(after.toString(), StandardCharsets.UTF_8));
+        }
+        if (pageToken != null) {
+            url.append("&page_token=").append(URLEncoder.encode(pageToken, StandardCharsets.UTF_8));
+        }
+        return getDecoded(url.toString(), "activities", AlpacaJsonDecoder::readFillActivities);
     }
 
     public String getLastTrade(String symbol) throws IOException, InterruptedException {
@@ -126,19 +248,222 @@ public class AlpacaService {
                     "ALPACA_API_KEY, ALPACA_API_SECRET und ALPACA_DATA_URL müssen gesetzt sein.");
         }
 
-        String url = dataUrl + "/v2/stocks/" + symbol + "/trades/latest";
+        return get(dataUrl + "/v2/stocks/" + symbol + "/trades/latest");
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("APCA-API-KEY-ID", apiKey)
-                .header("APCA-API-SECRET-KEY", apiSecret)
-                .GET()
-                .build();
+    /**
+     * Snapshots (letzter Trade, Bid/Ask, Tages- und Vortagesschluss) für beliebig viele Symbole.
+     * <p>
+     * Die Symbole werden in Chunks zu {@code ALPACA_SNAPSHOT_CHUNK_SIZE} aufgeteilt, die Chunks laufen
+     * gleichzeitig. Symbole, die Alpaca nicht kennt, fehlen im Ergebnis. Schlägt nur ein Teil der Chunks
+     * fehl oder ist nach {@code ALPACA_SNAPSHOT_TIMEOUT_MS} (Default 3000) nicht fertig, wird das geloggt und
+     * der Rest geliefert; nicht fertige Chunks werden dann abgebrochen, damit sie den Pool nicht weiter belegen.
+     *
+     * @return Symbol -&gt; Snapshot, in der Reihenfolge der Anfrage
+     * @throws IOException wenn alle Chunks fehlschlagen oder zu langsam sind
+     */
+    public Map<String, MarketSnapshot> getSnapshots(Collection<String> symbols) throws IOException, InterruptedException {
+        if (apiKey == null || apiSecret == null || dataUrl == null) {
+            throw new IllegalStateException(
+                    "ALPACA_API_KEY, ALPACA_API_SECRET und ALPACA_DATA_URL müssen gesetzt sein.");
+        }
+
+        Set<String> unique = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            if (symbol != null && !symbol.isBlank()) {
+                unique.add(symbol.trim().toUpperCase());
+            }
+        }
+        if (unique.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        List<String> all = new ArrayList<>(unique);
+        List<Future<Map<String, MarketSnapshot>>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += SNAPSHOT_CHUNK_SIZE) {
+            List<String> chunk = all.subList(from, Math.min(from + SNAPSHOT_CHUNK_SIZE, all.size()));
+            chunks.add(SNAPSHOT_EXECUTOR.submit(() -> fetchSnapshotChunk(chunk)));
+        }
 
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        Map<String, MarketSnapshot> merged = new HashMap<>();
+        IOException lastError = null;
+        int failed = 0;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SNAPSHOT_TIMEOUT_MS);
+        try {
+            for (Future<Map<String, MarketSnapshot>> chunk : chunks) {
+                Throwable cause;
+                try {
+                    merged.putAll(chunk.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                    continue;
+                } catch (ExecutionException e) {
+                    cause = e.getCause() != null ? e.getCause() : e;
+                } catch (TimeoutException e) {
+                    cause = new IOException("Snapshot-Chunk nach " + SNAPSHOT_TIMEOUT_MS + " ms nicht fertig", e);
+                }
+                failed++;
+                lastError = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                System.err.println("[AlpacaService] Snapshot-Chunk fehlgeschlagen: " + cause.getMessage());
+            }
+        } finally {
+            // Nicht fertige Chunks abbrechen: wartende starten nicht mehr, laufende geben ihren Thread frei
+            chunks.forEach(chunk -> chunk.cancel(true));
+        }
+        if (failed == chunks.size()) {
+            throw lastError;
+        }
+
+        Map<String, MarketSnapshot> ordered = new LinkedHashMap<>();
+        for (String symbol : all) {
+            MarketSnapshot snapshot = merged.get(symbol);
+            if (snapshot != null) {
+                ordered.put(symbol, snapshot);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Portfolio-Historie (Equity-Kurve) des Kontos.
+     * period: z.B. "1M", "3M", "6M" – timeframe: z.B. "1D"
+     *
+     * @throws IOException wenn Alpaca nicht mit HTTP 200 antwortet
+     */
+    public String getPortfolioHistory(String period, String timeframe) throws IOException, InterruptedException {
+        if (apiKey == null || apiSecret == null) {
+            throw new IllegalStateException("Umgebungsvariablen ALPACA_API_KEY und ALPACA_API_SECRET müssen gesetzt sein.");
+        }
+
+        // Die Historie lief schon immer ohne ALPACA_BASE_URL gegen das Paper-Konto
+        String tradingUrl = baseUrl != null && !baseUrl.isBlank() ? baseUrl : DEFAULT_TRADING_URL;
+        String url = tradingUrl + "/v2/account/portfolio/history"
+                + "?period=" + period
+                + "&timeframe=" + timeframe
+                + "&intraday_reporting=extended_hours";
+
+        UpstreamResponse response = send(authorized(http.newRequest(url)).GET().build(), readPriority);
+        if (response.statusCode() != 200) {
+            throw new IOException("Alpaca portfolio history error: HTTP " + response.statusCode());
+        }
         return response.body();
     }
 
+    // ---------------------------------------------------------
+    // Intern
+    // ---------------------------------------------------------
+
+    private void requireTradingConfig() {
+        if (apiKey == null || apiSecret == null || baseUrl == null) {
+            throw new IllegalStateException(
+                    "Umgebungsvariablen ALPACA_API_KEY, ALPACA_API_SECRET und ALPACA_BASE_URL müssen gesetzt sein.");
+        }
+    }
+
+    private Map<String, MarketSnapshot> fetchSnapshotChunk(List<String> symbols) throws IOException, InterruptedException {
+        String url = dataUrl + "/v2/stocks/snapshots?symbols="
+                + URLEncoder.encode(String.join(",", symbols), StandardCharsets.UTF_8);
+
+        UpstreamResponse response = send(authorized(http.newRequest(url)).GET().build(), readPriority);
+        if (response.statusCode() != 200) {
+            throw new IOException("Alpaca snapshots error: HTTP " + response.statusCode());
+        }
+
+        // Antwort: { "AAPL": { "latestTrade": {...}, "latestQuote": {...}, "dailyBar": {...}, "prevDailyBar": {...} }, ... }
+        JsonElement root = JsonParser.parseString(response.body());
+        Map<String, MarketSnapshot> result = new HashMap<>();
+        if (!root.isJsonObject()) {
+            return result;
+        }
+        for (Map.Entry<String, JsonElement> entry : root.getAsJsonObject().entrySet()) {
+            if (!entry.getValue().isJsonObject()) {
+                continue; // unbekanntes Symbol -> null
+            }
+            JsonObject snap = entry.getValue().getAsJsonObject();
+            JsonObject trade = child(snap, "latestTrade");
+            JsonObject quote = child(snap, "latestQuote");
+            result.put(entry.getKey(), new MarketSnapshot(
+                    entry.getKey(),
+                    number(trade, "p"),
+                    trade != null && trade.has("t") && !trade.get("t").isJsonNull() ? trade.get("t").getAsString() : null,
+                    number(quote, "bp"),
+                    number(quote, "ap"),
+                    number(child(snap, "dailyBar"), "c"),
+                    number(child(snap, "prevDailyBar"), "c")));
+        }
+        return result;
+    }
+
+    private static JsonObject child(JsonObject obj, String field) {
+        return obj.has(field) && obj.get(field).isJsonObject() ? obj.getAsJsonObject(field) : null;
+    }
+
+    private static double number(JsonObject obj, String field) {
+        if (obj == null || !obj.has(field) || !obj.get(field).isJsonPrimitive()) {
+            return 0.0;
+        }
+        try {
+            return obj.get(field).getAsDouble();
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Decoder<T> {
+        T decode(InputStream body) throws IOException;
+    }
 
+    /**
+     * GET mit Dekodierung direkt aus dem Response-Stream. Wie {@link #send} über den Rate-Limiter,
+     * inkl. Wiederholung bei 429; andere Fehlerstatus werden als IOException gemeldet.
+     */
+    private <T> T getDecoded(String url, String what, Decoder<T> decoder) throws IOException, InterruptedException {
+        HttpRequest request = authorized(http.newRequest(url)).GET().build();
+        for (int attempt = 0; ; attempt++) {
+            limiter.acquire(readPriority);
+            HttpResponse<InputStream> response = http.sendForStream(request);
+            try (InputStream body = response.body()) {
+                limiter.onResponse(response.statusCode(), response.headers());
+                if (response.statusCode() == 429) {
+                    if (attempt >= MAX_RATE_LIMIT_RETRIES) {
+                        throw new IOException("Alpaca rate limit: HTTP 429 für " + request.uri().getPath());
+                    }
+                    continue;
+                }
+                if (response.statusCode() != 200) {
+                    throw new IOException("Alpaca " + what + " error: HTTP " + response.statusCode());
+                }
+                return decoder.decode(body);
+            }
+        }
+    }
 
+    private String get(String url) throws IOException, InterruptedException {
+        return send(authorized(http.newRequest(url)).GET().build(), readPriority).body();
+    }
+
+    /**
+     * Einziger Weg zu Alpaca: Token holen, senden, Rate-Limit-Header auswerten.
+     * Ein 429 wird nicht als Body an den Aufrufer durchgereicht (der würde ihn als JSON parsen),
+     * sondern nach der vom Limiter verordneten Pause erneut versucht und zuletzt als IOException gemeldet.
+     */
+    private UpstreamResponse send(HttpRequest request, AlpacaRateLimiter.Priority priority)
+            throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            limiter.acquire(priority);
+            UpstreamResponse response = http.send(request);
+            limiter.onResponse(response);
+            if (response.statusCode() != 429) {
+                return response;
+            }
+            if (attempt >= MAX_RATE_LIMIT_RETRIES) {
+                throw new IOException("Alpaca rate limit: HTTP 429 für " + request.uri().getPath());
+            }
+        }
+    }
+
+    private HttpRequest.Builder authorized(HttpRequest.Builder builder) {
+        return builder
+                .header("APCA-API-KEY-ID", apiKey)
+                .header("APCA-API-SECRET-KEY", apiSecret);
+    }
 }
@@ -0,0 +1,91 @@
+package com.mybroker.service;
+
+import com.mybroker.cache.SingleFlightCache;
+import com.mybroker.config.AppConfig;
+import com.mybroker.model.AccountSnapshot;
+import com.mybroker.model.BrokerOrder;
+import com.mybroker.model.BrokerPosition;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * {@link AlpacaService} mit vorgeschaltetem Snapshot-Cache für Konto, Positionen und offene Orders.
+ * <p>
+ * Dashboard, Status, Positionen und Portfolio-Analyse teilen sich eine Instanz ({@link #shared()}),
+ * damit gleichzeitige Seitenaufrufe nicht jeweils eigene, identische REST-Calls absetzen.
+ * TTL und Stale-Fenster sind pro Ressource konfigurierbar:
+ * <pre>
+ * ALPACA_CACHE_TTL_ACCOUNT_MS    (Default 5000)
+ * ALPACA_CACHE_TTL_POSITIONS_MS  (Default 5000)
+ * ALPACA_CACHE_TTL_ORDERS_MS     (Default 3000)
+ * ALPACA_CACHE_STALE_MS          (Default 30000)
+ * </pre>
+ * Gecacht werden die bereits dekodierten Objekte – Treffer kosten weder Netzwerk noch JSON-Parsing.
+ * Nach {@link #createOrder(String, int, String, String)} werden alle Snapshots invalidiert.
+ */
+public class CachedAlpacaService extends AlpacaService {
+
+    private static final String SNAPSHOT = "snapshot";
+
+    private final SingleFlightCache<String, AccountSnapshot> accountCache;
+    private final SingleFlightCache<String, List<BrokerPosition>> positionsCache;
+    private final SingleFlightCache<String, List<BrokerOrder>> ordersCache;
+
+    public CachedAlpacaService() {
+        Duration stale = AppConfig.getMillis("ALPACA_CACHE_STALE_MS", 30_000);
+
+        this.accountCache = new SingleFlightCache<>("alpaca.account",
+                AppConfig.getMillis("ALPACA_CACHE_TTL_ACCOUNT_MS", 5_000),
+                stale);
+        this.positionsCache = new SingleFlightCache<>("alpaca.positions",
+                AppConfig.getMillis("ALPACA_CACHE_TTL_POSITIONS_MS", 5_000),
+                stale);
+        this.ordersCache = new SingleFlightCache<>("alpaca.open_orders",
+                AppConfig.getMillis("ALPACA_CACHE_TTL_ORDERS_MS", 3_000),
+                stale);
+    }
+
+    public static CachedAlpacaService shared() {
+        return Holder.INSTANCE;
+    }
+
+    @Override
+    public AccountSnapshot getAccountSnapshot() throws IOException, InterruptedException {
+        return accountCache.get(SNAPSHOT, super::getAccountSnapshot);
+    }
+
+    @Override
+    public List<BrokerPosition> getBrokerPositions() throws IOException, InterruptedException {
+        return positionsCache.get(SNAPSHOT, super::getBrokerPositions);
+    }
+
+    @Override
+    public List<BrokerOrder> getBrokerOpenOrders() throws IOException, InterruptedException {
+        return ordersCache.get(SNAPSHOT, super::getBrokerOpenOrders);
+    }
+
+    @Override
+    public String createOrder(String symbol, int qty, String side, String clientOrderId)
+            throws IOException, InterruptedException {
+        try {
+            return super.createOrder(symbol, qty, side, clientOrderId);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Verwirft alle Snapshots, z.B. nach einer Order oder wenn externe Änderungen bekannt sind.
+     */
+    public void invalidateAll() {
+        accountCache.invalidateAll();
+        positionsCache.invalidateAll();
+        ordersCache.invalidateAll();
+    }
+
+    private static final class Holder {
+        static final CachedAlpacaService INSTANCE = new CachedAlpacaService();
+    }
+}
@@ -0,0 +1,166 @@
+package com.mybroker.service;
+
+import com.mybroker.metrics.Metrics;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Baut das Dashboard aus unabhängigen Abschnitten (Konto, Orders, Fills, Märkte, Risiko, Trends) zusammen.
+ * <p>
+ * Alle Abschnitte starten gleichzeitig auf einem begrenzten Thread-Pool. Jeder Abschnitt hat eine eigene
+ * Deadline (gemessen ab dem Start der Seite) und einen Platzhalter: Ist ein Upstream langsam oder fällt aus,
+ * kostet das nur die eigene Kachel und nicht die ganze Seite. Die Seitenlatenz folgt damit dem langsamsten
+ * Abschnitt statt der Summe aller Aufrufe.
+ * <p>
+ * Ist der Pool ausgelastet, wird ein Abschnitt abgelehnt und zeigt sofort seinen Platzhalter – er läuft nie auf
+ * dem Request-Thread, sonst gälte seine Deadline nicht mehr. Abschnitte, die ihre Deadline überschreiten, werden
+ * abgebrochen (Interrupt), damit verspätete Arbeit keinen Pool-Thread weiter belegt.
+ */
+public class DashboardAssembler {
+
+    private static final int POOL_SIZE = 32;
+    private static final int QUEUE_CAPACITY = 512;
+
+    private static final ExecutorService SHARED_EXECUTOR = createExecutor(POOL_SIZE, QUEUE_CAPACITY);
+
+    private static final LongAdder REJECTED = Metrics.counter("dashboard.sections_rejected");
+    private static final LongAdder TIMED_OUT = Metrics.counter("dashboard.sections_timed_out");
+
+    private final ExecutorService executor;
+
+    public DashboardAssembler() {
+        this(SHARED_EXECUTOR);
+    }
+
+    public DashboardAssembler(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Startet einen unabhängigen Abschnitt sofort.
+     *
+     * @param name           Name des Abschnitts (nur fürs Logging)
+     * @param deadlineMillis maximale Laufzeit ab jetzt
+     * @param loader         lädt die Daten des Abschnitts (darf Exceptions werfen)
+     * @param fallback       Platzhalter bei Fehler oder Timeout (darf null sein)
+     */
+    public <T> CompletableFuture<T> section(String name, long deadlineMillis, Callable<T> loader, T fallback) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        submit(future, loader);
+        return withDeadline(name, future, deadlineMillis, fallback);
+    }
+
+    /**
+     * Startet einen Abschnitt, der auf das Ergebnis eines anderen Abschnitts angewiesen ist
+     * (z.B. Risiko braucht die Positionen). Die Deadline läuft trotzdem ab jetzt,
+     * d.h. Wartezeit auf den Vorgänger zählt mit.
+     */
+    public <A, T> CompletableFuture<T> dependentSection(String name,
+                                                        CompletableFuture<A> input,
+                                                        long deadlineMillis,
+                                                        Function<A, T> loader,
+                                                        T fallback) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        input.whenComplete((value, ex) -> {
+            if (ex != null) {
+                future.completeExceptionally(ex);
+            } else if (!future.isDone()) {
+                submit(future, () -> loader.apply(value));
+            }
+        });
+        return withDeadline(name, future, deadlineMillis, fallback);
+    }
+
+    /**
+     * Liefert das Ergebnis eines Abschnitts. Da jeder Abschnitt bereits eine Deadline
+     * und einen Platzhalter hat, blockiert das höchstens bis zur Deadline.
+     */
+    public <T> T await(CompletableFuture<T> section) {
+        return section.join();
+    }
+
+    // ---------------------------------------------------------
+    // Intern
+    // ---------------------------------------------------------
+
+    private <T> CompletableFuture<T> withDeadline(String name,
+                                                  CompletableFuture<T> future,
+                                                  long deadlineMillis,
+                                                  T fallback) {
+        return future
+                .orTimeout(deadlineMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof TimeoutException) {
+                        TIMED_OUT.increment();
+                        System.err.println("[DashboardAssembler] Abschnitt '" + name + "' hat die Deadline von "
+                                + deadlineMillis + " ms überschritten – Platzhalter wird angezeigt.");
+                    } else if (cause instanceof RejectedExecutionException) {
+                        REJECTED.increment();
+                        System.err.println("[DashboardAssembler] Abschnitt '" + name
+                                + "' abgelehnt (Pool ausgelastet) – Platzhalter wird angezeigt.");
+                    } else {
+                        System.err.println("[DashboardAssembler] Abschnitt '" + name + "' fehlgeschlagen: " + cause);
+                    }
+                    return fallback;
+                });
+    }
+
+    /**
+     * Führt den Loader auf dem Pool aus und schreibt sein Ergebnis in {@code target}. Wird {@code target} vorher
+     * ausnahmsweise abgeschlossen (Deadline), wird die laufende Aufgabe unterbrochen bzw. gar nicht erst gestartet.
+     */
+    private <T> void submit(CompletableFuture<T> target, Callable<T> loader) {
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    target.complete(loader.call());
+                } catch (Throwable e) {
+                    target.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            target.completeExceptionally(e);
+            return;
+        }
+        target.whenComplete((value, ex) -> {
+            if (ex != null) {
+                task.cancel(true);
+            }
+        });
+    }
+
+    /**
+     * Pool für Abschnitte: feste Größe, begrenzte Queue, Ablehnung statt Ausführung auf dem Aufrufer.
+     */
+    static ThreadPoolExecutor createExecutor(int poolSize, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "dashboard-section-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                factory,
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
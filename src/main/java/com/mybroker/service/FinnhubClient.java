@@ -1,12 +1,13 @@
 package com.mybroker.service;
 
-import java.io.BufferedReader;
+import com.mybroker.http.UpstreamHttpClient;
+import com.mybroker.http.UpstreamResponse;
+
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.URLEncoder;
+import java.net.http.HttpRequest;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 public class FinnhubClient {
 
@@ -14,9 +15,11 @@ public class FinnhubClient {
     private static final String BASE_URL = "https://finnhub.io/api/v1";
     // You can also inject this via constructor or use environment variables.
     private final String apiKey;
+    private final UpstreamHttpClient http = UpstreamHttpClient.shared();
 
     public FinnhubClient(String apiKey) {
         this.apiKey = apiKey;
+        http.configureHost(BASE_URL, Duration.ofSeconds(5), Duration.ofSeconds(10));
     }
 
     /**
@@ -27,35 +30,18 @@ public class FinnhubClient {
         String encodedSymbol = URLEncoder.encode(symbol, StandardCharsets.UTF_8);
         String urlStr = BASE_URL + "/quote?symbol=" + encodedSymbol + "&token=" + apiKey;
 
-        URL url = new URL(urlStr);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        conn.setRequestProperty("Accept", "application/json");
-
-        int status = conn.getResponseCode();
-
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(
-                        status >= 200 && status < 300
-                                ? conn.getInputStream()
-                                : conn.getErrorStream(),
-                        StandardCharsets.UTF_8))) {
-
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
-            }
-
-            if (status < 200 || status >= 300) {
-                throw new IOException("Finnhub API error. HTTP status: " + status +
-                        ", body: " + response);
-            }
-
-            return response.toString();
-        } finally {
-            conn.disconnect();
+        HttpRequest request = http.newRequest(urlStr)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+
+        UpstreamResponse response = http.send(request);
+
+        if (!response.isSuccessful()) {
+            throw new IOException("Finnhub API error. HTTP status: " + response.statusCode() +
+                    ", body: " + response.body());
         }
+
+        return response.body();
     }
 }
-
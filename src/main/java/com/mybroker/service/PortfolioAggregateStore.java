@@ -0,0 +1,535 @@
+package com.mybroker.service;
+
+import com.mybroker.config.AppConfig;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.model.Money;
+import com.mybroker.model.Position;
+import com.mybroker.model.Qty;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Laufend gepflegte Portfolio-Summen eines Kontos, damit die Analyse nicht bei jedem Aufruf alle Positionen
+ * durchgehen muss.
+ * <p>
+ * Gehalten werden Gesamtmarktwert, Marktwert pro Sektor (nur Positionen mit Marktwert &gt; 0, wie im
+ * {@link PortfolioAnalyticsKernel}), Tech-Summe, Volatilitätssumme und ein indizierter Max-Heap über die
+ * Marktwerte für die größte Position. Jede Kurs- oder Mengenänderung zieht die Beiträge der einen Position ab,
+ * setzt die neuen hinzu und stellt die Heap-Ordnung her – O(log n). {@link #aggregates()} liest den Stand in
+ * O(Anzahl Sektoren).
+ * <p>
+ * Vollständig gesetzt wird der Stand per {@link #replaceAll} (REST-Abgleich im {@link PortfolioDataService}, neu
+ * aufgebaut und dann getauscht);
+ * dazwischen kommen Kurse aus dem Marktdaten-Stream und Mengen aus dem trade_updates-Stream. Eine Mengenänderung
+ * verändert den Einstandswert, der nur per REST bekannt ist – der Stand gilt danach bis zum nächsten Abgleich
+ * als veraltet ({@link #isCurrent}), die Summen sind aber sofort nachgezogen.
+ * <p>
+ * Verlässt eine Summe den long-Bereich der micros, werden die Summen bis zum nächsten erfolgreichen Abgleich nicht
+ * mehr gepflegt: {@link #aggregates()} liefert dann null, und die Analyse rechnet exakt über {@link #positions()}.
+ * <p>
+ * Neben dem {@link #primary()} Konto werden höchstens PORTFOLIO_STORE_MAX (Default 1024) verwaltete Konten gehalten,
+ * das am längsten nicht abgefragte fällt zuerst heraus und wird beim nächsten Aufruf per REST neu aufgebaut.
+ */
+public class PortfolioAggregateStore {
+
+    /** Das über API-Key/Secret konfigurierte Konto, das auch die Streams abonnieren. */
+    public static final String PRIMARY_ACCOUNT = "primary";
+
+    private static final int MAX_ACCOUNTS = AppConfig.getInt("PORTFOLIO_STORE_MAX", 1024);
+
+    private static final LongAdder PRICE_UPDATES = Metrics.counter("portfolio.store.price_updates");
+    private static final LongAdder QUANTITY_UPDATES = Metrics.counter("portfolio.store.quantity_updates");
+    private static final LongAdder RECONCILES = Metrics.counter("portfolio.store.reconciles");
+    private static final LongAdder OVERFLOWS = Metrics.counter("portfolio.store.overflows");
+    private static final LongAdder EVICTIONS = Metrics.counter("portfolio.store.evictions");
+
+    // von den Streams gefüttert, fällt nie heraus
+    private static final PortfolioAggregateStore PRIMARY = new PortfolioAggregateStore(PRIMARY_ACCOUNT);
+
+    // Zugriffsreihenfolge (LRU), Zugriff nur unter synchronized (STORES)
+    private static final Map<String, PortfolioAggregateStore> STORES = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PortfolioAggregateStore> eldest) {
+            if (size() > MAX_ACCOUNTS) {
+                EVICTIONS.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    static {
+        Metrics.gauge("portfolio.store.accounts", () -> {
+            synchronized (STORES) {
+                return STORES.size() + 1;
+            }
+        });
+    }
+
+    /**
+     * Store eines verwalteten Kontos; der Aufrufer stellt vorher sicher, dass es das Konto gibt.
+     */
+    public static PortfolioAggregateStore forAccount(String accountId) {
+        if (PRIMARY_ACCOUNT.equals(accountId)) {
+            return PRIMARY;
+        }
+        synchronized (STORES) {
+            return STORES.computeIfAbsent(accountId, PortfolioAggregateStore::new);
+        }
+    }
+
+    public static PortfolioAggregateStore primary() {
+        return PRIMARY;
+    }
+
+    private static final class Holding {
+        final String symbol;
+        // Reihenfolge aus dem letzten Abgleich; entscheidet Gleichstände im Heap wie im Kernel
+        final long seq;
+        String name;
+        String sector;
+        Qty qty;
+        Money marketValue;
+        Money unrealizedPnl;
+        BigDecimal volatility;
+        // letzter Kurs aus dem Stream, null = nur der Marktwert von Alpaca ist bekannt
+        BigDecimal lastPrice;
+        int heapIndex;
+
+        Holding(String symbol, long seq) {
+            this.symbol = symbol;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * Positionen und Summen zum selben Zeitpunkt – Tabelle, Analyse, Risiko und KI-Text einer Seite sehen
+     * denselben Stand, auch wenn dazwischen Kurse eintreffen.
+     */
+    public static final class Snapshot {
+        private final List<Position> positions;
+        // null: leer, Summen übergelaufen oder nicht aus dem Store (dann rechnet die Analyse über die Positionen)
+        final PortfolioAnalyticsKernel.Aggregates aggregates;
+
+        Snapshot(List<Position> positions, PortfolioAnalyticsKernel.Aggregates aggregates) {
+            this.positions = positions;
+            this.aggregates = aggregates;
+        }
+
+        /**
+         * Stand ohne gepflegte Summen, z.B. wenn der Store nicht aktualisiert werden konnte.
+         */
+        public static Snapshot of(List<Position> positions) {
+            return new Snapshot(positions, null);
+        }
+
+        public List<Position> getPositions() {
+            return positions;
+        }
+    }
+
+    private static final class SectorSum {
+        final boolean tech;
+        long micros;
+        int positions;
+
+        SectorSum(boolean tech) {
+            this.tech = tech;
+        }
+    }
+
+    private final String accountId;
+
+    // in Reihenfolge des Abgleichs, damit positions() die Reihenfolge von Alpaca beibehält
+    private Map<String, Holding> holdings = new LinkedHashMap<>();
+    private Holding[] heap = new Holding[16];
+    private int heapSize;
+
+    private Map<String, SectorSum> sectors = new LinkedHashMap<>();
+    private long totalMicros;
+    private long techMicros;
+    // Anzahl Positionen je Anzeige-Skala des Marktwerts; die größte bestimmt die Skala des Gesamtwerts
+    private int[] scaleCounts = new int[Money.SCALE + 1];
+    private BigDecimal volatilitySum = BigDecimal.ZERO;
+    private int volatilityCount;
+
+    // Summen außerhalb des long-Bereichs – bis zum nächsten replaceAll ungültig
+    private boolean overflowed;
+    private long nextSeq;
+    private long reconciledAtMillis;
+    private boolean stale = true;
+
+    private PortfolioAggregateStore(String accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * Ersetzt den Stand durch die Positionen eines vollständigen Abgleichs (O(n log n)). Der neue Stand wird
+     * außerhalb des Locks aufgebaut und erst vollständig getauscht – bricht der Aufbau ab, bleibt der bisherige
+     * Stand unverändert gültig.
+     *
+     * @return der neue Stand, bevor weitere Kurse eintreffen
+     */
+    public Snapshot replaceAll(List<Position> positions) {
+        PortfolioAggregateStore fresh = new PortfolioAggregateStore(accountId);
+        fresh.fill(positions);
+        synchronized (this) {
+            holdings = fresh.holdings;
+            heap = fresh.heap;
+            heapSize = fresh.heapSize;
+            sectors = fresh.sectors;
+            totalMicros = fresh.totalMicros;
+            techMicros = fresh.techMicros;
+            scaleCounts = fresh.scaleCounts;
+            volatilitySum = fresh.volatilitySum;
+            volatilityCount = fresh.volatilityCount;
+            overflowed = fresh.overflowed;
+            nextSeq = fresh.nextSeq;
+            stale = false;
+            reconciledAtMillis = System.currentTimeMillis();
+            RECONCILES.increment();
+            return snapshot();
+        }
+    }
+
+    /**
+     * Befüllt einen noch nicht geteilten Store (nur aus {@link #replaceAll}).
+     */
+    private void fill(List<Position> positions) {
+        for (Position p : positions) {
+            if (p.getSymbol() == null || p.getMarketValueMoney() == null) {
+                continue;
+            }
+            Holding previous = holdings.get(p.getSymbol());
+            if (previous != null) {
+                // mehrere Zeilen zum selben Symbol liefert Alpaca nicht; falls doch, gilt die letzte
+                removeHolding(previous);
+            }
+            Holding h = new Holding(p.getSymbol(), nextSeq++);
+            copyAttributes(p, h);
+            h.qty = p.getQty() != null ? p.getQty() : Qty.ZERO;
+            h.marketValue = p.getMarketValueMoney();
+            h.unrealizedPnl = p.getUnrealizedPnlMoney() != null ? p.getUnrealizedPnlMoney() : Money.ZERO;
+            holdings.put(h.symbol, h);
+            includeChecked(h);
+            heapInsert(h);
+        }
+    }
+
+    /**
+     * Übernimmt Name, Sektor und Volatilität (nachgeladene Stammdaten/Volatilitäten), Mengen und Beträge bleiben.
+     */
+    public synchronized void refreshAttributes(List<Position> positions) {
+        for (Position p : positions) {
+            Holding h = holdings.get(p.getSymbol());
+            if (h != null && (!Objects.equals(h.sector, p.getSector())
+                    || !Objects.equals(h.volatility, p.getVolatility())
+                    || !Objects.equals(h.name, p.getName()))) {
+                excludeChecked(h);
+                copyAttributes(p, h);
+                includeChecked(h);
+            }
+        }
+    }
+
+    /**
+     * Neuer Kurs: Marktwert = Menge × Kurs (wie bei der Neubewertung im {@link PortfolioDataService}),
+     * der offene Gewinn ändert sich um dieselbe Differenz. O(log n).
+     */
+    public synchronized void onPrice(String symbol, double price) {
+        Holding h = holdings.get(symbol);
+        if (h == null || !(price > 0.0) || Double.isInfinite(price) || h.qty.signum() == 0) {
+            return;
+        }
+        BigDecimal p = BigDecimal.valueOf(price);
+        Money updated = h.qty.times(p);
+        h.lastPrice = p;
+        if (updated.equals(h.marketValue) && updated.getScale() == h.marketValue.getScale()) {
+            return;
+        }
+        Money delta = updated.minus(h.marketValue);
+        excludeChecked(h);
+        h.marketValue = updated;
+        h.unrealizedPnl = h.unrealizedPnl.plus(delta);
+        includeChecked(h);
+        heapUpdate(h);
+        PRICE_UPDATES.increment();
+    }
+
+    /**
+     * Neue Stückzahl aus einer Ausführung; 0 entfernt die Position. Bewertet wird mit dem letzten Kurs bzw.
+     * dem bisherigen Durchschnittswert pro Stück. Unbekannte Symbole können ohne Stammdaten nicht eingeordnet
+     * werden und markieren den Stand nur als veraltet. O(log n).
+     */
+    public synchronized void onQuantity(String symbol, BigDecimal quantity) {
+        QUANTITY_UPDATES.increment();
+        stale = true;
+        Holding h = holdings.get(symbol);
+        if (h == null) {
+            return;
+        }
+        if (quantity == null || quantity.signum() == 0) {
+            holdings.remove(symbol);
+            removeHolding(h);
+            return;
+        }
+        BigDecimal price = h.lastPrice;
+        if (price == null && h.qty.signum() != 0) {
+            price = h.marketValue.toBigDecimal().divide(h.qty.toBigDecimal(), Money.SCALE, RoundingMode.HALF_UP);
+        }
+        if (price == null) {
+            return;
+        }
+        excludeChecked(h);
+        h.qty = Qty.of(quantity);
+        h.marketValue = h.qty.times(price);
+        includeChecked(h);
+        heapUpdate(h);
+    }
+
+    public synchronized void remove(String symbol) {
+        Holding h = holdings.remove(symbol);
+        if (h != null) {
+            removeHolding(h);
+        }
+    }
+
+    /**
+     * @param maxAgeMillis höchstens so lange ist der letzte Abgleich gültig
+     * @return true, wenn seit einem Abgleich nicht mehr als {@code maxAgeMillis} vergangen sind und keine
+     * Mengenänderung eingegangen ist
+     */
+    public synchronized boolean isCurrent(long maxAgeMillis) {
+        return !stale && System.currentTimeMillis() - reconciledAtMillis < maxAgeMillis;
+    }
+
+    public synchronized int size() {
+        return holdings.size();
+    }
+
+    /**
+     * Kopie der Positionen in der Reihenfolge des letzten Abgleichs (O(n), für die Tabelle).
+     */
+    public synchronized List<Position> positions() {
+        List<Position> result = new ArrayList<>(holdings.size());
+        for (Holding h : holdings.values()) {
+            Position p = new Position();
+            p.setSymbol(h.symbol);
+            p.setName(h.name);
+            p.setSector(h.sector);
+            p.setQty(h.qty);
+            p.setMarketValueMoney(h.marketValue);
+            p.setUnrealizedPnlMoney(h.unrealizedPnl);
+            p.setVolatility(h.volatility);
+            result.add(p);
+        }
+        return result;
+    }
+
+    /**
+     * Positionen und Summen unter einem Lock (O(n)).
+     */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(positions(), aggregates());
+    }
+
+    /**
+     * Stand der Summen wie {@link PortfolioAnalyticsKernel#aggregate} über {@link #positions()}, in
+     * O(Anzahl Sektoren).
+     *
+     * @return null ohne Positionen oder wenn die Summen den long-Bereich verlassen haben
+     */
+    synchronized PortfolioAnalyticsKernel.Aggregates aggregates() {
+        if (holdings.isEmpty() || overflowed) {
+            return null;
+        }
+        int mvScale = 0;
+        for (int s = scaleCounts.length - 1; s > 0; s--) {
+            if (scaleCounts[s] > 0) {
+                mvScale = s;
+                break;
+            }
+        }
+        List<String> names = new ArrayList<>(sectors.size());
+        Money[] sums = new Money[sectors.size()];
+        for (Map.Entry<String, SectorSum> e : sectors.entrySet()) {
+            sums[names.size()] = Money.ofMicros(e.getValue().micros);
+            names.add(e.getKey());
+        }
+        Holding top = heap[0];
+        return new PortfolioAnalyticsKernel.Aggregates(
+                PortfolioAnalyticsKernel.totalMarketValue(totalMicros, mvScale),
+                names,
+                sums,
+                Money.ofMicros(techMicros),
+                top.marketValue,
+                top.symbol,
+                volatilitySum,
+                volatilityCount);
+    }
+
+    // ---------------------------------------------------------
+    // Summen
+    // ---------------------------------------------------------
+
+    private static void copyAttributes(Position p, Holding h) {
+        h.name = p.getName();
+        h.sector = p.getSector();
+        h.volatility = p.getVolatility();
+    }
+
+    private void includeChecked(Holding h) {
+        if (overflowed) {
+            return;
+        }
+        try {
+            include(h);
+        } catch (ArithmeticException e) {
+            // include() kann nach einem Teil der Summen abbrechen – die Summen sind ab hier ohnehin ungültig
+            overflowed = true;
+            OVERFLOWS.increment();
+            System.err.println("[PortfolioAggregateStore] Konto " + accountId
+                    + ": Summen außerhalb des long-Bereichs, Analyse rechnet bis zum nächsten Abgleich exakt ("
+                    + e.getMessage() + ")");
+        }
+    }
+
+    private void excludeChecked(Holding h) {
+        // solange nicht übergelaufen, passen alle Beträge und Summen in micros
+        if (!overflowed) {
+            exclude(h);
+        }
+    }
+
+    /**
+     * @throws ArithmeticException wenn der Betrag oder eine Summe nicht in micros passt
+     */
+    private void include(Holding h) {
+        long value = h.marketValue.getMicros();
+        totalMicros = Math.addExact(totalMicros, value);
+        scaleCounts[h.marketValue.getScale()]++;
+        if (value > 0) {
+            SectorSum sum = sectors.computeIfAbsent(sectorKey(h.sector),
+                    k -> new SectorSum(PortfolioAnalyticsKernel.isTech(h.sector)));
+            sum.micros = Math.addExact(sum.micros, value);
+            sum.positions++;
+            if (sum.tech) {
+                techMicros = Math.addExact(techMicros, value);
+            }
+        }
+        if (h.volatility != null) {
+            volatilitySum = volatilitySum.add(h.volatility);
+            volatilityCount++;
+        }
+    }
+
+    private void exclude(Holding h) {
+        long value = h.marketValue.getMicros();
+        totalMicros -= value;
+        scaleCounts[h.marketValue.getScale()]--;
+        if (value > 0) {
+            String key = sectorKey(h.sector);
+            SectorSum sum = sectors.get(key);
+            sum.micros -= value;
+            if (sum.tech) {
+                techMicros -= value;
+            }
+            if (--sum.positions == 0) {
+                sectors.remove(key);
+            }
+        }
+        if (h.volatility != null) {
+            volatilitySum = volatilitySum.subtract(h.volatility);
+            volatilityCount--;
+        }
+    }
+
+    private static String sectorKey(String sector) {
+        return sector == null || sector.isBlank() ? PortfolioAnalyticsKernel.UNKNOWN_SECTOR : sector;
+    }
+
+    private void removeHolding(Holding h) {
+        excludeChecked(h);
+        int i = h.heapIndex;
+        Holding last = heap[--heapSize];
+        heap[heapSize] = null;
+        if (i < heapSize) {
+            place(last, i);
+            heapUpdate(last);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Max-Heap nach Marktwert (bei Gleichstand die frühere Position)
+    // ---------------------------------------------------------
+
+    private static boolean before(Holding a, Holding b) {
+        int c = a.marketValue.compareTo(b.marketValue);
+        return c != 0 ? c > 0 : a.seq < b.seq;
+    }
+
+    private void heapInsert(Holding h) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        place(h, heapSize++);
+        siftUp(h.heapIndex);
+    }
+
+    private void heapUpdate(Holding h) {
+        int i = h.heapIndex;
+        siftUp(i);
+        if (h.heapIndex == i) {
+            siftDown(i);
+        }
+    }
+
+    private void siftUp(int i) {
+        Holding h = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!before(h, heap[parent])) {
+                break;
+            }
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(h, i);
+    }
+
+    private void siftDown(int i) {
+        Holding h = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], h)) {
+                break;
+            }
+            place(heap[child], i);
+            i = child;
+        }
+        place(h, i);
+    }
+
+    private void place(Holding h, int i) {
+        heap[i] = h;
+        h.heapIndex = i;
+    }
+}
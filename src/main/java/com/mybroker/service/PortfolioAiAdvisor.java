@@ -1,41 +1,70 @@
 package com.mybroker.service;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mybroker.ai.AiExplanationCache;
 import com.mybroker.ai.OpenAiClient;
+import com.mybroker.model.AiExplanation;
 import com.mybroker.model.PortfolioAnalysisResult;
 import com.mybroker.model.Position;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Erklärt die Portfolio-Kennzahlen per OpenAI. Erklärungen werden über den {@link AiExplanationCache} pro
+ * Fingerabdruck der Prompt-Eingaben wiederverwendet – ein unverändertes Portfolio kostet keinen KI-Aufruf.
+ */
 public class PortfolioAiAdvisor {
 
+    // bei Änderungen an System- oder User-Prompt erhöhen, damit alte Erklärungen nicht mehr treffen
+    private static final String PROMPT_VERSION = "1";
+
     private final OpenAiClient openAiClient;
+    private final AiExplanationCache cache;
 
     public PortfolioAiAdvisor(OpenAiClient openAiClient) {
+        this(openAiClient, AiExplanationCache.shared());
+    }
+
+    public PortfolioAiAdvisor(OpenAiClient openAiClient, AiExplanationCache cache) {
         this.openAiClient = openAiClient;
+        this.cache = cache;
     }
 
     /**
-     * Baut einen Prompt, der die Kennzahlen erklärt und ruft deinen OpenAiClient.chat(...)
-     * auf. Die Methode gibt den "reinen" KI-Text zurück (kein JSON).
+     * Wie {@link #explain}, nur der Text.
      */
     public String buildExplanation(PortfolioAnalysisResult analysis, List<Position> positions) {
-        String systemPrompt = buildSystemPrompt();
-        String userPrompt = buildUserPrompt(analysis, positions);
+        return explain(analysis, positions).getText();
+    }
 
+    /**
+     * Liefert die Erklärung aus dem Cache oder baut einen Prompt, der die Kennzahlen erklärt, und ruft
+     * OpenAiClient.chat(...) auf. Fehler kommen als {@link AiExplanation#failure} zurück und werden nicht gecacht.
+     */
+    public AiExplanation explain(PortfolioAnalysisResult analysis, List<Position> positions) {
+        String fingerprint = cache.fingerprint(openAiClient.getModel() + "|" + PROMPT_VERSION, analysis, positions);
         try {
-            // dein Client liefert ROHES JSON zurück
-            String jsonResponse = openAiClient.chat(systemPrompt, userPrompt);
-            // wir extrahieren daraus den content-Text der Antwort
-            return extractContentFromResponse(jsonResponse);
-        } catch (IOException e) {
+            return cache.get(fingerprint, () -> generate(fingerprint, analysis, positions));
+        } catch (Exception e) {
             e.printStackTrace();
-            return "Fehler beim Aufruf des KI-Services: " + e.getMessage();
+            return AiExplanation.failure("Fehler beim Aufruf des KI-Services: " + e.getMessage());
         }
     }
 
+    private AiExplanation generate(String fingerprint, PortfolioAnalysisResult analysis, List<Position> positions)
+            throws IOException {
+        // der Client liefert ROHES JSON zurück
+        String jsonResponse = openAiClient.chat(buildSystemPrompt(), buildUserPrompt(analysis, positions));
+        return parseResponse(fingerprint, jsonResponse);
+    }
+
     private String buildSystemPrompt() {
         String sb = "Du bist ein Assistent, der ein Aktien-Portfolio erklärt. " +
                 "Gib KEINE konkreten Kauf- oder Verkaufsempfehlungen. " +
@@ -98,36 +127,44 @@ public class PortfolioAiAdvisor {
     }
 
     /**
-     * Sehr einfache Extraktion des ersten message.content aus der JSON-Response
-     * von /v1/chat/completions.
-     * <p>
-     * Für produktiven Code wäre eine JSON-Library (Jackson / Gson) besser,
-     * aber das hier reicht für deinen Prototyp.
+     * Liest message.content der ersten Antwort sowie Modell, Token-Verbrauch und Service-Tier aus der
+     * JSON-Response von /v1/chat/completions.
+     *
+     * @throws IOException bei leerer oder unerwarteter Antwort (wird dann nicht gecacht)
      */
-    private String extractContentFromResponse(String json) {
+    private AiExplanation parseResponse(String fingerprint, String json) throws IOException {
         if (json == null || json.isEmpty()) {
-            return "Leere Antwort vom KI-Service.";
-        }
-
-        // Suche nach "content":"...".
-        // Hinweis: funktioniert, solange das Format von OpenAI Standard bleibt.
-        String marker = "\"content\":\"";
-        int idx = json.indexOf(marker);
-        if (idx < 0) {
-            return json; // Fallback: komplettes JSON anzeigen
+            throw new IOException("Leere Antwort vom KI-Service.");
         }
-        int start = idx + marker.length();
-        int end = json.indexOf("\"", start);
-        if (end < 0) {
-            end = json.length();
+        try {
+            JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+            JsonArray choices = root.getAsJsonArray("choices");
+            JsonObject message = choices.get(0).getAsJsonObject().getAsJsonObject("message");
+            JsonObject usage = root.has("usage") && root.get("usage").isJsonObject()
+                    ? root.getAsJsonObject("usage")
+                    : null;
+            String model = string(root, "model");
+            return new AiExplanation(
+                    fingerprint,
+                    message.get("content").getAsString(),
+                    model != null ? model : openAiClient.getModel(),
+                    Instant.now(),
+                    integer(usage, "total_tokens"),
+                    integer(usage, "completion_tokens"),
+                    string(root, "service_tier"),
+                    false);
+        } catch (RuntimeException e) {
+            throw new IOException("Unerwartete Antwort vom KI-Service: " + e.getMessage(), e);
         }
+    }
 
-        String content = json.substring(start, end);
-        // einfache Un-Escapes
-        content = content.replace("\\n", "\n")
-                .replace("\\\"", "\"")
-                .replace("\\\\", "\\");
+    private static String string(JsonObject obj, String field) {
+        JsonElement value = obj != null ? obj.get(field) : null;
+        return value != null && value.isJsonPrimitive() ? value.getAsString() : null;
+    }
 
-        return content;
+    private static Integer integer(JsonObject obj, String field) {
+        JsonElement value = obj != null ? obj.get(field) : null;
+        return value != null && value.isJsonPrimitive() ? value.getAsInt() : null;
     }
 }
@@ -1,5 +1,6 @@
 package com.mybroker.service;
 
+import com.mybroker.model.Money;
 import com.mybroker.model.PortfolioAnalysisResult;
 import com.mybroker.model.Position;
 
@@ -9,26 +10,65 @@ import java.util.*;
 
 public class PortfolioAnalysisService {
 
-    public PortfolioAnalysisResult analyse(List<Position> positions) {
-        PortfolioAnalysisResult result = new PortfolioAnalysisResult();
+    private static final BigDecimal TECH_HIGH = new BigDecimal("40");
+    private static final BigDecimal TECH_MODERATE = new BigDecimal("20");
+    private static final BigDecimal TOP_VERY_HIGH = new BigDecimal("35");
+    private static final BigDecimal TOP_ELEVATED = new BigDecimal("20");
+    private static final BigDecimal VOL_HIGH = new BigDecimal("0.30");
+    private static final BigDecimal VOL_MODERATE = new BigDecimal("0.15");
+    private static final BigDecimal SECTOR_DOMINANT = new BigDecimal("50");
 
+    public PortfolioAnalysisResult analyse(List<Position> positions) {
         // Kein Portfolio -> nur Basisinfos setzen
         if (positions == null || positions.isEmpty()) {
-            result.setTotalMarketValue(BigDecimal.ZERO);
-            result.setRiskComment("Keine Positionen im Portfolio.");
-            result.setVolatilityComment("-");
-            result.setDiversificationComment("-");
-            return result;
+            return emptyResult();
+        }
+
+        // Alle Summen in einem Durchlauf (Gesamtwert, Sektoren, Tech, größte Position, Volatilität)
+        return analyse(PortfolioAnalyticsKernel.aggregate(positions));
+    }
+
+    /**
+     * Wie {@link #analyse(List)}, liest aber die laufend gepflegten Summen – die Laufzeit hängt nur von der
+     * Anzahl Sektoren ab, nicht von der Anzahl Positionen.
+     */
+    public PortfolioAnalysisResult analyse(PortfolioAggregateStore store) {
+        PortfolioAnalyticsKernel.Aggregates agg = store.aggregates();
+        if (agg != null) {
+            return analyse(agg);
         }
+        // leer oder Summen außerhalb des long-Bereichs: ein Durchlauf über die Positionen
+        return analyse(store.positions());
+    }
+
+    /**
+     * Analyse eines {@link PortfolioAggregateStore.Snapshot} – passt zu dessen Positionen, auch wenn der Store
+     * inzwischen weitergelaufen ist.
+     */
+    public PortfolioAnalysisResult analyse(PortfolioAggregateStore.Snapshot snapshot) {
+        if (snapshot.aggregates != null) {
+            return analyse(snapshot.aggregates);
+        }
+        // leer, Summen außerhalb des long-Bereichs oder nicht aus dem Store: ein Durchlauf über die Positionen
+        return analyse(snapshot.getPositions());
+    }
 
-        // Gesamtmarktwert berechnen
-        BigDecimal totalMv = positions.stream()
-                .map(p -> p.getMarketValue() == null ? BigDecimal.ZERO : p.getMarketValue())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private PortfolioAnalysisResult emptyResult() {
+        PortfolioAnalysisResult result = new PortfolioAnalysisResult();
+        result.setTotalMarketValue(BigDecimal.ZERO);
+        result.setRiskComment("Keine Positionen im Portfolio.");
+        result.setVolatilityComment("-");
+        result.setDiversificationComment("-");
+        return result;
+    }
 
-        result.setTotalMarketValue(totalMv);
+    private PortfolioAnalysisResult analyse(PortfolioAnalyticsKernel.Aggregates agg) {
+        PortfolioAnalysisResult result = new PortfolioAnalysisResult();
+        Money totalMv = agg.totalMarketValue;
+
+        result.setTotalMarketValue(totalMv.toBigDecimal());
 
-        if (totalMv.compareTo(BigDecimal.ZERO) <= 0) {
+        if (totalMv.signum() <= 0) {
             result.setRiskComment("Gesamtmarktwert ist 0 oder negativ.");
             result.setVolatilityComment("-");
             result.setDiversificationComment("-");
@@ -36,120 +76,66 @@ public class PortfolioAnalysisService {
         }
 
         // --- Sektor-Gewichte & Tech-Anteil ---
-        Map<String, BigDecimal> sectorWeights = buildSectorWeights(positions, totalMv);
+        Map<String, BigDecimal> sectorWeights = buildSectorWeights(agg, totalMv);
         result.setSectorWeights(sectorWeights);
 
-        BigDecimal techWeight = computeTechWeight(positions, totalMv);
+        BigDecimal techWeight = agg.techValue.signum() <= 0
+                ? BigDecimal.ZERO
+                : agg.techValue.percentOf(totalMv);
         result.setTechWeight(techWeight);
 
         // --- Größte Einzelposition ---
-        computeTopPosition(positions, totalMv, result);
+        if (agg.topMarketValue == null || agg.topMarketValue.signum() <= 0) {
+            result.setTopPositionSymbol(null);
+            result.setTopPositionWeight(BigDecimal.ZERO);
+        } else {
+            result.setTopPositionSymbol(agg.topSymbol);
+            result.setTopPositionWeight(agg.topMarketValue.percentOf(totalMv));
+        }
 
         // --- Kommentare ---
         result.setRiskComment(buildRiskComment(techWeight, result.getTopPositionWeight()));
-        result.setVolatilityComment(buildVolatilityComment(positions));
+        result.setVolatilityComment(buildVolatilityComment(agg.volatilitySum, agg.volatilityCount));
         result.setDiversificationComment(buildDiversificationComment(sectorWeights));
 
         return result;
     }
 
     /**
-     * Aggregiert Marktwerte je Sektor und wandelt sie in Prozent-Gewichte um.
+     * Wandelt die Marktwerte je Sektor in Prozent-Gewichte um.
      * Rückgabe ist nach Gewicht (absteigend) sortiert.
      */
-    private Map<String, BigDecimal> buildSectorWeights(List<Position> positions, BigDecimal totalMv) {
-        Map<String, BigDecimal> sectorMv = new HashMap<>();
-
-        for (Position p : positions) {
-            BigDecimal mv = p.getMarketValue() == null ? BigDecimal.ZERO : p.getMarketValue();
-            if (mv.compareTo(BigDecimal.ZERO) <= 0) {
-                continue;
-            }
-            String sector = p.getSector();
-            if (sector == null || sector.isBlank()) {
-                sector = "Unknown";
-            }
-            sectorMv.merge(sector, mv, BigDecimal::add);
+    private Map<String, BigDecimal> buildSectorWeights(PortfolioAnalyticsKernel.Aggregates agg, Money totalMv) {
+        // Bewusst HashMap wie in der bisherigen Aggregation: gleich große Sektoren müssen nach dem stabilen Sortieren
+        // in deren HashMap-Iterationsreihenfolge erscheinen (abgesichert durch PortfolioAnalysisServiceTest)
+        Map<String, Money> sectorMv = new HashMap<>();
+        for (int i = 0; i < agg.sectors.size(); i++) {
+            sectorMv.merge(agg.sectors.get(i), agg.sectorValues[i], Money::plus);
         }
 
         Map<String, BigDecimal> sectorWeights = new LinkedHashMap<>();
         sectorMv.entrySet().stream()
                 .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .forEach(e -> {
-                    BigDecimal weight = e.getValue()
-                            .multiply(BigDecimal.valueOf(100))
-                            .divide(totalMv, 2, RoundingMode.HALF_UP);
-                    sectorWeights.put(e.getKey(), weight);
-                });
+                .forEach(e -> sectorWeights.put(e.getKey(), e.getValue().percentOf(totalMv)));
 
         return sectorWeights;
     }
 
-    /**
-     * Tech-Anteil: alle Positionen, deren Sektor "tech" (case-insensitive) enthält.
-     * Damit greifen auch Bezeichnungen wie "Information Technology".
-     */
-    private BigDecimal computeTechWeight(List<Position> positions, BigDecimal totalMv) {
-        BigDecimal techMv = BigDecimal.ZERO;
-
-        for (Position p : positions) {
-            BigDecimal mv = p.getMarketValue() == null ? BigDecimal.ZERO : p.getMarketValue();
-            if (mv.compareTo(BigDecimal.ZERO) <= 0) {
-                continue;
-            }
-            String sector = p.getSector();
-            if (sector != null && sector.toLowerCase().contains("tech")) {
-                techMv = techMv.add(mv);
-            }
-        }
-
-        if (techMv.compareTo(BigDecimal.ZERO) <= 0) {
-            return BigDecimal.ZERO;
-        }
-
-        return techMv.multiply(BigDecimal.valueOf(100))
-                .divide(totalMv, 2, RoundingMode.HALF_UP);
-    }
-
-    private void computeTopPosition(List<Position> positions,
-                                    BigDecimal totalMv,
-                                    PortfolioAnalysisResult result) {
-
-        Position top = positions.stream()
-                .filter(p -> p.getMarketValue() != null)
-                .max(Comparator.comparing(Position::getMarketValue))
-                .orElse(null);
-
-        if (top == null || top.getMarketValue() == null
-                || top.getMarketValue().compareTo(BigDecimal.ZERO) <= 0) {
-            result.setTopPositionSymbol(null);
-            result.setTopPositionWeight(BigDecimal.ZERO);
-            return;
-        }
-
-        BigDecimal topWeight = top.getMarketValue()
-                .multiply(BigDecimal.valueOf(100))
-                .divide(totalMv, 2, RoundingMode.HALF_UP);
-
-        result.setTopPositionSymbol(top.getSymbol());
-        result.setTopPositionWeight(topWeight);
-    }
-
     private String buildRiskComment(BigDecimal techWeight, BigDecimal topWeight) {
         StringBuilder sb = new StringBuilder();
 
-        if (techWeight != null && techWeight.compareTo(new BigDecimal("40")) > 0) {
+        if (techWeight != null && techWeight.compareTo(TECH_HIGH) > 0) {
             sb.append("Hohe Tech-Gewichtung (")
                     .append(techWeight).append("%). ");
-        } else if (techWeight != null && techWeight.compareTo(new BigDecimal("20")) > 0) {
+        } else if (techWeight != null && techWeight.compareTo(TECH_MODERATE) > 0) {
             sb.append("Moderate Tech-Gewichtung (")
                     .append(techWeight).append("%). ");
         }
 
-        if (topWeight != null && topWeight.compareTo(new BigDecimal("35")) > 0) {
+        if (topWeight != null && topWeight.compareTo(TOP_VERY_HIGH) > 0) {
             sb.append("Sehr hohe Konzentration auf eine Einzelposition (")
                     .append(topWeight).append("%).");
-        } else if (topWeight != null && topWeight.compareTo(new BigDecimal("20")) > 0) {
+        } else if (topWeight != null && topWeight.compareTo(TOP_ELEVATED) > 0) {
             sb.append("Erhöhte Konzentration auf eine Einzelposition (")
                     .append(topWeight).append("%).");
         }
@@ -160,26 +146,16 @@ public class PortfolioAnalysisService {
         return sb.toString();
     }
 
-    private String buildVolatilityComment(List<Position> positions) {
-        BigDecimal sum = BigDecimal.ZERO;
-        int count = 0;
-
-        for (Position p : positions) {
-            if (p.getVolatility() != null) {
-                sum = sum.add(p.getVolatility());
-                count++;
-            }
-        }
-
+    private String buildVolatilityComment(BigDecimal sum, int count) {
         if (count == 0) {
             return "Keine Volatilitätsdaten verfügbar.";
         }
 
         BigDecimal avgVol = sum.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
 
-        if (avgVol.compareTo(new BigDecimal("0.30")) > 0) {
+        if (avgVol.compareTo(VOL_HIGH) > 0) {
             return "Durchschnittliche Volatilität ist eher hoch (" + avgVol + ").";
-        } else if (avgVol.compareTo(new BigDecimal("0.15")) > 0) {
+        } else if (avgVol.compareTo(VOL_MODERATE) > 0) {
             return "Durchschnittliche Volatilität ist moderat (" + avgVol + ").";
         } else {
             return "Durchschnittliche Volatilität ist eher niedrig (" + avgVol + ").";
@@ -196,7 +172,7 @@ public class PortfolioAnalysisService {
         }
 
         boolean singleDominant = sectorWeights.values().stream()
-                .anyMatch(w -> w.compareTo(new BigDecimal("50")) > 0);
+                .anyMatch(w -> w.compareTo(SECTOR_DOMINANT) > 0);
 
         if (singleDominant) {
             return "Ein Sektor dominiert das Portfolio deutlich (>50%).";
@@ -0,0 +1,246 @@
+package com.mybroker.service;
+
+import com.mybroker.model.Money;
+import com.mybroker.model.Position;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ein-Pass-Kern der {@link PortfolioAnalysisService}: sammelt Gesamtwert, Marktwert pro Sektor, Tech-Anteil,
+ * größte Position und Volatilitätssumme in einer Schleife über die Positionen.
+ * <p>
+ * Beträge werden direkt auf den micros der {@link Money}-Werte aufsummiert (exakt, überlaufgeprüft); die größte
+ * Anzeige-Skala wird mitgeführt, damit der Gesamtwert wie die BigDecimal-Summe dargestellt wird. Verlässt eine
+ * Summe den long-Bereich, rechnet derselbe Durchlauf noch einmal mit {@link Money#plus} (BigDecimal-Fallback). Sektoren bekommen
+ * beim ersten Auftreten eine Nummer; die Tech-Prüfung läuft einmal pro Sektor statt einmal pro Position.
+ * Volatilitäten (Verhältniszahlen beliebiger Skala) laufen als skalierte longs und wechseln nur bei Überlauf
+ * auf BigDecimal.
+ */
+final class PortfolioAnalyticsKernel {
+
+    static final String UNKNOWN_SECTOR = "Unknown";
+
+    private static final int MAX_SCALE = 18;
+    private static final long[] POW10 = new long[MAX_SCALE + 1];
+
+    static {
+        POW10[0] = 1L;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POW10[i] = POW10[i - 1] * 10L;
+        }
+    }
+
+    /**
+     * Rohsummen eines Durchlaufs; Gewichte und Kommentare berechnet der Aufrufer.
+     */
+    static final class Aggregates {
+        final Money totalMarketValue;
+        // Sektoren in Reihenfolge des ersten Auftretens, nur Positionen mit Marktwert > 0
+        final List<String> sectors;
+        final Money[] sectorValues;
+        final Money techValue;
+        // null = keine Position mit Marktwert
+        final Money topMarketValue;
+        final String topSymbol;
+        final BigDecimal volatilitySum;
+        final int volatilityCount;
+
+        Aggregates(Money totalMarketValue, List<String> sectors, Money[] sectorValues, Money techValue,
+                   Money topMarketValue, String topSymbol, BigDecimal volatilitySum, int volatilityCount) {
+            this.totalMarketValue = totalMarketValue;
+            this.sectors = sectors;
+            this.sectorValues = sectorValues;
+            this.techValue = techValue;
+            this.topMarketValue = topMarketValue;
+            this.topSymbol = topSymbol;
+            this.volatilitySum = volatilitySum;
+            this.volatilityCount = volatilityCount;
+        }
+    }
+
+    private PortfolioAnalyticsKernel() {
+    }
+
+    static Aggregates aggregate(List<Position> positions) {
+        try {
+            return aggregateMicros(positions);
+        } catch (ArithmeticException outOfRange) {
+            return aggregateExact(positions);
+        }
+    }
+
+    /**
+     * @throws ArithmeticException wenn ein Betrag oder eine Summe nicht in micros passt
+     */
+    private static Aggregates aggregateMicros(List<Position> positions) {
+        Map<String, Integer> sectorIds = new HashMap<>();
+        List<String> sectors = new ArrayList<>();
+        long[] sectorSums = new long[8];
+        boolean[] sectorIsTech = new boolean[8];
+
+        int mvScale = 0;
+        long total = 0L;
+        long tech = 0L;
+        Money top = null;
+        String topSymbol = null;
+
+        int volScale = 0;
+        long volSum = 0L;
+        BigDecimal volExact = null;
+        int volCount = 0;
+
+        for (Position p : positions) {
+            Money mv = p.getMarketValueMoney();
+            if (mv != null) {
+                long value = mv.getMicros();
+                mvScale = Math.max(mvScale, mv.getScale());
+                total = Math.addExact(total, value);
+
+                // bei Gleichstand gewinnt die erste Position
+                if (top == null || value > top.getMicros()) {
+                    top = mv;
+                    topSymbol = p.getSymbol();
+                }
+
+                if (value > 0) {
+                    String sector = p.getSector();
+                    String key = sector == null || sector.isBlank() ? UNKNOWN_SECTOR : sector;
+                    Integer id = sectorIds.get(key);
+                    if (id == null) {
+                        id = sectors.size();
+                        sectorIds.put(key, id);
+                        sectors.add(key);
+                        if (id == sectorSums.length) {
+                            sectorSums = Arrays.copyOf(sectorSums, id * 2);
+                            sectorIsTech = Arrays.copyOf(sectorIsTech, id * 2);
+                        }
+                        sectorIsTech[id] = isTech(sector);
+                    }
+                    sectorSums[id] = Math.addExact(sectorSums[id], value);
+                    if (sectorIsTech[id]) {
+                        tech = Math.addExact(tech, value);
+                    }
+                }
+            }
+
+            BigDecimal vol = p.getVolatility();
+            if (vol != null) {
+                volCount++;
+                if (volExact != null) {
+                    volExact = volExact.add(vol);
+                    continue;
+                }
+                try {
+                    int scale = Math.max(volScale, Math.max(0, vol.scale()));
+                    long rescaled = Math.multiplyExact(volSum, pow10(scale - volScale));
+                    volSum = Math.addExact(rescaled, unscaled(vol, scale));
+                    volScale = scale;
+                } catch (ArithmeticException outOfRange) {
+                    volExact = BigDecimal.valueOf(volSum, volScale).add(vol);
+                }
+            }
+        }
+
+        Money[] sectorValues = new Money[sectors.size()];
+        for (int i = 0; i < sectorValues.length; i++) {
+            sectorValues[i] = Money.ofMicros(sectorSums[i]);
+        }
+        return new Aggregates(
+                totalMarketValue(total, mvScale),
+                sectors,
+                sectorValues,
+                Money.ofMicros(tech),
+                top,
+                topSymbol,
+                volExact != null ? volExact : BigDecimal.valueOf(volSum, volScale),
+                volCount);
+    }
+
+    /**
+     * Derselbe Durchlauf mit {@link Money}-Summen, die über den long-Bereich hinaus als BigDecimal weiterrechnen.
+     */
+    private static Aggregates aggregateExact(List<Position> positions) {
+        Map<String, Integer> sectorIds = new HashMap<>();
+        List<String> sectors = new ArrayList<>();
+        List<Money> sectorSums = new ArrayList<>();
+        List<Boolean> sectorIsTech = new ArrayList<>();
+
+        Money total = Money.ZERO;
+        Money tech = Money.ZERO;
+        Money top = null;
+        String topSymbol = null;
+        BigDecimal volSum = BigDecimal.ZERO;
+        int volCount = 0;
+
+        for (Position p : positions) {
+            Money mv = p.getMarketValueMoney();
+            if (mv != null) {
+                total = total.plus(mv);
+                if (top == null || mv.compareTo(top) > 0) {
+                    top = mv;
+                    topSymbol = p.getSymbol();
+                }
+                if (mv.signum() > 0) {
+                    String sector = p.getSector();
+                    String key = sector == null || sector.isBlank() ? UNKNOWN_SECTOR : sector;
+                    Integer id = sectorIds.get(key);
+                    if (id == null) {
+                        id = sectors.size();
+                        sectorIds.put(key, id);
+                        sectors.add(key);
+                        sectorSums.add(Money.ZERO);
+                        sectorIsTech.add(isTech(sector));
+                    }
+                    sectorSums.set(id, sectorSums.get(id).plus(mv));
+                    if (sectorIsTech.get(id)) {
+                        tech = tech.plus(mv);
+                    }
+                }
+            }
+            if (p.getVolatility() != null) {
+                volSum = volSum.add(p.getVolatility());
+                volCount++;
+            }
+        }
+
+        return new Aggregates(total, sectors, sectorSums.toArray(new Money[0]), tech, top, topSymbol, volSum, volCount);
+    }
+
+    /**
+     * Summe in micros, dargestellt mit der größten Skala der Summanden (wie die BigDecimal-Summe).
+     */
+    static Money totalMarketValue(long totalMicros, int mvScale) {
+        return Money.ofUnscaled(totalMicros / POW10[Money.SCALE - mvScale], mvScale);
+    }
+
+    /**
+     * Tech: Sektorname enthält "tech" (case-insensitive), damit greifen auch Bezeichnungen wie "Information Technology".
+     */
+    static boolean isTech(String sector) {
+        return sector != null && sector.toLowerCase().contains("tech");
+    }
+
+    private static long pow10(int exponent) {
+        if (exponent > MAX_SCALE) {
+            throw new ArithmeticException("Skala zu groß: " + exponent);
+        }
+        return POW10[exponent];
+    }
+
+    /**
+     * Unskalierter Wert von {@code value} auf der Skala {@code scale} (≥ value.scale()).
+     */
+    private static long unscaled(BigDecimal value, int scale) {
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() > 63) {
+            throw new ArithmeticException("Wert außerhalb des long-Bereichs: " + value);
+        }
+        return Math.multiplyExact(unscaled.longValue(), pow10(scale - value.scale()));
+    }
+}
@@ -1,42 +1,51 @@
 package com.mybroker.service;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.mybroker.config.AppConfig;
+import com.mybroker.db.PortfolioAnalysisSummaryRepository;
+import com.mybroker.marketdata.MarketDataService;
+import com.mybroker.marketdata.Quote;
+import com.mybroker.marketdata.VolatilityService;
+import com.mybroker.model.AlpacaCredentials;
+import com.mybroker.model.BrokerPosition;
+import com.mybroker.model.Money;
+import com.mybroker.model.PortfolioAnalysisSummary;
 import com.mybroker.model.Position;
+import com.mybroker.model.Qty;
+import com.mybroker.stream.TradeUpdatesStream;
 
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Liefert die aktuellen Portfolio-Positionen für die Portfolio-Analyse.
- * Holt die Daten aus Alpaca und reichert sie mit Sektoren über Alpha Vantage an.
+ * Holt die Daten aus Alpaca und reichert sie mit Sektoren ({@link SymbolMetadataService}) und realisierter
+ * Volatilität ({@link VolatilityService}) an.
+ * <p>
+ * Der Stand wird im {@link PortfolioAggregateStore} des Kontos abgelegt und dort von den Streams aktuell gehalten.
+ * Solange der trade_updates-Stream läuft, keine Ausführung dazwischenkam und der letzte Abgleich jünger als
+ * PORTFOLIO_STORE_MAX_AGE_MS ist, werden die Positionen aus dem Store statt per REST geliefert.
+ * <p>
+ * Ist die userId ein verwaltetes Konto (brokerml.tenant_accounts, nur mit DB_URL), laufen alle Aufrufe mit dessen
+ * Zugangsdaten über {@link TenantAlpacaClients}; für {@link #DEFAULT_USER} gilt das Konto aus der Umgebung.
+ * Für userIds ohne aktives Konto wird kein Store angelegt, sie bekommen ein leeres Portfolio.
  */
 public class PortfolioDataService {
 
-    private final AlpacaService alpacaService = new AlpacaService();
+    /** Nutzer ohne eigenes Konto – sieht das über API-Key/Secret der Umgebung konfigurierte Konto. */
+    public static final String DEFAULT_USER = "demoUser";
 
-    //Alpha Key Debug
-    private void debugApiKey() {
-        String Alphaenv = System.getenv("ALPHAVANTAGE_API_KEY");
-        String Alphaprop = System.getProperty("ALPHAVANTAGE_API_KEY");
-        System.out.println("[DEBUG] getenv  ALPHAVANTAGE_API_KEY = '" + Alphaenv + "'");
-        System.out.println("[DEBUG] getprop ALPHAVANTAGE_API_KEY = '" + Alphaprop + "'");
+    private static final long STORE_MAX_AGE_MILLIS =
+            AppConfig.getMillis("PORTFOLIO_STORE_MAX_AGE_MS", 60_000L).toMillis();
 
-        String Alpacaenv = System.getenv("ALPACA_API_KEY");
-        String Alpacaprop = System.getProperty("ALPACA_API_KEY");
-        System.out.println("[DEBUG] getenv  ALPACA_API_KEY = '" + Alpacaenv + "'");
-        System.out.println("[DEBUG] getprop ALPACA_API_KEY = '" + Alpacaprop + "'");
-
-
-    }
+    private final AlpacaService alpacaService = CachedAlpacaService.shared();
+    private final TenantAlpacaClients tenantClients = TenantAlpacaClients.shared();
+    private final SymbolMetadataService symbolMetadata = SymbolMetadataService.shared();
+    private final VolatilityService volatility = VolatilityService.shared();
+    private final PortfolioAnalysisSummaryRepository summaries = new PortfolioAnalysisSummaryRepository();
 
     public static void debugPrintEnv() {
         System.out.println("===== DEBUG: Environment Variables =====");
@@ -66,150 +75,190 @@ public class PortfolioDataService {
 
     /**
      * Lädt die aktuellen Positionen aus Alpaca und mappt sie auf das Position-Model.
-     * Anschließend werden die Sektoren pro Symbol über Alpha Vantage (OVERVIEW) nachgezogen.
+     * Anschließend werden die Sektoren pro Symbol aus den Stammdaten gesetzt (ohne Aufruf von Alpha Vantage).
      *
-     * @param userId aktuell noch nicht verwendet – der Alpaca-Account ist durch API-Key/Secret definiert.
+     * @param userId verwaltetes Konto oder {@link #DEFAULT_USER}
+     * @return Positionen samt Summen zum selben Zeitpunkt, für {@link PortfolioAnalysisService#analyse(PortfolioAggregateStore.Snapshot)}
      */
-    public List<Position> loadCurrentPositions(String userId) {
+    public PortfolioAggregateStore.Snapshot loadCurrentPortfolio(String userId) {
+        boolean managed = isManagedAccount(userId);
+        if (managed && !isKnownTenant(userId)) {
+            return PortfolioAggregateStore.Snapshot.of(new ArrayList<>());
+        }
+        PortfolioAggregateStore store = getAggregateStore(userId);
+        // die Streams laufen nur für das Konto aus der Umgebung
+        if (!managed && TradeUpdatesStream.shared().isLive() && store.isCurrent(STORE_MAX_AGE_MILLIS)) {
+            List<Position> positions = store.positions();
+            symbolMetadata.apply(positions);
+            volatility.apply(positions);
+            // inzwischen nachgeladene Sektoren/Volatilitäten in die Summen übernehmen
+            store.refreshAttributes(positions);
+            return store.snapshot();
+        }
+
         List<Position> result = new ArrayList<>();
+        boolean loaded = false;
 
         try {
-            // 1) JSON von Alpaca holen (wie im PositionsServlet)
-            String json = alpacaService.getPositions();
-            JsonElement root = JsonParser.parseString(json);
-            JsonArray arr = root.isJsonArray() ? root.getAsJsonArray() : new JsonArray();
-
-            // 2) Jede Position aus dem JSON in ein Position-Objekt mappen
-            for (JsonElement el : arr) {
-                if (!el.isJsonObject()) {
-                    continue;
-                }
-                JsonObject pos = el.getAsJsonObject();
-
-                String symbol = getString(pos, "symbol");
-                String qtyStr = getString(pos, "qty");
-                String marketValueStr = getString(pos, "market_value");
-                String unrealizedPlStr = getString(pos, "unrealized_pl");
+            // 1) Positionen von Alpaca holen (bereits typisiert dekodiert, wie im PositionsServlet)
+            // 2) Jede Position auf das Position-Model mappen
+            result = toPositions(alpacaFor(userId).getBrokerPositions());
+            loaded = true;
 
-                BigDecimal quantity = toBigDecimal(qtyStr);
-                BigDecimal marketValue = toBigDecimal(marketValueStr);
-                BigDecimal unrealizedPnl = toBigDecimal(unrealizedPlStr);
-
-                Position p = new Position();
-                p.setSymbol(symbol);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
 
-                // Alpaca liefert im Positions-Endpoint keinen "Name" – Symbol als Fallback
-                p.setName(symbol);
+        if (!loaded && store.size() > 0) {
+            // REST nicht erreichbar: letzter bekannter Stand (per Stream nachgezogen) statt leerer Liste
+            System.err.println("[PortfolioDataService] Alpaca-Positionen nicht verfügbar – verwende gespeicherten Stand.");
+            return store.snapshot();
+        }
 
-                // Sector zunächst "unknown" – wird (falls möglich) über Alpha Vantage gesetzt
-                p.setSector("unknown");
+        // 3) Marktwerte mit aktuellen Kursen neu bewerten (Stream bzw. ein Snapshot-Batch)
+        revalueWithLatestQuotes(result);
 
-                p.setQuantity(quantity);
-                p.setMarketValue(marketValue);
-                p.setUnrealizedPnl(unrealizedPnl);
+        // 4) Sektoren/Namen aus den Stammdaten; fehlende Symbole lädt der SymbolMetadataService im Hintergrund nach
+        symbolMetadata.apply(result);
 
-                // Volatilität aktuell noch nicht vorhanden – später evtl. über ML/Marktdaten
-                p.setVolatility(BigDecimal.ZERO);
+        // 5) Realisierte Volatilität aus brokerml.prices (im Speicher gehalten, inkrementell nachgezogen)
+        volatility.apply(result);
 
-                result.add(p);
+        PortfolioAggregateStore.Snapshot snapshot = PortfolioAggregateStore.Snapshot.of(result);
+        if (loaded) {
+            try {
+                snapshot = store.replaceAll(result);
+            } catch (RuntimeException ex) {
+                // die frisch geladenen Positionen gehen trotzdem raus, der Store behält den vorigen Abgleich
+                System.err.println("[PortfolioDataService] Summen-Store nicht aktualisiert: " + ex);
             }
-
-        } catch (Exception ex) {
-            ex.printStackTrace();
         }
+        if (loaded && !managed) {
+            List<String> symbols = new ArrayList<>();
+            for (Position p : result) {
+                symbols.add(p.getSymbol());
+            }
+            // Kurse der gehaltenen Symbole abonnieren, damit der Store zwischen zwei Abgleichen mitläuft
+            MarketDataService.shared().updateSubscriptions(MarketDataService.OWNER_POSITIONS, symbols);
+        }
+        return snapshot;
+    }
 
-        // 3) Sektoren über Alpha Vantage nachziehen (wenn möglich)
-        enrichSectorsFromAlphaVantage(result);
-
+    /**
+     * Positionen eines verwalteten Kontos für Batch-Läufe: Marktwerte wie von Alpaca geliefert (ohne Kurs-Abfrage
+     * über das Budget des eigenen Kontos), Sektoren und Volatilität wie bei {@link #loadCurrentPortfolio}.
+     * Fehler werden geworfen statt als leeres Portfolio gemeldet.
+     */
+    public List<Position> loadTenantPositions(AlpacaCredentials credentials) throws IOException, InterruptedException {
+        AlpacaService client = tenantClients.client(credentials, AlpacaRateLimiter.Priority.BACKGROUND);
+        List<Position> result = toPositions(client.getBrokerPositions());
+        symbolMetadata.apply(result);
+        volatility.apply(result);
         return result;
     }
 
-    // --------------------------------------------------------------------
-    // Alpha Vantage – Sektoren
-    // --------------------------------------------------------------------
-
     /**
-     * Holt für jede Position den Sektor von Alpha Vantage und schreibt ihn in Position.sector.
-     * Wenn ALPHAVANTAGE_API_KEY nicht gesetzt ist oder es Fehler gibt, bleiben die vorhandenen
-     * Sektoren (z.B. "unknown") bestehen.
+     * Letzte Batch-Analyse eines verwalteten Kontos (brokerml.portfolio_analysis_summaries), z.B. als Ersatz, wenn
+     * Alpaca für das Konto gerade nicht erreichbar ist.
+     *
+     * @return null für nicht verwaltete Konten, wenn noch keine Analyse vorliegt oder die Datenbank nicht erreichbar ist
      */
-    private void enrichSectorsFromAlphaVantage(List<Position> positions) {
-        final String apiKey = System.getenv("ALPHAVANTAGE_API_KEY");
-        debugApiKey();
-        debugPrintEnv();
-        if (apiKey == null || apiKey.isBlank()) {
-            System.out.println("[PortfolioDataService] ALPHAVANTAGE_API_KEY ist nicht gesetzt : Sektor-Anreicherung wird Uebersprungen.");
-            return;
+    public PortfolioAnalysisSummary loadBatchSummary(String userId) {
+        if (!isManagedAccount(userId)) {
+            return null;
         }
+        try {
+            return summaries.find(userId);
+        } catch (SQLException ex) {
+            System.err.println("[PortfolioDataService] Batch-Analyse für " + userId + " nicht lesbar: " + ex.getMessage());
+            return null;
+        }
+    }
 
+    /**
+     * Laufend gepflegte Summen des Kontos für {@link PortfolioAnalysisService#analyse(PortfolioAggregateStore)}.
+     * Für verwaltete Konten nur nach {@link TenantAlpacaClients#exists} aufrufen.
+     */
+    private PortfolioAggregateStore getAggregateStore(String userId) {
+        return isManagedAccount(userId)
+                ? PortfolioAggregateStore.forAccount(userId)
+                : PortfolioAggregateStore.primary();
+    }
 
-        for (Position p : positions) {
-            String symbol = p.getSymbol();
-            if (symbol == null || symbol.isBlank()) {
-                continue;
-            }
-
-            try {
-                String sector = fetchSectorFromAlphaVantage(symbol, apiKey);
-                if (sector != null && !sector.isBlank()) {
-                    System.out.println("[PortfolioDataService] AlphaVantage-Sektor für " + symbol + ": " + sector);
-                    p.setSector(sector);
-                } else {
-                    System.out.println("[PortfolioDataService] AlphaVantage lieferte keinen Sektor für " + symbol);
-                }
-            } catch (Exception e) {
-                System.err.println("[PortfolioDataService] AlphaVantage-Sektorabruf fehlgeschlagen für " + symbol + ": " + e.getMessage());
-            }
-        }
+    /**
+     * Alpaca-Client mit den Zugangsdaten des Nutzers (z.B. für die Portfolio-Historie).
+     *
+     * @throws IOException wenn die Zugangsdaten eines verwalteten Kontos nicht verfügbar sind
+     */
+    public AlpacaService alpacaFor(String userId) throws IOException {
+        return isManagedAccount(userId)
+                ? tenantClients.client(userId, AlpacaRateLimiter.Priority.INTERACTIVE)
+                : alpacaService;
     }
 
     /**
-     * Ruft das Company-Overview bei Alpha Vantage ab und gibt das Feld "Sector" zurück.
-     * <p>
-     * GET https://www.alphavantage.co/query?function=OVERVIEW&symbol=SYMBOL&apikey=KEY
+     * Mit Datenbank ist jeder angemeldete Nutzer außer {@link #DEFAULT_USER} ein verwaltetes Konto – auch ohne Eintrag
+     * in tenant_accounts, damit unbekannte Logins nie das Konto aus der Umgebung sehen.
      */
-    private String fetchSectorFromAlphaVantage(String symbol, String apiKey) throws Exception {
-        String urlStr = "https://www.alphavantage.co/query"
-                + "?function=OVERVIEW"
-                + "&symbol=" + symbol
-                + "&apikey=" + apiKey;
+    public boolean isManagedAccount(String userId) {
+        return userId != null && !DEFAULT_USER.equals(userId) && TenantAlpacaClients.isConfigured();
+    }
 
-        HttpURLConnection conn = null;
+    private boolean isKnownTenant(String userId) {
         try {
-            URL url = new URL(urlStr);
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            int status = conn.getResponseCode();
-            if (status != 200) {
-                throw new RuntimeException("AlphaVantage HTTP " + status + " für Symbol " + symbol);
+            if (tenantClients.exists(userId)) {
+                return true;
             }
+            System.err.println("[PortfolioDataService] Kein aktives Konto für " + userId + " – leeres Portfolio.");
+        } catch (IOException ex) {
+            System.err.println("[PortfolioDataService] Konto " + userId + " nicht prüfbar: " + ex.getMessage());
+        }
+        return false;
+    }
 
-            try (InputStream in = conn.getInputStream();
-                 InputStreamReader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+    private List<Position> toPositions(List<BrokerPosition> brokerPositions) {
+        List<Position> result = new ArrayList<>(brokerPositions.size());
+        for (BrokerPosition pos : brokerPositions) {
+            String symbol = pos.getSymbol() != null ? pos.getSymbol() : "";
 
-                JsonElement root = JsonParser.parseReader(reader);
-                if (!root.isJsonObject()) {
-                    return null;
-                }
-                JsonObject obj = root.getAsJsonObject();
+            Position p = new Position();
+            p.setSymbol(symbol);
 
-                // Wenn ein Fehler zurückkommt (z.B. Rate Limit), ist meist "Note" oder "Information" gesetzt
-                if (obj.has("Note") || obj.has("Information")) {
-                    String note = obj.has("Note") ? obj.get("Note").getAsString() : obj.get("Information").getAsString();
-                    System.err.println("[PortfolioDataService] AlphaVantage Hinweis für " + symbol + ": " + note);
-                    return null;
-                }
+            // Alpaca liefert im Positions-Endpoint keinen "Name" – Symbol als Fallback
+            p.setName(symbol);
 
-                if (obj.has("Sector") && !obj.get("Sector").isJsonNull()) {
-                    return obj.get("Sector").getAsString();
-                }
+            // Sector zunächst "unknown" – wird (falls bekannt) aus den Symbol-Stammdaten gesetzt
+            p.setSector("unknown");
+
+            p.setQty(pos.getQty() != null ? Qty.of(pos.getQty()) : Qty.ZERO);
+            p.setMarketValueMoney(orZero(Money.of(pos.getMarketValue())));
+            p.setUnrealizedPnlMoney(orZero(Money.of(pos.getUnrealizedPl())));
+
+            result.add(p);
+        }
+        return result;
+    }
+
+    /**
+     * Setzt marketValue = Menge × letzter Kurs für alle Positionen, zu denen ein Kurs vorliegt.
+     * Alle Symbole werden gesammelt abgefragt; ohne Kurs bleibt der Marktwert von Alpaca stehen.
+     */
+    private void revalueWithLatestQuotes(List<Position> positions) {
+        if (positions.isEmpty()) {
+            return;
+        }
+        List<String> symbols = new ArrayList<>();
+        for (Position p : positions) {
+            if (p.getSymbol() != null) {
+                symbols.add(p.getSymbol());
             }
+        }
 
-            return null;
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
+        Map<String, Quote> quotes = MarketDataService.shared().getLatestQuotes(symbols);
+        for (Position p : positions) {
+            Quote quote = quotes.get(p.getSymbol());
+            if (quote != null && p.getQty() != null && p.getQty().signum() != 0) {
+                p.setMarketValueMoney(p.getQty().times(BigDecimal.valueOf(quote.getPrice())));
             }
         }
     }
@@ -218,21 +267,7 @@ public class PortfolioDataService {
     // Hilfsfunktionen
     // --------------------------------------------------------------------
 
-    private String getString(JsonObject obj, String field) {
-        if (obj.has(field) && !obj.get(field).isJsonNull()) {
-            return obj.get(field).getAsString();
-        }
-        return "";
-    }
-
-    private BigDecimal toBigDecimal(String value) {
-        if (value == null || value.isBlank()) {
-            return BigDecimal.ZERO;
-        }
-        try {
-            return new BigDecimal(value);
-        } catch (NumberFormatException ex) {
-            return BigDecimal.ZERO;
-        }
+    private Money orZero(Money value) {
+        return value != null ? value : Money.ZERO;
     }
 }
@@ -0,0 +1,296 @@
+package com.mybroker.service;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mybroker.config.AppConfig;
+import com.mybroker.db.SymbolMetadataRepository;
+import com.mybroker.http.UpstreamHttpClient;
+import com.mybroker.http.UpstreamResponse;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.model.Position;
+import com.mybroker.model.SymbolMetadata;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stammdaten (Sektor, Name) pro Symbol, ohne dass ein Seitenaufruf je auf Alpha Vantage wartet.
+ * <ul>
+ *     <li>Speicher: Map aller bekannten Symbole, beim Start aus brokerml.symbol_metadata geladen</li>
+ *     <li>{@link #lookup(String)} / {@link #apply(List)} lesen nur aus dem Speicher; fehlt ein Symbol oder ist der
+ *     Eintrag älter als die TTL, wird es in eine Warteschlange gestellt und der (alte) Stand bzw. null geliefert</li>
+ *     <li>Ein Hintergrund-Thread arbeitet die Warteschlange mit höchstens einem OVERVIEW-Abruf pro Intervall ab
+ *     (Free-Tier: 5/min) und schreibt das Ergebnis in Speicher und DB. Meldet Alpha Vantage das Limit
+ *     ("Note"/"Information"), wird pausiert und das Symbol später erneut versucht.</li>
+ * </ul>
+ * Ohne ALPHAVANTAGE_API_KEY werden nur die gespeicherten Daten genutzt; ohne DB_URL nur der Speicher.
+ * <p>
+ * Konfiguration: ALPHAVANTAGE_MIN_INTERVAL_MS (12500), ALPHAVANTAGE_BACKOFF_MS (60000),
+ * SYMBOL_METADATA_TTL_MS (30 Tage), SYMBOL_METADATA_QUEUE_MAX (200).
+ * Metriken unter {@code symbols.metadata.*}.
+ */
+public class SymbolMetadataService {
+
+    private static final String ALPHAVANTAGE_URL = "https://www.alphavantage.co/query";
+    private static final String METRIC_PREFIX = "symbols.metadata.";
+
+    private final SymbolMetadataRepository repository;
+    private final String apiKey;
+    private final Duration fetchInterval;
+    private final Duration backoff;
+    private final Duration ttl;
+    private final int queueMax;
+    private final UpstreamHttpClient http = UpstreamHttpClient.shared();
+
+    private final Map<String, SymbolMetadata> entries = new ConcurrentHashMap<>();
+    private final BlockingDeque<String> queue = new LinkedBlockingDeque<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService scheduler;
+    private volatile long pausedUntilMillis;
+
+    private final LongAdder hits = Metrics.counter(METRIC_PREFIX + "hits");
+    private final LongAdder misses = Metrics.counter(METRIC_PREFIX + "misses");
+    private final LongAdder fetched = Metrics.counter(METRIC_PREFIX + "fetched");
+    private final LongAdder fetchFailed = Metrics.counter(METRIC_PREFIX + "fetch_failed");
+    private final LongAdder rateLimited = Metrics.counter(METRIC_PREFIX + "rate_limited");
+    private final LongAdder dropped = Metrics.counter(METRIC_PREFIX + "dropped");
+
+    /**
+     * @param repository null = ohne Persistenz
+     * @param apiKey     null/leer = keine Abrufe, nur gespeicherte Daten
+     */
+    public SymbolMetadataService(SymbolMetadataRepository repository, String apiKey,
+                                 Duration fetchInterval, Duration backoff, Duration ttl, int queueMax) {
+        this.repository = repository;
+        this.apiKey = apiKey != null && !apiKey.isBlank() ? apiKey : null;
+        this.fetchInterval = fetchInterval;
+        this.backoff = backoff;
+        this.ttl = ttl;
+        this.queueMax = Math.max(1, queueMax);
+        http.configureHost(ALPHAVANTAGE_URL, Duration.ofSeconds(5), Duration.ofSeconds(10));
+        Metrics.gauge(METRIC_PREFIX + "size", entries::size);
+        Metrics.gauge(METRIC_PREFIX + "queue_depth", queue::size);
+    }
+
+    public static SymbolMetadataService shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Lädt den gespeicherten Stand (im Hintergrund) und startet das Abarbeiten der Warteschlange.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "symbol-metadata");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.execute(this::loadStored);
+        if (apiKey != null) {
+            scheduler.scheduleWithFixedDelay(this::fetchNext, fetchInterval.toMillis(), fetchInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        } else {
+            System.out.println("[SymbolMetadataService] ALPHAVANTAGE_API_KEY ist nicht gesetzt – nur gespeicherte Sektoren.");
+        }
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Stammdaten aus dem Speicher, blockiert nie. Fehlende oder veraltete Symbole werden zum Abruf vorgemerkt.
+     *
+     * @return bekannter (ggf. veralteter) Stand oder null
+     */
+    public SymbolMetadata lookup(String symbol) {
+        if (symbol == null || symbol.isBlank()) {
+            return null;
+        }
+        String key = symbol.trim().toUpperCase();
+        SymbolMetadata metadata = entries.get(key);
+        if (metadata == null) {
+            misses.increment();
+            enqueue(key);
+        } else {
+            hits.increment();
+            if (metadata.isExpired(Instant.now().minus(ttl))) {
+                enqueue(key);
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Setzt Sektor und Name der Positionen aus dem Speicher; unbekannte Werte bleiben unverändert.
+     */
+    public void apply(List<Position> positions) {
+        for (Position p : positions) {
+            SymbolMetadata metadata = lookup(p.getSymbol());
+            if (metadata == null) {
+                continue;
+            }
+            if (metadata.getSector() != null && !metadata.getSector().isBlank()) {
+                p.setSector(metadata.getSector());
+            }
+            if (metadata.getName() != null && !metadata.getName().isBlank()) {
+                p.setName(metadata.getName());
+            }
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Hintergrund
+    // ---------------------------------------------------------
+
+    private void enqueue(String symbol) {
+        if (apiKey == null || !queued.add(symbol)) {
+            return;
+        }
+        if (queue.size() >= queueMax) {
+            queued.remove(symbol);
+            dropped.increment();
+            return;
+        }
+        queue.offerLast(symbol);
+    }
+
+    private void loadStored() {
+        if (repository == null) {
+            return;
+        }
+        try {
+            List<SymbolMetadata> stored = repository.loadAll();
+            for (SymbolMetadata metadata : stored) {
+                // Was seit dem Start schon frisch abgerufen wurde, nicht mit dem DB-Stand überschreiben
+                entries.putIfAbsent(metadata.getSymbol(), metadata);
+            }
+            System.out.println("[SymbolMetadataService] " + stored.size() + " Symbole aus der DB geladen.");
+        } catch (Exception e) {
+            System.err.println("[SymbolMetadataService] Laden aus der DB fehlgeschlagen: " + e.getMessage());
+        }
+    }
+
+    private void fetchNext() {
+        if (System.currentTimeMillis() < pausedUntilMillis) {
+            return;
+        }
+        // Inzwischen aus der DB geladene oder bereits aktualisierte Symbole überspringen, ohne ein Intervall zu verbrauchen
+        String symbol;
+        while ((symbol = queue.pollFirst()) != null) {
+            SymbolMetadata current = entries.get(symbol);
+            if (current == null || current.isExpired(Instant.now().minus(ttl))) {
+                break;
+            }
+            queued.remove(symbol);
+        }
+        if (symbol == null) {
+            return;
+        }
+
+        try {
+            SymbolMetadata metadata = fetchOverview(symbol);
+            if (metadata == null) {
+                // Limit erreicht: Symbol vorne wieder einreihen und pausieren
+                rateLimited.increment();
+                pausedUntilMillis = System.currentTimeMillis() + backoff.toMillis();
+                queue.offerFirst(symbol);
+                return;
+            }
+            entries.put(symbol, metadata);
+            fetched.increment();
+            queued.remove(symbol);
+            persist(metadata);
+        } catch (Exception e) {
+            fetchFailed.increment();
+            queued.remove(symbol);
+            System.err.println("[SymbolMetadataService] AlphaVantage-Abruf fehlgeschlagen für " + symbol + ": " + e.getMessage());
+        }
+    }
+
+    private void persist(SymbolMetadata metadata) {
+        if (repository == null) {
+            return;
+        }
+        try {
+            repository.upsert(metadata);
+        } catch (Exception e) {
+            System.err.println("[SymbolMetadataService] Speichern fehlgeschlagen für " + metadata.getSymbol() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ruft das Company-Overview bei Alpha Vantage ab.
+     * <p>
+     * GET https://www.alphavantage.co/query?function=OVERVIEW&symbol=SYMBOL&apikey=KEY
+     *
+     * @return Stammdaten (Sektor null, wenn Alpha Vantage keinen kennt) oder null, wenn das Limit erreicht ist
+     */
+    private SymbolMetadata fetchOverview(String symbol) throws IOException {
+        String urlStr = ALPHAVANTAGE_URL
+                + "?function=OVERVIEW"
+                + "&symbol=" + URLEncoder.encode(symbol, StandardCharsets.UTF_8)
+                + "&apikey=" + apiKey;
+
+        UpstreamResponse response = http.send(http.newRequest(urlStr).GET().build());
+
+        int status = response.statusCode();
+        if (status != 200) {
+            throw new IOException("AlphaVantage HTTP " + status + " für Symbol " + symbol);
+        }
+
+        JsonElement root = JsonParser.parseString(response.body());
+        if (!root.isJsonObject()) {
+            throw new IOException("AlphaVantage lieferte kein JSON-Objekt für " + symbol);
+        }
+        JsonObject obj = root.getAsJsonObject();
+
+        // Rate Limit bzw. Tageskontingent: "Note" oder "Information" statt Daten
+        if (obj.has("Note") || obj.has("Information")) {
+            String note = obj.has("Note") ? obj.get("Note").getAsString() : obj.get("Information").getAsString();
+            System.err.println("[SymbolMetadataService] AlphaVantage Hinweis für " + symbol + ": " + note);
+            return null;
+        }
+
+        return new SymbolMetadata(symbol, text(obj, "Sector"), text(obj, "Name"), Instant.now());
+    }
+
+    private static String text(JsonObject obj, String field) {
+        if (!obj.has(field) || obj.get(field).isJsonNull()) {
+            return null;
+        }
+        String value = obj.get(field).getAsString();
+        return value.isBlank() || "None".equalsIgnoreCase(value) ? null : value;
+    }
+
+    private static final class Holder {
+        static final SymbolMetadataService INSTANCE = new SymbolMetadataService(
+                System.getenv("DB_URL") != null ? new SymbolMetadataRepository() : null,
+                System.getenv("ALPHAVANTAGE_API_KEY"),
+                AppConfig.getMillis("ALPHAVANTAGE_MIN_INTERVAL_MS", 12_500),
+                AppConfig.getMillis("ALPHAVANTAGE_BACKOFF_MS", 60_000),
+                AppConfig.getMillis("SYMBOL_METADATA_TTL_MS", 30L * 24 * 60 * 60 * 1000),
+                AppConfig.getInt("SYMBOL_METADATA_QUEUE_MAX", 200));
+    }
+}
@@ -0,0 +1,195 @@
+package com.mybroker.service;
+
+import com.mybroker.config.AppConfig;
+import com.mybroker.db.TenantAccountRepository;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.model.AlpacaCredentials;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link AlpacaService}-Instanzen für verwaltete Konten mit den Zugangsdaten aus brokerml.tenant_accounts.
+ * <p>
+ * Pro Konto gibt es einen eigenen {@link AlpacaRateLimiter} (Alpaca zählt pro API-Key) und je Priorität eine
+ * Client-Instanz; alle teilen sich den Transport. Zugangsdaten werden nach TENANT_CREDENTIALS_TTL_MS (Default
+ * 300000) neu gelesen, damit rotierte Keys ohne Neustart greifen. Gehalten werden höchstens
+ * TENANT_CLIENT_CACHE_MAX (Default 2048) Konten, das am längsten ungenutzte fällt zuerst heraus.
+ * <p>
+ * API-Key und Secret kommen verschlüsselt aus der Datenbank und werden nur hier mit dem {@link TenantSecretCipher}
+ * entschlüsselt; ohne TENANT_SECRET_KEY gibt es keine Clients für verwaltete Konten.
+ */
+public class TenantAlpacaClients {
+
+    private static final class Entry {
+        // wie gespeichert (verschlüsselt) – zum Erkennen rotierter Zugangsdaten
+        final AlpacaCredentials stored;
+        final AlpacaCredentials credentials;
+        final AlpacaRateLimiter limiter;
+        final Map<AlpacaRateLimiter.Priority, AlpacaService> clients = new EnumMap<>(AlpacaRateLimiter.Priority.class);
+        volatile long loadedAtMillis;
+
+        Entry(AlpacaCredentials stored, AlpacaCredentials credentials, AlpacaRateLimiter limiter) {
+            this.stored = stored;
+            this.credentials = credentials;
+            this.limiter = limiter;
+            this.loadedAtMillis = System.currentTimeMillis();
+        }
+
+        synchronized AlpacaService client(AlpacaRateLimiter.Priority priority) {
+            return clients.computeIfAbsent(priority, p -> new AlpacaService(credentials, p, limiter));
+        }
+    }
+
+    private final TenantAccountRepository repository;
+    private final TenantSecretCipher cipher;
+    private final long credentialsTtlMillis;
+    private final Map<String, Entry> entries;
+
+    /**
+     * @param cipher null = kein Schlüssel konfiguriert, jeder Client-Aufruf scheitert
+     */
+    public TenantAlpacaClients(TenantAccountRepository repository, TenantSecretCipher cipher,
+                               long credentialsTtlMillis, int maxEntries) {
+        this.repository = repository;
+        this.cipher = cipher;
+        this.credentialsTtlMillis = credentialsTtlMillis;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        Metrics.gauge("tenant.clients.cached", this::size);
+    }
+
+    public static TenantAlpacaClients shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Verwaltete Konten gibt es nur mit Datenbank.
+     */
+    public static boolean isConfigured() {
+        return System.getenv("DB_URL") != null;
+    }
+
+    /**
+     * Client für ein Konto, Zugangsdaten aus dem Cache bzw. der Datenbank.
+     *
+     * @throws IOException wenn das Konto unbekannt/deaktiviert ist oder die Zugangsdaten nicht gelesen werden können
+     */
+    public AlpacaService client(String tenantId, AlpacaRateLimiter.Priority priority) throws IOException {
+        Entry entry = entry(tenantId);
+        if (entry == null) {
+            throw new IOException("Unbekanntes oder deaktiviertes Konto: " + tenantId);
+        }
+        return entry.client(priority);
+    }
+
+    /**
+     * Client für bereits geladene Zugangsdaten (z.B. aus {@link TenantAccountRepository#loadActive()}).
+     *
+     * @throws IOException wenn sich die Zugangsdaten nicht entschlüsseln lassen
+     */
+    public AlpacaService client(AlpacaCredentials stored, AlpacaRateLimiter.Priority priority) throws IOException {
+        return entryFor(stored).client(priority);
+    }
+
+    /**
+     * Ob es zur userId ein aktives verwaltetes Konto mit gültigen Zugangsdaten gibt (aus dem Cache bzw. der
+     * Datenbank). Erst danach legen Aufrufer Zustand für das Konto an.
+     *
+     * @throws IOException wenn die Datenbank nicht erreichbar ist oder sich die Zugangsdaten nicht entschlüsseln lassen
+     */
+    public boolean exists(String tenantId) throws IOException {
+        return entry(tenantId) != null;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Eintrag des Kontos, null wenn es unbekannt oder deaktiviert ist
+     */
+    private Entry entry(String tenantId) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(tenantId);
+        }
+        if (entry != null && System.currentTimeMillis() - entry.loadedAtMillis <= credentialsTtlMillis) {
+            return entry;
+        }
+        AlpacaCredentials stored;
+        try {
+            stored = repository.find(tenantId);
+        } catch (SQLException e) {
+            throw new IOException("Zugangsdaten für Konto " + tenantId + " nicht lesbar: " + e.getMessage(), e);
+        }
+        if (stored == null) {
+            synchronized (this) {
+                entries.remove(tenantId);
+            }
+            return null;
+        }
+        return entryFor(stored);
+    }
+
+    /**
+     * Übernimmt die Zugangsdaten; bei unveränderten Daten bleiben Clients und Limiter erhalten,
+     * bei gleichem API-Key zumindest der Limiter.
+     */
+    private synchronized Entry entryFor(AlpacaCredentials stored) throws IOException {
+        Entry current = entries.get(stored.getTenantId());
+        if (current != null && current.stored.equals(stored)) {
+            current.loadedAtMillis = System.currentTimeMillis();
+            return current;
+        }
+        AlpacaCredentials credentials = decrypt(stored);
+        AlpacaRateLimiter limiter = current != null && current.credentials.getApiKey().equals(credentials.getApiKey())
+                ? current.limiter
+                : AlpacaRateLimiter.forTenant();
+        Entry fresh = new Entry(stored, credentials, limiter);
+        entries.put(stored.getTenantId(), fresh);
+        return fresh;
+    }
+
+    private AlpacaCredentials decrypt(AlpacaCredentials stored) throws IOException {
+        String tenantId = stored.getTenantId();
+        if (cipher == null) {
+            throw new IOException("TENANT_SECRET_KEY nicht gesetzt – Zugangsdaten für Konto " + tenantId
+                    + " nicht entschlüsselbar");
+        }
+        try {
+            return new AlpacaCredentials(tenantId,
+                    cipher.decrypt(stored.getApiKey(), tenantId, TenantSecretCipher.API_KEY_COLUMN),
+                    cipher.decrypt(stored.getApiSecret(), tenantId, TenantSecretCipher.API_SECRET_COLUMN),
+                    stored.getBaseUrl(),
+                    stored.getDataUrl());
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Zugangsdaten für Konto " + tenantId + " nicht entschlüsselbar: " + e.getMessage(), e);
+        }
+    }
+
+    private static TenantSecretCipher cipherFromEnvironment() {
+        try {
+            return TenantSecretCipher.fromEnvironment();
+        } catch (IllegalArgumentException e) {
+            System.err.println("[TenantAlpacaClients] TENANT_SECRET_KEY ungültig: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class Holder {
+        static final TenantAlpacaClients INSTANCE = new TenantAlpacaClients(
+                new TenantAccountRepository(),
+                cipherFromEnvironment(),
+                AppConfig.getMillis("TENANT_CREDENTIALS_TTL_MS", 300_000).toMillis(),
+                AppConfig.getInt("TENANT_CLIENT_CACHE_MAX", 2048));
+    }
+}
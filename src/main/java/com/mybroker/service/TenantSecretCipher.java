@@ -0,0 +1,118 @@
+package com.mybroker.service;
+
+import com.mybroker.config.AppConfig;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Verschlüsselung der Alpaca-Zugangsdaten in brokerml.tenant_accounts (AES-256-GCM).
+ * <p>
+ * Der Schlüssel kommt aus TENANT_SECRET_KEY (Base64, 32 Byte – aus Umgebung bzw. Secret-Store, nie aus der
+ * Datenbank). Gespeichert wird {@code v1:<Base64(IV || Chiffretext || Tag)>}; tenant_id und Spaltenname gehen als
+ * zusätzliche Daten in den Tag ein, damit sich Werte nicht zwischen Konten oder Spalten umkopieren lassen.
+ * Entschlüsselt wird nur in {@link TenantAlpacaClients}; neue Werte erzeugt {@link #main(String[])}.
+ */
+public final class TenantSecretCipher {
+
+    public static final String API_KEY_COLUMN = "api_key_enc";
+    public static final String API_SECRET_COLUMN = "api_secret_enc";
+
+    private static final String PREFIX = "v1:";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int KEY_BYTES = 32;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+
+    public TenantSecretCipher(byte[] key) {
+        if (key == null || key.length != KEY_BYTES) {
+            throw new IllegalArgumentException("TENANT_SECRET_KEY muss " + KEY_BYTES + " Byte lang sein");
+        }
+        this.key = new SecretKeySpec(key, "AES");
+    }
+
+    /**
+     * @return null, wenn TENANT_SECRET_KEY nicht gesetzt ist
+     * @throws IllegalArgumentException wenn der Schlüssel kein gültiges Base64 bzw. nicht 32 Byte lang ist
+     */
+    public static TenantSecretCipher fromEnvironment() {
+        String encoded = AppConfig.getString("TENANT_SECRET_KEY", null);
+        return encoded != null ? new TenantSecretCipher(Base64.getDecoder().decode(encoded)) : null;
+    }
+
+    public String encrypt(String plaintext, String tenantId, String column) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        Cipher cipher = init(Cipher.ENCRYPT_MODE, iv, tenantId, column);
+        byte[] sealed = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
+        byte[] out = ByteBuffer.allocate(IV_BYTES + sealed.length).put(iv).put(sealed).array();
+        return PREFIX + Base64.getEncoder().encodeToString(out);
+    }
+
+    /**
+     * @throws GeneralSecurityException bei unverschlüsselten, manipulierten oder für ein anderes Konto bzw. eine
+     *                                  andere Spalte erzeugten Werten
+     */
+    public String decrypt(String stored, String tenantId, String column) throws GeneralSecurityException {
+        if (stored == null || !stored.startsWith(PREFIX)) {
+            throw new GeneralSecurityException(column + " von Konto " + tenantId + " ist nicht verschlüsselt");
+        }
+        byte[] in;
+        try {
+            in = Base64.getDecoder().decode(stored.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new GeneralSecurityException(column + " von Konto " + tenantId + " ist kein gültiges Base64", e);
+        }
+        if (in.length <= IV_BYTES) {
+            throw new GeneralSecurityException(column + " von Konto " + tenantId + " ist zu kurz");
+        }
+        Cipher cipher = init(Cipher.DECRYPT_MODE, Arrays.copyOf(in, IV_BYTES), tenantId, column);
+        byte[] plain = cipher.doFinal(in, IV_BYTES, in.length - IV_BYTES);
+        return new String(plain, StandardCharsets.UTF_8);
+    }
+
+    private Cipher init(int mode, byte[] iv, String tenantId, String column) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(mode, key, new GCMParameterSpec(TAG_BITS, iv));
+        cipher.updateAAD((tenantId + "\u0000" + column).getBytes(StandardCharsets.UTF_8));
+        return cipher;
+    }
+
+    /**
+     * Erzeugt die Spaltenwerte für ein Konto: {@code TenantSecretCipher <tenant_id>}, API-Key und Secret je eine
+     * Zeile auf stdin (nicht als Argument, damit sie nicht in der Shell-History landen). Ausgabe: api_key_enc und
+     * api_secret_enc, je eine Zeile.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Aufruf: TenantSecretCipher <tenant_id>  (API-Key und Secret über stdin)");
+            System.exit(2);
+        }
+        TenantSecretCipher cipher = fromEnvironment();
+        if (cipher == null) {
+            System.err.println("[TenantSecretCipher] TENANT_SECRET_KEY nicht gesetzt.");
+            System.exit(2);
+        }
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String apiKey = in.readLine();
+        String apiSecret = in.readLine();
+        if (apiKey == null || apiSecret == null) {
+            System.err.println("[TenantSecretCipher] API-Key und Secret erwartet.");
+            System.exit(2);
+        }
+        System.out.println(cipher.encrypt(apiKey.trim(), args[0], API_KEY_COLUMN));
+        System.out.println(cipher.encrypt(apiSecret.trim(), args[0], API_SECRET_COLUMN));
+    }
+}
@@ -3,21 +3,20 @@ package com.mybroker.service;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.mybroker.http.UpstreamHttpClient;
+import com.mybroker.http.UpstreamResponse;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 public class ValueServiceClient {
 
     private final String baseUrl; // z.B. https://value.netdesign.ch/api
+    private final UpstreamHttpClient http = UpstreamHttpClient.shared();
 
     public ValueServiceClient(String baseUrl) {
         this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        http.configureHost(this.baseUrl, Duration.ofSeconds(5), Duration.ofSeconds(10));
     }
 
     public JsonObject getScore(String symbol) throws IOException {
@@ -26,34 +25,12 @@ public class ValueServiceClient {
 
     private JsonObject get(String path, String symbol) throws IOException {
         String urlStr = baseUrl + path + "?symbol=" + encode(symbol);
-        URL url = new URL(urlStr);
 
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        conn.setConnectTimeout(5_000);
-        conn.setReadTimeout(10_000);
+        UpstreamResponse response = http.send(http.newRequest(urlStr).GET().build());
+        String body = response.body();
 
-        int status = conn.getResponseCode();
-        InputStream is = (status >= 200 && status < 300)
-                ? conn.getInputStream()
-                : conn.getErrorStream();
-
-        String body;
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(is, StandardCharsets.UTF_8))) {
-
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line);
-            }
-            body = sb.toString();
-        } finally {
-            conn.disconnect();
-        }
-
-        if (status < 200 || status >= 300) {
-            throw new IOException("ValueService returned HTTP " + status + " for " + urlStr
+        if (!response.isSuccessful()) {
+            throw new IOException("ValueService returned HTTP " + response.statusCode() + " for " + urlStr
                     + " body=" + body);
         }
 
@@ -0,0 +1,47 @@
+package com.mybroker.stream;
+
+/**
+ * Eine Ausführung (fill / partial_fill) aus dem trade_updates-Stream oder aus dem REST-Abgleich.
+ */
+public final class LiveFill {
+
+    private final String orderId;
+    private final String symbol;
+    private final String side;
+    private final String qty;
+    private final String price;
+    private final String timestamp;
+
+    public LiveFill(String orderId, String symbol, String side, String qty, String price, String timestamp) {
+        this.orderId = orderId;
+        this.symbol = symbol;
+        this.side = side;
+        this.qty = qty;
+        this.price = price;
+        this.timestamp = timestamp;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getSide() {
+        return side;
+    }
+
+    public String getQty() {
+        return qty;
+    }
+
+    public String getPrice() {
+        return price;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,82 @@
+package com.mybroker.stream;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Unveränderlicher Stand einer eigenen Order im {@link LiveOrderBook}.
+ */
+public final class LiveOrder {
+
+    private static final Set<String> TERMINAL_STATUSES = Set.of(
+            "filled", "canceled", "expired", "rejected", "replaced", "done_for_day");
+
+    private final String id;
+    private final String clientOrderId;
+    private final String symbol;
+    private final String side;
+    private final String type;
+    private final String qty;
+    private final String filledQty;
+    private final String status;
+    private final String createdAt;
+    private final Instant updatedAt;
+
+    public LiveOrder(String id, String clientOrderId, String symbol, String side, String type,
+                     String qty, String filledQty, String status, String createdAt, Instant updatedAt) {
+        this.id = id;
+        this.clientOrderId = clientOrderId;
+        this.symbol = symbol;
+        this.side = side;
+        this.type = type;
+        this.qty = qty;
+        this.filledQty = filledQty;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public boolean isOpen() {
+        return status == null || !TERMINAL_STATUSES.contains(status);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getClientOrderId() {
+        return clientOrderId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getSide() {
+        return side;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getQty() {
+        return qty;
+    }
+
+    public String getFilledQty() {
+        return filledQty;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,316 @@
+package com.mybroker.stream;
+
+import com.mybroker.config.AppConfig;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * In-Memory-Orderbuch der eigenen Orders plus Positions-Ledger.
+ * <p>
+ * Wird vom {@link TradeUpdatesStream} geschrieben (Events und Abgleich sind über den Monitor des Buchs
+ * serialisiert) und von beliebig vielen Servlet-Threads gelesen. Alle Strukturen sind concurrent, Leser sehen
+ * immer einen konsistenten Stand pro Order bzw. pro Symbol – ganz ohne Netzwerkaufruf.
+ * <p>
+ * Abgeschlossene Orders (filled, canceled, rejected, ...) bleiben für {@link #getOrder(String)} (Order-Status-Seite)
+ * noch LIVE_ORDER_RETENTION_MS (Default 1 h) abrufbar, höchstens aber LIVE_ORDER_MAX_TERMINAL (Default 1000) Stück;
+ * danach fliegen die ältesten raus – auch über einen Abgleich hinweg.
+ * <p>
+ * Ein Abgleich läuft in zwei Schritten: {@link #beginReconcile()} vor den REST-Abfragen, {@link #reconcile} danach.
+ * Events, die dazwischen eintreffen, sind neuer als der REST-Stand: ihre Orders werden nicht entfernt und ihre
+ * Positionen nicht überschrieben.
+ */
+public class LiveOrderBook {
+
+    private static final int MAX_RECENT_FILLS = 50;
+
+    private final long terminalRetentionNanos;
+    private final int maxTerminalOrders;
+
+    private final Map<String, LiveOrder> orders = new ConcurrentHashMap<>();
+    // Order-ID -> Zeitpunkt (nanoTime), zu dem die Order abgeschlossen wurde; älteste zuerst
+    private final LinkedHashMap<String, Long> terminalSince = new LinkedHashMap<>();
+    private final Map<String, BigDecimal> positions = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<LiveFill> recentFills = new ConcurrentLinkedDeque<>();
+    private final List<BiConsumer<String, BigDecimal>> positionListeners = new CopyOnWriteArrayList<>();
+
+    // Zwischen beginReconcile() und reconcile() per Stream eingetroffen; null = kein Abgleich läuft
+    private Set<String> gapOrderIds;
+    private Map<String, BigDecimal> gapPositions;
+    private List<LiveFill> gapFills;
+
+    public LiveOrderBook() {
+        this(AppConfig.getMillis("LIVE_ORDER_RETENTION_MS", 3_600_000),
+                AppConfig.getInt("LIVE_ORDER_MAX_TERMINAL", 1000));
+    }
+
+    /**
+     * @param terminalRetention so lange bleiben abgeschlossene Orders abrufbar
+     * @param maxTerminalOrders höchstens so viele abgeschlossene Orders werden gehalten
+     */
+    public LiveOrderBook(Duration terminalRetention, int maxTerminalOrders) {
+        this.terminalRetentionNanos = terminalRetention.toNanos();
+        this.maxTerminalOrders = Math.max(0, maxTerminalOrders);
+    }
+
+    /**
+     * Wird bei jeder Änderung einer Positionsmenge aufgerufen (Symbol, neue Stückzahl; 0 = geschlossen),
+     * synchron auf dem schreibenden Thread.
+     */
+    public void addPositionListener(BiConsumer<String, BigDecimal> listener) {
+        positionListeners.add(listener);
+    }
+
+    // ---------------------------------------------------------
+    // Schreiben (Stream / Abgleich)
+    // ---------------------------------------------------------
+
+    /**
+     * Übernimmt den neuen Stand einer Order, sofern er nicht älter ist als der bekannte.
+     */
+    public synchronized void applyOrder(LiveOrder order) {
+        if (order == null || order.getId() == null) {
+            return;
+        }
+        if (gapOrderIds != null) {
+            gapOrderIds.add(order.getId());
+        }
+        LiveOrder stored = orders.merge(order.getId(), order,
+                (current, incoming) -> isNewer(incoming, current) ? incoming : current);
+        synchronized (terminalSince) {
+            if (!stored.isOpen()) {
+                terminalSince.putIfAbsent(stored.getId(), System.nanoTime());
+            }
+            evictTerminal();
+        }
+    }
+
+    /**
+     * Verbucht eine Ausführung. Ist {@code positionQty} bekannt (Alpaca liefert es bei fill-Events mit),
+     * wird die Position direkt gesetzt, sonst um die ausgeführte Menge angepasst.
+     */
+    public synchronized void applyFill(LiveFill fill, BigDecimal positionQty) {
+        recentFills.addFirst(fill);
+        while (recentFills.size() > MAX_RECENT_FILLS) {
+            recentFills.pollLast();
+        }
+        if (gapFills != null) {
+            gapFills.add(0, fill);
+        }
+
+        String symbol = fill.getSymbol();
+        if (symbol == null) {
+            return;
+        }
+        BigDecimal updated = positionQty;
+        if (updated == null) {
+            BigDecimal delta = toBigDecimal(fill.getQty());
+            if ("sell".equalsIgnoreCase(fill.getSide())) {
+                delta = delta.negate();
+            }
+            updated = positions.getOrDefault(symbol, BigDecimal.ZERO).add(delta);
+        }
+        setPosition(symbol, updated);
+        if (gapPositions != null) {
+            gapPositions.put(symbol, updated);
+        }
+    }
+
+    /**
+     * Vor den REST-Abfragen eines Abgleichs aufrufen: ab jetzt eintreffende Events gewinnen gegen den REST-Stand.
+     */
+    public synchronized void beginReconcile() {
+        gapOrderIds = new HashSet<>();
+        gapPositions = new HashMap<>();
+        gapFills = new ArrayList<>();
+    }
+
+    /**
+     * Abgleich abgebrochen (REST nicht erreichbar): Stand bleibt, wie ihn der Stream hinterlassen hat.
+     */
+    public synchronized void cancelReconcile() {
+        gapOrderIds = null;
+        gapPositions = null;
+        gapFills = null;
+    }
+
+    /**
+     * Gleicht den Stand nach einem (Re-)Connect mit den REST-Daten ab (nach {@link #beginReconcile()} abgefragt):
+     * offene Orders, die Alpaca nicht mehr kennt, sind während der Lücke geschlossen worden und fliegen raus;
+     * Positionen und letzte Fills werden ersetzt. Seit {@link #beginReconcile()} per Stream gemeldete Orders,
+     * Positionen und Fills bleiben erhalten, abgeschlossene Orders laufen wie gewohnt über die Aufbewahrungszeit aus.
+     */
+    public synchronized void reconcile(List<LiveOrder> openOrdersFromRest,
+                                       Map<String, BigDecimal> positionsFromRest,
+                                       List<LiveFill> recentFillsFromRest) {
+        Set<String> liveOrderIds = gapOrderIds != null ? gapOrderIds : Set.of();
+        Map<String, BigDecimal> livePositions = gapPositions != null ? gapPositions : Map.of();
+        List<LiveFill> liveFills = gapFills != null ? gapFills : List.of();
+        cancelReconcile();
+
+        Set<String> restIds = new HashSet<>();
+        for (LiveOrder order : openOrdersFromRest) {
+            restIds.add(order.getId());
+            applyOrder(order);
+        }
+
+        Iterator<Map.Entry<String, LiveOrder>> it = orders.entrySet().iterator();
+        while (it.hasNext()) {
+            LiveOrder order = it.next().getValue();
+            if (order.isOpen() && !restIds.contains(order.getId()) && !liveOrderIds.contains(order.getId())) {
+                it.remove();
+            }
+        }
+
+        for (String symbol : new ArrayList<>(positions.keySet())) {
+            if (!positionsFromRest.containsKey(symbol) && !livePositions.containsKey(symbol)) {
+                setPosition(symbol, BigDecimal.ZERO);
+            }
+        }
+        positionsFromRest.forEach((symbol, qty) -> {
+            if (!livePositions.containsKey(symbol)) {
+                setPosition(symbol, qty);
+            }
+        });
+
+        recentFills.clear();
+        liveFills.forEach(recentFills::addLast);
+        for (LiveFill fill : recentFillsFromRest) {
+            if (recentFills.size() >= MAX_RECENT_FILLS) {
+                break;
+            }
+            if (liveFills.stream().noneMatch(live -> sameExecution(live, fill))) {
+                recentFills.addLast(fill);
+            }
+        }
+        while (recentFills.size() > MAX_RECENT_FILLS) {
+            recentFills.pollLast();
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Lesen
+    // ---------------------------------------------------------
+
+    /**
+     * Offene Orders, neueste zuerst (wie /v2/orders?status=open&direction=desc).
+     */
+    public List<LiveOrder> getOpenOrders() {
+        List<LiveOrder> result = new ArrayList<>();
+        for (LiveOrder order : orders.values()) {
+            if (order.isOpen()) {
+                result.add(order);
+            }
+        }
+        result.sort(Comparator.comparing(LiveOrder::getCreatedAt,
+                Comparator.nullsLast(Comparator.<String>naturalOrder())).reversed());
+        return result;
+    }
+
+    public LiveOrder getOrder(String orderId) {
+        return orderId == null ? null : orders.get(orderId);
+    }
+
+    /**
+     * Aktuelle Positionen (Symbol -&gt; Stückzahl), alphabetisch sortiert.
+     */
+    public Map<String, BigDecimal> getPositions() {
+        return Collections.unmodifiableMap(new TreeMap<>(positions));
+    }
+
+    public BigDecimal getPosition(String symbol) {
+        return positions.getOrDefault(symbol, BigDecimal.ZERO);
+    }
+
+    /**
+     * Letzte Ausführungen, neueste zuerst.
+     */
+    public List<LiveFill> getRecentFills(int limit) {
+        List<LiveFill> result = new ArrayList<>(Math.min(limit, MAX_RECENT_FILLS));
+        for (LiveFill fill : recentFills) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(fill);
+        }
+        return result;
+    }
+
+    // ---------------------------------------------------------
+    // Intern
+    // ---------------------------------------------------------
+
+    private void setPosition(String symbol, BigDecimal qty) {
+        BigDecimal previous = qty.signum() == 0 ? positions.remove(symbol) : positions.put(symbol, qty);
+        if (previous == null ? qty.signum() == 0 : previous.compareTo(qty) == 0) {
+            return;
+        }
+        for (BiConsumer<String, BigDecimal> listener : positionListeners) {
+            try {
+                listener.accept(symbol, qty);
+            } catch (RuntimeException e) {
+                System.err.println("[LiveOrderBook] Positions-Listener fehlgeschlagen für " + symbol + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Entfernt abgeschlossene Orders, die älter als die Aufbewahrungszeit sind oder über dem Limit liegen.
+     * Aufruf nur unter dem Lock von {@code terminalSince}.
+     */
+    private void evictTerminal() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, Long>> it = terminalSince.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> oldest = it.next();
+            if (terminalSince.size() <= maxTerminalOrders && now - oldest.getValue() < terminalRetentionNanos) {
+                break;
+            }
+            orders.computeIfPresent(oldest.getKey(), (id, order) -> order.isOpen() ? order : null);
+            it.remove();
+        }
+    }
+
+    /**
+     * Stream und REST liefern Zeitstempel unterschiedlich formatiert – verglichen werden Order, Menge und Preis.
+     */
+    private static boolean sameExecution(LiveFill a, LiveFill b) {
+        return Objects.equals(a.getOrderId(), b.getOrderId())
+                && toBigDecimal(a.getQty()).compareTo(toBigDecimal(b.getQty())) == 0
+                && toBigDecimal(a.getPrice()).compareTo(toBigDecimal(b.getPrice())) == 0;
+    }
+
+    private static boolean isNewer(LiveOrder incoming, LiveOrder current) {
+        if (incoming.getUpdatedAt() == null || current.getUpdatedAt() == null) {
+            return true;
+        }
+        return !incoming.getUpdatedAt().isBefore(current.getUpdatedAt());
+    }
+
+    private static BigDecimal toBigDecimal(String value) {
+        if (value == null || value.isBlank()) {
+            return BigDecimal.ZERO;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException ex) {
+            return BigDecimal.ZERO;
+        }
+    }
+}
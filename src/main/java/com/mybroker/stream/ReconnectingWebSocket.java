@@ -0,0 +1,334 @@
+package com.mybroker.stream;
+
+import com.mybroker.config.AppConfig;
+import com.mybroker.http.UpstreamHttpClient;
+import com.mybroker.metrics.Metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Basis für langlebige WebSocket-Consumer (Alpaca trade_updates, Marktdaten).
+ * <p>
+ * Kümmert sich um Verbindungsaufbau, Zusammensetzen fragmentierter Text-/Binär-Frames
+ * und Reconnect mit exponentiellem Backoff plus Jitter. Unterklassen implementieren nur
+ * das Protokoll ({@link #onOpen(WebSocket)}, {@link #onMessage(WebSocket, String)}) und senden ausschließlich über
+ * {@link #send(String)} – direkte {@code sendText}-Aufrufe könnten sich überlappen, was der JDK-Client ablehnt.
+ * <p>
+ * Ausgehende Nachrichten ({@link #send(String)}) werden nur eingereiht und nacheinander asynchron gesendet –
+ * Aufrufer (auch Servlet-Threads) blockieren nie auf dem Socket. Hängt ein Sendevorgang länger als
+ * STREAM_SEND_TIMEOUT_MS (Default 5000), wird die Verbindung neu aufgebaut.
+ * <p>
+ * Alle STREAM_PING_INTERVAL_MS (Default 30000) geht ein Ping raus. Scheitert er oder kommt länger als
+ * STREAM_IDLE_TIMEOUT_MS (Default 90000) gar nichts an (auch kein Pong), wird neu verbunden – eine
+ * Verbindung, deren Abbruch nie als Close/Fehler ankommt, bleibt so nicht unbemerkt tot. Ebenso wird eine
+ * Verbindung verworfen, deren Handshake oder fachlicher Aufbau (bis {@link #markHealthy()}, z.B. Auth) nach
+ * STREAM_HANDSHAKE_TIMEOUT_MS (Default 15000) nicht fertig ist – Pongs allein halten sie nicht am Leben.
+ */
+public abstract class ReconnectingWebSocket {
+
+    private static final long INITIAL_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+
+    private final String name;
+    private final String url;
+    private final UpstreamHttpClient http = UpstreamHttpClient.shared();
+    private final long sendTimeoutMillis = AppConfig.getLong("STREAM_SEND_TIMEOUT_MS", 5_000);
+    private final long pingIntervalMillis = AppConfig.getLong("STREAM_PING_INTERVAL_MS", 30_000);
+    private final long idleTimeoutMillis = AppConfig.getLong("STREAM_IDLE_TIMEOUT_MS", 90_000);
+    private final long handshakeTimeoutMillis = AppConfig.getLong("STREAM_HANDSHAKE_TIMEOUT_MS", 15_000);
+    private final Object sendLock = new Object();
+
+    // Wird bei jedem start() neu erzeugt, stop() fährt ihn herunter
+    protected volatile ScheduledExecutorService scheduler;
+
+    private volatile boolean running;
+    private volatile WebSocket webSocket;
+    private Listener currentListener;
+    private int failedAttempts;
+    // letzter Empfang auf der aktuellen Verbindung (Nachricht, Ping oder Pong)
+    private volatile long lastReceivedMillis;
+    // Verbindungsaufbau der aktuellen Verbindung und ob markHealthy() seitdem kam
+    private volatile long openedAtMillis;
+    private volatile boolean ready;
+    // Ende der Sende-Kette; WebSocket erlaubt keine überlappenden sendText-Aufrufe (geschützt durch sendLock)
+    private CompletableFuture<?> lastSend = CompletableFuture.completedFuture(null);
+
+    protected ReconnectingWebSocket(String name, String url) {
+        this.name = name;
+        this.url = url;
+    }
+
+    /**
+     * Baut die Verbindung auf. Nach {@link #stop()} erneut aufrufbar (z.B. Redeploy, Neustart des Listeners).
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        failedAttempts = 0;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name + "-stream");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.execute(this::connect);
+        scheduler.scheduleWithFixedDelay(this::checkAlive, pingIntervalMillis, pingIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        WebSocket ws = webSocket;
+        // Callbacks der alten Verbindung sollen nach einem erneuten start() nichts mehr auslösen
+        currentListener = null;
+        webSocket = null;
+        onDisconnected();
+        if (ws != null) {
+            ws.sendClose(WebSocket.NORMAL_CLOSURE, "shutdown");
+        }
+        scheduler.shutdownNow();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // ---------------------------------------------------------
+    // Hooks für Unterklassen
+    // ---------------------------------------------------------
+
+    /**
+     * Verbindung steht – z.B. Authentifizierung per {@link #send(String)} senden.
+     */
+    protected abstract void onOpen(WebSocket ws);
+
+    /**
+     * Vollständige Nachricht (Text oder UTF-8-Binär-Frame).
+     */
+    protected abstract void onMessage(WebSocket ws, String message);
+
+    /**
+     * Verbindung ist weg (Close oder Fehler). Ein Reconnect ist bereits geplant.
+     */
+    protected void onDisconnected() {
+    }
+
+    /**
+     * Von Unterklassen aufzurufen, sobald die Verbindung fachlich steht (z.B. nach erfolgreicher Auth).
+     * Setzt den Backoff zurück.
+     */
+    protected void markHealthy() {
+        failedAttempts = 0;
+        ready = true;
+    }
+
+    /**
+     * Reiht eine Textnachricht für die aktuelle Verbindung ein und kehrt sofort zurück. Die Nachrichten gehen
+     * in Aufrufreihenfolge raus, jeweils erst wenn die vorherige gesendet ist.
+     *
+     * @return false, wenn gerade keine Verbindung besteht
+     */
+    protected boolean send(String message) {
+        WebSocket ws = webSocket;
+        if (ws == null) {
+            return false;
+        }
+        synchronized (sendLock) {
+            lastSend = lastSend
+                    .handle((ignored, previousError) -> null)
+                    .thenCompose(ignored -> ws.sendText(message, true))
+                    .orTimeout(sendTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .whenComplete((ignored, ex) -> {
+                        if (ex != null && ws == webSocket) {
+                            Metrics.counter("stream." + name + ".send_errors").increment();
+                            System.err.println("[" + name + "] Senden fehlgeschlagen: " + ex);
+                            reconnect("Senden fehlgeschlagen");
+                        }
+                    });
+        }
+        return true;
+    }
+
+    /**
+     * Erzwingt einen Neuaufbau der Verbindung (z.B. nach Auth-Fehler).
+     */
+    protected synchronized void reconnect(String reason) {
+        WebSocket ws = webSocket;
+        handleDisconnect(currentListener, reason);
+        if (ws != null) {
+            ws.abort();
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Intern
+    // ---------------------------------------------------------
+
+    private void checkAlive() {
+        WebSocket ws = webSocket;
+        if (ws == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (!ready && now - openedAtMillis >= handshakeTimeoutMillis) {
+            reconnect("nach " + (now - openedAtMillis) + " ms nicht bereit");
+            return;
+        }
+        long silentMillis = now - lastReceivedMillis;
+        if (silentMillis >= idleTimeoutMillis) {
+            Metrics.counter("stream." + name + ".idle_timeouts").increment();
+            reconnect("seit " + silentMillis + " ms nichts empfangen");
+            return;
+        }
+        ws.sendPing(ByteBuffer.allocate(0))
+                .whenComplete((ignored, ex) -> {
+                    // IllegalStateException: voriger Ping/Pong noch unterwegs – beim nächsten Intervall wieder
+                    if (ex != null && !(ex instanceof IllegalStateException) && ws == webSocket) {
+                        reconnect("Ping fehlgeschlagen: " + ex);
+                    }
+                });
+    }
+
+    private void connect() {
+        if (!running) {
+            return;
+        }
+        System.out.println("[" + name + "] Verbinde mit " + url);
+        Listener listener;
+        synchronized (this) {
+            listener = new Listener();
+            currentListener = listener;
+        }
+        // connectTimeout deckt nur den TCP-Aufbau ab, nicht den Upgrade-Handshake; kommt die Verbindung nach dem
+        // Timeout doch noch, verwirft onOpen sie (Listener nicht mehr aktuell)
+        http.openWebSocket(url, listener)
+                .orTimeout(handshakeTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((ws, ex) -> {
+                    if (ex != null) {
+                        handleDisconnect(listener, "Verbindungsaufbau fehlgeschlagen: " + ex.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Nur die aktuelle Verbindung darf einen Reconnect auslösen – Callbacks einer bereits
+     * verworfenen Verbindung (z.B. nach abort()) werden ignoriert.
+     */
+    private synchronized void handleDisconnect(Listener source, String reason) {
+        if (source == null || source != currentListener) {
+            return;
+        }
+        currentListener = null;
+        webSocket = null;
+        onDisconnected();
+        if (!running) {
+            return;
+        }
+        long backoff = Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << Math.min(failedAttempts, 16));
+        long delay = backoff + ThreadLocalRandom.current().nextLong(500);
+        failedAttempts++;
+        Metrics.counter("stream." + name + ".reconnects").increment();
+        System.err.println("[" + name + "] Verbindung getrennt (" + reason + ") – Reconnect in " + delay + " ms");
+        scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private final class Listener implements WebSocket.Listener {
+
+        private final StringBuilder text = new StringBuilder();
+        private final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+
+        @Override
+        public void onOpen(WebSocket ws) {
+            synchronized (ReconnectingWebSocket.this) {
+                if (this != currentListener) {
+                    // während des Verbindungsaufbaus gestoppt oder neu verbunden
+                    ws.abort();
+                    return;
+                }
+                webSocket = ws;
+                lastReceivedMillis = System.currentTimeMillis();
+                openedAtMillis = lastReceivedMillis;
+                ready = false;
+            }
+            synchronized (sendLock) {
+                // hängende Sendevorgänge der alten Verbindung sollen die neue nicht blockieren
+                lastSend = CompletableFuture.completedFuture(null);
+            }
+            ReconnectingWebSocket.this.onOpen(ws);
+            ws.request(1);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+            lastReceivedMillis = System.currentTimeMillis();
+            text.append(data);
+            if (last) {
+                String message = text.toString();
+                text.setLength(0);
+                dispatch(ws, message);
+            }
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket ws, ByteBuffer data, boolean last) {
+            lastReceivedMillis = System.currentTimeMillis();
+            byte[] chunk = new byte[data.remaining()];
+            data.get(chunk);
+            binary.write(chunk, 0, chunk.length);
+            if (last) {
+                String message = binary.toString(StandardCharsets.UTF_8);
+                binary.reset();
+                dispatch(ws, message);
+            }
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onPing(WebSocket ws, ByteBuffer message) {
+            lastReceivedMillis = System.currentTimeMillis();
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onPong(WebSocket ws, ByteBuffer message) {
+            lastReceivedMillis = System.currentTimeMillis();
+            ws.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+            handleDisconnect(this, "Close " + statusCode + " " + reason);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket ws, Throwable error) {
+            handleDisconnect(this, "Fehler: " + error);
+        }
+
+        private void dispatch(WebSocket ws, String message) {
+            try {
+                onMessage(ws, message);
+            } catch (RuntimeException e) {
+                System.err.println("[" + name + "] Nachricht konnte nicht verarbeitet werden: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.mybroker.stream;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mybroker.config.AppConfig;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.model.BrokerOrder;
+import com.mybroker.model.BrokerPosition;
+import com.mybroker.model.FillActivity;
+import com.mybroker.service.AlpacaRateLimiter;
+import com.mybroker.service.AlpacaService;
+import com.mybroker.service.CachedAlpacaService;
+import com.mybroker.sync.ActivitySyncJob;
+
+import java.math.BigDecimal;
+import java.net.http.WebSocket;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Langlebiger Consumer für Alpacas trade_updates-Stream.
+ * <p>
+ * Hält das {@link LiveOrderBook} (eigene Orders, Positionen, letzte Fills) aktuell, sodass Dashboard
+ * und Orders-Seite ohne REST-Polling lesen können. Nach jedem (Re-)Connect wird gegen die REST-API
+ * abgeglichen, damit während einer Verbindungslücke verpasste Events keinen falschen Stand hinterlassen.
+ * <p>
+ * Konfiguration: ALPACA_API_KEY, ALPACA_API_SECRET, ALPACA_BASE_URL (daraus wird wss://.../stream
+ * abgeleitet) oder explizit ALPACA_STREAM_URL.
+ */
+public class TradeUpdatesStream extends ReconnectingWebSocket {
+
+    private static final int RECONCILE_FILLS = 20;
+
+    private final String apiKey;
+    private final String apiSecret;
+    private final AlpacaService rest;
+    private final LiveOrderBook book = new LiveOrderBook();
+
+    private volatile boolean live;
+
+    public TradeUpdatesStream(String streamUrl, String apiKey, String apiSecret, AlpacaService rest) {
+        super("trade_updates", streamUrl);
+        this.apiKey = apiKey;
+        this.apiSecret = apiSecret;
+        this.rest = rest;
+        Metrics.gauge("stream.trade_updates.live", () -> live ? 1 : 0);
+    }
+
+    public static TradeUpdatesStream shared() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * true, solange die Verbindung authentifiziert ist und der REST-Abgleich durch ist –
+     * nur dann ist das Orderbuch verlässlich.
+     */
+    public boolean isLive() {
+        return live;
+    }
+
+    public LiveOrderBook getBook() {
+        return book;
+    }
+
+    public boolean isConfigured() {
+        return apiKey != null && apiSecret != null && !apiKey.isBlank() && !apiSecret.isBlank();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!isConfigured()) {
+            System.out.println("[TradeUpdatesStream] Keine Alpaca-Credentials – Stream wird nicht gestartet.");
+            return;
+        }
+        super.start();
+    }
+
+    // ---------------------------------------------------------
+    // Protokoll
+    // ---------------------------------------------------------
+
+    @Override
+    protected void onOpen(WebSocket ws) {
+        JsonObject auth = new JsonObject();
+        auth.addProperty("action", "auth");
+        auth.addProperty("key", apiKey);
+        auth.addProperty("secret", apiSecret);
+        send(auth.toString());
+    }
+
+    @Override
+    protected void onMessage(WebSocket ws, String message) {
+        JsonObject msg = JsonParser.parseString(message).getAsJsonObject();
+        String stream = getString(msg, "stream");
+        JsonObject data = msg.has("data") && msg.get("data").isJsonObject() ? msg.getAsJsonObject("data") : new JsonObject();
+
+        if ("authorization".equals(stream)) {
+            if ("authorized".equals(getString(data, "status"))) {
+                send("{\"action\":\"listen\",\"data\":{\"streams\":[\"trade_updates\"]}}");
+            } else {
+                reconnect("Authentifizierung abgelehnt: " + data);
+            }
+        } else if ("listening".equals(stream)) {
+            markHealthy();
+            scheduler.execute(this::reconcile);
+        } else if ("trade_updates".equals(stream)) {
+            handleTradeUpdate(data);
+        }
+    }
+
+    @Override
+    protected void onDisconnected() {
+        live = false;
+    }
+
+    private void handleTradeUpdate(JsonObject data) {
+        Metrics.counter("stream.trade_updates.events").increment();
+
+        String event = getString(data, "event");
+        JsonObject orderJson = data.has("order") && data.get("order").isJsonObject() ? data.getAsJsonObject("order") : null;
+        if (orderJson == null) {
+            return;
+        }
+
+        LiveOrder order = orderFromJson(orderJson);
+        book.applyOrder(order);
+
+        if ("fill".equals(event) || "partial_fill".equals(event)) {
+            LiveFill fill = new LiveFill(order.getId(), order.getSymbol(), order.getSide(),
+                    getString(data, "qty"), getString(data, "price"), getString(data, "timestamp"));
+            book.applyFill(fill, toBigDecimalOrNull(getString(data, "position_qty")));
+            // Lokale fills/orders-Tabellen zeitnah nachziehen
+            ActivitySyncJob.shared().requestSync();
+        }
+
+        // Konto, Positionen und offene Orders haben sich geändert – REST-Snapshots verwerfen
+        CachedAlpacaService.shared().invalidateAll();
+    }
+
+    /**
+     * REST-Abgleich nach (Re-)Connect: offene Orders, Positionen und letzte Fills.
+     */
+    private void reconcile() {
+        // ab hier eintreffende Events sind neuer als die folgenden REST-Antworten
+        book.beginReconcile();
+        try {
+            List<LiveOrder> openOrders = new ArrayList<>();
+            for (BrokerOrder o : rest.getBrokerOpenOrders()) {
+                openOrders.add(new LiveOrder(o.getId(), o.getClientOrderId(), o.getSymbol(), o.getSide(), o.getType(),
+                        plain(o.getQty()), plain(o.getFilledQty()), o.getStatus(), o.getCreatedAt(), o.getUpdatedAt()));
+            }
+
+            Map<String, BigDecimal> positions = new HashMap<>();
+            for (BrokerPosition pos : rest.getBrokerPositions()) {
+                if (pos.getSymbol() != null && pos.getQty() != null) {
+                    positions.put(pos.getSymbol(), pos.getQty());
+                }
+            }
+
+            List<LiveFill> fills = new ArrayList<>();
+            for (FillActivity a : rest.getRecentFillActivities(RECONCILE_FILLS)) {
+                fills.add(new LiveFill(a.getOrderId(), a.getSymbol(), a.getSide(), plain(a.getQty()), plain(a.getPrice()),
+                        a.getTransactionTime() != null ? a.getTransactionTime().toString() : null));
+            }
+
+            book.reconcile(openOrders, positions, fills);
+            live = true;
+            Metrics.counter("stream.trade_updates.reconciles").increment();
+            System.out.println("[TradeUpdatesStream] Abgleich mit REST abgeschlossen: "
+                    + openOrders.size() + " offene Orders, " + positions.size() + " Positionen.");
+        } catch (Exception e) {
+            book.cancelReconcile();
+            System.err.println("[TradeUpdatesStream] REST-Abgleich fehlgeschlagen: " + e.getMessage());
+            reconnect("REST-Abgleich fehlgeschlagen");
+        }
+    }
+
+    // ---------------------------------------------------------
+    // JSON-Hilfen
+    // ---------------------------------------------------------
+
+    static LiveOrder orderFromJson(JsonObject o) {
+        return new LiveOrder(
+                getString(o, "id"),
+                getString(o, "client_order_id"),
+                getString(o, "symbol"),
+                getString(o, "side"),
+                getString(o, "type"),
+                getString(o, "qty"),
+                getString(o, "filled_qty"),
+                getString(o, "status"),
+                getString(o, "created_at"),
+                parseInstant(getString(o, "updated_at")));
+    }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+
+    private static String getString(JsonObject obj, String field) {
+        if (obj != null && obj.has(field) && !obj.get(field).isJsonNull() && obj.get(field).isJsonPrimitive()) {
+            return obj.get(field).getAsString();
+        }
+        return null;
+    }
+
+    private static Instant parseInstant(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static BigDecimal toBigDecimalOrNull(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String resolveStreamUrl() {
+        String explicit = AppConfig.getString("ALPACA_STREAM_URL", null);
+        if (explicit != null) {
+            return explicit;
+        }
+        String base = AppConfig.getString("ALPACA_BASE_URL", "https://paper-api.alpaca.markets");
+        return base.replaceAll("/$", "").replaceFirst("^http", "ws") + "/stream";
+    }
+
+    private static final class Holder {
+        static final TradeUpdatesStream INSTANCE = new TradeUpdatesStream(
+                resolveStreamUrl(),
+                System.getenv("ALPACA_API_KEY"),
+                System.getenv("ALPACA_API_SECRET"),
+                new AlpacaService(AlpacaRateLimiter.Priority.BACKGROUND));
+    }
+}
@@ -0,0 +1,174 @@
+package com.mybroker.sync;
+
+import com.mybroker.config.AppConfig;
+import com.mybroker.db.FillRepository;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.model.FillActivity;
+import com.mybroker.service.AlpacaRateLimiter;
+import com.mybroker.service.AlpacaService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Inkrementeller Sync der Alpaca-FILL-Aktivitäten nach brokerml.fills / brokerml.orders.
+ * <p>
+ * Jede Runde startet an der gespeicherten High-Water-Mark und blättert mit page_token aufsteigend durch
+ * /v2/account/activities/FILL. Jede Seite wird in einer Transaktion gespeichert (Upsert auf broker_order_id,
+ * Fills nur einmal pro activity_id) und verschiebt die High-Water-Mark. Damit werden pro Runde nur neue
+ * Aktivitäten geladen statt bei jedem Seitenaufruf die letzten N.
+ * <p>
+ * Konfiguration: ACTIVITY_SYNC_ENABLED (true, nur mit DB_URL), ACTIVITY_SYNC_INTERVAL_MS (60000),
+ * ACTIVITY_SYNC_INITIAL_DAYS (90, Startpunkt beim allerersten Lauf).
+ */
+public class ActivitySyncJob {
+
+    public static final String SYNC_NAME = "alpaca_fills";
+
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_PAGES_PER_RUN = 50;
+
+    private final AlpacaService alpaca;
+    private final FillRepository repository;
+    private final Duration interval;
+    private final Duration initialLookback;
+    private final AtomicBoolean syncRequested = new AtomicBoolean();
+
+    private ScheduledExecutorService scheduler;
+    private volatile long lastSuccessMillis;
+
+    public ActivitySyncJob(AlpacaService alpaca, FillRepository repository, Duration interval, Duration initialLookback) {
+        this.alpaca = alpaca;
+        this.repository = repository;
+        this.interval = interval;
+        this.initialLookback = initialLookback;
+        Metrics.gauge("sync.fills.last_success_age_ms",
+                () -> lastSuccessMillis == 0 ? -1 : System.currentTimeMillis() - lastSuccessMillis);
+    }
+
+    public static ActivitySyncJob shared() {
+        return Holder.INSTANCE;
+    }
+
+    public static boolean isConfigured() {
+        return System.getenv("DB_URL") != null && AppConfig.getBoolean("ACTIVITY_SYNC_ENABLED", true);
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "activity-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::runOnce, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Stößt eine zusätzliche Runde an (z.B. nach einem Fill-Event aus dem Stream).
+     * Mehrere Anfragen vor dem nächsten Lauf werden zu einer zusammengefasst.
+     */
+    public synchronized void requestSync() {
+        if (scheduler != null && syncRequested.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                syncRequested.set(false);
+                runOnce();
+            });
+        }
+    }
+
+    /**
+     * true, wenn der letzte erfolgreiche Lauf nicht länger als drei Intervalle zurückliegt –
+     * nur dann sind die lokalen Tabellen aktuell genug für die Anzeige.
+     */
+    public boolean isHealthy() {
+        return lastSuccessMillis > 0
+                && System.currentTimeMillis() - lastSuccessMillis <= 3 * interval.toMillis();
+    }
+
+    public FillRepository getRepository() {
+        return repository;
+    }
+
+    // ---------------------------------------------------------
+    // Sync
+    // ---------------------------------------------------------
+
+    void runOnce() {
+        long start = System.currentTimeMillis();
+        try {
+            FillRepository.HighWaterMark mark = repository.loadHighWaterMark(SYNC_NAME);
+            // 1 s Überlappung: Fills mit gleichem Zeitstempel wie die Marke gehen nicht verloren,
+            // Duplikate verwirft ON CONFLICT (activity_id)
+            Instant after = mark != null && mark.getLastTimestamp() != null
+                    ? mark.getLastTimestamp().minusSeconds(1)
+                    : Instant.now().minus(initialLookback);
+
+            String pageToken = null;
+            int inserted = 0;
+            int pages = 0;
+            while (pages < MAX_PAGES_PER_RUN) {
+                List<FillActivity> raw = alpaca.getFillActivityPage(after, pageToken, PAGE_SIZE);
+                pages++;
+                if (raw.isEmpty()) {
+                    break;
+                }
+                inserted += repository.storePage(SYNC_NAME, storable(raw));
+                if (raw.size() < PAGE_SIZE || raw.get(raw.size() - 1).getActivityId() == null) {
+                    break;
+                }
+                pageToken = raw.get(raw.size() - 1).getActivityId();
+            }
+
+            lastSuccessMillis = System.currentTimeMillis();
+            Metrics.counter("sync.fills.runs").increment();
+            Metrics.counter("sync.fills.inserted").add(inserted);
+            if (inserted > 0) {
+                System.out.println("[ActivitySync] " + inserted + " neue Fills übernommen (" + pages + " Seite(n), "
+                        + (lastSuccessMillis - start) + " ms)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Metrics.counter("sync.fills.errors").increment();
+            System.err.println("[ActivitySync] Sync fehlgeschlagen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Entfernt Einträge ohne Pflichtfelder der Tabelle – unvollständige Einträge würden die ganze Seite blockieren.
+     */
+    static List<FillActivity> storable(List<FillActivity> page) {
+        List<FillActivity> result = new ArrayList<>(page.size());
+        for (FillActivity a : page) {
+            if (a.getActivityId() != null && a.getSymbol() != null && a.getQty() != null
+                    && a.getPrice() != null && a.getTransactionTime() != null) {
+                result.add(a);
+            }
+        }
+        return result;
+    }
+
+    private static final class Holder {
+        static final ActivitySyncJob INSTANCE = new ActivitySyncJob(
+                new AlpacaService(AlpacaRateLimiter.Priority.BACKGROUND),
+                new FillRepository(),
+                AppConfig.getMillis("ACTIVITY_SYNC_INTERVAL_MS", 60_000),
+                Duration.ofDays(AppConfig.getLong("ACTIVITY_SYNC_INITIAL_DAYS", 90)));
+    }
+}
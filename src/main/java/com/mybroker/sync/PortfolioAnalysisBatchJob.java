@@ -0,0 +1,190 @@
+package com.mybroker.sync;
+
+import com.mybroker.config.AppConfig;
+import com.mybroker.db.PortfolioAnalysisSummaryRepository;
+import com.mybroker.db.TenantAccountRepository;
+import com.mybroker.metrics.Metrics;
+import com.mybroker.model.AlpacaCredentials;
+import com.mybroker.model.PortfolioAnalysisSummary;
+import com.mybroker.model.Position;
+import com.mybroker.service.AlpacaRateLimiter;
+import com.mybroker.service.PortfolioAnalysisService;
+import com.mybroker.service.PortfolioDataService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analysiert periodisch alle aktiven verwalteten Konten (brokerml.tenant_accounts) und legt die Ergebnisse in
+ * brokerml.portfolio_analysis_summaries ab, damit Übersichten nicht pro Konto Alpaca abfragen müssen.
+ * <p>
+ * Pro Konto ein REST-Aufruf (Positionen) über den Limiter des jeweiligen API-Keys. Zusätzlich begrenzen
+ * ANALYSIS_BATCH_PARALLELISM (Default 8) die gleichzeitig laufenden Konten und ANALYSIS_BATCH_REQUESTS_PER_MIN
+ * (Default 600) die Aufrufe des ganzen Laufs – damit verteilen sich tausende Konten gleichmäßig über das
+ * Intervall, statt Verbindungs-Pool und Egress auf einen Schlag zu belegen. Ergebnisse werden in Blöcken zu
+ * 200 Konten per Batch-Upsert geschrieben.
+ * <p>
+ * Konfiguration: ANALYSIS_BATCH_ENABLED (true, nur mit DB_URL), ANALYSIS_BATCH_INTERVAL_MS (900000).
+ */
+public class PortfolioAnalysisBatchJob {
+
+    private static final int WRITE_BATCH_SIZE = 200;
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final TenantAccountRepository tenants;
+    private final PortfolioAnalysisSummaryRepository summaries;
+    private final PortfolioDataService dataService;
+    private final PortfolioAnalysisService analysisService;
+    private final AlpacaRateLimiter budget;
+    private final Duration interval;
+    private final int parallelism;
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService workers;
+    private volatile long lastSuccessMillis;
+    private volatile long lastDurationMillis;
+
+    public PortfolioAnalysisBatchJob(TenantAccountRepository tenants, PortfolioAnalysisSummaryRepository summaries,
+                                     PortfolioDataService dataService, PortfolioAnalysisService analysisService,
+                                     AlpacaRateLimiter budget, Duration interval, int parallelism) {
+        this.tenants = tenants;
+        this.summaries = summaries;
+        this.dataService = dataService;
+        this.analysisService = analysisService;
+        this.budget = budget;
+        this.interval = interval;
+        this.parallelism = Math.max(1, parallelism);
+        Metrics.gauge("analysis_batch.last_success_age_ms",
+                () -> lastSuccessMillis == 0 ? -1 : System.currentTimeMillis() - lastSuccessMillis);
+        Metrics.gauge("analysis_batch.last_duration_ms", () -> lastDurationMillis);
+    }
+
+    public static PortfolioAnalysisBatchJob shared() {
+        return Holder.INSTANCE;
+    }
+
+    public static boolean isConfigured() {
+        return System.getenv("DB_URL") != null && AppConfig.getBoolean("ANALYSIS_BATCH_ENABLED", true);
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "analysis-batch");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "analysis-batch-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::runOnce, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            workers.shutdownNow();
+            scheduler = null;
+            workers = null;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // Lauf
+    // ---------------------------------------------------------
+
+    void runOnce() {
+        long start = System.currentTimeMillis();
+        ExecutorService pool;
+        synchronized (this) {
+            pool = workers;
+        }
+        if (pool == null) {
+            return;
+        }
+        try {
+            List<AlpacaCredentials> accounts = tenants.loadActive();
+            CompletionService<PortfolioAnalysisSummary> completion = new ExecutorCompletionService<>(pool);
+            for (AlpacaCredentials account : accounts) {
+                completion.submit(() -> analyse(account));
+            }
+
+            List<PortfolioAnalysisSummary> pending = new ArrayList<>(WRITE_BATCH_SIZE);
+            int failed = 0;
+            for (int i = 0; i < accounts.size(); i++) {
+                PortfolioAnalysisSummary summary = completion.take().get();
+                if (!summary.isSuccess()) {
+                    failed++;
+                }
+                pending.add(summary);
+                if (pending.size() >= WRITE_BATCH_SIZE) {
+                    summaries.upsertAll(pending);
+                    pending.clear();
+                }
+            }
+            summaries.upsertAll(pending);
+
+            lastSuccessMillis = System.currentTimeMillis();
+            lastDurationMillis = lastSuccessMillis - start;
+            Metrics.counter("analysis_batch.runs").increment();
+            Metrics.counter("analysis_batch.accounts").add(accounts.size());
+            Metrics.counter("analysis_batch.account_errors").add(failed);
+            if (!accounts.isEmpty()) {
+                System.out.println("[AnalysisBatch] " + accounts.size() + " Konten analysiert (" + failed
+                        + " Fehler, " + lastDurationMillis + " ms)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            Metrics.counter("analysis_batch.errors").increment();
+            System.err.println("[AnalysisBatch] Lauf fehlgeschlagen: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Analysiert ein Konto; Fehler landen in der Zusammenfassung statt den Lauf abzubrechen.
+     */
+    private PortfolioAnalysisSummary analyse(AlpacaCredentials account) throws InterruptedException {
+        String tenantId = account.getTenantId();
+        try {
+            budget.acquire(AlpacaRateLimiter.Priority.BACKGROUND);
+            List<Position> positions = dataService.loadTenantPositions(account);
+            return PortfolioAnalysisSummary.success(tenantId, Instant.now(), positions.size(),
+                    analysisService.analyse(positions));
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return PortfolioAnalysisSummary.failure(tenantId, Instant.now(),
+                    message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+        }
+    }
+
+    private static final class Holder {
+        static final PortfolioAnalysisBatchJob INSTANCE = new PortfolioAnalysisBatchJob(
+                new TenantAccountRepository(),
+                new PortfolioAnalysisSummaryRepository(),
+                new PortfolioDataService(),
+                new PortfolioAnalysisService(),
+                new AlpacaRateLimiter("analysis_batch.ratelimit", true,
+                        AppConfig.getInt("ANALYSIS_BATCH_REQUESTS_PER_MIN", 600), 0,
+                        Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofMinutes(5)),
+                AppConfig.getMillis("ANALYSIS_BATCH_INTERVAL_MS", 900_000),
+                AppConfig.getInt("ANALYSIS_BATCH_PARALLELISM", 8));
+    }
+}
@@ -6,6 +6,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.mybroker.ai.OpenAiClient;
 import com.mybroker.service.AlpacaService;
+import com.mybroker.service.CachedAlpacaService;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -32,7 +33,7 @@ public class AiChatServlet extends HttpServlet {
     public void init() throws ServletException {
         super.init();
         this.openAiClient = new OpenAiClient();
-        this.alpacaService = new AlpacaService(); // ggf. an DI / Konstruktor anpassen
+        this.alpacaService = CachedAlpacaService.shared(); // ggf. an DI / Konstruktor anpassen
     }
 
     @Override
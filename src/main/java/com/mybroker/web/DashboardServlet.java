@@ -1,11 +1,19 @@
 package com.mybroker.web;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.mybroker.marketdata.MarketDataService;
+import com.mybroker.marketdata.Quote;
 import com.mybroker.ml.*;
+import com.mybroker.model.AccountSnapshot;
+import com.mybroker.model.BrokerOrder;
+import com.mybroker.model.BrokerPosition;
+import com.mybroker.model.FillActivity;
 import com.mybroker.service.AlpacaService;
+import com.mybroker.service.CachedAlpacaService;
+import com.mybroker.service.DashboardAssembler;
+import com.mybroker.stream.LiveFill;
+import com.mybroker.stream.LiveOrder;
+import com.mybroker.stream.TradeUpdatesStream;
+import com.mybroker.sync.ActivitySyncJob;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
@@ -14,7 +22,10 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 @WebServlet(name = "DashboardServlet", urlPatterns = "/dashboard")
@@ -22,110 +33,88 @@ public class DashboardServlet extends HttpServlet {
 
     private static final String DEFAULT_PLACEHOLDER = "-";
 
-    private final AlpacaService service = new AlpacaService();
+    // Deadlines je Abschnitt (ab Start der Seite). Ein langsamer Upstream kostet nur seine Kachel.
+    private static final long ACCOUNT_DEADLINE_MS = 3000;
+    private static final long ORDERS_DEADLINE_MS = 3000;
+    private static final long FILLS_DEADLINE_MS = 3000;
+    private static final long MARKETS_DEADLINE_MS = 2000;
+    private static final long POSITIONS_DEADLINE_MS = 3000;
+    private static final long RISK_DEADLINE_MS = 4000;
+    private static final long TRENDS_DEADLINE_MS = 4000;
+
+    private final AlpacaService service = CachedAlpacaService.shared();
     private final MlServiceClient mlClient = new MlServiceClient();
+    private final TrendScoreCache trendCache = TrendScoreCache.shared();
+    private final DashboardAssembler assembler = new DashboardAssembler();
+    private final TradeUpdatesStream tradeUpdates = TradeUpdatesStream.shared();
+    private final MarketDataService marketData = MarketDataService.shared();
+    private final ActivitySyncJob activitySync = ActivitySyncJob.shared();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
 
         try {
-            // ===== Account / Basisdaten (wie bisher) =====
-            JsonObject account = parseJsonObject(service.getAccount());
-            String cashStr = readString(account, "cash", DEFAULT_PLACEHOLDER);
-            String portfolioValueStr = readString(account, "portfolio_value", DEFAULT_PLACEHOLDER);
+            // ===== Alle unabhängigen Abschnitte gleichzeitig starten =====
+            CompletableFuture<AccountSnapshot> accountSection = assembler.section("account", ACCOUNT_DEADLINE_MS,
+                    service::getAccountSnapshot, null);
 
-            req.setAttribute("cash", cashStr);
-            req.setAttribute("portfolioValue", portfolioValueStr);
+            CompletableFuture<List<Map<String, String>>> ordersSection = assembler.section("orders", ORDERS_DEADLINE_MS,
+                    this::loadOpenOrderViews, new ArrayList<>());
 
-            double cashValue = parseDoubleSafe(cashStr, 0.0);
-            double portfolioValueNumeric = parseDoubleSafe(portfolioValueStr, 0.0);
+            CompletableFuture<List<Map<String, String>>> fillsSection = assembler.section("fills", FILLS_DEADLINE_MS,
+                    this::loadFillViews, new ArrayList<>());
 
-            // ===== Offene Orders =====
-            JsonArray openOrders = parseJsonArray(service.getOpenOrders());
-            List<Map<String, String>> openOrderViews = new ArrayList<>();
-            for (JsonElement element : openOrders) {
-                JsonObject order = asObject(element);
-                if (order != null) {
-                    openOrderViews.add(buildOpenOrderView(order));
-                }
-            }
-            req.setAttribute("openOrders", openOrderViews);
+            CompletableFuture<Map<String, Object>> marketsSection = assembler.section("markets", MARKETS_DEADLINE_MS,
+                    this::loadMarkets, placeholderMarkets());
 
-            // ===== Fills =====
-            JsonArray fills = parseFills(service.getLastFills(5));
-            List<Map<String, String>> fillViews = new ArrayList<>();
-            for (JsonElement element : fills) {
-                fillViews.add(buildFillView(element));
-            }
-            req.setAttribute("fills", fillViews);
+            CompletableFuture<List<PositionDto>> positionsSection = assembler.section("positions", POSITIONS_DEADLINE_MS,
+                    this::loadPositionsForMl, new ArrayList<>());
 
-            // ===== Marktindikatoren =====
-            JsonObject nasdaqTrade = readTrade(service.getLastTrade("QQQ"));
-            JsonObject dowTrade = readTrade(service.getLastTrade("DIA"));
-
-            Map<String, Object> markets = new HashMap<>();
-            markets.put("nasdaqPrice", readDouble(nasdaqTrade, "p", 0.0));
-            markets.put("nasdaqTime", readString(nasdaqTrade, "t", DEFAULT_PLACEHOLDER));
-            markets.put("dowPrice", readDouble(dowTrade, "p", 0.0));
-            markets.put("dowTime", readString(dowTrade, "t", DEFAULT_PLACEHOLDER));
-            req.setAttribute("markets", markets);
-
-            // ===== ML: Positionen für Portfolio zusammenbauen =====
-            List<PositionDto> positionsForMl = new ArrayList<>();
-            try {
-                // WICHTIG: Falls deine AlpacaService-Methode anders heißt, hier anpassen.
-                // Erwartet: JSON-Array der aktuellen Positionen.
-                String positionsJson = service.getPositions(); // ggf. anpassen
-                JsonArray positionsArray = parseJsonArray(positionsJson);
-
-                for (JsonElement element : positionsArray) {
-                    JsonObject pos = asObject(element);
-                    if (pos == null) {
-                        continue;
-                    }
+            // Risiko braucht Cash (Konto) und Positionen, Trends nur die Positionen
+            CompletableFuture<RiskScoreResponseDto> riskSection = assembler.dependentSection("risk",
+                    accountSection.thenCombine(positionsSection, this::buildPortfolioRequest),
+                    RISK_DEADLINE_MS, this::loadRisk, null);
 
-                    PositionDto p = new PositionDto();
-                    p.setSymbol(readString(pos, "symbol", DEFAULT_PLACEHOLDER));
+            CompletableFuture<List<TrendScoreResponseDto>> trendsSection = assembler.dependentSection("trends",
+                    positionsSection, TRENDS_DEADLINE_MS, this::loadTrends, new ArrayList<>());
 
-                    String qtyStr = readString(pos, "qty", "0");
-                    double qty = parseDoubleSafe(qtyStr, 0.0);
-                    p.setQuantity(qty);
+            // ===== Account / Basisdaten =====
+            AccountSnapshot account = assembler.await(accountSection);
+            BigDecimal cash = account != null ? account.getCash() : null;
+            BigDecimal portfolioValue = account != null ? account.getPortfolioValue() : null;
 
-                    String mvStr = readString(pos, "market_value", null);
-                    double mv;
-                    if (mvStr != null && !mvStr.equals(DEFAULT_PLACEHOLDER)) {
-                        mv = parseDoubleSafe(mvStr, 0.0);
-                    } else {
-                        mv = readDouble(pos, "market_value", 0.0);
-                    }
-                    p.setMarketValue(mv);
+            req.setAttribute("cash", plain(cash));
+            req.setAttribute("portfolioValue", plain(portfolioValue));
 
-                    String sector = readString(pos, "sector", null);
-                    p.setSector(sector);
+            double cashValue = cash != null ? cash.doubleValue() : 0.0;
+            double portfolioValueNumeric = portfolioValue != null ? portfolioValue.doubleValue() : 0.0;
 
-                    positionsForMl.add(p);
-                }
+            // ===== Offene Orders =====
+            req.setAttribute("openOrders", assembler.await(ordersSection));
 
-                if (portfolioValueNumeric <= 0.0) {
-                    portfolioValueNumeric = cashValue + positionsForMl.stream()
-                            .mapToDouble(PositionDto::getMarketValue)
-                            .sum();
-                    req.setAttribute("portfolioValue", String.valueOf(portfolioValueNumeric));
-                }
+            // ===== Fills =====
+            req.setAttribute("fills", assembler.await(fillsSection));
 
-            } catch (Exception e) {
-                e.printStackTrace();
+            // ===== Marktindikatoren =====
+            req.setAttribute("markets", assembler.await(marketsSection));
+
+            // ===== ML: Positionen (für Portfolio-Wert-Fallback) =====
+            List<PositionDto> positionsForMl = assembler.await(positionsSection);
+            if (portfolioValueNumeric <= 0.0 && !positionsForMl.isEmpty()) {
+                portfolioValueNumeric = cashValue + positionsForMl.stream()
+                        .mapToDouble(PositionDto::getMarketValue)
+                        .sum();
+                req.setAttribute("portfolioValue", String.valueOf(portfolioValueNumeric));
             }
 
             // ===== ML: Portfolio Risiko =====
-            try {
-                PortfolioRequestDto portfolioDto = new PortfolioRequestDto();
-                portfolioDto.setCash(cashValue);           // double, kommt aus Alpaca-Konto
-                portfolioDto.setPositions(positionsForMl); // List<PositionDto>
-
-                RiskScoreResponseDto risk = mlClient.getRiskScore(portfolioDto);
-
+            RiskScoreResponseDto risk = assembler.await(riskSection);
+            if (risk == null) {
+                // ML-Service zu langsam oder fehlerhaft – lokale Schätzung statt UNKNOWN
+                risk = mlClient.degradedRisk(buildPortfolioRequest(account, positionsForMl));
+            }
+            if (risk != null) {
                 Integer riskScore = risk.getRiskScore();
                 String riskLevel = risk.getRiskLevel();
                 String riskExplanation = risk.getExplanation();
@@ -144,59 +133,16 @@ public class DashboardServlet extends HttpServlet {
                 req.setAttribute("riskTotalValue", risk.getTotalValue());
                 req.setAttribute("riskNumPositions", risk.getNumPositions());
                 req.setAttribute("riskConcentration", risk.getConcentration());
-
-            } catch (Exception e) {
-                e.printStackTrace();
+                req.setAttribute("riskSource", risk.getSource());
+            } else {
                 req.setAttribute("riskScore", null);
                 req.setAttribute("riskLevel", "UNKNOWN");
                 req.setAttribute("riskExplanation",
                         "ML-Service für Risiko nicht erreichbar.");
             }
 
-
             // ===== ML: Trend Scores =====
-            List<TrendScoreResponseDto> trendScores = new ArrayList<>();
-            try {
-                List<String> symbolsForTrend = positionsForMl.stream()
-                        .map(PositionDto::getSymbol)
-                        .filter(Objects::nonNull)
-                        .filter(s -> !DEFAULT_PLACEHOLDER.equals(s))
-                        .distinct()
-                        .limit(5)
-                        .collect(Collectors.toList());
-
-                for (String symbol : symbolsForTrend) {
-                    try {
-                        TrendScoreResponseDto trend = mlClient.getTrendScore(symbol);
-                        trendScores.add(trend);
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
-                        TrendScoreResponseDto fallback = new TrendScoreResponseDto();
-                        fallback.setSymbol(symbol);
-                        fallback.setTrend("NEUTRAL");
-                        fallback.setScore(0.0);
-                        fallback.setExplanation("Trend für " + symbol + " konnte nicht geladen werden (ML-Service Fehler).");
-                        trendScores.add(fallback);
-                    }
-                }
-
-                if (trendScores.isEmpty()) {
-                    try {
-                        trendScores.add(mlClient.getTrendScore("AAPL"));
-                        trendScores.add(mlClient.getTrendScore("MSFT"));
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
-                    }
-                }
-
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-
-            req.setAttribute("trendScores", trendScores);
-
-            // ===== Debug / JSON-Ansicht =====
-            req.setAttribute("accountJson", account.toString());
+            req.setAttribute("trendScores", assembler.await(trendsSection));
 
             // ===== Weiterleiten an JSP =====
             RequestDispatcher dispatcher = req.getRequestDispatcher("/jsp/dashboard.jsp");
@@ -210,140 +156,189 @@ public class DashboardServlet extends HttpServlet {
         }
     }
 
-    // ===== Hilfsmethoden =====
+    // ===== Abschnitte =====
 
-    private JsonObject parseJsonObject(String json) {
-        try {
-            JsonElement parsed = JsonParser.parseString(json == null ? "{}" : json);
-            return parsed.isJsonObject() ? parsed.getAsJsonObject() : new JsonObject();
-        } catch (Exception ex) {
-            return new JsonObject();
+    private List<Map<String, String>> loadOpenOrderViews() throws Exception {
+        // Live-Orderbuch aus dem trade_updates-Stream – kein REST-Call nötig
+        if (tradeUpdates.isLive()) {
+            List<Map<String, String>> views = new ArrayList<>();
+            for (LiveOrder order : tradeUpdates.getBook().getOpenOrders()) {
+                views.add(buildOpenOrderView(order));
+            }
+            return views;
         }
-    }
-
-    private JsonArray parseJsonArray(String json) {
-        JsonElement parsed = JsonParser.parseString(json == null ? "[]" : json);
-        return parsed.isJsonArray() ? parsed.getAsJsonArray() : new JsonArray();
-    }
 
-    private JsonObject asObject(JsonElement element) {
-        return element != null && element.isJsonObject() ? element.getAsJsonObject() : null;
+        List<Map<String, String>> openOrderViews = new ArrayList<>();
+        for (BrokerOrder order : service.getBrokerOpenOrders()) {
+            openOrderViews.add(buildOpenOrderView(order));
+        }
+        return openOrderViews;
     }
 
-    private JsonArray parseFills(String fillsJson) {
-        JsonElement parsed = JsonParser.parseString(fillsJson == null ? "[]" : fillsJson);
-        if (parsed.isJsonArray()) {
-            return parsed.getAsJsonArray();
+    private List<Map<String, String>> loadFillViews() throws Exception {
+        // Lokale Tabelle (inkrementeller Sync, Index ix_fills_executed_at) – kein Alpaca-Aufruf
+        if (activitySync.isHealthy()) {
+            List<Map<String, String>> views = new ArrayList<>();
+            for (FillActivity fill : activitySync.getRepository().findRecentFills(5)) {
+                views.add(buildFillView(fill));
+            }
+            return views;
         }
-        if (parsed.isJsonObject() && parsed.getAsJsonObject().has("fills")) {
-            JsonElement fillsElement = parsed.getAsJsonObject().get("fills");
-            if (fillsElement != null && fillsElement.isJsonArray()) {
-                return fillsElement.getAsJsonArray();
+
+        if (tradeUpdates.isLive()) {
+            List<Map<String, String>> views = new ArrayList<>();
+            for (LiveFill fill : tradeUpdates.getBook().getRecentFills(5)) {
+                views.add(buildFillView(fill));
             }
+            return views;
         }
-        return new JsonArray();
-    }
 
-    private Map<String, String> buildOpenOrderView(JsonObject order) {
-        Map<String, String> view = new HashMap<>();
-        view.put("symbol", readString(order, "symbol", DEFAULT_PLACEHOLDER));
-        view.put("side", readString(order, "side", DEFAULT_PLACEHOLDER));
-        view.put("qty", readString(order, "qty", DEFAULT_PLACEHOLDER));
-        view.put("status", readString(order, "status", DEFAULT_PLACEHOLDER));
-        view.put("createdAt", readString(order, "created_at", DEFAULT_PLACEHOLDER));
-        return view;
+        List<Map<String, String>> fillViews = new ArrayList<>();
+        for (FillActivity fill : service.getRecentFillActivities(5)) {
+            fillViews.add(buildFillView(fill));
+        }
+        return fillViews;
     }
 
-    private Map<String, String> buildFillView(JsonElement fillElement) {
-        JsonObject fill = asObject(fillElement);
-        Map<String, String> view = new HashMap<>();
-        if (fill == null) {
-            view.put("symbol", DEFAULT_PLACEHOLDER);
-            view.put("qty", DEFAULT_PLACEHOLDER);
-            view.put("price", DEFAULT_PLACEHOLDER);
-            view.put("side", DEFAULT_PLACEHOLDER);
-            view.put("timestamp", DEFAULT_PLACEHOLDER);
-            return view;
-        }
+    private Map<String, Object> loadMarkets() {
+        // Stream zuerst, fehlende Symbole in einem einzigen Snapshot-Aufruf
+        Map<String, Quote> quotes = marketData.getLatestQuotes(MarketDataService.INDEX_SYMBOLS);
 
-        JsonObject fillData = fill.has("fill_data") && fill.get("fill_data").isJsonObject()
-                ? fill.getAsJsonObject("fill_data")
-                : null;
-        JsonObject symbolObj = fill.has("symbol") && fill.get("symbol").isJsonObject()
-                ? fill.getAsJsonObject("symbol")
-                : null;
-
-        view.put("symbol", readString(symbolObj, "symbol", readString(fill, "symbol", DEFAULT_PLACEHOLDER)));
-        view.put("qty", readString(fillData, "qty", readString(fill, "qty", DEFAULT_PLACEHOLDER)));
-        view.put("price", readString(fillData, "price", readString(fill, "price", DEFAULT_PLACEHOLDER)));
-        view.put("side", readString(fillData, "side", readString(fill, "side", DEFAULT_PLACEHOLDER)));
-        view.put("timestamp", readString(fillData, "timestamp",
-                readString(fill, "transaction_time", readString(fill, "timestamp", DEFAULT_PLACEHOLDER))));
-        return view;
+        Map<String, Object> markets = placeholderMarkets();
+        putMarket(markets, "nasdaq", quotes.get("QQQ"));
+        putMarket(markets, "dow", quotes.get("DIA"));
+        return markets;
     }
 
-    private JsonObject readTrade(String json) {
-        JsonObject parsed = parseJsonObject(json);
-        JsonElement tradeElement = parsed.get("trade");
-        if (tradeElement != null && tradeElement.isJsonObject()) {
-            return tradeElement.getAsJsonObject();
+    private void putMarket(Map<String, Object> markets, String prefix, Quote quote) {
+        if (quote == null) {
+            return;
         }
-        if (parsed.has("p") || parsed.has("t")) {
-            return parsed;
-        }
-        return new JsonObject();
+        markets.put(prefix + "Price", quote.getPrice());
+        markets.put(prefix + "Time", quote.getTimestamp() != null ? quote.getTimestamp() : DEFAULT_PLACEHOLDER);
     }
 
-    private String readString(JsonObject obj, String memberName, String defaultValue) {
-        if (obj == null || memberName == null) {
-            return defaultValue;
-        }
-        if (!obj.has(memberName)) {
-            return defaultValue;
+    private Map<String, Object> placeholderMarkets() {
+        Map<String, Object> markets = new HashMap<>();
+        markets.put("nasdaqPrice", DEFAULT_PLACEHOLDER);
+        markets.put("nasdaqTime", DEFAULT_PLACEHOLDER);
+        markets.put("dowPrice", DEFAULT_PLACEHOLDER);
+        markets.put("dowTime", DEFAULT_PLACEHOLDER);
+        return markets;
+    }
+
+    private List<PositionDto> loadPositionsForMl() throws Exception {
+        List<PositionDto> positionsForMl = new ArrayList<>();
+
+        for (BrokerPosition pos : service.getBrokerPositions()) {
+            PositionDto p = new PositionDto();
+            p.setSymbol(orPlaceholder(pos.getSymbol()));
+            p.setQuantity(pos.getQty() != null ? pos.getQty().doubleValue() : 0.0);
+            p.setMarketValue(pos.getMarketValue() != null ? pos.getMarketValue().doubleValue() : 0.0);
+            // Alpaca liefert keinen Sektor
+            p.setSector(null);
+
+            positionsForMl.add(p);
         }
 
-        JsonElement element = obj.get(memberName);
-        if (element != null && !element.isJsonNull()) {
-            if (element.isJsonPrimitive()) {
-                return element.getAsString();
-            }
-            if (element.isJsonObject() && element.getAsJsonObject().has("value")) {
-                JsonElement valueElement = element.getAsJsonObject().get("value");
-                if (valueElement != null && valueElement.isJsonPrimitive()) {
-                    return valueElement.getAsString();
-                }
+        // Marktwerte mit aktuellen Kursen neu bewerten (ein Batch statt eines Aufrufs pro Symbol)
+        Map<String, Quote> quotes = marketData.getLatestQuotes(positionsForMl.stream()
+                .map(PositionDto::getSymbol)
+                .filter(s -> !DEFAULT_PLACEHOLDER.equals(s))
+                .collect(Collectors.toList()));
+        for (PositionDto p : positionsForMl) {
+            Quote quote = quotes.get(p.getSymbol());
+            if (quote != null && p.getQuantity() != 0.0) {
+                p.setMarketValue(p.getQuantity() * quote.getPrice());
             }
         }
-        return defaultValue;
+
+        // Gehaltene Titel im Marktdaten-Stream abonnieren (nur die Differenz wird an den Feed geschickt)
+        marketData.updateSubscriptions(MarketDataService.OWNER_POSITIONS, positionsForMl.stream()
+                .map(PositionDto::getSymbol)
+                .filter(s -> !DEFAULT_PLACEHOLDER.equals(s))
+                .collect(Collectors.toList()));
+
+        return positionsForMl;
     }
 
-    private double readDouble(JsonObject obj, String memberName, double defaultValue) {
-        if (obj == null || memberName == null) {
-            return defaultValue;
-        }
-        if (!obj.has(memberName)) {
-            return defaultValue;
-        }
+    private PortfolioRequestDto buildPortfolioRequest(AccountSnapshot account, List<PositionDto> positionsForMl) {
+        PortfolioRequestDto portfolioDto = new PortfolioRequestDto();
+        portfolioDto.setCash(account != null && account.getCash() != null ? account.getCash().doubleValue() : 0.0);
+        portfolioDto.setPositions(positionsForMl);
+        return portfolioDto;
+    }
 
-        JsonElement element = obj.get(memberName);
-        if (element != null && element.isJsonPrimitive()) {
-            try {
-                return element.getAsDouble();
-            } catch (Exception ignored) {
-                return defaultValue;
-            }
+    private RiskScoreResponseDto loadRisk(PortfolioRequestDto portfolioDto) {
+        try {
+            return mlClient.getRiskScore(portfolioDto);
+        } catch (Exception e) {
+            throw new CompletionException(e);
         }
-        return defaultValue;
     }
 
-    private double parseDoubleSafe(String value, double defaultValue) {
-        if (value == null || value.isBlank() || DEFAULT_PLACEHOLDER.equals(value)) {
-            return defaultValue;
-        }
-        try {
-            return Double.parseDouble(value);
-        } catch (NumberFormatException ex) {
-            return defaultValue;
+    private List<TrendScoreResponseDto> loadTrends(List<PositionDto> positionsForMl) {
+        // Alle gehaltenen Titel; aus dem Bar-Cache, fehlende in einem Batch (siehe TrendScoreCache)
+        List<String> symbolsForTrend = positionsForMl.stream()
+                .map(PositionDto::getSymbol)
+                .filter(Objects::nonNull)
+                .filter(s -> !DEFAULT_PLACEHOLDER.equals(s))
+                .distinct()
+                .collect(Collectors.toList());
+
+        if (symbolsForTrend.isEmpty()) {
+            symbolsForTrend = List.of("AAPL", "MSFT");
         }
+        return trendCache.getTrendScores(symbolsForTrend);
+    }
+
+    // ===== Hilfsmethoden =====
+
+    private Map<String, String> buildOpenOrderView(BrokerOrder order) {
+        Map<String, String> view = new HashMap<>();
+        view.put("symbol", orPlaceholder(order.getSymbol()));
+        view.put("side", orPlaceholder(order.getSide()));
+        view.put("qty", plain(order.getQty()));
+        view.put("status", orPlaceholder(order.getStatus()));
+        view.put("createdAt", orPlaceholder(order.getCreatedAt()));
+        return view;
+    }
+
+    private Map<String, String> buildOpenOrderView(LiveOrder order) {
+        Map<String, String> view = new HashMap<>();
+        view.put("symbol", orPlaceholder(order.getSymbol()));
+        view.put("side", orPlaceholder(order.getSide()));
+        view.put("qty", orPlaceholder(order.getQty()));
+        view.put("status", orPlaceholder(order.getStatus()));
+        view.put("createdAt", orPlaceholder(order.getCreatedAt()));
+        return view;
+    }
+
+    private Map<String, String> buildFillView(LiveFill fill) {
+        Map<String, String> view = new HashMap<>();
+        view.put("symbol", orPlaceholder(fill.getSymbol()));
+        view.put("qty", orPlaceholder(fill.getQty()));
+        view.put("price", orPlaceholder(fill.getPrice()));
+        view.put("side", orPlaceholder(fill.getSide()));
+        view.put("timestamp", orPlaceholder(fill.getTimestamp()));
+        return view;
+    }
+
+    private Map<String, String> buildFillView(FillActivity fill) {
+        Map<String, String> view = new HashMap<>();
+        view.put("symbol", orPlaceholder(fill.getSymbol()));
+        view.put("qty", plain(fill.getQty()));
+        view.put("price", plain(fill.getPrice()));
+        view.put("side", orPlaceholder(fill.getSide()));
+        view.put("timestamp", fill.getTransactionTime() != null ? fill.getTransactionTime().toString() : DEFAULT_PLACEHOLDER);
+        return view;
+    }
+
+    private String orPlaceholder(String value) {
+        return value == null || value.isBlank() ? DEFAULT_PLACEHOLDER : value;
+    }
+
+    private String plain(BigDecimal value) {
+        return value != null ? value.stripTrailingZeros().toPlainString() : DEFAULT_PLACEHOLDER;
     }
 }
@@ -0,0 +1,39 @@
+package com.mybroker.web;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.mybroker.metrics.Metrics;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Gibt alle Zähler und Gauges der {@link Metrics}-Registry als JSON aus.
+ * <p>
+ * GET /metrics
+ */
+@WebServlet(name = "MetricsServlet", urlPatterns = {"/metrics"})
+public class MetricsServlet extends HttpServlet {
+
+    private final Gson gson = new GsonBuilder()
+            .serializeSpecialFloatingPointValues()
+            .setPrettyPrinting()
+            .create();
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        resp.setContentType("application/json;charset=UTF-8");
+        resp.setCharacterEncoding("UTF-8");
+
+        try (PrintWriter out = resp.getWriter()) {
+            out.write(gson.toJson(Metrics.snapshot()));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.mybroker.web;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.mybroker.order.OrderGateway;
+import com.mybroker.order.OrderTicket;
+import com.mybroker.stream.LiveOrder;
+import com.mybroker.stream.TradeUpdatesStream;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Stand einer über das {@link OrderGateway} eingereichten Order.
+ * <p>
+ * HTML-Ansicht (lädt sich neu, solange die Order noch nicht abgeschlossen ist) oder JSON mit {@code ?format=json}.
+ * Der aktuelle Ausführungsstand (Status, ausgeführte Menge) kommt aus dem {@link com.mybroker.stream.LiveOrderBook},
+ * solange der trade_updates-Stream läuft – auch für bereits abgeschlossene Orders.
+ */
+@WebServlet(name = "OrderStatusServlet", urlPatterns = "/orders/status")
+public class OrderStatusServlet extends HttpServlet {
+
+    private final OrderGateway gateway = OrderGateway.shared();
+    private final Gson gson = new Gson();
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException {
+
+        OrderTicket ticket = gateway.getTicket(req.getParameter("id"));
+        LiveOrder liveOrder = ticket != null ? liveOrder(ticket) : null;
+
+        if ("json".equalsIgnoreCase(req.getParameter("format"))) {
+            resp.setContentType("application/json;charset=UTF-8");
+            if (ticket == null) {
+                resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                resp.getWriter().write("{\"error\":\"unknown tracking id\"}");
+                return;
+            }
+            resp.getWriter().write(gson.toJson(toJson(ticket, liveOrder)));
+            return;
+        }
+
+        if (ticket == null) {
+            resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            req.setAttribute("errorMessage", "Unbekannte Tracking-ID – die Order ist evtl. schon länger abgeschlossen.");
+            RequestDispatcher dispatcher = req.getRequestDispatcher("/jsp/error.jsp");
+            dispatcher.forward(req, resp);
+            return;
+        }
+
+        req.setAttribute("ticket", ticket);
+        req.setAttribute("liveOrder", liveOrder);
+        RequestDispatcher dispatcher = req.getRequestDispatcher("/jsp/order-result.jsp");
+        dispatcher.forward(req, resp);
+    }
+
+    /**
+     * null, solange Alpaca die Order noch nicht angenommen hat oder der Stream nicht live ist.
+     */
+    private static LiveOrder liveOrder(OrderTicket ticket) {
+        TradeUpdatesStream stream = TradeUpdatesStream.shared();
+        return stream.isLive() ? stream.getBook().getOrder(ticket.getBrokerOrderId()) : null;
+    }
+
+    private static JsonObject toJson(OrderTicket ticket, LiveOrder liveOrder) {
+        JsonObject json = new JsonObject();
+        json.addProperty("trackingId", ticket.getTrackingId());
+        json.addProperty("clientOrderId", ticket.getClientOrderId());
+        json.addProperty("state", ticket.getState().name());
+        json.addProperty("terminal", ticket.isTerminal());
+        json.addProperty("symbol", ticket.getSymbol());
+        json.addProperty("qty", ticket.getQty());
+        json.addProperty("side", ticket.getSide());
+        json.addProperty("attempts", ticket.getAttempts());
+        json.addProperty("brokerOrderId", ticket.getBrokerOrderId());
+        json.addProperty("brokerStatus", ticket.getBrokerStatus());
+        json.addProperty("message", ticket.getMessage());
+        json.addProperty("createdAt", ticket.getCreatedAt().toString());
+        json.addProperty("updatedAt", ticket.getUpdatedAt().toString());
+        if (liveOrder != null) {
+            json.addProperty("liveStatus", liveOrder.getStatus());
+            json.addProperty("filledQty", liveOrder.getFilledQty());
+        }
+        return json;
+    }
+}
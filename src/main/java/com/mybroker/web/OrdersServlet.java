@@ -7,21 +7,31 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.mybroker.service.AlpacaService;
+import com.mybroker.order.OrderGateway;
+import com.mybroker.order.OrderTicket;
+import com.mybroker.stream.TradeUpdatesStream;
 
 @WebServlet(name = "OrdersServlet", urlPatterns = "/orders")
 public class OrdersServlet extends HttpServlet {
 
-    private final AlpacaService service = new AlpacaService();
+    private final OrderGateway gateway = OrderGateway.shared();
+    private final TradeUpdatesStream tradeUpdates = TradeUpdatesStream.shared();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
+        // Offene Orders aus dem Live-Orderbuch (nur wenn der Stream verbunden und abgeglichen ist)
+        if (tradeUpdates.isLive()) {
+            req.setAttribute("openOrders", tradeUpdates.getBook().getOpenOrders());
+        }
+
+        // Idempotenz-Schlüssel pro Formular: Doppelklick/erneutes Absenden ergibt dieselbe Order
+        req.setAttribute("idempotencyKey", UUID.randomUUID().toString());
+
         RequestDispatcher dispatcher = req.getRequestDispatcher("/jsp/orders.jsp");
         dispatcher.forward(req, resp);
     }
@@ -35,30 +45,25 @@ public class OrdersServlet extends HttpServlet {
         String symbol = req.getParameter("symbol");
         String qtyStr = req.getParameter("qty");
         String side = req.getParameter("side");
+        String idempotencyKey = req.getParameter("idempotencyKey");
 
         try {
             int qty = Integer.parseInt(qtyStr);
 
-            String resultJson = service.createOrder(symbol, qty, side);
-            JsonObject jsonObj = JsonParser.parseString(resultJson).getAsJsonObject();
+            // Nur einreihen – die Einreichung bei Alpaca läuft auf den Submitter-Threads des Gateways
+            OrderTicket ticket = gateway.submit(symbol, qty, side, idempotencyKey);
 
-            Map<String, String> order = new HashMap<>();
-            order.put("id", jsonObj.get("id").getAsString());
-            order.put("status", jsonObj.get("status").getAsString());
-            order.put("symbol", symbol);
-            order.put("requestedQty", String.valueOf(qty));
-            order.put("filledQty", jsonObj.get("filled_qty").getAsString());
-            order.put("type", jsonObj.get("type").getAsString());
-            order.put("tif", jsonObj.get("time_in_force").getAsString());
-            order.put("createdAt", jsonObj.get("created_at").getAsString());
-
-            req.setAttribute("order", order);
-            req.setAttribute("rawJson", resultJson);
-            RequestDispatcher dispatcher = req.getRequestDispatcher("/jsp/order-result.jsp");
+            // Post/Redirect/Get: ein Reload der Ergebnisseite sendet die Order nicht erneut
+            resp.sendRedirect(req.getContextPath() + "/orders/status?id="
+                    + URLEncoder.encode(ticket.getTrackingId(), StandardCharsets.UTF_8));
+        } catch (IllegalStateException ex) {
+            resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            req.setAttribute("errorMessage", "Order konnte nicht angenommen werden: " + ex.getMessage());
+            RequestDispatcher dispatcher = req.getRequestDispatcher("/jsp/error.jsp");
             dispatcher.forward(req, resp);
-        } catch (Exception ex) {
-            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            req.setAttribute("errorMessage", "Fehler beim Senden der Order: " + ex.getMessage());
+        } catch (IllegalArgumentException ex) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            req.setAttribute("errorMessage", "Ungültige Order: " + ex.getMessage());
             RequestDispatcher dispatcher = req.getRequestDispatcher("/jsp/error.jsp");
             dispatcher.forward(req, resp);
         }
@@ -3,8 +3,13 @@ package com.mybroker.web;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mybroker.ai.OpenAiClient;
+import com.mybroker.model.AiExplanation;
 import com.mybroker.model.PortfolioAnalysisResult;
+import com.mybroker.model.PortfolioAnalysisSummary;
 import com.mybroker.model.Position;
+import com.mybroker.risk.PortfolioRiskService;
+import com.mybroker.risk.PortfolioScenarioService;
+import com.mybroker.service.PortfolioAggregateStore;
 import com.mybroker.service.PortfolioAiAdvisor;
 import com.mybroker.service.PortfolioAnalysisService;
 import com.mybroker.service.PortfolioDataService;
@@ -16,10 +21,7 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.InputStream;
 import java.math.BigDecimal;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
@@ -29,30 +31,48 @@ import java.util.List;
 @WebServlet(name = "PortfolioAnalysisServlet", urlPatterns = {"/portfolio-analysis"})
 public class PortfolioAnalysisServlet extends HttpServlet {
 
+    private static final DateTimeFormatter GENERATED_AT_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")
+            .withZone(ZoneId.systemDefault());
+
     private PortfolioDataService dataService;
     private PortfolioAnalysisService analysisService;
     private PortfolioAiAdvisor aiAdvisor;
+    private PortfolioRiskService riskService;
+    private PortfolioScenarioService scenarioService;
 
     private final ObjectMapper mapper = new ObjectMapper();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        String userId = "demoUser";
-
-        // 1) Portfolio laden und analysieren
-        List<Position> positions = dataService.loadCurrentPositions(userId);
-        PortfolioAnalysisResult analysis = analysisService.analyse(positions);
+        // Konto des angemeldeten Nutzers (Container-Login); ohne Login das Konto aus der Umgebung
+        String userId = req.getRemoteUser() != null ? req.getRemoteUser() : PortfolioDataService.DEFAULT_USER;
+
+        // 1) Portfolio laden und analysieren – alle Kacheln und der KI-Text auf demselben Stand
+        PortfolioAggregateStore.Snapshot snapshot = dataService.loadCurrentPortfolio(userId);
+        List<Position> positions = snapshot.getPositions();
+        PortfolioAnalysisResult analysis = analysisService.analyse(snapshot);
+        String batchAnalysedAt = null;
+        if (positions.isEmpty()) {
+            // verwaltetes Konto ohne Live-Stand (Alpaca nicht erreichbar): letzte Analyse des Batch-Laufs anzeigen
+            PortfolioAnalysisSummary summary = dataService.loadBatchSummary(userId);
+            if (summary != null && summary.getAnalysis() != null && summary.getPositionCount() > 0) {
+                analysis = summary.getAnalysis();
+                batchAnalysedAt = GENERATED_AT_FORMAT.format(summary.getAnalysedAt());
+            }
+        }
+        analysis.setRiskReport(riskService.evaluate(positions));
+        analysis.setScenarioReport(scenarioService.run(positions));
 
         // 2) KI-Text erzeugen
-        String aiText = aiAdvisor.buildExplanation(analysis, positions);
-        analysis.setAiExplanation(aiText);
+        AiExplanation ai = aiAdvisor.explain(analysis, positions);
+        analysis.setAiExplanation(ai.getText());
 
         // 3) Alpaca-Portfolio-Historie laden (für Kachel "Portfolio-Entwicklung")
         List<String> performanceLabels = new ArrayList<>();
         List<BigDecimal> performanceValues = new ArrayList<>();
 
         try {
-            List<PortfolioPoint> history = loadPortfolioHistoryFromAlpaca("1M", "1D");
+            List<PortfolioPoint> history = loadPortfolioHistoryFromAlpaca(userId, "1M", "1D");
             for (PortfolioPoint p : history) {
                 performanceLabels.add(p.label());
                 performanceValues.add(p.equity());
@@ -65,13 +85,18 @@ public class PortfolioAnalysisServlet extends HttpServlet {
         // 4) Attribute für JSP setzen
         req.setAttribute("positions", positions);
         req.setAttribute("analysis", analysis);
+        req.setAttribute("batchAnalysedAt", batchAnalysedAt);
 
         // KI-Infos
-        req.setAttribute("aiContent", extractAssistantContent(aiText));
-        req.setAttribute("aiModel", extractJsonStringField(aiText, "\"model\""));
-        req.setAttribute("aiTotalTokens", extractJsonNumberField(aiText, "\"total_tokens\""));
-        req.setAttribute("aiCompletionTokens", extractJsonNumberField(aiText, "\"completion_tokens\""));
-        req.setAttribute("aiServiceTier", extractJsonStringField(aiText, "\"service_tier\""));
+        req.setAttribute("aiContent", ai.getText());
+        req.setAttribute("aiModel", ai.getModel());
+        req.setAttribute("aiTotalTokens", ai.getTotalTokens());
+        req.setAttribute("aiCompletionTokens", ai.getCompletionTokens());
+        req.setAttribute("aiServiceTier", ai.getServiceTier());
+        req.setAttribute("aiGeneratedAt", ai.getGeneratedAt() != null
+                ? GENERATED_AT_FORMAT.format(ai.getGeneratedAt())
+                : null);
+        req.setAttribute("aiCached", ai.isCached());
 
         // Performance-Daten für die Line-Chart (Portfolio-Entwicklung)
         req.setAttribute("performanceLabels", performanceLabels);
@@ -87,6 +112,8 @@ public class PortfolioAnalysisServlet extends HttpServlet {
         this.dataService = new PortfolioDataService();
         this.analysisService = new PortfolioAnalysisService();
         this.aiAdvisor = new PortfolioAiAdvisor(new OpenAiClient());
+        this.riskService = PortfolioRiskService.shared();
+        this.scenarioService = PortfolioScenarioService.shared();
     }
 
     /**
@@ -94,110 +121,42 @@ public class PortfolioAnalysisServlet extends HttpServlet {
      * period: z.B. "1M", "3M", "6M"
      * timeframe: z.B. "1D"
      */
-    private List<PortfolioPoint> loadPortfolioHistoryFromAlpaca(String period, String timeframe) throws IOException {
+    private List<PortfolioPoint> loadPortfolioHistoryFromAlpaca(String userId, String period, String timeframe)
+            throws IOException, InterruptedException {
         List<PortfolioPoint> result = new ArrayList<>();
 
         String apiKey = System.getenv("ALPACA_API_KEY");
         String apiSecret = System.getenv("ALPACA_API_SECRET");
-        String baseUrl = System.getenv("ALPACA_BASE_URL");
 
-        if (baseUrl == null || baseUrl.isBlank()) {
-            baseUrl = "https://paper-api.alpaca.markets";
-        }
-
-        if (apiKey == null || apiKey.isBlank() || apiSecret == null || apiSecret.isBlank()) {
+        if (!dataService.isManagedAccount(userId)
+                && (apiKey == null || apiKey.isBlank() || apiSecret == null || apiSecret.isBlank())) {
             // Ohne Credentials können wir nichts laden – leere Liste zurück
             return result;
         }
 
-        String urlStr = baseUrl + "/v2/account/portfolio/history"
-                + "?period=" + period
-                + "&timeframe=" + timeframe
-                + "&intraday_reporting=extended_hours";
-
-        HttpURLConnection conn = null;
-        try {
-            URL url = new URL(urlStr);
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("APCA-API-KEY-ID", apiKey);
-            conn.setRequestProperty("APCA-API-SECRET-KEY", apiSecret);
-
-            int status = conn.getResponseCode();
-            if (status != 200) {
-                throw new IOException("Alpaca portfolio history error: HTTP " + status);
-            }
-
-            try (InputStream in = conn.getInputStream()) {
-                JsonNode root = mapper.readTree(in);
-                JsonNode equityArr = root.get("equity");
-                JsonNode timestampsArr = root.get("timestamp");
+        JsonNode root = mapper.readTree(dataService.alpacaFor(userId).getPortfolioHistory(period, timeframe));
+        JsonNode equityArr = root.get("equity");
+        JsonNode timestampsArr = root.get("timestamp");
 
-                if (equityArr != null && timestampsArr != null &&
-                        equityArr.isArray() && timestampsArr.isArray()) {
+        if (equityArr != null && timestampsArr != null &&
+                equityArr.isArray() && timestampsArr.isArray()) {
 
-                    DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd")
-                            .withZone(ZoneId.systemDefault());
+            DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd")
+                    .withZone(ZoneId.systemDefault());
 
-                    int n = Math.min(equityArr.size(), timestampsArr.size());
-                    for (int i = 0; i < n; i++) {
-                        double eq = equityArr.get(i).asDouble();
-                        long ts = timestampsArr.get(i).asLong(); // Sekunden seit Epoch
+            int n = Math.min(equityArr.size(), timestampsArr.size());
+            for (int i = 0; i < n; i++) {
+                double eq = equityArr.get(i).asDouble();
+                long ts = timestampsArr.get(i).asLong(); // Sekunden seit Epoch
 
-                        String label = fmt.format(Instant.ofEpochSecond(ts));
-                        result.add(new PortfolioPoint(label, BigDecimal.valueOf(eq)));
-                    }
-                }
-            }
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
+                String label = fmt.format(Instant.ofEpochSecond(ts));
+                result.add(new PortfolioPoint(label, BigDecimal.valueOf(eq)));
             }
         }
 
         return result;
     }
 
-    private String extractJsonNumberField(String json, String fieldName) {
-        if (json == null) return null;
-        int pos = json.indexOf(fieldName);
-        if (pos < 0) return null;
-        int colon = json.indexOf(':', pos);
-        if (colon < 0) return null;
-        int comma = json.indexOf(',', colon + 1);
-        String number = comma < 0
-                ? json.substring(colon + 1).trim()
-                : json.substring(colon + 1, comma).trim();
-        return number.replaceAll("[^0-9]", "");
-    }
-
-    private String extractAssistantContent(String json) {
-        if (json == null || json.isEmpty()) {
-            return "";
-        }
-        int idx = json.indexOf("\"content\"");
-        if (idx < 0) return json;
-        int colon = json.indexOf(':', idx);
-        if (colon < 0) return json;
-        int startQuote = json.indexOf('"', colon + 1);
-        if (startQuote < 0) return json;
-        int endQuote = json.indexOf('"', startQuote + 1);
-        if (endQuote < 0) return json;
-        return json.substring(startQuote + 1, endQuote);
-    }
-
-    private String extractJsonStringField(String json, String fieldName) {
-        if (json == null) return null;
-        int pos = json.indexOf(fieldName);
-        if (pos < 0) return null;
-        int colon = json.indexOf(':', pos);
-        if (colon < 0) return null;
-        int firstQuote = json.indexOf('"', colon + 1);
-        int secondQuote = json.indexOf('"', firstQuote + 1);
-        if (firstQuote < 0 || secondQuote < 0) return null;
-        return json.substring(firstQuote + 1, secondQuote);
-    }
-
     /**
      * Einfaches DTO für einen Punkt der Portfolio-Historie.
      *
@@ -1,10 +1,10 @@
 package com.mybroker.web;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.mybroker.model.BrokerPosition;
 import com.mybroker.service.AlpacaService;
+import com.mybroker.service.CachedAlpacaService;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
@@ -13,6 +13,7 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -21,31 +22,30 @@ import java.util.Map;
 @WebServlet(name = "PositionsServlet", urlPatterns = "/positions")
 public class PositionsServlet extends HttpServlet {
 
-    private final AlpacaService service = new AlpacaService();
+    private static final Gson DEBUG_GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final AlpacaService service = CachedAlpacaService.shared();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
 
         try {
-            String json = service.getPositions();
-            JsonElement root = JsonParser.parseString(json);
-            JsonArray arr = root.isJsonArray() ? root.getAsJsonArray() : new JsonArray();
+            List<BrokerPosition> brokerPositions = service.getBrokerPositions();
 
             List<Map<String, String>> positions = new ArrayList<>();
-            for (JsonElement el : arr) {
-                JsonObject pos = el.getAsJsonObject();
+            for (BrokerPosition pos : brokerPositions) {
                 Map<String, String> view = new HashMap<>();
-                view.put("symbol", pos.get("symbol").getAsString());
-                view.put("qty", pos.get("qty").getAsString());
-                view.put("marketValue", pos.get("market_value").getAsString());
-                view.put("avgEntryPrice", pos.get("avg_entry_price").getAsString());
-                view.put("unrealizedPl", pos.get("unrealized_pl").getAsString());
+                view.put("symbol", pos.getSymbol());
+                view.put("qty", plain(pos.getQty()));
+                view.put("marketValue", plain(pos.getMarketValue()));
+                view.put("avgEntryPrice", plain(pos.getAvgEntryPrice()));
+                view.put("unrealizedPl", plain(pos.getUnrealizedPl()));
                 positions.add(view);
             }
 
             req.setAttribute("positions", positions);
-            req.setAttribute("rawJson", json);
+            req.setAttribute("rawJson", DEBUG_GSON.toJson(brokerPositions));
 
             RequestDispatcher dispatcher = req.getRequestDispatcher("/jsp/positions.jsp");
             dispatcher.forward(req, resp);
@@ -56,4 +56,8 @@ public class PositionsServlet extends HttpServlet {
             dispatcher.forward(req, resp);
         }
     }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
 }
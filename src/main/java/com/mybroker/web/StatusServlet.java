@@ -1,8 +1,10 @@
 package com.mybroker.web;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.mybroker.model.AccountSnapshot;
 import com.mybroker.service.AlpacaService;
+import com.mybroker.service.CachedAlpacaService;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
@@ -11,33 +13,35 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
 
 @WebServlet(name = "StatusServlet", urlPatterns = "/status")
 public class StatusServlet extends HttpServlet {
 
-    private final AlpacaService service = new AlpacaService();
+    private static final Gson DEBUG_GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final AlpacaService service = CachedAlpacaService.shared();
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
 
         try {
-            String json = service.getAccount();
-            JsonObject obj = JsonParser.parseString(json).getAsJsonObject();
+            AccountSnapshot snapshot = service.getAccountSnapshot();
 
             Map<String, String> account = new HashMap<>();
-            account.put("id", obj.get("id").getAsString());
-            account.put("status", obj.get("status").getAsString());
-            account.put("currency", obj.get("currency").getAsString());
-            account.put("cash", obj.get("cash").getAsString());
-            account.put("portfolioValue", obj.get("portfolio_value").getAsString());
-            account.put("buyingPower", obj.get("buying_power").getAsString());
-            account.put("createdAt", obj.get("created_at").getAsString());
+            account.put("id", snapshot.getId());
+            account.put("status", snapshot.getStatus());
+            account.put("currency", snapshot.getCurrency());
+            account.put("cash", plain(snapshot.getCash()));
+            account.put("portfolioValue", plain(snapshot.getPortfolioValue()));
+            account.put("buyingPower", plain(snapshot.getBuyingPower()));
+            account.put("createdAt", snapshot.getCreatedAt());
 
             req.setAttribute("account", account);
-            req.setAttribute("rawJson", json);
+            req.setAttribute("rawJson", DEBUG_GSON.toJson(snapshot));
 
             RequestDispatcher dispatcher = req.getRequestDispatcher("/jsp/status.jsp");
             dispatcher.forward(req, resp);
@@ -48,4 +52,8 @@ public class StatusServlet extends HttpServlet {
             dispatcher.forward(req, resp);
         }
     }
+
+    private static String plain(BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
 }
@@ -22,6 +22,9 @@ document.addEventListener("DOMContentLoaded", function () {
     const performanceLabels = parseJson(dataEl.dataset.performanceLabels || "[]", []);
     const performanceValues = parseJson(dataEl.dataset.performanceValues || "[]", []);
     const riskScore = parseFloat(dataEl.dataset.riskScore || "0");
+    const scenarioBins = parseJson(dataEl.dataset.scenarioBins || "[]", []);
+    const scenarioHistorical = parseJson(dataEl.dataset.scenarioHistorical || "[]", []);
+    const scenarioNormal = parseJson(dataEl.dataset.scenarioNormal || "[]", []);
 
     // ----------------------------
     // PIE – Portfolio nach Titeln
@@ -136,6 +139,39 @@ document.addEventListener("DOMContentLoaded", function () {
         });
     })();
 
+    // ----------------------------
+    // BAR – Verlustverteilung der Szenarien
+    // ----------------------------
+    (function () {
+        const ctx = document.getElementById("scenarioLossChart");
+        if (!ctx || typeof Chart === "undefined") return;
+
+        if (!scenarioBins.length) {
+            console.warn("Keine Szenariodaten – Verlust-Histogramm wird nicht gerendert.");
+            return;
+        }
+
+        new Chart(ctx, {
+            type: "bar",
+            data: {
+                labels: scenarioBins.map((b) => Math.round(b).toLocaleString("de-CH")),
+                datasets: [
+                    {label: "Historischer Bootstrap", data: scenarioHistorical},
+                    {label: "Normalverteilung", data: scenarioNormal}
+                ]
+            },
+            options: {
+                scales: {
+                    x: {title: {display: true, text: "Verlust ab (CHF)"}},
+                    y: {beginAtZero: true}
+                },
+                plugins: {
+                    legend: {position: "bottom"}
+                }
+            }
+        });
+    })();
+
     // ----------------------------
     // APEXCHARTS – Risiko-Gauge
     // ----------------------------
@@ -198,6 +198,9 @@
                     Kein ML-Risiko-Score verfügbar. Prüfe ML-Service oder Datenquelle.
                 </c:otherwise>
             </c:choose>
+            <c:if test="${riskSource == 'local'}">
+                <br><small style="color:#9ca3af;">Quelle: lokale Berechnung (Fallback ohne ML-Modell)</small>
+            </c:if>
         </p>
         <p class="risk-footnote">
             Hinweis: Modellbasierte Risiko-Einschätzung, keine Anlageberatung.
@@ -255,6 +258,12 @@
                             </td>
                             <td style="font-size:0.8em; color:#9ca3af;">
                                 <c:out value="${trend.explanation}"/>
+                                <c:if test="${trend.computedAt != null}">
+                                    <br><span title="berechnet ${trend.computedAt}">Stand: vor ${trend.cacheAgeSeconds} s</span>
+                                </c:if>
+                                <c:if test="${trend.failed}">
+                                    <br><span title="<c:out value='${trend.error}'/>">⚠ kein Score</span>
+                                </c:if>
                             </td>
                         </tr>
                     </c:forEach>
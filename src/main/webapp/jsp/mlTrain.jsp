@@ -1,20 +1,106 @@
-<%@ page contentType="text/html;charset=UTF-8" language="java" %>
-<html>
+<%@ page contentType="text/html; charset=UTF-8" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<!DOCTYPE html>
+<html lang="de">
 <head>
-    <title>ML-Modelltraining</title>
+    <meta charset="UTF-8">
+    <title>ML-Training - myBrokerApp</title>
+    <c:if test="${not empty job and not job.terminal}">
+        <meta http-equiv="refresh" content="3">
+    </c:if>
+    <style>
+        body { font-family: 'Segoe UI', Roboto, sans-serif; background: #0d1117; color: #e6edf3; margin: 0; padding: 20px; }
+        a { color: #58a6ff; text-decoration: none; font-weight: 500; }
+        a:hover { text-decoration: underline; }
+        .container { max-width: 800px; margin: 0 auto; }
+        .nav-top { margin-bottom: 16px; }
+        .nav-top a { margin-right: 12px; }
+        .title { font-size: 2em; color: #58a6ff; margin-bottom: 10px; }
+        .subtitle { color: #8b949e; margin-bottom: 20px; }
+        .card { background: rgba(255,255,255,0.06); backdrop-filter: blur(6px); border: 1px solid rgba(255,255,255,0.12); border-radius: 12px; padding: 18px 20px; box-shadow: 0 0 15px rgba(0,255,255,0.07); margin-bottom: 20px; }
+        table { width: 100%; border-collapse: collapse; margin-top: 8px; }
+        th, td { padding: 8px 10px; text-align: left; font-size: 0.9em; }
+        th { background: #161b22; color: #79c0ff; }
+        tr:nth-child(even) { background: #161b22; }
+        tr:nth-child(odd) { background: #0f141a; }
+        .btn { padding: 8px 16px; border-radius: 6px; border: none; background: #238636; color: #fff; font-weight: 600; cursor: pointer; }
+        .btn:hover { background: #2ea043; }
+        .state-SUCCEEDED { color: #3fb950; font-weight: 600; }
+        .state-FAILED { color: #f85149; font-weight: 600; }
+        .state-RUNNING, .state-QUEUED { color: #d29922; font-weight: 600; }
+    </style>
 </head>
 <body>
-<h1>ML-Modelltraining für Portfolio-Risiko</h1>
+<div class="container">
+    <div class="nav-top">
+        <a href="${pageContext.request.contextPath}/jsp/index.jsp">Home</a>
+        <a href="${pageContext.request.contextPath}/dashboard">Dashboard</a>
+        <a href="${pageContext.request.contextPath}/ml-train">ML-Training</a>
+    </div>
 
-<p>Trainierte Portfolios: ${numPortfolios}</p>
-<p>Horizont (Tage): ${horizonDays}</p>
-<p>HTTP-Status vom ML-Service: ${statusCode}</p>
+    <div class="title">ML-Training: Risiko-Modell</div>
+    <div class="subtitle">
+        <c:choose>
+            <c:when test="${empty job}">Training läuft im Hintergrund – der Status ist jederzeit über die Job-Seite abrufbar.</c:when>
+            <c:when test="${job.terminal}">Trainingslauf abgeschlossen.</c:when>
+            <c:otherwise>Training läuft im ML-Service – die Seite aktualisiert sich automatisch.</c:otherwise>
+        </c:choose>
+    </div>
 
-<h2>Roh-Resultat</h2>
-<pre>${resultJson}</pre>
+    <c:if test="${not empty job}">
+        <div class="card">
+            <h2>Job</h2>
+            <table>
+                <tr><th>Job-ID</th><td><small>${job.jobId}</small></td></tr>
+                <tr><th>Modell</th><td>${job.modelName}</td></tr>
+                <tr><th>Version</th><td>${job.version}</td></tr>
+                <tr><th>Status</th><td class="state-${job.state}">${job.state}</td></tr>
+                <tr><th>Laufzeit</th><td>${job.elapsedSeconds} s</td></tr>
+                <tr><th>Eingereicht</th><td>${job.submittedAt}</td></tr>
+                <c:if test="${not empty job.finishedAt}">
+                    <tr><th>Beendet</th><td>${job.finishedAt}</td></tr>
+                </c:if>
+                <c:if test="${not empty job.message}">
+                    <tr><th>Meldung</th><td><c:out value="${job.message}"/></td></tr>
+                </c:if>
+            </table>
+        </div>
 
-<p>
-    <a href="${pageContext.request.contextPath}/ml-risk">Zur ML-Risiko-Ansicht</a>
-</p>
+        <c:if test="${not empty job.metricsJson}">
+            <div class="card">
+                <h2>Antwort des ML-Services</h2>
+                <pre style="white-space: pre-wrap; font-size: 0.85em; color:#c9d1d9;"><c:out value="${job.metricsJson}"/></pre>
+            </div>
+        </c:if>
+    </c:if>
+
+    <div class="card">
+        <form method="post" action="${pageContext.request.contextPath}/ml-train">
+            <button class="btn" type="submit">Neues Training starten</button>
+        </form>
+    </div>
+
+    <div class="card">
+        <h2>Letzte Trainingsläufe</h2>
+        <c:choose>
+            <c:when test="${empty recentJobs}">
+                <p>Noch keine Trainingsläufe.</p>
+            </c:when>
+            <c:otherwise>
+                <table>
+                    <tr><th>Version</th><th>Status</th><th>Laufzeit</th><th>Eingereicht</th></tr>
+                    <c:forEach var="j" items="${recentJobs}">
+                        <tr>
+                            <td><a href="${pageContext.request.contextPath}/ml-train?job=${j.jobId}">${j.version}</a></td>
+                            <td class="state-${j.state}">${j.state}</td>
+                            <td>${j.elapsedSeconds} s</td>
+                            <td>${j.submittedAt}</td>
+                        </tr>
+                    </c:forEach>
+                </table>
+            </c:otherwise>
+        </c:choose>
+    </div>
+</div>
 </body>
 </html>
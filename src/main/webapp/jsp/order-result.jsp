@@ -1,9 +1,13 @@
 <%@ page contentType="text/html; charset=UTF-8" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <!DOCTYPE html>
 <html lang="de">
 <head>
     <meta charset="UTF-8">
     <title>Order Ergebnis - myBrokerApp</title>
+    <c:if test="${not ticket.terminal}">
+        <meta http-equiv="refresh" content="2">
+    </c:if>
     <style>
         body { font-family: 'Segoe UI', Roboto, sans-serif; background: #0d1117; color: #e6edf3; margin: 0; padding: 20px; }
         a { color: #58a6ff; text-decoration: none; font-weight: 500; }
@@ -32,26 +36,42 @@
     </div>
 
     <div class="title">Order Ergebnis</div>
-    <div class="subtitle">Zusammenfassung der gesendeten Order</div>
+    <div class="subtitle">
+        <c:choose>
+            <c:when test="${ticket.terminal}">Zusammenfassung der gesendeten Order</c:when>
+            <c:otherwise>Order ist angenommen und wird an Alpaca übermittelt – die Seite aktualisiert sich automatisch.</c:otherwise>
+        </c:choose>
+    </div>
 
     <div class="card">
         <h2>Order Details</h2>
         <table>
-            <tr><th>Order-ID</th><td>${order.id}</td></tr>
-            <tr><th>Status</th><td>${order.status}</td></tr>
-            <tr><th>Symbol</th><td>${order.symbol}</td></tr>
-            <tr><th>Angeforderte Menge</th><td>${order.requestedQty}</td></tr>
-            <tr><th>Gefüllte Menge</th><td>${order.filledQty}</td></tr>
-            <tr><th>Order-Typ</th><td>${order.type}</td></tr>
-            <tr><th>Time-in-Force</th><td>${order.tif}</td></tr>
-            <tr><th>Erstellt</th><td>${order.createdAt}</td></tr>
+            <tr><th>Tracking-ID</th><td><c:out value="${ticket.trackingId}"/></td></tr>
+            <tr><th>Verarbeitung</th><td><c:out value="${ticket.state}"/></td></tr>
+            <tr><th>Order-ID</th><td><c:out value="${ticket.brokerOrderId}"/></td></tr>
+            <tr><th>Status</th><td><c:out value="${ticket.brokerStatus}"/></td></tr>
+            <c:if test="${not empty liveOrder}">
+                <tr><th>Aktueller Status</th><td><c:out value="${liveOrder.status}"/></td></tr>
+                <tr><th>Ausgeführte Menge</th><td><c:out value="${liveOrder.filledQty}"/></td></tr>
+            </c:if>
+            <tr><th>Symbol</th><td><c:out value="${ticket.symbol}"/></td></tr>
+            <tr><th>Side</th><td><c:out value="${ticket.side}"/></td></tr>
+            <tr><th>Angeforderte Menge</th><td><c:out value="${ticket.qty}"/></td></tr>
+            <tr><th>Versuche</th><td><c:out value="${ticket.attempts}"/></td></tr>
+            <tr><th>Client-Order-ID</th><td><small><c:out value="${ticket.clientOrderId}"/></small></td></tr>
+            <tr><th>Erstellt</th><td><c:out value="${ticket.createdAt}"/></td></tr>
+            <c:if test="${not empty ticket.message}">
+                <tr><th>Meldung</th><td><c:out value="${ticket.message}"/></td></tr>
+            </c:if>
         </table>
     </div>
 
-    <div class="card">
-        <h2>Rohes JSON (Debug)</h2>
-        <pre style="white-space: pre-wrap; font-size: 0.85em; color:#c9d1d9;">${rawJson}</pre>
-    </div>
+    <c:if test="${not empty ticket.rawJson}">
+        <div class="card">
+            <h2>Rohes JSON (Debug)</h2>
+            <pre style="white-space: pre-wrap; font-size: 0.85em; color:#c9d1d9;"><c:out value="${ticket.rawJson}"/></pre>
+        </div>
+    </c:if>
 
     <div>
         <a href="${pageContext.request.contextPath}/orders">Weitere Order erstellen</a><br>
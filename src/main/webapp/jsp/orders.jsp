@@ -1,4 +1,5 @@
 <%@ page contentType="text/html; charset=UTF-8" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <!DOCTYPE html>
 <html lang="de">
 <head>
@@ -20,6 +21,11 @@
         .radio-group { margin-top: 10px; }
         .btn { margin-top: 14px; padding: 8px 14px; border-radius: 8px; border: 1px solid #58a6ff; background:#58a6ff; color:#0d1117; font-weight: 500; cursor:pointer; }
         .btn:hover { background:#1f6feb; border-color:#1f6feb; }
+        table { width: 100%; border-collapse: collapse; margin-top: 8px; }
+        th, td { padding: 8px 10px; text-align: left; font-size: 0.9em; }
+        th { background: #161b22; color: #79c0ff; }
+        tr:nth-child(even) { background: #161b22; }
+        tr:nth-child(odd) { background: #0f141a; }
     </style>
 </head>
 <body>
@@ -35,7 +41,10 @@
     <div class="subtitle">Erfasse eine neue Market-Order im Alpaca Paper-Trading Konto.</div>
 
     <div class="card">
-        <form method="post" action="${pageContext.request.contextPath}/orders">
+        <form method="post" action="${pageContext.request.contextPath}/orders"
+              onsubmit="this.querySelector('button[type=submit]').disabled = true;">
+            <input type="hidden" name="idempotencyKey" value="${idempotencyKey}">
+
             <label for="symbol">Symbol</label>
             <input type="text" id="symbol" name="symbol" value="AAPL" required>
 
@@ -51,6 +60,32 @@
             <button type="submit" class="btn">Order senden</button>
         </form>
     </div>
+
+    <c:if test="${openOrders != null}">
+        <div class="card">
+            <h2>Offene Orders (live)</h2>
+            <c:choose>
+                <c:when test="${empty openOrders}">
+                    <p>Keine offenen Orders.</p>
+                </c:when>
+                <c:otherwise>
+                    <table>
+                        <tr><th>Symbol</th><th>Side</th><th>Menge</th><th>Gefüllt</th><th>Status</th><th>Erstellt</th></tr>
+                        <c:forEach var="order" items="${openOrders}">
+                            <tr>
+                                <td>${order.symbol}</td>
+                                <td>${order.side}</td>
+                                <td>${order.qty}</td>
+                                <td>${order.filledQty}</td>
+                                <td>${order.status}</td>
+                                <td><small>${order.createdAt}</small></td>
+                            </tr>
+                        </c:forEach>
+                    </table>
+                </c:otherwise>
+            </c:choose>
+        </div>
+    </c:if>
 </div>
 </body>
 </html>
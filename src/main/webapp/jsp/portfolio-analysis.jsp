@@ -1,6 +1,7 @@
 <%@ page contentType="text/html; charset=UTF-8" %>
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@ taglib prefix="fn" uri="http://java.sun.com/jsp/jstl/functions" %>
+<%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
 <!DOCTYPE html>
 <html lang="de">
 <head>
@@ -42,6 +43,13 @@
 
 <main class="flex-1 max-w-6xl mx-auto px-5 py-6 space-y-6">
 
+    <c:if test="${not empty batchAnalysedAt}">
+        <div class="rounded-lg border border-amber-300 bg-amber-50 px-4 py-3 text-sm text-amber-800">
+            Live-Daten derzeit nicht verfügbar – angezeigt wird die Batch-Analyse vom
+            <c:out value="${batchAnalysedAt}"/>.
+        </div>
+    </c:if>
+
     <!-- KPIs -->
     <section class="grid gap-4 md:grid-cols-3">
         <!-- Gesamtmarktwert -->
@@ -207,6 +215,188 @@
         </div>
     </section>
 
+    <!-- Marktrisiko (VaR aus Kurshistorie) -->
+    <section class="grid gap-4">
+        <c:set var="risk" value="${analysis.riskReport}"/>
+        <div class="pa-card">
+            <div class="flex items-baseline justify-between mb-2">
+                <div>
+                    <div class="text-sm font-medium text-slate-700">Marktrisiko</div>
+                    <div class="text-xs text-slate-400">
+                        Parametrischer Value at Risk aus der Kovarianz der Tagesrenditen (Ledoit-Wolf).
+                    </div>
+                </div>
+                <span class="inline-flex items-center rounded-full bg-amber-50 px-2 py-0.5 text-[11px] text-amber-700">
+                    <span class="mr-1 inline-block h-2 w-2 rounded-full bg-amber-500"></span>
+                    VaR
+                </span>
+            </div>
+
+            <c:choose>
+                <c:when test="${empty risk or not risk.available}">
+                    <p class="text-xs text-slate-500">
+                        <c:out value="${risk.message}" default="Risikokennzahlen werden berechnet …"/>
+                    </p>
+                </c:when>
+                <c:otherwise>
+                    <div class="grid gap-4 md:grid-cols-4 text-xs text-slate-500">
+                        <div>
+                            <div>VaR <fmt:formatNumber value="${risk.confidence}" type="percent" maxFractionDigits="1"/>,
+                                ${risk.horizonDays} T</div>
+                            <div class="text-lg font-semibold text-slate-900">
+                                <fmt:formatNumber value="${risk.valueAtRisk}" maxFractionDigits="0"/> CHF
+                            </div>
+                            <div><fmt:formatNumber value="${risk.valueAtRiskPercent}" type="percent" maxFractionDigits="2"/> des Portfolios</div>
+                        </div>
+                        <div>
+                            <div>Expected Shortfall</div>
+                            <div class="text-lg font-semibold text-slate-900">
+                                <fmt:formatNumber value="${risk.conditionalValueAtRisk}" maxFractionDigits="0"/> CHF
+                            </div>
+                        </div>
+                        <div>
+                            <div>Volatilität p.a.</div>
+                            <div class="text-lg font-semibold text-slate-900">
+                                <fmt:formatNumber value="${risk.annualizedVolatility}" type="percent" maxFractionDigits="1"/>
+                            </div>
+                        </div>
+                        <div>
+                            <div>Datenbasis</div>
+                            <div class="text-slate-700">${risk.observations} Renditen bis ${risk.asOf}</div>
+                            <div>Schrumpfung: <fmt:formatNumber value="${risk.shrinkage}" maxFractionDigits="2"/></div>
+                        </div>
+                    </div>
+
+                    <div class="mt-3 max-h-64 overflow-y-auto rounded-lg border border-slate-200">
+                        <table class="min-w-full text-xs">
+                            <thead class="bg-slate-50 text-slate-500">
+                            <tr>
+                                <th class="px-2 py-1 text-left font-semibold uppercase tracking-wide">Symbol</th>
+                                <th class="px-2 py-1 text-right font-semibold uppercase tracking-wide">Gewicht</th>
+                                <th class="px-2 py-1 text-right font-semibold uppercase tracking-wide">Marginal-VaR</th>
+                                <th class="px-2 py-1 text-right font-semibold uppercase tracking-wide">VaR-Beitrag</th>
+                                <th class="px-2 py-1 text-right font-semibold uppercase tracking-wide">Anteil</th>
+                            </tr>
+                            </thead>
+                            <tbody class="divide-y divide-slate-100">
+                            <c:forEach var="rc" items="${risk.contributions}">
+                                <tr class="hover:bg-slate-50">
+                                    <td class="px-2 py-1 font-medium text-slate-800">${rc.symbol}</td>
+                                    <td class="px-2 py-1 text-right"><fmt:formatNumber value="${rc.weight}" type="percent" maxFractionDigits="2"/></td>
+                                    <td class="px-2 py-1 text-right"><fmt:formatNumber value="${rc.marginalVar}" maxFractionDigits="4"/></td>
+                                    <td class="px-2 py-1 text-right"><fmt:formatNumber value="${rc.componentVar}" maxFractionDigits="0"/> CHF</td>
+                                    <td class="px-2 py-1 text-right"><fmt:formatNumber value="${rc.varShare}" type="percent" maxFractionDigits="1"/></td>
+                                </tr>
+                            </c:forEach>
+                            </tbody>
+                        </table>
+                    </div>
+
+                    <c:if test="${not empty risk.uncoveredSymbols}">
+                        <p class="mt-2 text-[11px] text-slate-500">
+                            Ohne ausreichende Kurshistorie (nicht enthalten):
+                            <c:forEach var="s" items="${risk.uncoveredSymbols}" varStatus="st">${s}<c:if test="${not st.last}">, </c:if></c:forEach>
+                        </p>
+                    </c:if>
+                </c:otherwise>
+            </c:choose>
+        </div>
+    </section>
+
+    <!-- Szenarien (Monte Carlo + Stress) -->
+    <section class="grid gap-4 md:grid-cols-2">
+        <c:set var="scen" value="${analysis.scenarioReport}"/>
+        <div class="pa-card">
+            <div class="flex items-baseline justify-between mb-2">
+                <div>
+                    <div class="text-sm font-medium text-slate-700">Verlustverteilung</div>
+                    <div class="text-xs text-slate-400">
+                        Simulierte Verluste über
+                        <c:out value="${scen.horizonDays}" default="–"/> Handelstage.
+                    </div>
+                </div>
+                <span class="inline-flex items-center rounded-full bg-violet-50 px-2 py-0.5 text-[11px] text-violet-700">
+                    <span class="mr-1 inline-block h-2 w-2 rounded-full bg-violet-500"></span>
+                    Monte Carlo
+                </span>
+            </div>
+
+            <c:choose>
+                <c:when test="${empty scen or not scen.available}">
+                    <p class="text-xs text-slate-500">
+                        <c:out value="${scen.message}" default="Szenarien werden vorbereitet …"/>
+                    </p>
+                </c:when>
+                <c:otherwise>
+                    <canvas id="scenarioLossChart" height="200"></canvas>
+                    <table class="mt-3 min-w-full text-xs">
+                        <thead class="text-slate-500">
+                        <tr>
+                            <th class="px-2 py-1 text-left font-semibold">Methode</th>
+                            <th class="px-2 py-1 text-right font-semibold">95 %</th>
+                            <th class="px-2 py-1 text-right font-semibold">99 %</th>
+                            <th class="px-2 py-1 text-right font-semibold">99,9 %</th>
+                            <th class="px-2 py-1 text-right font-semibold">ES 99 %</th>
+                        </tr>
+                        </thead>
+                        <tbody class="divide-y divide-slate-100">
+                        <c:forEach var="dist" items="${scen.distributions}">
+                            <tr>
+                                <td class="px-2 py-1 text-slate-700">${dist.method}</td>
+                                <td class="px-2 py-1 text-right"><fmt:formatNumber value="${dist.loss95}" maxFractionDigits="0"/></td>
+                                <td class="px-2 py-1 text-right"><fmt:formatNumber value="${dist.loss99}" maxFractionDigits="0"/></td>
+                                <td class="px-2 py-1 text-right"><fmt:formatNumber value="${dist.loss999}" maxFractionDigits="0"/></td>
+                                <td class="px-2 py-1 text-right"><fmt:formatNumber value="${dist.expectedShortfall99}" maxFractionDigits="0"/></td>
+                            </tr>
+                        </c:forEach>
+                        </tbody>
+                    </table>
+                    <p class="mt-2 text-[11px] text-slate-500">
+                        ${scen.historical.paths} von ${scen.pathsRequested} Pfaden je Methode in ${scen.elapsedMillis} ms
+                        <c:if test="${scen.budgetExhausted}">(Zeitbudget erreicht)</c:if>,
+                        Historie bis ${scen.asOf}.
+                    </p>
+                </c:otherwise>
+            </c:choose>
+        </div>
+
+        <div class="pa-card">
+            <div class="flex items-baseline justify-between mb-2">
+                <div>
+                    <div class="text-sm font-medium text-slate-700">Stress-Szenarien</div>
+                    <div class="text-xs text-slate-400">Sektor-Schocks und schlechteste historische Zeiträume.</div>
+                </div>
+                <span class="inline-flex items-center rounded-full bg-rose-50 px-2 py-0.5 text-[11px] text-rose-700">
+                    <span class="mr-1 inline-block h-2 w-2 rounded-full bg-rose-500"></span>
+                    Stress
+                </span>
+            </div>
+
+            <c:choose>
+                <c:when test="${empty scen or empty scen.worstScenarios}">
+                    <p class="text-xs text-slate-500">Keine Stress-Szenarien verfügbar.</p>
+                </c:when>
+                <c:otherwise>
+                    <table class="min-w-full text-xs">
+                        <tbody class="divide-y divide-slate-100">
+                        <c:forEach var="ws" items="${scen.worstScenarios}">
+                            <tr class="hover:bg-slate-50">
+                                <td class="px-2 py-1 text-slate-700">${fn:escapeXml(ws.name)}</td>
+                                <td class="px-2 py-1 text-right text-rose-600">
+                                    <fmt:formatNumber value="${ws.loss}" maxFractionDigits="0"/> CHF
+                                </td>
+                                <td class="px-2 py-1 text-right text-slate-500">
+                                    <fmt:formatNumber value="${ws.lossPercent}" type="percent" maxFractionDigits="1"/>
+                                </td>
+                            </tr>
+                        </c:forEach>
+                        </tbody>
+                    </table>
+                </c:otherwise>
+            </c:choose>
+        </div>
+    </section>
+
     <!-- Tabelle + KI-Assistent -->
     <section class="grid gap-4 md:grid-cols-2">
 
@@ -304,6 +494,13 @@
                     <span class="font-semibold text-slate-700">Service-Tier:</span>
                     <c:out value="${aiServiceTier}" default="—"/>
                 </p>
+                <p>
+                    <span class="font-semibold text-slate-700">Erstellt:</span>
+                    <c:out value="${aiGeneratedAt}" default="—"/>
+                    <c:if test="${aiCached}">
+                        &nbsp;<span class="rounded bg-slate-100 px-1.5 py-0.5 text-slate-600">aus Cache</span>
+                    </c:if>
+                </p>
             </div>
         </div>
     </section>
@@ -354,6 +551,21 @@
             ${val != null ? val : 0}<c:if test="${!st.last}">,</c:if>
         </c:forEach>
      ]'
+     data-scenario-bins='[
+        <c:forEach items="${analysis.scenarioReport.histogramBinStarts}" var="b" varStatus="st">
+            ${b}<c:if test="${!st.last}">,</c:if>
+        </c:forEach>
+     ]'
+     data-scenario-historical='[
+        <c:forEach items="${analysis.scenarioReport.historical.histogram}" var="h" varStatus="st">
+            ${h}<c:if test="${!st.last}">,</c:if>
+        </c:forEach>
+     ]'
+     data-scenario-normal='[
+        <c:forEach items="${analysis.scenarioReport.normal.histogram}" var="h" varStatus="st">
+            ${h}<c:if test="${!st.last}">,</c:if>
+        </c:forEach>
+     ]'
      data-risk-score='${empty analysis.topPositionWeight ? 0 : analysis.topPositionWeight}'>
 </div>
 
@@ -0,0 +1,86 @@
+package com.mybroker.ai;
+
+import com.mybroker.model.AiExplanation;
+import com.mybroker.model.PortfolioAnalysisResult;
+import com.mybroker.model.Position;
+import com.mybroker.service.PortfolioAnalysisService;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AiExplanationCacheTest {
+
+    private final AiExplanationCache cache =
+            new AiExplanationCache(16, Duration.ofDays(7), 2, 1.0, 0.02, Duration.ofSeconds(30), null);
+
+    @Test
+    void errorFromLoaderReleasesWaiters() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<AiExplanation> leader = callers.submit(() -> cache.get("fp", () -> {
+                started.countDown();
+                release.await();
+                throw new OutOfMemoryError("loader");
+            }));
+            started.await();
+            Future<AiExplanation> waiter = callers.submit(() -> cache.get("fp", () -> explanation("fp", "zweiter")));
+            Thread.sleep(50);
+            release.countDown();
+
+            Exception leaderFailure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(OutOfMemoryError.class, leaderFailure.getCause());
+            assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            // nichts gespeichert, der nächste Aufruf erzeugt neu
+            AiExplanation fresh = cache.get("fp", () -> explanation("fp", "neu"));
+            assertEquals("neu", fresh.getText());
+            assertFalse(fresh.isCached());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void commentThresholdsSeparateFingerprintsWithinOneBucket() {
+        PortfolioAnalysisService analysisService = new PortfolioAnalysisService();
+        // Tech 39.7 % vs. 40.3 %: gleicher 1-pp-Bucket, aber "Moderate" vs. "Hohe Tech-Gewichtung"
+        List<Position> below = portfolio("397", "603");
+        List<Position> above = portfolio("403", "597");
+        PortfolioAnalysisResult belowAnalysis = analysisService.analyse(below);
+        PortfolioAnalysisResult aboveAnalysis = analysisService.analyse(above);
+        assertNotEquals(belowAnalysis.getRiskComment(), aboveAnalysis.getRiskComment());
+
+        assertNotEquals(cache.fingerprint("ctx", belowAnalysis, below), cache.fingerprint("ctx", aboveAnalysis, above));
+
+        // innerhalb eines Bandes bleibt der Schlüssel trotz anderer Zahlen im Kommentar gleich
+        List<Position> nearby = portfolio("404", "596");
+        assertEquals(cache.fingerprint("ctx", aboveAnalysis, above),
+                cache.fingerprint("ctx", analysisService.analyse(nearby), nearby));
+    }
+
+    private static List<Position> portfolio(String techValue, String energyValue) {
+        return List.of(
+                new Position("AAPL", "AAPL", "Technology", BigDecimal.ONE, new BigDecimal(techValue), BigDecimal.ZERO, null),
+                new Position("XOM", "XOM", "Energy", BigDecimal.ONE, new BigDecimal(energyValue), BigDecimal.ZERO, null));
+    }
+
+    private static AiExplanation explanation(String fingerprint, String text) {
+        return new AiExplanation(fingerprint, text, "model", Instant.now(), 10, 5, "default", false);
+    }
+}
@@ -0,0 +1,106 @@
+package com.mybroker.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightCacheTest {
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        SingleFlightCache<String, Integer> cache =
+                new SingleFlightCache<>("test.shared", Duration.ofMinutes(1), Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            Future<Integer> leader = callers.submit(() -> cache.get("k", () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                release.await();
+                return 42;
+            }));
+            started.await();
+            Future<Integer> waiter = callers.submit(() -> cache.get("k", () -> {
+                loads.incrementAndGet();
+                return -1;
+            }));
+            Thread.sleep(50);
+            release.countDown();
+
+            assertEquals(42, leader.get(5, TimeUnit.SECONDS));
+            assertEquals(42, waiter.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void errorFromLoaderReleasesWaiters() throws Exception {
+        SingleFlightCache<String, Integer> cache =
+                new SingleFlightCache<>("test.error", Duration.ofMinutes(1), Duration.ZERO);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> leader = callers.submit(() -> cache.get("k", () -> {
+                started.countDown();
+                release.await();
+                throw new StackOverflowError("loader");
+            }));
+            started.await();
+            Future<Integer> waiter = callers.submit(() -> cache.get("k", () -> 1));
+            Thread.sleep(50);
+            release.countDown();
+
+            Exception leaderFailure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, leaderFailure.getCause());
+            Exception waiterFailure = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, waiterFailure.getCause());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void waiterGivesUpAfterTimeout() throws Exception {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>("test.timeout",
+                Duration.ofMinutes(1), Duration.ZERO, Duration.ofMillis(100));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService callers = Executors.newFixedThreadPool(1);
+        try {
+            callers.submit(() -> cache.get("k", () -> {
+                started.countDown();
+                release.await();
+                return 1;
+            }));
+            started.await();
+
+            long start = System.nanoTime();
+            assertThrows(IOException.class, () -> cache.get("k", () -> 2));
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(waitedMillis < 2000, "gewartet: " + waitedMillis + " ms");
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+}
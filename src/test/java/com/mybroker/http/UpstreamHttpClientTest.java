@@ -0,0 +1,81 @@
+package com.mybroker.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UpstreamHttpClientTest {
+
+    private HttpServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/gzip", exchange -> {
+            byte[] body = gzip("{\"ok\":true}");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/empty-gzip-error", exchange -> {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void streamIsDecompressedOnRead() throws IOException {
+        UpstreamHttpClient http = UpstreamHttpClient.shared();
+        HttpResponse<InputStream> response = http.sendForStream(http.newRequest(baseUrl + "/gzip").GET().build());
+        try (InputStream body = response.body()) {
+            assertEquals(200, response.statusCode());
+            assertEquals("{\"ok\":true}", new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void emptyGzipErrorBodyKeepsStatus() throws IOException {
+        UpstreamHttpClient http = UpstreamHttpClient.shared();
+        HttpResponse<InputStream> response = http.sendForStream(
+                http.newRequest(baseUrl + "/empty-gzip-error").GET().build());
+        try (InputStream body = response.body()) {
+            assertEquals(503, response.statusCode());
+            assertEquals(0, body.readAllBytes().length);
+        }
+
+        UpstreamResponse buffered = http.send(http.newRequest(baseUrl + "/empty-gzip-error").GET().build());
+        assertEquals(503, buffered.statusCode());
+        assertEquals("", buffered.body());
+    }
+
+    private static byte[] gzip(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package com.mybroker.marketdata;
+
+import com.mybroker.stream.StandInWebSocketServer;
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlpacaQuoteFeedTest {
+
+    private StandInWebSocketServer server;
+    private AlpacaQuoteFeed feed;
+    private final QuoteBook book = new QuoteBook();
+
+    @BeforeEach
+    void start() throws Exception {
+        server = new StandInWebSocketServer(AlpacaQuoteFeedTest::dataProtocol);
+        server.startAndWait();
+        // Abbrüche ohne Close fängt der Ping-Watchdog, hängende Handshakes der Handshake-Timeout
+        System.setProperty("STREAM_PING_INTERVAL_MS", "250");
+        System.setProperty("STREAM_IDLE_TIMEOUT_MS", "2000");
+        System.setProperty("STREAM_HANDSHAKE_TIMEOUT_MS", "2000");
+        feed = new AlpacaQuoteFeed(server.url(), "key", "secret");
+    }
+
+    @AfterEach
+    void stop() {
+        feed.stop();
+        server.stopQuietly();
+        System.clearProperty("STREAM_PING_INTERVAL_MS");
+        System.clearProperty("STREAM_IDLE_TIMEOUT_MS");
+        System.clearProperty("STREAM_HANDSHAKE_TIMEOUT_MS");
+    }
+
+    @Test
+    void subscribesAndWritesTradesAndQuotesIntoBook() throws Exception {
+        feed.subscribe(List.of("QQQ"));
+        feed.start(book);
+        awaitTrue(feed::isConnected, "nicht authentifiziert");
+        awaitTrue(() -> server.received().stream().anyMatch(m -> m.contains("subscribe") && m.contains("QQQ")),
+                "bekannte Symbole nicht abonniert");
+
+        feed.subscribe(List.of("DIA"));
+        awaitTrue(() -> server.received().stream().anyMatch(m -> m.contains("subscribe") && m.contains("DIA")),
+                "neues Symbol nicht abonniert");
+
+        server.broadcast("[{\"T\":\"t\",\"S\":\"QQQ\",\"p\":512.25,\"t\":\"2026-01-05T15:00:00Z\"},"
+                + "{\"T\":\"q\",\"S\":\"QQQ\",\"bp\":512.2,\"ap\":512.3,\"t\":\"2026-01-05T15:00:00Z\"}]");
+        awaitTrue(() -> book.get("QQQ") != null && book.get("QQQ").getAsk() > 0, "Kurs nicht im QuoteBook");
+        assertEquals(512.25, book.get("QQQ").getPrice(), 1e-9);
+        assertEquals(512.2, book.get("QQQ").getBid(), 1e-9);
+        assertNull(book.get("DIA"));
+    }
+
+    @Test
+    void resubscribesAfterReconnect() throws Exception {
+        feed.subscribe(List.of("QQQ", "DIA"));
+        feed.start(book);
+        awaitTrue(feed::isConnected, "nicht authentifiziert");
+
+        server.received().clear();
+        server.dropAll();
+
+        awaitTrue(() -> server.connectionCount() >= 2 && feed.isConnected(), "kein Reconnect");
+        awaitTrue(() -> server.received().stream()
+                        .anyMatch(m -> m.contains("subscribe") && m.contains("QQQ") && m.contains("DIA")),
+                "nach Reconnect nicht neu abonniert");
+    }
+
+    private static void dataProtocol(WebSocket conn, String message) {
+        if (message.contains("\"auth\"")) {
+            conn.send("[{\"T\":\"success\",\"msg\":\"authenticated\"}]");
+        } else if (message.contains("\"subscribe\"")) {
+            conn.send("[{\"T\":\"subscription\",\"trades\":[],\"quotes\":[]}]");
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(message);
+            }
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,102 @@
+package com.mybroker.marketdata;
+
+import com.mybroker.model.AlpacaCredentials;
+import com.mybroker.service.AlpacaRateLimiter;
+import com.mybroker.service.AlpacaService;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MarketDataServiceTest {
+
+    private HttpServer restServer;
+    private final AtomicInteger snapshotCalls = new AtomicInteger();
+    private ReplayQuoteFeed feed;
+    private MarketDataService service;
+
+    @BeforeEach
+    void start() throws IOException {
+        restServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        restServer.createContext("/v2/stocks/snapshots", exchange -> {
+            snapshotCalls.incrementAndGet();
+            byte[] body = ("{\"MSFT\":{\"latestTrade\":{\"p\":410.5,\"t\":\"2026-01-05T15:00:00Z\"},"
+                    + "\"latestQuote\":{\"bp\":410.4,\"ap\":410.6}}}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        restServer.start();
+
+        String url = "http://127.0.0.1:" + restServer.getAddress().getPort();
+        AlpacaService rest = new AlpacaService(new AlpacaCredentials(null, "key", "secret", url, url),
+                AlpacaRateLimiter.Priority.INTERACTIVE, AlpacaRateLimiter.forTenant());
+        feed = new ReplayQuoteFeed();
+        service = new MarketDataService(feed, rest);
+        service.start();
+    }
+
+    @AfterEach
+    void stop() {
+        service.stop();
+        restServer.stop(0);
+    }
+
+    @Test
+    void symbolStaysSubscribedWhileAnyOwnerNeedsIt() {
+        assertEquals(Set.copyOf(MarketDataService.INDEX_SYMBOLS), feed.getSubscribedSymbols());
+
+        service.updateSubscriptions(MarketDataService.OWNER_POSITIONS, List.of("aapl", "QQQ"));
+        assertEquals(Set.of("QQQ", "DIA", "AAPL"), feed.getSubscribedSymbols());
+
+        service.updateSubscriptions(MarketDataService.OWNER_POSITIONS, List.of());
+        assertEquals(Set.of("QQQ", "DIA"), feed.getSubscribedSymbols());
+    }
+
+    @Test
+    void readersGetStreamedQuotesWithoutNetworkCall() {
+        feed.emit(new Quote("QQQ", 512.0, 511.9, 512.1, "2026-01-05T15:00:00Z", System.currentTimeMillis()));
+        feed.emit(new Quote("TSLA", 250.0, 0, 0, "2026-01-05T15:00:00Z", System.currentTimeMillis()));
+
+        assertEquals(512.0, service.getQuote("QQQ").getPrice(), 1e-9);
+        assertNull(service.getQuote("TSLA"), "nicht abonnierte Symbole werden verworfen");
+
+        Map<String, Quote> quotes = service.getLatestQuotes(List.of("QQQ"));
+        assertEquals(512.0, quotes.get("QQQ").getPrice(), 1e-9);
+        assertEquals(0, snapshotCalls.get());
+    }
+
+    @Test
+    void unsubscribedSymbolsAreDroppedFromBook() {
+        service.updateSubscriptions(MarketDataService.OWNER_POSITIONS, List.of("AAPL"));
+        feed.emit(new Quote("AAPL", 190.0, 0, 0, null, System.currentTimeMillis()));
+        assertEquals(190.0, service.getQuote("AAPL").getPrice(), 1e-9);
+
+        service.updateSubscriptions(MarketDataService.OWNER_POSITIONS, List.of());
+        assertNull(service.getQuote("AAPL"));
+    }
+
+    @Test
+    void missingSymbolsComeFromOneSnapshotCall() {
+        feed.emit(new Quote("QQQ", 512.0, 0, 0, null, System.currentTimeMillis()));
+
+        Map<String, Quote> quotes = service.getLatestQuotes(List.of("QQQ", "MSFT"));
+
+        assertEquals(512.0, quotes.get("QQQ").getPrice(), 1e-9);
+        assertEquals(410.5, quotes.get("MSFT").getPrice(), 1e-9);
+        assertEquals(1, snapshotCalls.get());
+    }
+}
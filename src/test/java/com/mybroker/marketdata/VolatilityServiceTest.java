@@ -0,0 +1,89 @@
+package com.mybroker.marketdata;
+
+import com.mybroker.db.PriceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Symbole mit weniger als VOLATILITY_MIN_RETURNS Renditen fehlen im Ergebnis.
+ */
+class VolatilityServiceTest {
+
+    private static final int MIN_RETURNS = 5;
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private final Closes repository = new Closes();
+    private final VolatilityService service = new VolatilityService(repository, 7, 252.0, false, 0.94,
+            MIN_RETURNS, Duration.ofHours(1), Duration.ofSeconds(5), Duration.ofDays(1));
+
+    @AfterEach
+    void stop() {
+        service.stop();
+    }
+
+    @Test
+    void symbolsBelowMinReturnsAreLeftOut() {
+        // n Kurse = n-1 Renditen
+        repository.put("ENOUGH", 100.0, 101.0, 99.5, 102.0, 100.5, 103.0);
+        repository.put("SHORT", 100.0, 101.0, 99.5, 102.0, 100.5);
+        repository.put("FLAT", 100.0);
+
+        Map<String, Double> volatilities = service.getVolatilities(List.of("ENOUGH", "SHORT", "FLAT", "NONE"));
+
+        assertEquals(List.of("ENOUGH"), new ArrayList<>(volatilities.keySet()));
+        List<Double> returns = new ArrayList<>();
+        double[] closes = {100.0, 101.0, 99.5, 102.0, 100.5, 103.0};
+        for (int i = 1; i < closes.length; i++) {
+            returns.add(Math.log(closes[i] / closes[i - 1]));
+        }
+        assertEquals(VolatilityStateTest.naiveRolling(returns), volatilities.get("ENOUGH"), 1e-12);
+    }
+
+    /**
+     * Tageskurse aus dem Speicher, ab dem übergebenen Zeitstempel und höchstens limit Stück.
+     */
+    private static final class Closes extends PriceRepository {
+        private final Map<String, CloseSeries> series = new HashMap<>();
+
+        synchronized void put(String symbol, double... closes) {
+            long[] ts = new long[closes.length];
+            for (int i = 0; i < closes.length; i++) {
+                ts[i] = (20_000L + i) * DAY_MILLIS;
+            }
+            series.put(symbol, new CloseSeries(ts, closes));
+        }
+
+        @Override
+        public synchronized Map<String, CloseSeries> loadClosesSince(String[] symbols, long[] sinceMillis, int limit) {
+            Map<String, CloseSeries> result = new HashMap<>();
+            for (int s = 0; s < symbols.length; s++) {
+                CloseSeries all = series.get(symbols[s]);
+                if (all == null) {
+                    continue;
+                }
+                int from = 0;
+                while (from < all.size() && all.getTimestampMillis(from) <= sinceMillis[s]) {
+                    from++;
+                }
+                from = Math.max(from, all.size() - limit);
+                int n = all.size() - from;
+                long[] ts = new long[n];
+                double[] closes = new double[n];
+                for (int i = 0; i < n; i++) {
+                    ts[i] = all.getTimestampMillis(from + i);
+                    closes[i] = all.getClose(from + i);
+                }
+                result.put(symbols[s], new CloseSeries(ts, closes));
+            }
+            return result;
+        }
+    }
+}
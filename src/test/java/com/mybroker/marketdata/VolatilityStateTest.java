@@ -0,0 +1,178 @@
+package com.mybroker.marketdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rollierendes Welford (Hinzufügen/Entfernen), periodisches recompute() und EWMA gegen eine naive Rechnung
+ * über dieselben Renditen.
+ */
+class VolatilityStateTest {
+
+    private static final int WINDOW = 7;
+    private static final double LAMBDA = 0.94;
+    private static final double PERIODS = 252.0;
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    @Test
+    void rollingAndEwmaMatchNaiveAfterEveryBar() {
+        VolatilityState state = new VolatilityState(WINDOW, LAMBDA);
+        List<Double> returns = new ArrayList<>();
+        Random random = new Random(20);
+        double close = 100.0;
+        double lastClose = Double.NaN;
+
+        // weit über das Fenster hinaus: jede Kerze prüfen, auch direkt vor und nach jedem recompute()
+        for (int day = 0; day < 40 * WINDOW; day++) {
+            close *= Math.exp(0.002 + random.nextGaussian() * 0.02);
+            state.onBar(day * DAY_MILLIS, close);
+            if (!Double.isNaN(lastClose)) {
+                returns.add(Math.log(close / lastClose));
+            }
+            lastClose = close;
+
+            assertEquals(Math.min(returns.size(), WINDOW), state.getReturnCount());
+            assertClose(naiveRolling(returns), state.rollingVolatility(PERIODS), "rolling nach Tag " + day);
+            assertClose(naiveEwma(returns), state.ewmaVolatility(PERIODS), "ewma nach Tag " + day);
+        }
+    }
+
+    @Test
+    void driftingReturnsStayAccurateOverLongRuns() {
+        // großer Mittelwert, kleine Streuung: hier laufen Rundungsfehler beim Entfernen am stärksten auf
+        VolatilityState state = new VolatilityState(WINDOW, LAMBDA);
+        List<Double> returns = new ArrayList<>();
+        Random random = new Random(21);
+        double close = 1.0;
+        double lastClose = Double.NaN;
+        for (int day = 0; day < 20_000; day++) {
+            close *= Math.exp(0.05 + random.nextGaussian() * 1e-4);
+            if (close > 1e100) {
+                close = 1.0;
+                lastClose = Double.NaN;
+                state = new VolatilityState(WINDOW, LAMBDA);
+                returns.clear();
+            }
+            state.onBar(day * DAY_MILLIS, close);
+            if (!Double.isNaN(lastClose)) {
+                returns.add(Math.log(close / lastClose));
+            }
+            lastClose = close;
+            assertClose(naiveRolling(returns), state.rollingVolatility(PERIODS), "rolling nach Tag " + day);
+        }
+    }
+
+    @Test
+    void recomputeRestoresAccuracyAfterLargeReturnLeavesWindow() {
+        // Sprung um Faktor 100, danach winzige Renditen: das Entfernen des Sprungs hinterlässt einen
+        // Auslöschungsfehler in m2, den erst recompute() (alle WINDOW Entfernungen) beseitigt
+        VolatilityState state = new VolatilityState(WINDOW, LAMBDA);
+        List<Double> returns = new ArrayList<>();
+        Random random = new Random(22);
+        double close = 1.0;
+        double lastClose = Double.NaN;
+        for (int day = 0; day < 10 * WINDOW; day++) {
+            close = day == 1 ? 100.0 : close * Math.exp(random.nextGaussian() * 1e-7);
+            state.onBar(day * DAY_MILLIS, close);
+            if (!Double.isNaN(lastClose)) {
+                returns.add(Math.log(close / lastClose));
+            }
+            lastClose = close;
+
+            // Renditen WINDOW+1 … 2·WINDOW entfernen je eine; danach rechnet jede WINDOW-te Kerze neu
+            if (returns.size() >= 2 * WINDOW && returns.size() % WINDOW == 0) {
+                assertEquals(naiveRolling(returns), state.rollingVolatility(PERIODS),
+                        naiveRolling(returns) * 1e-9, "nach recompute, Tag " + day);
+            }
+        }
+    }
+
+    @Test
+    void outOfOrderDuplicateAndInvalidBarsAreIgnored() {
+        VolatilityState state = new VolatilityState(WINDOW, LAMBDA);
+        state.onBar(1 * DAY_MILLIS, 100.0);
+        state.onBar(2 * DAY_MILLIS, 110.0);
+        state.onBar(3 * DAY_MILLIS, 99.0);
+        double rolling = state.rollingVolatility(PERIODS);
+        double ewma = state.ewmaVolatility(PERIODS);
+
+        state.onBar(2 * DAY_MILLIS, 50.0);
+        state.onBar(3 * DAY_MILLIS, 120.0);
+        state.onBar(4 * DAY_MILLIS, 0.0);
+        state.onBar(4 * DAY_MILLIS, -1.0);
+        state.onBar(4 * DAY_MILLIS, Double.NaN);
+
+        assertEquals(2, state.getReturnCount());
+        assertEquals(3 * DAY_MILLIS, state.getLastTimestampMillis());
+        assertEquals(rolling, state.rollingVolatility(PERIODS));
+        assertEquals(ewma, state.ewmaVolatility(PERIODS));
+
+        // die nächste gültige Kerze rechnet ab dem letzten übernommenen Kurs (99.0)
+        state.onBar(4 * DAY_MILLIS, 105.0);
+        List<Double> returns = List.of(Math.log(110.0 / 100.0), Math.log(99.0 / 110.0), Math.log(105.0 / 99.0));
+        assertClose(naiveRolling(returns), state.rollingVolatility(PERIODS), "rolling");
+        assertClose(naiveEwma(returns), state.ewmaVolatility(PERIODS), "ewma");
+    }
+
+    @Test
+    void tooFewReturnsGiveNaN() {
+        VolatilityState state = new VolatilityState(WINDOW, LAMBDA);
+        assertTrue(Double.isNaN(state.rollingVolatility(PERIODS)));
+        assertTrue(Double.isNaN(state.ewmaVolatility(PERIODS)));
+        state.onBar(DAY_MILLIS, 100.0);
+        state.onBar(2 * DAY_MILLIS, 101.0);
+        assertTrue(Double.isNaN(state.rollingVolatility(PERIODS)));
+        assertClose(Math.abs(Math.log(1.01)) * Math.sqrt(PERIODS), state.ewmaVolatility(PERIODS), "ewma");
+    }
+
+    /**
+     * Stichproben-Standardabweichung der letzten WINDOW Renditen in zwei Durchläufen, annualisiert.
+     */
+    static double naiveRolling(List<Double> returns) {
+        int n = Math.min(returns.size(), WINDOW);
+        if (n < 2) {
+            return Double.NaN;
+        }
+        List<Double> last = returns.subList(returns.size() - n, returns.size());
+        double mean = 0.0;
+        for (double r : last) {
+            mean += r;
+        }
+        mean /= n;
+        double squares = 0.0;
+        for (double r : last) {
+            squares += (r - mean) * (r - mean);
+        }
+        return Math.sqrt(squares / (n - 1) * PERIODS);
+    }
+
+    /**
+     * EWMA in geschlossener Form: λ^(t-1)·r₁² + Σ (1-λ)·λ^(t-i)·r_i² für i ≥ 2.
+     */
+    private static double naiveEwma(List<Double> returns) {
+        if (returns.isEmpty()) {
+            return Double.NaN;
+        }
+        int t = returns.size();
+        double variance = Math.pow(LAMBDA, t - 1) * returns.get(0) * returns.get(0);
+        for (int i = 1; i < t; i++) {
+            double r = returns.get(i);
+            variance += (1.0 - LAMBDA) * Math.pow(LAMBDA, t - 1 - i) * r * r;
+        }
+        return Math.sqrt(variance * PERIODS);
+    }
+
+    private static void assertClose(double expected, double actual, String message) {
+        if (Double.isNaN(expected)) {
+            assertTrue(Double.isNaN(actual), message + ": " + actual);
+            return;
+        }
+        assertEquals(expected, actual, Math.abs(expected) * 1e-6, message);
+    }
+}
@@ -0,0 +1,128 @@
+package com.mybroker.ml;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Feste Portfolios mit von Hand gerechneten Kennzahlen: HHI, größte Position, Sektor-HHI, Cash-Abschlag und Stufen.
+ */
+class LocalRiskEngineTest {
+
+    private static final double EPS = 1e-12;
+
+    @Test
+    void concentrationFiguresAndScore() {
+        // w = 0.5 / 0.3 / 0.2; HHI = 0.25 + 0.09 + 0.04; Sektoren Tech 0.8, Energy 0.2
+        RiskScoreResponseDto dto = LocalRiskEngine.score(portfolio(0.0,
+                position("AAA", "Technology", 500.0),
+                position("BBB", "Technology", 300.0),
+                position("CCC", "Energy", 200.0)));
+
+        assertEquals(0.38, dto.getConcentration(), EPS);
+        assertEquals(0.5, dto.getLargestWeight(), EPS);
+        assertEquals(0.68, dto.getSectorConcentration(), EPS);
+        // 50·0.38 + 30·0.5 + 20·0.68 = 47.6
+        assertEquals(48, dto.getRiskScore());
+        assertEquals("MEDIUM", dto.getRiskLevel());
+        assertEquals(1000.0, dto.getTotalValue(), EPS);
+        assertEquals(3, dto.getNumPositions());
+        assertEquals(LocalRiskEngine.SOURCE, dto.getSource());
+    }
+
+    @Test
+    void positionsWithoutSectorCountAsOwnSector() {
+        // null, leer und "Unknown" je ein eigener Sektor: Sektor-HHI = HHI = 0.16 + 0.09 + 0.04 + 0.01
+        RiskScoreResponseDto dto = LocalRiskEngine.score(portfolio(0.0,
+                position("AAA", null, 400.0),
+                position("BBB", " ", 300.0),
+                position("CCC", "unknown", 200.0),
+                position("DDD", "Technology", 100.0)));
+
+        assertEquals(0.30, dto.getConcentration(), EPS);
+        assertEquals(0.4, dto.getLargestWeight(), EPS);
+        assertEquals(0.30, dto.getSectorConcentration(), EPS);
+        // 50·0.30 + 30·0.4 + 20·0.30 = 33
+        assertEquals(33, dto.getRiskScore());
+        assertEquals("LOW", dto.getRiskLevel());
+    }
+
+    @Test
+    void cashScalesScoreByInvestedShare() {
+        // wie oben 47.6, aber nur die Hälfte investiert: 23.8
+        RiskScoreResponseDto dto = LocalRiskEngine.score(portfolio(1000.0,
+                position("AAA", "Technology", 500.0),
+                position("BBB", "Technology", 300.0),
+                position("CCC", "Energy", 200.0)));
+
+        assertEquals(0.38, dto.getConcentration(), EPS);
+        assertEquals(24, dto.getRiskScore());
+        assertEquals("LOW", dto.getRiskLevel());
+        assertEquals(2000.0, dto.getTotalValue(), EPS);
+
+        // negatives Cash zählt nicht als Hebel
+        RiskScoreResponseDto negativeCash = LocalRiskEngine.score(portfolio(-500.0,
+                position("AAA", "Technology", 500.0),
+                position("BBB", "Technology", 300.0),
+                position("CCC", "Energy", 200.0)));
+        assertEquals(48, negativeCash.getRiskScore());
+        assertEquals(1000.0, negativeCash.getTotalValue(), EPS);
+    }
+
+    @Test
+    void shortPositionsWeighByAbsoluteValue() {
+        // brutto 1000, netto 200; w = 0.6 / 0.4; 50·0.52 + 30·0.6 + 20·0.52 = 54.4
+        RiskScoreResponseDto dto = LocalRiskEngine.score(portfolio(0.0,
+                position("LONG", "Technology", 600.0),
+                position("SHORT", "Energy", -400.0),
+                position("ZERO", "Energy", 0.0)));
+
+        assertEquals(0.52, dto.getConcentration(), EPS);
+        assertEquals(0.6, dto.getLargestWeight(), EPS);
+        assertEquals(54, dto.getRiskScore());
+        assertEquals(200.0, dto.getTotalValue(), EPS);
+        assertEquals(2, dto.getNumPositions());
+    }
+
+    @Test
+    void singlePositionIsMaximumAndCashOnlyIsZero() {
+        RiskScoreResponseDto single = LocalRiskEngine.score(portfolio(0.0, position("AAA", "Technology", 100.0)));
+        assertEquals(100, single.getRiskScore());
+        assertEquals("HIGH", single.getRiskLevel());
+
+        RiskScoreResponseDto cashOnly = LocalRiskEngine.score(portfolio(250.0, position("AAA", "Technology", 0.0)));
+        assertEquals(0, cashOnly.getRiskScore());
+        assertEquals("LOW", cashOnly.getRiskLevel());
+        assertEquals(0, cashOnly.getNumPositions());
+        assertEquals(250.0, cashOnly.getTotalValue(), EPS);
+    }
+
+    @Test
+    void levelThresholds() {
+        assertEquals("LOW", LocalRiskEngine.levelFor(0));
+        assertEquals("LOW", LocalRiskEngine.levelFor(34));
+        assertEquals("MEDIUM", LocalRiskEngine.levelFor(35));
+        assertEquals("MEDIUM", LocalRiskEngine.levelFor(64));
+        assertEquals("HIGH", LocalRiskEngine.levelFor(65));
+        assertEquals("HIGH", LocalRiskEngine.levelFor(100));
+    }
+
+    private static PortfolioRequestDto portfolio(double cash, PositionDto... positions) {
+        PortfolioRequestDto portfolio = new PortfolioRequestDto();
+        portfolio.setCash(cash);
+        portfolio.setPositions(new ArrayList<>(List.of(positions)));
+        return portfolio;
+    }
+
+    private static PositionDto position(String symbol, String sector, double marketValue) {
+        PositionDto p = new PositionDto();
+        p.setSymbol(symbol);
+        p.setSector(sector);
+        p.setQuantity(1.0);
+        p.setMarketValue(marketValue);
+        return p;
+    }
+}
@@ -0,0 +1,150 @@
+package com.mybroker.ml;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Trend-Abfragen gegen einen Stub mit den Endpunkten des FastAPI-Service ({@code GET /trend?symbol=},
+ * {@code POST /trend/batch}).
+ */
+class MlServiceClientTrendTest {
+
+    private HttpServer server;
+    private String url;
+    private final AtomicBoolean batchAvailable = new AtomicBoolean();
+    private final AtomicInteger batchCalls = new AtomicInteger();
+    private final AtomicInteger singleCalls = new AtomicInteger();
+
+    @BeforeEach
+    void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/trend/batch", exchange -> {
+            batchCalls.incrementAndGet();
+            if (!batchAvailable.get()) {
+                respond(exchange, 404, "{\"detail\":\"Not Found\"}");
+                return;
+            }
+            JsonArray symbols = JsonParser.parseString(new String(exchange.getRequestBody().readAllBytes(),
+                    StandardCharsets.UTF_8)).getAsJsonObject().getAsJsonArray("symbols");
+            JsonArray results = new JsonArray();
+            for (JsonElement symbol : symbols) {
+                results.add(trend(symbol.getAsString()));
+            }
+            JsonObject body = new JsonObject();
+            body.add("results", results);
+            respond(exchange, 200, body.toString());
+        });
+        server.createContext("/trend", exchange -> {
+            singleCalls.incrementAndGet();
+            String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8);
+            String symbol = query.substring(query.indexOf('=') + 1);
+            if (symbol.startsWith("SLOW")) {
+                try {
+                    Thread.sleep(3_000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            respond(exchange, 200, trend(symbol).toString());
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void batchEndpointAnswersInOneCall() {
+        batchAvailable.set(true);
+        MlServiceClient client = new MlServiceClient(url, Duration.ofSeconds(5), Duration.ofMinutes(10));
+
+        List<TrendScoreResponseDto> result = client.getTrendScores(List.of("AAPL", "MSFT", "AAPL"));
+
+        assertEquals(2, result.size());
+        assertEquals("AAPL", result.get(0).getSymbol());
+        assertEquals("UP", result.get(0).getTrend());
+        assertNull(result.get(1).getError());
+        assertEquals(1, batchCalls.get());
+        assertEquals(0, singleCalls.get());
+    }
+
+    @Test
+    void budgetReturnsPartialResults() {
+        MlServiceClient client = new MlServiceClient(url, Duration.ofMillis(800), Duration.ofMinutes(10));
+
+        long start = System.nanoTime();
+        List<TrendScoreResponseDto> result = client.getTrendScores(List.of("AAPL", "SLOW1", "MSFT"));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < 2_500, "Budget nicht eingehalten: " + elapsedMs + " ms");
+        assertEquals(3, result.size());
+        assertNull(result.get(0).getError());
+        assertNotNull(result.get(1).getError(), "SLOW1 muss als Fehler markiert sein");
+        assertEquals("NEUTRAL", result.get(1).getTrend());
+        assertNull(result.get(2).getError());
+    }
+
+    @Test
+    void missingBatchEndpointIsProbedAgainAfterTtl() throws Exception {
+        MlServiceClient client = new MlServiceClient(url, Duration.ofSeconds(5), Duration.ofMillis(300));
+
+        client.getTrendScores(List.of("AAPL"));
+        client.getTrendScores(List.of("MSFT"));
+        assertEquals(1, batchCalls.get(), "404 muss gemerkt werden");
+        assertEquals(2, singleCalls.get());
+
+        batchAvailable.set(true);
+        Thread.sleep(400);
+        List<TrendScoreResponseDto> result = client.getTrendScores(List.of("NVDA"));
+
+        assertEquals(2, batchCalls.get(), "nach Ablauf der TTL muss /trend/batch erneut probiert werden");
+        assertEquals(2, singleCalls.get());
+        assertNull(result.get(0).getError());
+    }
+
+    private static JsonObject trend(String symbol) {
+        JsonObject obj = new JsonObject();
+        obj.addProperty("symbol", symbol);
+        obj.addProperty("trend_score", 0.7);
+        obj.addProperty("direction", "UP");
+        obj.addProperty("explanation", "Stub");
+        return obj;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
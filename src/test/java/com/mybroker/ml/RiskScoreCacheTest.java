@@ -0,0 +1,98 @@
+package com.mybroker.ml;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RiskScoreCacheTest {
+
+    @Test
+    void errorFromLoaderReleasesWaiters() throws Exception {
+        RiskScoreCache cache = new RiskScoreCache(16, 0.0001, 10.0, Duration.ofSeconds(30));
+        PortfolioRequestDto portfolio = portfolio();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<RiskScoreResponseDto> leader = callers.submit(() -> cache.get(portfolio, () -> {
+                started.countDown();
+                release.await();
+                throw new OutOfMemoryError("loader");
+            }));
+            started.await();
+            Future<RiskScoreResponseDto> waiter = callers.submit(() -> cache.get(portfolio, () -> score(1)));
+            Thread.sleep(50);
+            release.countDown();
+
+            Exception leaderFailure = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(OutOfMemoryError.class, leaderFailure.getCause());
+            assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            // nichts gespeichert, der nächste Aufruf lädt neu
+            assertEquals(2, cache.get(portfolio, () -> score(2)).getRiskScore());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void waiterGivesUpAfterTimeoutAndGetsCopies() throws Exception {
+        RiskScoreCache cache = new RiskScoreCache(16, 0.0001, 10.0, Duration.ofMillis(100));
+        PortfolioRequestDto portfolio = portfolio();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService callers = Executors.newFixedThreadPool(1);
+        try {
+            Future<RiskScoreResponseDto> leader = callers.submit(() -> cache.get(portfolio, () -> {
+                started.countDown();
+                release.await();
+                return score(40);
+            }));
+            started.await();
+
+            long start = System.nanoTime();
+            assertThrows(TimeoutException.class, () -> cache.get(portfolio, () -> score(99)));
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(waitedMillis < 2000, "gewartet: " + waitedMillis + " ms");
+
+            release.countDown();
+            RiskScoreResponseDto loaded = leader.get(5, TimeUnit.SECONDS);
+            loaded.setRiskScore(0);
+            assertEquals(40, cache.get(portfolio, () -> score(99)).getRiskScore());
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    private static PortfolioRequestDto portfolio() {
+        PositionDto position = new PositionDto();
+        position.setSymbol("AAPL");
+        position.setQuantity(10);
+        position.setMarketValue(1900);
+        PortfolioRequestDto portfolio = new PortfolioRequestDto();
+        portfolio.setCash(1000);
+        portfolio.setPositions(List.of(position));
+        return portfolio;
+    }
+
+    private static RiskScoreResponseDto score(int value) {
+        RiskScoreResponseDto dto = new RiskScoreResponseDto();
+        dto.setRiskScore(value);
+        dto.setRiskLevel("MEDIUM");
+        return dto;
+    }
+}
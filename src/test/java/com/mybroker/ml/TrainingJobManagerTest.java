@@ -0,0 +1,143 @@
+package com.mybroker.ml;
+
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ergebnisstatus des ML-Service, Zusammenlegen paralleler Starts und Abbruch über {@link TrainingJobManager#stop()}.
+ */
+class TrainingJobManagerTest {
+
+    private final TrainingClient client = new TrainingClient();
+    private final TrainingJobManager manager =
+            new TrainingJobManager(client, null, Duration.ofSeconds(5), Duration.ofHours(1));
+
+    @AfterEach
+    void shutdown() {
+        client.release.countDown();
+        manager.stop();
+    }
+
+    @Test
+    void onlyStatusOkSucceeds() throws Exception {
+        client.release.countDown();
+
+        client.status = "empty-response";
+        TrainingJob empty = awaitTerminal(manager.submit(TrainingJobManager.RISK_MODEL));
+        assertEquals(TrainingJob.State.FAILED, empty.getState());
+        assertEquals("ML-Service hat eine leere Antwort geliefert", empty.getMessage());
+
+        client.status = "error";
+        assertEquals(TrainingJob.State.FAILED, awaitTerminal(manager.submit(TrainingJobManager.RISK_MODEL)).getState());
+
+        client.status = "ok";
+        assertEquals(TrainingJob.State.SUCCEEDED,
+                awaitTerminal(manager.submit(TrainingJobManager.RISK_MODEL)).getState());
+    }
+
+    @Test
+    void concurrentSubmitsForOneModelShareOneJob() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<TrainingJob>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> manager.submit(TrainingJobManager.RISK_MODEL)));
+            }
+            String jobId = results.get(0).get(5, TimeUnit.SECONDS).getJobId();
+            for (Future<TrainingJob> result : results) {
+                assertEquals(jobId, result.get(5, TimeUnit.SECONDS).getJobId());
+            }
+
+            client.release.countDown();
+            TrainingJob done = awaitTerminal(manager.getJob(jobId));
+            assertEquals(TrainingJob.State.SUCCEEDED, done.getState());
+            assertEquals(1, client.calls.get());
+
+            // nach Abschluss startet ein neuer Aufruf ein neues Training
+            TrainingJob next = manager.submit(TrainingJobManager.RISK_MODEL);
+            assertNotEquals(jobId, next.getJobId());
+            awaitTerminal(next);
+            assertEquals(2, client.calls.get());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void stopFailsRunningAndQueuedJobs() throws Exception {
+        TrainingJob running = manager.submit(TrainingJobManager.RISK_MODEL);
+        awaitTrue(() -> manager.getJob(running.getJobId()).getState() == TrainingJob.State.RUNNING,
+                "Training startet nicht");
+        // zweites Modell wartet hinter dem laufenden Training
+        TrainingJob queued = manager.submit("other_model");
+
+        manager.stop();
+
+        awaitTrue(() -> client.interrupted.getCount() == 0, "Training nicht unterbrochen");
+        awaitTrue(() -> manager.getJob(running.getJobId()).getState() == TrainingJob.State.FAILED,
+                "laufendes Training nicht FAILED");
+        TrainingJob stopped = manager.getJob(queued.getJobId());
+        assertEquals(TrainingJob.State.FAILED, stopped.getState());
+        assertTrue(stopped.getMessage().startsWith("Abgebrochen"), stopped.getMessage());
+        assertEquals(1, client.calls.get());
+    }
+
+    private TrainingJob awaitTerminal(TrainingJob job) throws InterruptedException {
+        awaitTrue(() -> manager.getJob(job.getJobId()).isTerminal(), "Job " + job.getJobId() + " läuft noch");
+        return manager.getJob(job.getJobId());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(message);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * ML-Service ohne HTTP: wartet auf {@code release} und meldet dann {@code status}.
+     */
+    private static final class TrainingClient extends MlServiceClient {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        volatile String status = "ok";
+
+        TrainingClient() {
+            super("http://127.0.0.1:1", Duration.ofSeconds(1), Duration.ofMinutes(10));
+        }
+
+        @Override
+        public JsonObject trainRiskModel(Duration timeout) throws Exception {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            JsonObject result = new JsonObject();
+            result.addProperty("status", status);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.mybroker.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Festkomma-Arithmetik gegen BigDecimal als Referenz: Werte, Skala der Darstellung und der BigDecimal-Rückfall
+ * jenseits des long-Bereichs der micros.
+ */
+class MoneyTest {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final Random random = new Random(19);
+
+    @Test
+    void plusAndMinusMatchBigDecimalIncludingOverflow() {
+        for (int i = 0; i < 50_000; i++) {
+            BigDecimal a = randomAmount();
+            BigDecimal b = randomAmount();
+
+            assertEquals(a.add(b), Money.of(a).plus(Money.of(b)).toBigDecimal(), a + " + " + b);
+            assertEquals(a.subtract(b), Money.of(a).minus(Money.of(b)).toBigDecimal(), a + " - " + b);
+        }
+    }
+
+    @Test
+    void sumBeyondLongMicrosFallsBackAndReturnsToMicros() {
+        Money big = Money.of(new BigDecimal("9000000000000.5"));
+        assertTrue(big.fitsMicros());
+
+        Money sum = big.plus(big);
+        assertFalse(sum.fitsMicros());
+        assertEquals("18000000000001.0", sum.toString());
+        assertThrows(ArithmeticException.class, sum::getMicros);
+
+        // zurück im long-Bereich wieder micros
+        Money back = sum.minus(big);
+        assertTrue(back.fitsMicros());
+        assertEquals(big, back);
+        assertEquals("9000000000000.5", back.toString());
+
+        Money negative = Money.of(new BigDecimal("-9000000000000")).minus(big);
+        assertFalse(negative.fitsMicros());
+        assertEquals(new BigDecimal("-18000000000000.5"), negative.toBigDecimal());
+        assertTrue(negative.compareTo(big) < 0);
+    }
+
+    @Test
+    void ofUnscaledFallsBackWhenMicrosOverflow() {
+        Money max = Money.ofUnscaled(Long.MAX_VALUE, 0);
+        assertFalse(max.fitsMicros());
+        assertEquals(BigDecimal.valueOf(Long.MAX_VALUE), max.toBigDecimal());
+
+        Money limit = Money.ofUnscaled(Long.MAX_VALUE / 1_000L, 3);
+        assertTrue(limit.fitsMicros());
+        assertEquals(BigDecimal.valueOf(Long.MAX_VALUE / 1_000L, 3), limit.toBigDecimal());
+        assertFalse(Money.ofUnscaled(Long.MAX_VALUE / 1_000L + 1, 3).fitsMicros());
+        assertFalse(Money.ofUnscaled(-(Long.MAX_VALUE / 1_000L) - 1, 3).fitsMicros());
+
+        assertThrows(ArithmeticException.class, () -> Money.ofUnscaled(1, 7));
+        assertThrows(ArithmeticException.class, () -> Money.ofUnscaled(1, -1));
+    }
+
+    @Test
+    void roundsHalfUpBeyondSixDecimals() {
+        assertEquals(new BigDecimal("1.000001"), Money.of(new BigDecimal("1.0000005")).toBigDecimal());
+        assertEquals(new BigDecimal("-1.000001"), Money.of(new BigDecimal("-1.0000005")).toBigDecimal());
+        assertEquals(new BigDecimal("2.123456"), Money.of(new BigDecimal("2.12345649")).toBigDecimal());
+        assertEquals(new BigDecimal("0.000000"), Money.of(new BigDecimal("0.0000004")).toBigDecimal());
+
+        for (int i = 0; i < 50_000; i++) {
+            BigDecimal value = BigDecimal.valueOf(random.nextLong() >> random.nextInt(40), 7 + random.nextInt(6));
+            assertEquals(value.setScale(Money.SCALE, RoundingMode.HALF_UP), Money.of(value).toBigDecimal(),
+                    value.toPlainString());
+        }
+    }
+
+    @Test
+    void percentMatchesBigDecimalDivision() {
+        for (int i = 0; i < 200_000; i++) {
+            BigDecimal part = randomAmount();
+            BigDecimal total = randomAmount();
+            if (total.signum() == 0) {
+                continue;
+            }
+            BigDecimal expected = part.multiply(HUNDRED).divide(total, 2, RoundingMode.HALF_UP);
+            assertEquals(expected, Money.of(part).percentOf(Money.of(total)), part + " / " + total);
+        }
+        // Rundungsgrenze exakt auf .005 in beide Richtungen
+        assertEquals(new BigDecimal("0.01"), Money.percent(5, 100_000));
+        assertEquals(new BigDecimal("-0.01"), Money.percent(-5, 100_000));
+        assertEquals(new BigDecimal("-0.01"), Money.percent(5, -100_000));
+        assertThrows(ArithmeticException.class, () -> Money.percent(1, 0));
+    }
+
+    @Test
+    void toStringKeepsSourceScale() {
+        assertEquals("1234.5", Money.of(new BigDecimal("1234.5")).toString());
+        assertEquals("100", Money.of(new BigDecimal("100")).toString());
+        assertEquals("-0.10", Money.of(new BigDecimal("-0.10")).toString());
+        assertEquals("0.000001", Money.of(new BigDecimal("0.000001")).toString());
+        assertEquals("1200", Money.of(new BigDecimal("1.2E+3")).toString());
+        assertEquals("3.75", Money.of(new BigDecimal("1.5")).plus(Money.of(new BigDecimal("2.25"))).toString());
+        assertEquals("2.00", Money.of(new BigDecimal("1.00")).plus(Money.of(BigDecimal.ONE)).toString());
+
+        // gleicher Wert, andere Skala: gleich und gleicher Hash
+        assertEquals(Money.of(new BigDecimal("1.5")), Money.of(new BigDecimal("1.500")));
+        assertEquals(Money.of(new BigDecimal("1.5")).hashCode(), Money.of(new BigDecimal("1.500")).hashCode());
+    }
+
+    /**
+     * Beträge mit 0–6 Nachkommastellen über alle Größenordnungen, ein Teil davon jenseits der micros.
+     */
+    private BigDecimal randomAmount() {
+        long unscaled = random.nextLong() >> random.nextInt(64);
+        return BigDecimal.valueOf(unscaled, random.nextInt(Money.SCALE + 1));
+    }
+}
@@ -0,0 +1,55 @@
+package com.mybroker.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Menge · Preis gegen BigDecimal: exakt bis 6 Nachkommastellen, darüber HALF_UP auf micros, bei Überlauf über
+ * den BigDecimal-Rückfall von {@link Money}.
+ */
+class QtyTest {
+
+    private final Random random = new Random(19);
+
+    @Test
+    void timesMatchesBigDecimalMultiplication() {
+        for (int i = 0; i < 200_000; i++) {
+            BigDecimal qty = BigDecimal.valueOf(random.nextLong() >> (34 + random.nextInt(30)),
+                    random.nextInt(Qty.SCALE + 1));
+            BigDecimal price = BigDecimal.valueOf(random.nextLong() >> (20 + random.nextInt(44)), random.nextInt(5));
+
+            BigDecimal product = qty.multiply(price);
+            BigDecimal expected = product.scale() <= Money.SCALE
+                    ? product
+                    : product.setScale(Money.SCALE, RoundingMode.HALF_UP);
+            assertEquals(expected, Qty.of(qty).times(price).toBigDecimal(), qty + " * " + price);
+        }
+    }
+
+    @Test
+    void timesFallsBackBeyondLongMicros() {
+        Money value = Qty.of(new BigDecimal("1000000000")).times(new BigDecimal("20000.25"));
+        assertFalse(value.fitsMicros());
+        assertEquals(new BigDecimal("20000250000000.00"), value.toBigDecimal());
+
+        Money fits = Qty.of(new BigDecimal("1000")).times(new BigDecimal("20000.25"));
+        assertTrue(fits.fitsMicros());
+        assertEquals("20000250.00", fits.toString());
+    }
+
+    @Test
+    void keepsSourceScaleAndRoundsBeyondNineDecimals() {
+        assertEquals("0.5", Qty.of(new BigDecimal("0.5")).toString());
+        assertEquals("12", Qty.of(new BigDecimal("12")).toString());
+        assertEquals("0.123456789", Qty.of(new BigDecimal("0.123456789")).toString());
+        assertEquals(new BigDecimal("0.000000001"), Qty.of(new BigDecimal("0.0000000005")).toBigDecimal());
+        assertEquals(Qty.of(new BigDecimal("2.50")), Qty.of(new BigDecimal("2.5")));
+    }
+}
@@ -0,0 +1,210 @@
+package com.mybroker.order;
+
+import com.mybroker.model.AlpacaCredentials;
+import com.mybroker.service.AlpacaRateLimiter;
+import com.mybroker.service.AlpacaService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Idempotente Einreichung gegen einen Alpaca-Stand-in: Doppelklick, Wiederholung nach Timeout, abgelehnte
+ * doppelte client_order_id, volle Warteschlange und Aufräumen abgeschlossener Tickets.
+ */
+class OrderGatewayTest {
+
+    private final StandInAlpaca alpaca = new StandInAlpaca();
+    private OrderGateway gateway;
+
+    @AfterEach
+    void stop() {
+        alpaca.release.countDown();
+        if (gateway != null) {
+            gateway.shutdown();
+        }
+    }
+
+    @Test
+    void sameKeyTwiceSubmitsOnce() throws Exception {
+        gateway = new OrderGateway(alpaca, 16, 2, 3, 10, Duration.ofHours(1));
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<OrderTicket>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> gateway.submit("aapl", 1, "buy", "form-1")));
+            }
+            String trackingId = results.get(0).get(5, TimeUnit.SECONDS).getTrackingId();
+            for (Future<OrderTicket> result : results) {
+                assertEquals(trackingId, result.get(5, TimeUnit.SECONDS).getTrackingId());
+            }
+
+            awaitTrue(() -> gateway.getTicket(trackingId).isTerminal(), "Order nicht abgeschlossen");
+            assertSame(gateway.getTicket(trackingId), gateway.submit("AAPL", 1, "buy", "form-1"));
+            assertEquals(OrderTicket.State.ACCEPTED, gateway.getTicket(trackingId).getState());
+            assertEquals(List.of("mb-form-1"), List.copyOf(alpaca.created));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void retryAfterTimeoutResolvesExistingOrderInsteadOfResending() throws Exception {
+        gateway = new OrderGateway(alpaca, 16, 1, 3, 10, Duration.ofHours(1));
+        // erster Versuch kommt bei Alpaca an, die Antwort aber nicht zurück
+        alpaca.timeoutAfterCreate.set(1);
+
+        OrderTicket ticket = gateway.submit("AAPL", 2, "buy", "form-2");
+        awaitTrue(() -> gateway.getTicket(ticket.getTrackingId()).isTerminal(), "Order nicht abgeschlossen");
+
+        OrderTicket done = gateway.getTicket(ticket.getTrackingId());
+        assertEquals(OrderTicket.State.ACCEPTED, done.getState());
+        assertEquals("order-mb-form-2", done.getBrokerOrderId());
+        assertEquals(2, done.getAttempts());
+        assertEquals(List.of("mb-form-2"), List.copyOf(alpaca.created));
+        assertEquals(List.of("mb-form-2"), List.copyOf(alpaca.lookedUp));
+    }
+
+    @Test
+    void duplicateClientOrderIdRejectionResolvesExistingOrder() throws Exception {
+        gateway = new OrderGateway(alpaca, 16, 1, 3, 10, Duration.ofHours(1));
+        alpaca.known.add("mb-form-3");
+
+        OrderTicket ticket = gateway.submit("AAPL", 1, "sell", "form-3");
+        awaitTrue(() -> gateway.getTicket(ticket.getTrackingId()).isTerminal(), "Order nicht abgeschlossen");
+
+        OrderTicket done = gateway.getTicket(ticket.getTrackingId());
+        assertEquals(OrderTicket.State.ACCEPTED, done.getState());
+        assertEquals("order-mb-form-3", done.getBrokerOrderId());
+        assertEquals(1, done.getAttempts());
+        assertEquals(List.of("mb-form-3"), List.copyOf(alpaca.lookedUp));
+    }
+
+    @Test
+    void fullQueueIsRefused() throws Exception {
+        // OrdersServlet beantwortet die IllegalStateException mit 503
+        gateway = new OrderGateway(alpaca, 1, 1, 3, 10, Duration.ofHours(1));
+        alpaca.block = true;
+
+        OrderTicket sending = gateway.submit("AAPL", 1, "buy", "a");
+        awaitTrue(() -> gateway.getTicket(sending.getTrackingId()).getState() == OrderTicket.State.SUBMITTING,
+                "Submitter sendet nicht");
+        gateway.submit("AAPL", 1, "buy", "b");
+
+        assertThrows(IllegalStateException.class, () -> gateway.submit("AAPL", 1, "buy", "c"));
+
+        // der Schlüssel der abgewiesenen Order ist wieder frei
+        alpaca.release.countDown();
+        awaitTrue(() -> gateway.getTicket(sending.getTrackingId()).isTerminal(), "Order nicht abgeschlossen");
+        OrderTicket retried = awaitSubmit("c");
+        awaitTrue(() -> gateway.getTicket(retried.getTrackingId()).isTerminal(), "Order nicht abgeschlossen");
+        assertEquals(List.of("mb-a", "mb-b", "mb-c"), List.copyOf(alpaca.created));
+    }
+
+    @Test
+    void terminalTicketsAreEvictedAndReleaseTheirKey() throws Exception {
+        gateway = new OrderGateway(alpaca, 16, 1, 3, 10, Duration.ZERO);
+
+        OrderTicket done = gateway.submit("AAPL", 1, "buy", "form-4");
+        awaitTrue(() -> gateway.getTicket(done.getTrackingId()).isTerminal(), "Order nicht abgeschlossen");
+        alpaca.block = true;
+        OrderTicket pending = gateway.submit("MSFT", 1, "buy", "form-5");
+        awaitTrue(() -> gateway.getTicket(pending.getTrackingId()).getState() == OrderTicket.State.SUBMITTING,
+                "Submitter sendet nicht");
+        Thread.sleep(5);
+
+        gateway.evictOldTickets();
+
+        assertNull(gateway.getTicket(done.getTrackingId()));
+        assertEquals(OrderTicket.State.SUBMITTING, gateway.getTicket(pending.getTrackingId()).getState());
+        assertNotEquals(done.getTrackingId(), gateway.submit("AAPL", 1, "buy", "form-4").getTrackingId());
+    }
+
+    private OrderTicket awaitSubmit(String key) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            try {
+                return gateway.submit("AAPL", 1, "buy", key);
+            } catch (IllegalStateException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(message);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Alpaca ohne HTTP: merkt sich angenommene client_order_ids und lehnt Duplikate wie Alpaca mit 422 ab.
+     */
+    private static final class StandInAlpaca extends AlpacaService {
+        final LinkedBlockingQueue<String> known = new LinkedBlockingQueue<>();
+        final LinkedBlockingQueue<String> created = new LinkedBlockingQueue<>();
+        final LinkedBlockingQueue<String> lookedUp = new LinkedBlockingQueue<>();
+        final AtomicInteger timeoutAfterCreate = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean block;
+
+        StandInAlpaca() {
+            super(new AlpacaCredentials(null, "key", "secret", "http://127.0.0.1:1", null),
+                    AlpacaRateLimiter.Priority.INTERACTIVE, AlpacaRateLimiter.forTenant());
+        }
+
+        @Override
+        public String createOrder(String symbol, int qty, String side, String clientOrderId)
+                throws IOException, InterruptedException {
+            if (block) {
+                release.await();
+            }
+            if (known.contains(clientOrderId)) {
+                return "{\"code\":42210000,\"message\":\"client_order_id must be unique\"}";
+            }
+            created.add(clientOrderId);
+            known.add(clientOrderId);
+            if (timeoutAfterCreate.getAndDecrement() > 0) {
+                throw new HttpTimeoutException("request timed out");
+            }
+            return order(clientOrderId);
+        }
+
+        @Override
+        public String getOrderByClientOrderId(String clientOrderId) {
+            lookedUp.add(clientOrderId);
+            return known.contains(clientOrderId) ? order(clientOrderId) : null;
+        }
+
+        private static String order(String clientOrderId) {
+            return "{\"id\":\"order-" + clientOrderId + "\",\"client_order_id\":\"" + clientOrderId
+                    + "\",\"status\":\"accepted\"}";
+        }
+    }
+}
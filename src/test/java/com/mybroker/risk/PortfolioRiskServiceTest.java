@@ -0,0 +1,136 @@
+package com.mybroker.risk;
+
+import com.mybroker.db.PriceRepository;
+import com.mybroker.model.PortfolioRiskReport;
+import com.mybroker.model.Position;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ein Symbol ohne ausreichende Historie darf nicht bei jedem Refresh einen Neuaufbau der ganzen Kovarianz auslösen.
+ */
+class PortfolioRiskServiceTest {
+
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private final HistoryRepository repository = new HistoryRepository();
+    private final PortfolioRiskService service = new PortfolioRiskService(
+            repository, 60, 30, 0.99, 1, 252.0, Duration.ZERO, Duration.ofSeconds(5), 4, 2);
+
+    @AfterEach
+    void stop() {
+        service.stop();
+    }
+
+    @Test
+    void uncoveredSymbolIsProbedInsteadOfRebuildingEverything() throws Exception {
+        repository.put("AAA", 130);
+        repository.put("BBB", 130);
+        repository.put("CCC", 130);
+        repository.put("NEW", 5);
+        List<Position> positions = List.of(
+                position("AAA", "1000"), position("BBB", "2000"), position("CCC", "1500"), position("NEW", "500"));
+
+        PortfolioRiskReport first = service.evaluate(positions);
+        assertTrue(first.isAvailable(), first.getMessage());
+        assertEquals(List.of("NEW"), first.getUncoveredSymbols());
+        assertEquals(1, repository.fullLoads.get());
+
+        // RISK_REFRESH_MS = 0: jeder Aufruf stößt einen Refresh an
+        awaitTrue(() -> {
+            service.evaluate(positions);
+            return repository.probes.get() >= 3;
+        }, "kein Refresh");
+        assertEquals(1, repository.fullLoads.get(), "Kovarianz trotz unveränderter Abdeckung neu aufgebaut");
+
+        // sobald das Symbol genug Kurse hat, wird neu aufgebaut und es geht in den VaR ein
+        repository.put("NEW", 130);
+        awaitTrue(() -> service.evaluate(positions).getUncoveredSymbols().isEmpty(), "kein Neuaufbau");
+        assertEquals(2, repository.fullLoads.get());
+    }
+
+    private static Position position(String symbol, String marketValue) {
+        return new Position(symbol, symbol, "Technology", BigDecimal.ONE, new BigDecimal(marketValue), BigDecimal.ZERO, null);
+    }
+
+    static void awaitTrue(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(message);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Tageskurse als Random Walk; zählt Vollladungen (alle Symbole der Menge) und Einzelprüfungen getrennt.
+     */
+    static final class HistoryRepository extends PriceRepository {
+        private final Map<String, CloseSeries> series = new HashMap<>();
+        final AtomicInteger fullLoads = new AtomicInteger();
+        final AtomicInteger probes = new AtomicInteger();
+
+        synchronized void put(String symbol, int days) {
+            Random random = new Random(symbol.hashCode());
+            long[] ts = new long[days];
+            double[] closes = new double[days];
+            double price = 100.0;
+            for (int i = 0; i < days; i++) {
+                price *= 1.0 + random.nextGaussian() * 0.01;
+                ts[i] = (20_000L + i) * DAY_MILLIS;
+                closes[i] = price;
+            }
+            series.put(symbol, new CloseSeries(ts, closes));
+        }
+
+        @Override
+        public synchronized Map<String, CloseSeries> loadClosesSince(String[] symbols, long[] sinceMillis, int limit) {
+            // Aufbau und Prüfung laden ab Anfang, das Nachtragen nur neue Tage
+            boolean fromStart = Arrays.stream(sinceMillis).allMatch(since -> since == 0L);
+            if (fromStart && symbols.length > 1) {
+                fullLoads.incrementAndGet();
+            } else if (fromStart) {
+                probes.incrementAndGet();
+            }
+            Map<String, CloseSeries> result = new HashMap<>();
+            for (int s = 0; s < symbols.length; s++) {
+                CloseSeries all = series.get(symbols[s]);
+                if (all == null) {
+                    continue;
+                }
+                int from = 0;
+                while (from < all.size() && all.getTimestampMillis(from) <= sinceMillis[s]) {
+                    from++;
+                }
+                from = Math.max(from, all.size() - limit);
+                int n = all.size() - from;
+                if (n <= 0) {
+                    continue;
+                }
+                long[] ts = new long[n];
+                double[] closes = new double[n];
+                for (int i = 0; i < n; i++) {
+                    ts[i] = all.getTimestampMillis(from + i);
+                    closes[i] = all.getClose(from + i);
+                }
+                result.put(symbols[s], new CloseSeries(ts, closes));
+            }
+            return result;
+        }
+    }
+}
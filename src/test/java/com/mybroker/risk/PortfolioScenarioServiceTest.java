@@ -0,0 +1,86 @@
+package com.mybroker.risk;
+
+import com.mybroker.model.PortfolioScenarioReport;
+import com.mybroker.model.Position;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Zeitbudget der Simulation: ein Aufruf hält SCENARIO_BUDGET_MS (plus Auswertung) ein und liefert die bis dahin
+ * fertigen Pfade, statt den Seitenaufbau zu blockieren.
+ */
+class PortfolioScenarioServiceTest {
+
+    // Sortieren, Histogramm und Stress-Szenarien laufen nach dem Budget; großzügig für ausgelastete Build-Rechner
+    private static final long EVALUATION_ALLOWANCE_MILLIS = 5_000;
+
+    private final PortfolioRiskServiceTest.HistoryRepository repository = new PortfolioRiskServiceTest.HistoryRepository();
+    private final PortfolioRiskService riskService = new PortfolioRiskService(
+            repository, 60, 30, 0.99, 1, 252.0, Duration.ofHours(1), Duration.ofSeconds(10), 4, 2);
+    private PortfolioScenarioService scenarios;
+
+    @AfterEach
+    void stop() {
+        scenarios.stop();
+        riskService.stop();
+    }
+
+    @Test
+    void largeRunStopsAtBudgetWithPartialPaths() throws Exception {
+        List<Position> positions = portfolio(200);
+        scenarios = new PortfolioScenarioService(riskService, 2_000_000, 10, Duration.ofMillis(150), 0.20, 8, 2);
+        awaitCovariance(positions);
+
+        PortfolioScenarioReport report = scenarios.run(positions);
+
+        assertTrue(report.isAvailable(), report.getMessage());
+        assertTrue(report.isBudgetExhausted());
+        int simulated = report.getHistorical().getPaths();
+        assertTrue(simulated > 0 && simulated < report.getPathsRequested(), "Pfade: " + simulated);
+        assertEquals(simulated, report.getNormal().getPaths());
+        assertTrue(report.getElapsedMillis() < 150 + EVALUATION_ALLOWANCE_MILLIS,
+                "Simulation dauerte " + report.getElapsedMillis() + " ms");
+    }
+
+    @Test
+    void smallRunCompletesAllPathsWithinBudget() throws Exception {
+        List<Position> positions = portfolio(20);
+        scenarios = new PortfolioScenarioService(riskService, 20_000, 10, Duration.ofSeconds(5), 0.20, 8, 2);
+        awaitCovariance(positions);
+
+        PortfolioScenarioReport report = scenarios.run(positions);
+
+        assertTrue(report.isAvailable(), report.getMessage());
+        assertFalse(report.isBudgetExhausted());
+        assertEquals(20_000, report.getHistorical().getPaths());
+        assertTrue(report.getElapsedMillis() < 5_000);
+        assertFalse(report.getWorstScenarios().isEmpty());
+    }
+
+    private List<Position> portfolio(int symbols) {
+        List<Position> positions = new ArrayList<>(symbols);
+        for (int i = 0; i < symbols; i++) {
+            String symbol = "S" + i;
+            repository.put(symbol, 130);
+            positions.add(new Position(symbol, symbol, "Sektor " + (i % 8), BigDecimal.ONE,
+                    BigDecimal.valueOf(1_000 + 37L * i), BigDecimal.ZERO, null));
+        }
+        return positions;
+    }
+
+    /**
+     * Erster Aufbau der Kovarianz läuft im Hintergrund – gemessen wird nur die Simulation.
+     */
+    private void awaitCovariance(List<Position> positions) throws InterruptedException {
+        PortfolioRiskServiceTest.awaitTrue(() -> riskService.evaluate(positions).isAvailable(), "keine Kovarianz");
+    }
+}
@@ -0,0 +1,134 @@
+package com.mybroker.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.mybroker.model.BrokerPosition;
+import com.mybroker.model.FillActivity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming-Dekodierung ({@link AlpacaJsonDecoder}) gegen den früheren Weg: Body als String, Gson-Baum,
+ * Zahlen über getAsString und new BigDecimal. Beide Varianten liefern dieselben typisierten Objekte.
+ * <p>
+ * Ausführen: {@code mvn -P benchmarks verify -DskipTests -Djmh.filter=AlpacaJsonDecoderBenchmark}
+ * (Allokationen zusätzlich mit {@code -prof gc} über {@code org.openjdk.jmh.Main}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlpacaJsonDecoderBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int records;
+
+    private byte[] positionsJson;
+    private byte[] activitiesJson;
+
+    @Setup
+    public void createPayloads() {
+        Random random = new Random(42);
+        StringBuilder positions = new StringBuilder("[");
+        StringBuilder activities = new StringBuilder("[");
+        for (int i = 0; i < records; i++) {
+            if (i > 0) {
+                positions.append(',');
+                activities.append(',');
+            }
+            double price = 10 + random.nextDouble() * 500;
+            int qty = 1 + random.nextInt(500);
+            positions.append(String.format(Locale.ROOT,
+                    "{\"asset_id\":\"%08d-0000-0000-0000-000000000000\",\"symbol\":\"SYM%d\",\"exchange\":\"NASDAQ\","
+                            + "\"asset_class\":\"us_equity\",\"asset_marginable\":true,\"qty\":\"%d\","
+                            + "\"avg_entry_price\":\"%.4f\",\"side\":\"long\",\"market_value\":\"%.2f\","
+                            + "\"cost_basis\":\"%.2f\",\"unrealized_pl\":\"%.2f\",\"unrealized_plpc\":\"%.6f\","
+                            + "\"unrealized_intraday_pl\":\"0\",\"unrealized_intraday_plpc\":\"0\","
+                            + "\"current_price\":\"%.4f\",\"lastday_price\":\"%.4f\",\"change_today\":\"0.0012\","
+                            + "\"qty_available\":\"%d\"}",
+                    i, i, qty, price * 0.95, qty * price, qty * price * 0.95, qty * price * 0.05, 0.052631,
+                    price, price * 0.99, qty));
+            activities.append(String.format(Locale.ROOT,
+                    "{\"id\":\"20260105093000000::%08d\",\"activity_type\":\"FILL\","
+                            + "\"transaction_time\":\"2026-01-05T14:30:00.123Z\",\"type\":\"fill\",\"price\":\"%.4f\","
+                            + "\"qty\":\"%d\",\"side\":\"buy\",\"symbol\":\"SYM%d\",\"leaves_qty\":\"0\","
+                            + "\"order_id\":\"%08d-1111-2222-3333-444444444444\",\"cum_qty\":\"%d\","
+                            + "\"order_status\":\"filled\"}",
+                    i, price, qty, i, i, qty));
+        }
+        positionsJson = positions.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        activitiesJson = activities.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<BrokerPosition> positionsStreaming() throws IOException {
+        return AlpacaJsonDecoder.readPositions(new ByteArrayInputStream(positionsJson));
+    }
+
+    @Benchmark
+    public List<BrokerPosition> positionsGsonTree() {
+        JsonArray arr = JsonParser.parseString(new String(positionsJson, StandardCharsets.UTF_8)).getAsJsonArray();
+        List<BrokerPosition> result = new ArrayList<>(arr.size());
+        for (JsonElement el : arr) {
+            JsonObject o = el.getAsJsonObject();
+            result.add(new BrokerPosition(string(o, "symbol"), string(o, "side"), decimal(o, "qty"),
+                    decimal(o, "avg_entry_price"), decimal(o, "current_price"), decimal(o, "market_value"),
+                    decimal(o, "cost_basis"), decimal(o, "unrealized_pl"), decimal(o, "unrealized_plpc")));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<FillActivity> activitiesStreaming() throws IOException {
+        return AlpacaJsonDecoder.readFillActivities(new ByteArrayInputStream(activitiesJson));
+    }
+
+    @Benchmark
+    public List<FillActivity> activitiesGsonTree() {
+        JsonArray arr = JsonParser.parseString(new String(activitiesJson, StandardCharsets.UTF_8)).getAsJsonArray();
+        List<FillActivity> result = new ArrayList<>(arr.size());
+        for (JsonElement el : arr) {
+            JsonObject o = el.getAsJsonObject();
+            String time = string(o, "transaction_time");
+            result.add(new FillActivity(string(o, "id"), string(o, "order_id"), string(o, "symbol"),
+                    string(o, "side"), decimal(o, "qty"), decimal(o, "price"),
+                    time != null ? Instant.parse(time) : null, string(o, "order_status"),
+                    decimal(o, "cum_qty"), decimal(o, "leaves_qty")));
+        }
+        return result;
+    }
+
+    private static String string(JsonObject o, String field) {
+        JsonElement el = o.get(field);
+        return el != null && !el.isJsonNull() ? el.getAsString() : null;
+    }
+
+    private static BigDecimal decimal(JsonObject o, String field) {
+        String value = string(o, field);
+        return value != null ? new BigDecimal(value) : null;
+    }
+}
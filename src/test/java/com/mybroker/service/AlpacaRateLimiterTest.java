@@ -0,0 +1,147 @@
+package com.mybroker.service;
+
+import com.mybroker.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vorrang der Prioritäten, Order-Reserve, Deadline beim Warten und Pause nach 429 bzw. Rest 0.
+ */
+class AlpacaRateLimiterTest {
+
+    private static final Duration LONG = Duration.ofSeconds(10);
+
+    @Test
+    void interactiveIsServedBeforeBackground() throws Exception {
+        // 60/min = ein Token pro Sekunde; die Pause hält beide Aufrufer fest, bis sich beide angestellt haben
+        AlpacaRateLimiter limiter = limiter("priority", 60, 0, LONG, LONG, LONG);
+        limiter.onResponse(200, headers(Map.of("X-RateLimit-Remaining", "0")));
+
+        LinkedBlockingQueue<AlpacaRateLimiter.Priority> served = new LinkedBlockingQueue<>();
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> background = callers.submit(
+                    () -> acquireAndRecord(limiter, AlpacaRateLimiter.Priority.BACKGROUND, served));
+            awaitTrue(() -> limiter.queueDepth() == 1, "Hintergrund wartet nicht");
+            Future<?> interactive = callers.submit(
+                    () -> acquireAndRecord(limiter, AlpacaRateLimiter.Priority.INTERACTIVE, served));
+            awaitTrue(() -> limiter.queueDepth() == 2, "Seitenaufruf wartet nicht");
+
+            interactive.get(5, TimeUnit.SECONDS);
+            background.get(5, TimeUnit.SECONDS);
+            assertEquals(List.of(AlpacaRateLimiter.Priority.INTERACTIVE, AlpacaRateLimiter.Priority.BACKGROUND),
+                    List.copyOf(served));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void reserveIsHeldForOrders() throws Exception {
+        // 6/min: während des Tests praktisch kein Nachfüllen
+        Duration shortDeadline = Duration.ofMillis(100);
+        AlpacaRateLimiter limiter = limiter("reserve", 6, 2, shortDeadline, shortDeadline, shortDeadline);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire(AlpacaRateLimiter.Priority.INTERACTIVE);
+        }
+        assertThrows(IOException.class, () -> limiter.acquire(AlpacaRateLimiter.Priority.INTERACTIVE));
+        assertThrows(IOException.class, () -> limiter.acquire(AlpacaRateLimiter.Priority.BACKGROUND));
+
+        limiter.acquire(AlpacaRateLimiter.Priority.ORDER);
+        limiter.acquire(AlpacaRateLimiter.Priority.ORDER);
+        assertThrows(IOException.class, () -> limiter.acquire(AlpacaRateLimiter.Priority.ORDER));
+    }
+
+    @Test
+    void deadlineExpiresWhileWaiting() throws Exception {
+        AlpacaRateLimiter limiter = limiter("deadline", 6, 0, LONG, Duration.ofMillis(200), LONG);
+        drain(limiter, AlpacaRateLimiter.Priority.INTERACTIVE);
+        long exceededBefore = Metrics.counter("test.ratelimit.deadline.deadline_exceeded").sum();
+
+        long start = System.nanoTime();
+        assertThrows(IOException.class, () -> limiter.acquire(AlpacaRateLimiter.Priority.INTERACTIVE));
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waitedMillis >= 190, "zu früh aufgegeben: " + waitedMillis + " ms");
+        assertEquals(0, limiter.queueDepth());
+        assertEquals(exceededBefore + 1, Metrics.counter("test.ratelimit.deadline.deadline_exceeded").sum());
+    }
+
+    @Test
+    void tooManyRequestsPausesUntilDefaultPauseEnds() throws Exception {
+        AlpacaRateLimiter limiter = limiter("http429", 600, 0, LONG, Duration.ofMillis(300), LONG);
+        long start = System.nanoTime();
+        limiter.onResponse(429, headers(Map.of()));
+
+        // trotz Nachfüllen (ein Token alle 100 ms) kein Token während der Pause
+        assertThrows(IOException.class, () -> limiter.acquire(AlpacaRateLimiter.Priority.INTERACTIVE));
+        limiter.acquire(AlpacaRateLimiter.Priority.ORDER);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waitedMillis >= 1_000, "Pause nicht eingehalten: " + waitedMillis + " ms");
+    }
+
+    @Test
+    void remainingZeroPausesUntilReset() throws Exception {
+        AlpacaRateLimiter limiter = limiter("remaining", 600, 0, LONG, Duration.ofMillis(300), LONG);
+        long resetEpochSeconds = System.currentTimeMillis() / 1000 + 2;
+        limiter.onResponse(200, headers(Map.of(
+                "X-RateLimit-Remaining", "0",
+                "X-RateLimit-Reset", String.valueOf(resetEpochSeconds))));
+
+        assertThrows(IOException.class, () -> limiter.acquire(AlpacaRateLimiter.Priority.INTERACTIVE));
+        limiter.acquire(AlpacaRateLimiter.Priority.ORDER);
+        assertTrue(System.currentTimeMillis() >= resetEpochSeconds * 1000 - 20, "vor dem Reset bedient");
+    }
+
+    private static AlpacaRateLimiter limiter(String name, int limitPerMinute, int orderReserve, Duration order,
+                                             Duration interactive, Duration background) {
+        return new AlpacaRateLimiter("test.ratelimit." + name, false, limitPerMinute, orderReserve,
+                order, interactive, background);
+    }
+
+    private static void drain(AlpacaRateLimiter limiter, AlpacaRateLimiter.Priority priority) throws Exception {
+        while (limiter.availableTokens() >= 1.0) {
+            limiter.acquire(priority);
+        }
+    }
+
+    private static Void acquireAndRecord(AlpacaRateLimiter limiter, AlpacaRateLimiter.Priority priority,
+                                         LinkedBlockingQueue<AlpacaRateLimiter.Priority> served) throws Exception {
+        limiter.acquire(priority);
+        served.add(priority);
+        return null;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(message);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static HttpHeaders headers(Map<String, String> values) {
+        Map<String, List<String>> multi = new HashMap<>();
+        values.forEach((k, v) -> multi.put(k, List.of(v)));
+        return HttpHeaders.of(multi, (k, v) -> true);
+    }
+}
@@ -0,0 +1,102 @@
+package com.mybroker.service;
+
+import com.mybroker.model.AlpacaCredentials;
+import com.mybroker.model.MarketSnapshot;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlpacaServiceSnapshotsTest {
+
+    private HttpServer server;
+    private AlpacaService service;
+
+    @BeforeEach
+    void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v2/stocks/snapshots", exchange -> {
+            String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8);
+            String[] symbols = query.substring(query.indexOf('=') + 1).split(",");
+            if (List.of(symbols).stream().anyMatch(symbol -> symbol.startsWith("SLOW"))) {
+                try {
+                    Thread.sleep(8_000);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            StringBuilder json = new StringBuilder("{");
+            for (String symbol : symbols) {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                json.append('"').append(symbol).append("\":{\"latestTrade\":{\"p\":10.0}}");
+            }
+            byte[] body = json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+        service = new AlpacaService(new AlpacaCredentials(null, "key", "secret", url, url),
+                AlpacaRateLimiter.Priority.INTERACTIVE, AlpacaRateLimiter.forTenant());
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void slowChunkIsDroppedAfterBudget() throws Exception {
+        // erster Chunk (50 Symbole) schnell, zweiter Chunk enthält das langsame Symbol
+        List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            symbols.add("S" + i);
+        }
+        symbols.add("SLOW");
+
+        long start = System.nanoTime();
+        Map<String, MarketSnapshot> result = service.getSnapshots(symbols);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(50, result.size());
+        assertTrue(elapsedMillis < 6_000, "Snapshot-Abfrage dauerte " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void timedOutChunksReleaseTheirThreads() throws Exception {
+        // vier langsame Chunks belegen alle vier Snapshot-Threads bis zum Budget
+        List<String> slow = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            slow.add(i % 50 == 0 ? "SLOW" + i : "S" + i);
+        }
+        assertThrows(IOException.class, () -> service.getSnapshots(slow));
+
+        // abgebrochene Chunks geben ihre Threads frei: die nächste Abfrage wartet nicht auf sie
+        long start = System.nanoTime();
+        Map<String, MarketSnapshot> result = service.getSnapshots(List.of("AAPL", "MSFT"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(List.of("AAPL", "MSFT"), new ArrayList<>(result.keySet()));
+        assertTrue(elapsedMillis < 2_000, "Snapshot-Abfrage dauerte " + elapsedMillis + " ms");
+    }
+}
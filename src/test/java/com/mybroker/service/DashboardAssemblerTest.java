@@ -0,0 +1,152 @@
+package com.mybroker.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DashboardAssemblerTest {
+
+    private static final long DEADLINE_MS = 150;
+    // Spielraum für Scheduling und GC auf CI-Maschinen
+    private static final long SLACK_MS = 150;
+
+    private ThreadPoolExecutor pool;
+
+    @AfterEach
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void p99PageLatencyStaysWithinDeadlineWhenUpstreamsHang() throws Exception {
+        pool = DashboardAssembler.createExecutor(16, 64);
+        DashboardAssembler assembler = new DashboardAssembler(pool);
+        int pages = 160;
+        int sectionsPerPage = 6;
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> runs = new ArrayList<>();
+            for (int page = 0; page < pages; page++) {
+                int seed = page;
+                runs.add(clients.submit(() -> {
+                    Random random = new Random(seed);
+                    long start = System.nanoTime();
+                    List<CompletableFuture<String>> sections = new ArrayList<>();
+                    for (int i = 0; i < sectionsPerPage; i++) {
+                        // jeder fünfte Abschnitt hängt weit über die Deadline hinaus
+                        long latency = random.nextInt(5) == 0 ? 2000 : random.nextInt(20);
+                        sections.add(assembler.section("s" + i, DEADLINE_MS, () -> {
+                            Thread.sleep(latency);
+                            return "ok";
+                        }, "-"));
+                    }
+                    sections.forEach(assembler::await);
+                    latencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return null;
+                }));
+            }
+            for (Future<?> run : runs) {
+                run.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        long p99 = sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+        assertEquals(pages, sorted.size());
+        assertTrue(p99 <= DEADLINE_MS + SLACK_MS, "p99 Seitenlatenz " + p99 + " ms");
+    }
+
+    @Test
+    void saturatedPoolRejectsWithFallbackInsteadOfRunningOnCaller() throws Exception {
+        pool = DashboardAssembler.createExecutor(1, 1);
+        DashboardAssembler assembler = new DashboardAssembler(pool);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            assembler.section("busy", 5000, () -> release.await(5, TimeUnit.SECONDS), false);
+            assembler.section("queued", 5000, () -> true, false);
+
+            AtomicReference<String> ranOn = new AtomicReference<>();
+            long start = System.nanoTime();
+            String value = assembler.await(assembler.section("rejected", 5000, () -> {
+                ranOn.set(Thread.currentThread().getName());
+                return "geladen";
+            }, "platzhalter"));
+
+            assertEquals("platzhalter", value);
+            assertNull(ranOn.get());
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void timedOutSectionIsInterrupted() throws Exception {
+        pool = DashboardAssembler.createExecutor(2, 4);
+        DashboardAssembler assembler = new DashboardAssembler(pool);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        String value = assembler.await(assembler.section("slow", 50, () -> {
+            try {
+                Thread.sleep(10_000);
+                return "spät";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+        }, "-"));
+
+        assertEquals("-", value);
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS), "Abschnitt wurde nicht abgebrochen");
+    }
+
+    @Test
+    void dependentSectionDeadlineIncludesWaitForInput() {
+        pool = DashboardAssembler.createExecutor(4, 4);
+        DashboardAssembler assembler = new DashboardAssembler(pool);
+
+        CompletableFuture<Integer> input = assembler.section("input", 5000, () -> {
+            Thread.sleep(300);
+            return 1;
+        }, 0);
+        long start = System.nanoTime();
+        Integer value = assembler.await(assembler.dependentSection("dependent", input, 100, v -> v + 1, -1));
+
+        assertEquals(-1, value);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 250);
+    }
+
+    @Test
+    void dependentSectionFallsBackWhenInputFails() {
+        pool = DashboardAssembler.createExecutor(2, 2);
+        DashboardAssembler assembler = new DashboardAssembler(pool);
+
+        CompletableFuture<Integer> input = CompletableFuture.failedFuture(new IllegalStateException("kaputt"));
+        Integer value = assembler.await(assembler.dependentSection("dependent", input, 1000, v -> v + 1, -1));
+
+        assertEquals(-1, value);
+    }
+}
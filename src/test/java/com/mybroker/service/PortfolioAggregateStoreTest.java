@@ -0,0 +1,73 @@
+package com.mybroker.service;
+
+import com.mybroker.model.PortfolioAnalysisResult;
+import com.mybroker.model.Position;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Überlauf der micros-Summen, Abbruch im Abgleich und Snapshots.
+ */
+class PortfolioAggregateStoreTest {
+
+    private final PortfolioAnalysisService service = new PortfolioAnalysisService();
+
+    @Test
+    void sumsBeyondLongMicrosFallBackToExactPath() {
+        List<Position> positions = List.of(
+                position("AAPL", "Technology", "6000000000000.50"),
+                position("XOM", "Energy", "5000000000000"),
+                position("JPM", "Financials", "1000000000000"));
+
+        PortfolioAnalysisResult fromList = service.analyse(positions);
+        assertEquals(new BigDecimal("12000000000000.50"), fromList.getTotalMarketValue());
+        assertEquals(new BigDecimal("50.00"), fromList.getTechWeight());
+        assertEquals("AAPL", fromList.getTopPositionSymbol());
+
+        PortfolioAggregateStore store = PortfolioAggregateStore.forAccount("overflow-test");
+        store.replaceAll(positions);
+        assertNull(store.aggregates());
+
+        PortfolioAnalysisResult fromStore = service.analyse(store);
+        assertEquals(fromList.getTotalMarketValue(), fromStore.getTotalMarketValue());
+        assertEquals(fromList.getSectorWeights(), fromStore.getSectorWeights());
+
+        // Kurs-Tick auf einem übergelaufenen Stand darf nicht werfen
+        store.onPrice("JPM", 2.0);
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    void failedReconcileKeepsPreviousStateAndSnapshotsStayConsistent() {
+        PortfolioAggregateStore store = PortfolioAggregateStore.forAccount("swap-test");
+        PortfolioAggregateStore.Snapshot snapshot = store.replaceAll(List.of(
+                position("AAPL", "Technology", "600"), position("XOM", "Energy", "400")));
+        assertEquals(new BigDecimal("1000"), service.analyse(snapshot).getTotalMarketValue());
+
+        // Kurs-Tick nach dem Snapshot: Store läuft weiter, der Snapshot bleibt beim Stand seiner Positionen
+        store.onPrice("XOM", 500.0);
+        PortfolioAnalysisResult fromSnapshot = service.analyse(snapshot);
+        assertEquals(new BigDecimal("1000"), fromSnapshot.getTotalMarketValue());
+        assertEquals(new BigDecimal("60.00"), fromSnapshot.getTechWeight());
+        assertEquals(0, new BigDecimal("1100").compareTo(service.analyse(store).getTotalMarketValue()));
+
+        // Abbruch mitten im Aufbau: voriger Stand bleibt vollständig und gültig
+        List<Position> broken = Arrays.asList(position("MSFT", "Technology", "100"), null);
+        assertThrows(NullPointerException.class, () -> store.replaceAll(broken));
+        assertEquals(2, store.size());
+        assertTrue(store.isCurrent(60_000));
+        assertEquals(0, new BigDecimal("1100").compareTo(service.analyse(store.snapshot()).getTotalMarketValue()));
+    }
+
+    private static Position position(String symbol, String sector, String marketValue) {
+        return new Position(symbol, symbol, sector, BigDecimal.ONE, new BigDecimal(marketValue), BigDecimal.ZERO, null);
+    }
+}
@@ -0,0 +1,86 @@
+package com.mybroker.service;
+
+import com.mybroker.model.PortfolioAnalysisResult;
+import com.mybroker.model.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Portfolio-Analyse bei 10 bis 100000 Positionen: Ein-Pass-Kernel über die Liste, Analyse aus den laufenden
+ * Summen des {@link PortfolioAggregateStore}, Kursupdate im Store und vollständiger Abgleich.
+ * <p>
+ * Ausführen: {@code mvn -P benchmarks verify -DskipTests -Djmh.filter=PortfolioAnalysisBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PortfolioAnalysisBenchmark {
+
+    private static final String[] SECTORS = {
+            "Information Technology", "Health Care", "Financials", "Energy", "Industrials",
+            "Consumer Discretionary", "Utilities", "Materials", "Real Estate", "Communication Services", ""};
+
+    @Param({"10", "1000", "10000", "100000"})
+    public int positions;
+
+    private final PortfolioAnalysisService service = new PortfolioAnalysisService();
+    private List<Position> portfolio;
+    private PortfolioAggregateStore store;
+    private Random random;
+
+    @Setup
+    public void createPortfolio() {
+        random = new Random(42);
+        portfolio = new ArrayList<>(positions);
+        for (int i = 0; i < positions; i++) {
+            BigDecimal qty = BigDecimal.valueOf(1 + random.nextInt(1_000));
+            BigDecimal price = BigDecimal.valueOf(1_000 + random.nextInt(500_000), 2);
+            BigDecimal marketValue = qty.multiply(price);
+            portfolio.add(new Position("SYM" + i, "Company " + i, SECTORS[i % SECTORS.length], qty, marketValue,
+                    marketValue.movePointLeft(1).negate().add(BigDecimal.valueOf(random.nextInt(10_000), 2)),
+                    BigDecimal.valueOf(5 + random.nextInt(60), 2)));
+        }
+        store = PortfolioAggregateStore.forAccount("benchmark-" + positions);
+        store.replaceAll(portfolio);
+    }
+
+    @Benchmark
+    public PortfolioAnalysisResult analyseList() {
+        return service.analyse(portfolio);
+    }
+
+    @Benchmark
+    public PortfolioAnalysisResult analyseStore() {
+        return service.analyse(store);
+    }
+
+    @Benchmark
+    public PortfolioAnalysisResult priceUpdateThenAnalyse() {
+        store.onPrice("SYM" + random.nextInt(positions), 10 + random.nextInt(5_000) / 100.0);
+        return service.analyse(store);
+    }
+
+    @Benchmark
+    public PortfolioAggregateStore reconcile() {
+        store.replaceAll(portfolio);
+        return store;
+    }
+}
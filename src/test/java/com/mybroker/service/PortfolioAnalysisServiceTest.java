@@ -0,0 +1,304 @@
+package com.mybroker.service;
+
+import com.mybroker.model.PortfolioAnalysisResult;
+import com.mybroker.model.Position;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Der Ein-Pass-Kern muss dasselbe {@link PortfolioAnalysisResult} liefern wie die bisherige BigDecimal-Aggregation
+ * ({@link BaselineAnalysis}) – Werte, Skalen, Reihenfolge der Sektoren und Kommentare.
+ */
+class PortfolioAnalysisServiceTest {
+
+    private static final String[] SECTORS = {
+            "Technology", "Information Technology", "Energy", "Financials", "Health Care", "tech hardware",
+            null, "", "  ", "Unknown"};
+
+    private final PortfolioAnalysisService service = new PortfolioAnalysisService();
+    private final BaselineAnalysis baseline = new BaselineAnalysis();
+    private final Random random = new Random(18);
+
+    @Test
+    void randomPortfoliosMatchBaseline() {
+        for (int i = 0; i < 50_000; i++) {
+            List<Position> positions = randomPortfolio(random.nextInt(25));
+            assertSameResult(baseline.analyse(positions), service.analyse(positions), positions);
+        }
+    }
+
+    @Test
+    void tiesForTopPositionAndEqualSectorsKeepBaselineOrder() {
+        List<Position> positions = List.of(
+                position("MSFT", "Technology", "500"),
+                position("XOM", "Energy", "500.00"),
+                position("JPM", "Financials", "500"),
+                position("PFE", "Health Care", "250"),
+                position("KO", "Staples", "250"));
+        PortfolioAnalysisResult result = service.analyse(positions);
+
+        assertSameResult(baseline.analyse(positions), result, positions);
+        // bei Gleichstand gewinnt die erste Position
+        assertEquals("MSFT", result.getTopPositionSymbol());
+    }
+
+    @Test
+    void blankNullAndNegativeValuesMatchBaseline() {
+        List<Position> positions = new ArrayList<>(List.of(
+                position("A", null, "100"),
+                position("B", "", "50.5"),
+                position("C", "   ", "-30"),
+                position("D", "Technology", "-200"),
+                position("E", "Technology", "0"),
+                position("F", "Energy", "400.125")));
+        Position withoutValue = position("G", "Energy", "1");
+        withoutValue.setMarketValue(null);
+        positions.add(withoutValue);
+
+        PortfolioAnalysisResult result = service.analyse(positions);
+        assertSameResult(baseline.analyse(positions), result, positions);
+        assertEquals(new BigDecimal("320.625"), result.getTotalMarketValue());
+        assertEquals(List.of("Energy", "Unknown"), new ArrayList<>(result.getSectorWeights().keySet()));
+
+        // nur negative Werte: Gesamtwert <= 0
+        List<Position> negative = List.of(position("X", "Energy", "-1"), position("Y", "Technology", "-2"));
+        assertSameResult(baseline.analyse(negative), service.analyse(negative), negative);
+    }
+
+    @Test
+    void sumsBeyondLongMicrosMatchBaseline() {
+        List<Position> positions = List.of(
+                position("AAPL", "Technology", "6000000000000.50"),
+                position("XOM", "Energy", "5000000000000"),
+                position("JPM", "Financials", "1000000000000"),
+                position("NVDA", "Technology", "-2000000000000.25"));
+        assertSameResult(baseline.analyse(positions), service.analyse(positions), positions);
+    }
+
+    private static void assertSameResult(PortfolioAnalysisResult expected, PortfolioAnalysisResult actual,
+                                         List<Position> positions) {
+        String context = describe(positions);
+        assertEquals(expected.getTotalMarketValue(), actual.getTotalMarketValue(), context);
+        assertEquals(expected.getTechWeight(), actual.getTechWeight(), context);
+        assertEquals(expected.getTopPositionSymbol(), actual.getTopPositionSymbol(), context);
+        assertEquals(expected.getTopPositionWeight(), actual.getTopPositionWeight(), context);
+        assertEquals(entries(expected.getSectorWeights()), entries(actual.getSectorWeights()), context);
+        assertEquals(expected.getRiskComment(), actual.getRiskComment(), context);
+        assertEquals(expected.getVolatilityComment(), actual.getVolatilityComment(), context);
+        assertEquals(expected.getDiversificationComment(), actual.getDiversificationComment(), context);
+    }
+
+    private static List<Map.Entry<String, BigDecimal>> entries(Map<String, BigDecimal> weights) {
+        return weights == null ? null : new ArrayList<>(weights.entrySet());
+    }
+
+    private static String describe(List<Position> positions) {
+        StringBuilder sb = new StringBuilder();
+        for (Position p : positions) {
+            sb.append(p.getSymbol()).append('/').append(p.getSector()).append('/').append(p.getMarketValue())
+                    .append('/').append(p.getVolatility()).append(' ');
+        }
+        return sb.toString();
+    }
+
+    private List<Position> randomPortfolio(int size) {
+        List<Position> positions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Position p = position("S" + i, SECTORS[random.nextInt(SECTORS.length)], null);
+            p.setMarketValue(randomValue());
+            if (random.nextInt(4) > 0) {
+                p.setVolatility(BigDecimal.valueOf(random.nextInt(80_000), random.nextInt(7)));
+            }
+            positions.add(p);
+        }
+        return positions;
+    }
+
+    private BigDecimal randomValue() {
+        switch (random.nextInt(6)) {
+            case 0:
+                return null;
+            case 1:
+                // wenige runde Beträge erzeugen Gleichstände
+                return BigDecimal.valueOf(100L * (1 + random.nextInt(3)));
+            case 2:
+                return BigDecimal.valueOf(-random.nextInt(50_000), random.nextInt(3));
+            case 3:
+                return BigDecimal.valueOf(random.nextLong() >> 1, 2);
+            default:
+                return BigDecimal.valueOf(random.nextInt(10_000_000), random.nextInt(7));
+        }
+    }
+
+    private static Position position(String symbol, String sector, String marketValue) {
+        return new Position(symbol, symbol, sector, BigDecimal.ONE,
+                marketValue != null ? new BigDecimal(marketValue) : null, BigDecimal.ZERO, null);
+    }
+
+    /**
+     * Die BigDecimal-Aggregation vor dem Ein-Pass-Kern, unverändert übernommen.
+     */
+    private static final class BaselineAnalysis {
+
+        PortfolioAnalysisResult analyse(List<Position> positions) {
+            PortfolioAnalysisResult result = new PortfolioAnalysisResult();
+
+            if (positions == null || positions.isEmpty()) {
+                result.setTotalMarketValue(BigDecimal.ZERO);
+                result.setRiskComment("Keine Positionen im Portfolio.");
+                result.setVolatilityComment("-");
+                result.setDiversificationComment("-");
+                return result;
+            }
+
+            BigDecimal totalMv = positions.stream()
+                    .map(p -> p.getMarketValue() == null ? BigDecimal.ZERO : p.getMarketValue())
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+            result.setTotalMarketValue(totalMv);
+
+            if (totalMv.compareTo(BigDecimal.ZERO) <= 0) {
+                result.setRiskComment("Gesamtmarktwert ist 0 oder negativ.");
+                result.setVolatilityComment("-");
+                result.setDiversificationComment("-");
+                return result;
+            }
+
+            Map<String, BigDecimal> sectorWeights = buildSectorWeights(positions, totalMv);
+            result.setSectorWeights(sectorWeights);
+
+            BigDecimal techWeight = computeTechWeight(positions, totalMv);
+            result.setTechWeight(techWeight);
+
+            computeTopPosition(positions, totalMv, result);
+
+            result.setRiskComment(buildRiskComment(techWeight, result.getTopPositionWeight()));
+            result.setVolatilityComment(buildVolatilityComment(positions));
+            result.setDiversificationComment(buildDiversificationComment(sectorWeights));
+            return result;
+        }
+
+        private Map<String, BigDecimal> buildSectorWeights(List<Position> positions, BigDecimal totalMv) {
+            Map<String, BigDecimal> sectorMv = new HashMap<>();
+            for (Position p : positions) {
+                BigDecimal mv = p.getMarketValue() == null ? BigDecimal.ZERO : p.getMarketValue();
+                if (mv.compareTo(BigDecimal.ZERO) <= 0) {
+                    continue;
+                }
+                String sector = p.getSector();
+                if (sector == null || sector.isBlank()) {
+                    sector = "Unknown";
+                }
+                sectorMv.merge(sector, mv, BigDecimal::add);
+            }
+
+            Map<String, BigDecimal> sectorWeights = new LinkedHashMap<>();
+            sectorMv.entrySet().stream()
+                    .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+                    .forEach(e -> sectorWeights.put(e.getKey(), e.getValue()
+                            .multiply(BigDecimal.valueOf(100))
+                            .divide(totalMv, 2, RoundingMode.HALF_UP)));
+            return sectorWeights;
+        }
+
+        private BigDecimal computeTechWeight(List<Position> positions, BigDecimal totalMv) {
+            BigDecimal techMv = BigDecimal.ZERO;
+            for (Position p : positions) {
+                BigDecimal mv = p.getMarketValue() == null ? BigDecimal.ZERO : p.getMarketValue();
+                if (mv.compareTo(BigDecimal.ZERO) <= 0) {
+                    continue;
+                }
+                String sector = p.getSector();
+                if (sector != null && sector.toLowerCase().contains("tech")) {
+                    techMv = techMv.add(mv);
+                }
+            }
+            if (techMv.compareTo(BigDecimal.ZERO) <= 0) {
+                return BigDecimal.ZERO;
+            }
+            return techMv.multiply(BigDecimal.valueOf(100)).divide(totalMv, 2, RoundingMode.HALF_UP);
+        }
+
+        private void computeTopPosition(List<Position> positions, BigDecimal totalMv, PortfolioAnalysisResult result) {
+            Position top = positions.stream()
+                    .filter(p -> p.getMarketValue() != null)
+                    .max(Comparator.comparing(Position::getMarketValue))
+                    .orElse(null);
+
+            if (top == null || top.getMarketValue() == null || top.getMarketValue().compareTo(BigDecimal.ZERO) <= 0) {
+                result.setTopPositionSymbol(null);
+                result.setTopPositionWeight(BigDecimal.ZERO);
+                return;
+            }
+            result.setTopPositionSymbol(top.getSymbol());
+            result.setTopPositionWeight(top.getMarketValue()
+                    .multiply(BigDecimal.valueOf(100))
+                    .divide(totalMv, 2, RoundingMode.HALF_UP));
+        }
+
+        private String buildRiskComment(BigDecimal techWeight, BigDecimal topWeight) {
+            StringBuilder sb = new StringBuilder();
+            if (techWeight != null && techWeight.compareTo(new BigDecimal("40")) > 0) {
+                sb.append("Hohe Tech-Gewichtung (").append(techWeight).append("%). ");
+            } else if (techWeight != null && techWeight.compareTo(new BigDecimal("20")) > 0) {
+                sb.append("Moderate Tech-Gewichtung (").append(techWeight).append("%). ");
+            }
+            if (topWeight != null && topWeight.compareTo(new BigDecimal("35")) > 0) {
+                sb.append("Sehr hohe Konzentration auf eine Einzelposition (").append(topWeight).append("%).");
+            } else if (topWeight != null && topWeight.compareTo(new BigDecimal("20")) > 0) {
+                sb.append("Erhöhte Konzentration auf eine Einzelposition (").append(topWeight).append("%).");
+            }
+            if (sb.length() == 0) {
+                return "Risikoprofil wirkt ausgewogen (keine starke Konzentration sichtbar).";
+            }
+            return sb.toString();
+        }
+
+        private String buildVolatilityComment(List<Position> positions) {
+            BigDecimal sum = BigDecimal.ZERO;
+            int count = 0;
+            for (Position p : positions) {
+                if (p.getVolatility() != null) {
+                    sum = sum.add(p.getVolatility());
+                    count++;
+                }
+            }
+            if (count == 0) {
+                return "Keine Volatilitätsdaten verfügbar.";
+            }
+            BigDecimal avgVol = sum.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+            if (avgVol.compareTo(new BigDecimal("0.30")) > 0) {
+                return "Durchschnittliche Volatilität ist eher hoch (" + avgVol + ").";
+            } else if (avgVol.compareTo(new BigDecimal("0.15")) > 0) {
+                return "Durchschnittliche Volatilität ist moderat (" + avgVol + ").";
+            }
+            return "Durchschnittliche Volatilität ist eher niedrig (" + avgVol + ").";
+        }
+
+        private String buildDiversificationComment(Map<String, BigDecimal> sectorWeights) {
+            if (sectorWeights == null || sectorWeights.isEmpty()) {
+                return "Keine Sektorinformationen verfügbar.";
+            }
+            if (sectorWeights.size() <= 2) {
+                return "Portfolio ist auf wenige Sektoren konzentriert.";
+            }
+            boolean singleDominant = sectorWeights.values().stream()
+                    .anyMatch(w -> w.compareTo(new BigDecimal("50")) > 0);
+            if (singleDominant) {
+                return "Ein Sektor dominiert das Portfolio deutlich (>50%).";
+            }
+            return "Sektorverteilung wirkt einigermaßen diversifiziert.";
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.mybroker.service;
+
+import com.mybroker.db.TenantAccountRepository;
+import com.mybroker.model.AlpacaCredentials;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verschlüsselte Zugangsdaten, maskierte Darstellung und Existenzprüfung der verwalteten Konten.
+ */
+class TenantAlpacaClientsTest {
+
+    private final TenantSecretCipher cipher = new TenantSecretCipher(new byte[32]);
+    private final Accounts accounts = new Accounts();
+
+    @Test
+    void secretsAreBoundToTenantAndColumn() throws Exception {
+        String stored = cipher.encrypt("secret-a", "tenant-a", TenantSecretCipher.API_SECRET_COLUMN);
+        assertNotEquals(stored, cipher.encrypt("secret-a", "tenant-a", TenantSecretCipher.API_SECRET_COLUMN));
+        assertEquals("secret-a", cipher.decrypt(stored, "tenant-a", TenantSecretCipher.API_SECRET_COLUMN));
+
+        assertThrows(GeneralSecurityException.class,
+                () -> cipher.decrypt(stored, "tenant-b", TenantSecretCipher.API_SECRET_COLUMN));
+        assertThrows(GeneralSecurityException.class,
+                () -> cipher.decrypt(stored, "tenant-a", TenantSecretCipher.API_KEY_COLUMN));
+        assertThrows(GeneralSecurityException.class,
+                () -> cipher.decrypt("secret-a", "tenant-a", TenantSecretCipher.API_SECRET_COLUMN));
+    }
+
+    @Test
+    void onlyActiveTenantsWithEncryptedCredentialsGetClients() throws Exception {
+        accounts.put("tenant-a", encrypted("tenant-a", "key-a", "secret-a"));
+        accounts.put("plain", new AlpacaCredentials("plain", "key", "secret", "https://paper", null));
+        TenantAlpacaClients clients = new TenantAlpacaClients(accounts, cipher, 60_000, 16);
+
+        assertTrue(clients.exists("tenant-a"));
+        assertNotNull(clients.client("tenant-a", AlpacaRateLimiter.Priority.INTERACTIVE));
+        assertFalse(clients.exists("unknown"));
+        assertThrows(IOException.class, () -> clients.client("unknown", AlpacaRateLimiter.Priority.INTERACTIVE));
+        assertThrows(IOException.class, () -> clients.exists("plain"));
+        assertEquals(1, clients.size());
+
+        TenantAlpacaClients withoutKey = new TenantAlpacaClients(accounts, null, 60_000, 16);
+        assertThrows(IOException.class, () -> withoutKey.exists("tenant-a"));
+    }
+
+    @Test
+    void toStringMasksApiKey() {
+        AlpacaCredentials credentials =
+                new AlpacaCredentials("tenant-a", "PKABCDEFGH1234", "secret-a", "https://paper", null);
+        assertEquals("AlpacaCredentials{tenant=tenant-a, key=****1234, baseUrl=https://paper}",
+                credentials.toString());
+        assertFalse(new AlpacaCredentials("t", "abc", "s", null, null).toString().contains("abc"));
+    }
+
+    private AlpacaCredentials encrypted(String tenantId, String apiKey, String apiSecret) throws GeneralSecurityException {
+        return new AlpacaCredentials(tenantId,
+                cipher.encrypt(apiKey, tenantId, TenantSecretCipher.API_KEY_COLUMN),
+                cipher.encrypt(apiSecret, tenantId, TenantSecretCipher.API_SECRET_COLUMN),
+                "https://paper", null);
+    }
+
+    private static final class Accounts extends TenantAccountRepository {
+        private final Map<String, AlpacaCredentials> rows = new HashMap<>();
+
+        void put(String tenantId, AlpacaCredentials stored) {
+            rows.put(tenantId, stored);
+        }
+
+        @Override
+        public AlpacaCredentials find(String tenantId) {
+            return rows.get(tenantId);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.mybroker.stream;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LiveOrderBookTest {
+
+    @Test
+    void terminalOrdersAreEvictedBeyondMaxCount() {
+        LiveOrderBook book = new LiveOrderBook(Duration.ofHours(1), 2);
+        book.applyOrder(order("open", "new"));
+        book.applyOrder(order("a", "filled"));
+        book.applyOrder(order("b", "canceled"));
+        book.applyOrder(order("c", "rejected"));
+
+        assertNull(book.getOrder("a"));
+        assertNotNull(book.getOrder("b"));
+        assertNotNull(book.getOrder("c"));
+        assertNotNull(book.getOrder("open"));
+        assertEquals(1, book.getOpenOrders().size());
+    }
+
+    @Test
+    void terminalOrdersAreEvictedAfterRetention() throws InterruptedException {
+        LiveOrderBook book = new LiveOrderBook(Duration.ofMillis(20), 1000);
+        book.applyOrder(order("a", "new"));
+        book.applyOrder(order("a", "filled"));
+        assertNotNull(book.getOrder("a"));
+
+        Thread.sleep(40);
+        book.applyOrder(order("b", "new"));
+
+        assertNull(book.getOrder("a"));
+        assertNotNull(book.getOrder("b"));
+    }
+
+    @Test
+    void reconcileKeepsEventsFromDuringTheRestFetchAndTerminalOrders() {
+        LiveOrderBook book = new LiveOrderBook(Duration.ofHours(1), 1000);
+        book.applyOrder(order("stale", "new"));
+        book.applyOrder(order("done", "filled"));
+        book.applyFill(new LiveFill("x", "AAPL", "buy", "5", "100", "t0"), new BigDecimal("5"));
+
+        book.beginReconcile();
+        // trifft ein, während die REST-Abfragen laufen
+        book.applyOrder(order("fresh", "new"));
+        book.applyFill(new LiveFill("y", "MSFT", "buy", "3", "400", "t1"), new BigDecimal("13"));
+
+        // REST-Stand von vor den Events: "fresh" fehlt, MSFT noch mit 10
+        book.reconcile(List.of(), Map.of("AAPL", new BigDecimal("7"), "MSFT", BigDecimal.TEN),
+                List.of(new LiveFill("y", "MSFT", "buy", "3.0", "400.00", "2026-01-05T10:00:00Z"),
+                        new LiveFill("x", "AAPL", "buy", "5", "100", "2026-01-05T09:00:00Z")));
+
+        assertNull(book.getOrder("stale"));
+        assertNotNull(book.getOrder("fresh"));
+        assertNotNull(book.getOrder("done"));
+        assertEquals(List.of("fresh"), book.getOpenOrders().stream().map(LiveOrder::getId).toList());
+        assertEquals(0, new BigDecimal("13").compareTo(book.getPosition("MSFT")));
+        assertEquals(0, new BigDecimal("7").compareTo(book.getPosition("AAPL")));
+        assertEquals(List.of("t1", "2026-01-05T09:00:00Z"),
+                book.getRecentFills(10).stream().map(LiveFill::getTimestamp).toList());
+
+        // ohne laufenden Abgleich gilt der REST-Stand wieder vollständig
+        book.reconcile(List.of(), Map.of(), List.of());
+        assertNull(book.getOrder("fresh"));
+        assertEquals(0, book.getPosition("MSFT").signum());
+    }
+
+    private static LiveOrder order(String id, String status) {
+        return new LiveOrder(id, "c-" + id, "AAPL", "buy", "market", "1", "0", status,
+                "2026-01-05T10:00:00Z", Instant.now());
+    }
+}
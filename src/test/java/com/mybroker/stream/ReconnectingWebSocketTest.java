@@ -0,0 +1,148 @@
+package com.mybroker.stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.http.WebSocket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Socket, der nach dem Handshake nichts mehr liest: Sendepuffer laufen voll, sendText wird nie fertig,
+ * Pings bleiben unbeantwortet.
+ */
+class ReconnectingWebSocketTest {
+
+    private ServerSocket server;
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+    private TestSocket client;
+
+    @BeforeEach
+    void startStalledServer() throws IOException {
+        server = new ServerSocket();
+        server.setReceiveBufferSize(4096);
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    sockets.add(socket);
+                    handshake(socket);
+                    accepted.incrementAndGet();
+                } catch (Exception e) {
+                    return;
+                }
+            }
+        }, "stalled-ws-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        System.setProperty("STREAM_SEND_TIMEOUT_MS", "300");
+        client = new TestSocket("ws://127.0.0.1:" + server.getLocalPort());
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        System.clearProperty("STREAM_SEND_TIMEOUT_MS");
+        System.clearProperty("STREAM_PING_INTERVAL_MS");
+        System.clearProperty("STREAM_IDLE_TIMEOUT_MS");
+        client.stop();
+        server.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    @Test
+    void sendNeverBlocksCallerAndStalledSocketIsReplaced() throws Exception {
+        client.start();
+        TradeUpdatesStreamTest.awaitTrue(client::isOpen, "keine Verbindung");
+
+        String large = "x".repeat(8 * 1024 * 1024);
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(client.sendFromCaller(large));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis < 1_000, "send() blockierte " + elapsedMillis + " ms");
+
+        // Sendevorgang hängt -> nach STREAM_SEND_TIMEOUT_MS Reconnect (Backoff 1-1.5 s)
+        TradeUpdatesStreamTest.awaitTrue(() -> accepted.get() >= 2, "kein Reconnect nach hängendem Senden");
+    }
+
+    @Test
+    void silentPeerIsReplacedAfterIdleTimeout() throws Exception {
+        System.setProperty("STREAM_PING_INTERVAL_MS", "200");
+        System.setProperty("STREAM_IDLE_TIMEOUT_MS", "800");
+        client = new TestSocket("ws://127.0.0.1:" + server.getLocalPort());
+        client.start();
+        TradeUpdatesStreamTest.awaitTrue(client::isOpen, "keine Verbindung");
+
+        // kein Close, kein Fehler, kein Pong -> Reconnect nach STREAM_IDLE_TIMEOUT_MS (Backoff 1-1.5 s)
+        TradeUpdatesStreamTest.awaitTrue(() -> accepted.get() >= 2, "kein Reconnect nach stiller Verbindung");
+    }
+
+    private static void handshake(Socket socket) throws Exception {
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+        String key = null;
+        for (String line = in.readLine(); line != null && !line.isEmpty(); line = in.readLine()) {
+            if (line.toLowerCase().startsWith("sec-websocket-key:")) {
+                key = line.substring(line.indexOf(':') + 1).trim();
+            }
+        }
+        byte[] digest = MessageDigest.getInstance("SHA-1").digest(
+                (key + "258EAFA5-E914-47DA-95CA-C5AB0DC85B11").getBytes(StandardCharsets.ISO_8859_1));
+        OutputStream out = socket.getOutputStream();
+        out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + Base64.getEncoder().encodeToString(digest) + "\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    private static final class TestSocket extends ReconnectingWebSocket {
+        private volatile boolean open;
+
+        TestSocket(String url) {
+            super("stalled_test", url);
+        }
+
+        boolean isOpen() {
+            return open;
+        }
+
+        boolean sendFromCaller(String message) {
+            return send(message);
+        }
+
+        @Override
+        protected void onOpen(WebSocket ws) {
+            open = true;
+            markHealthy();
+        }
+
+        @Override
+        protected void onMessage(WebSocket ws, String message) {
+        }
+
+        @Override
+        protected void onDisconnected() {
+            open = false;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.mybroker.stream;
+
+import org.java_websocket.WebSocket;
+import org.java_websocket.handshake.ClientHandshake;
+import org.java_websocket.server.WebSocketServer;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Lokaler WebSocket-Server als Ersatz für die Alpaca-Streams in Tests. Antworten liefert ein Skript
+ * (Verbindung, eingehende Nachricht); zusätzlich können Tests Nachrichten an alle Clients schicken
+ * oder Verbindungen trennen.
+ */
+public class StandInWebSocketServer extends WebSocketServer {
+
+    private final BiConsumer<WebSocket, String> script;
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    public StandInWebSocketServer(BiConsumer<WebSocket, String> script) {
+        super(new InetSocketAddress("127.0.0.1", 0));
+        this.script = script;
+        setReuseAddr(true);
+    }
+
+    public void startAndWait() throws InterruptedException {
+        start();
+        if (!started.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Stand-in-Server nicht gestartet");
+        }
+    }
+
+    public String url() {
+        return "ws://127.0.0.1:" + getPort();
+    }
+
+    /** Anzahl bisher angenommener Verbindungen. */
+    public int connectionCount() {
+        return connections.get();
+    }
+
+    public List<String> received() {
+        return received;
+    }
+
+    /** Trennt alle offenen Verbindungen hart (wie ein Netzwerkabbruch). */
+    public void dropAll() {
+        for (WebSocket conn : getConnections()) {
+            conn.closeConnection(1006, "stand-in drop");
+        }
+    }
+
+    public void stopQuietly() {
+        try {
+            stop(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket conn, ClientHandshake handshake) {
+        connections.incrementAndGet();
+    }
+
+    @Override
+    public void onClose(WebSocket conn, int code, String reason, boolean remote) {
+    }
+
+    @Override
+    public void onMessage(WebSocket conn, String message) {
+        received.add(message);
+        script.accept(conn, message);
+    }
+
+    @Override
+    public void onError(WebSocket conn, Exception ex) {
+    }
+
+    @Override
+    public void onStart() {
+        started.countDown();
+    }
+}
@@ -0,0 +1,152 @@
+package com.mybroker.stream;
+
+import com.mybroker.model.AlpacaCredentials;
+import com.mybroker.service.AlpacaRateLimiter;
+import com.mybroker.service.AlpacaService;
+import com.sun.net.httpserver.HttpServer;
+import org.java_websocket.WebSocket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TradeUpdatesStreamTest {
+
+    private static final String OPEN_ORDER = "{\"id\":\"o1\",\"client_order_id\":\"c1\",\"symbol\":\"AAPL\","
+            + "\"side\":\"buy\",\"type\":\"limit\",\"qty\":\"10\",\"filled_qty\":\"0\",\"status\":\"new\","
+            + "\"created_at\":\"2026-01-05T10:00:00Z\",\"updated_at\":\"2026-01-05T10:00:00Z\"}";
+
+    private StandInWebSocketServer streamServer;
+    private HttpServer restServer;
+    private volatile String openOrdersJson = "[" + OPEN_ORDER + "]";
+    private volatile String positionsJson = "[{\"symbol\":\"MSFT\",\"qty\":\"3\"}]";
+    private TradeUpdatesStream stream;
+
+    @BeforeEach
+    void startServers() throws Exception {
+        streamServer = new StandInWebSocketServer(TradeUpdatesStreamTest::alpacaProtocol);
+        streamServer.startAndWait();
+
+        restServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        restServer.createContext("/v2/orders", exchange -> respond(exchange, openOrdersJson));
+        restServer.createContext("/v2/positions", exchange -> respond(exchange, positionsJson));
+        restServer.createContext("/v2/account/activities", exchange -> respond(exchange, "[]"));
+        restServer.start();
+
+        AlpacaService rest = new AlpacaService(
+                new AlpacaCredentials(null, "key", "secret",
+                        "http://127.0.0.1:" + restServer.getAddress().getPort(), null),
+                AlpacaRateLimiter.Priority.BACKGROUND, AlpacaRateLimiter.forTenant());
+        // Abbrüche ohne Close fängt der Ping-Watchdog, hängende Handshakes der Handshake-Timeout
+        System.setProperty("STREAM_PING_INTERVAL_MS", "250");
+        System.setProperty("STREAM_IDLE_TIMEOUT_MS", "2000");
+        System.setProperty("STREAM_HANDSHAKE_TIMEOUT_MS", "2000");
+        stream = new TradeUpdatesStream(streamServer.url(), "key", "secret", rest);
+    }
+
+    @AfterEach
+    void stopServers() {
+        stream.stop();
+        streamServer.stopQuietly();
+        System.clearProperty("STREAM_PING_INTERVAL_MS");
+        System.clearProperty("STREAM_IDLE_TIMEOUT_MS");
+        System.clearProperty("STREAM_HANDSHAKE_TIMEOUT_MS");
+        restServer.stop(0);
+    }
+
+    @Test
+    void reconcilesAfterConnectAndAppliesFills() throws Exception {
+        stream.start();
+        awaitTrue(stream::isLive, "Stream nicht live");
+
+        LiveOrderBook book = stream.getBook();
+        assertEquals(1, book.getOpenOrders().size());
+        assertEquals(0, new BigDecimal("3").compareTo(book.getPosition("MSFT")));
+
+        streamServer.broadcast("{\"stream\":\"trade_updates\",\"data\":{\"event\":\"fill\",\"qty\":\"10\","
+                + "\"price\":\"190.5\",\"timestamp\":\"2026-01-05T10:01:00Z\",\"position_qty\":\"10\","
+                + "\"order\":" + OPEN_ORDER.replace("\"new\"", "\"filled\"")
+                .replace("\"filled_qty\":\"0\"", "\"filled_qty\":\"10\"")
+                .replace("\"updated_at\":\"2026-01-05T10:00:00Z\"", "\"updated_at\":\"2026-01-05T10:01:00Z\"") + "}}");
+
+        awaitTrue(() -> book.getPosition("AAPL").compareTo(BigDecimal.TEN) == 0, "Fill nicht verbucht");
+        assertTrue(book.getOpenOrders().isEmpty());
+        assertEquals("filled", book.getOrder("o1").getStatus());
+        assertEquals(1, book.getRecentFills(5).size());
+    }
+
+    @Test
+    void reconnectsAfterDropAndReconcilesTheGap() throws Exception {
+        stream.start();
+        awaitTrue(stream::isLive, "Stream nicht live");
+        assertEquals(1, stream.getBook().getOpenOrders().size());
+
+        // Während der Lücke wurde die Order storniert und MSFT verkauft
+        openOrdersJson = "[]";
+        positionsJson = "[]";
+        streamServer.dropAll();
+
+        awaitTrue(() -> streamServer.connectionCount() >= 2 && stream.isLive(), "kein Reconnect");
+        awaitTrue(() -> stream.getBook().getOpenOrders().isEmpty(), "Lücke nicht abgeglichen");
+        assertEquals(0, stream.getBook().getPosition("MSFT").signum());
+    }
+
+    @Test
+    void canBeRestartedAfterStop() throws Exception {
+        stream.start();
+        awaitTrue(stream::isLive, "Stream nicht live");
+
+        stream.stop();
+        assertFalse(stream.isLive());
+
+        stream.start();
+        awaitTrue(() -> streamServer.connectionCount() >= 2 && stream.isLive(), "kein Neustart nach stop()");
+    }
+
+    @Test
+    void unknownOrderIsNull() {
+        assertNull(stream.getBook().getOrder("unbekannt"));
+    }
+
+    /**
+     * Minimales Alpaca-Protokoll: auth -&gt; authorized, listen -&gt; listening.
+     */
+    private static void alpacaProtocol(WebSocket conn, String message) {
+        if (message.contains("\"auth\"")) {
+            conn.send("{\"stream\":\"authorization\",\"data\":{\"status\":\"authorized\",\"action\":\"authenticate\"}}");
+        } else if (message.contains("\"listen\"")) {
+            conn.send("{\"stream\":\"listening\",\"data\":{\"streams\":[\"trade_updates\"]}}");
+        }
+    }
+
+    private static void respond(com.sun.net.httpserver.HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    static void awaitTrue(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(message);
+            }
+            Thread.sleep(20);
+        }
+    }
+}